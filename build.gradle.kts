@@ -11,6 +11,7 @@ repositories {
 
 dependencies {
     annotationProcessor("com.google.dagger:dagger-compiler:2.48.1")
+    testAnnotationProcessor("com.google.dagger:dagger-compiler:2.48.1")
 
     implementation("org.jsoup:jsoup:1.16.1")
     implementation("com.google.guava:guava:32.1.2-jre")
@@ -24,4 +25,52 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Crawls a synthetic site served locally, e.g.
+// `gradle loadHarness -Dharness.pages=10000 -Dharness.medianLatencyMillis=20 -Dcrawler.workerThreads=50`.
+// The result is written as json to build/reports/load.
+tasks.register<JavaExec>("loadHarness") {
+    group = "verification"
+    description = "Measures the end to end throughput of a crawl of a synthetic site."
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("yashasvig.crawler.harness.LoadHarness")
+    systemProperties(System.getProperties().filterKeys {
+        it.toString().startsWith("harness.") || it.toString().startsWith("crawler.")
+    }.mapKeys { it.key.toString() })
+}
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
+
+// Microbenchmarks of the hot paths, in src/jmh. Run them all with `gradle jmh`, or pass JMH options along, for
+// example `gradle jmh -PjmhArgs="UrlFilterBenchmark -f 1"`. Every run reports the allocation rate through the gc
+// profiler and writes its results to build/reports/jmh/results.json.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    doFirst { results.parentFile.mkdirs() }
+    args("-prof", "gc", "-rf", "json", "-rff", results.path)
+    (project.findProperty("jmhArgs") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
+tasks.check {
+    dependsOn(tasks.named(jmh.classesTaskName))
+}
@@ -0,0 +1,30 @@
+package yashasvig.crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The html pages in {@code src/jmh/resources/fixtures} which the benchmarks crawl.
+ */
+public final class Fixtures {
+
+    /**
+     * The url the fixtures are crawled as.
+     */
+    public static final String BASE_URI = "https://example.com/blog/post";
+
+    private Fixtures() {
+    }
+
+    public static byte[] read(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture named " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
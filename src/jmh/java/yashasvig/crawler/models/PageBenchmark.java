@@ -0,0 +1,70 @@
+package yashasvig.crawler.models;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import yashasvig.crawler.util.IndentingPrintWriter;
+
+import java.io.Writer;
+import java.net.URI;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the child urls of a page and prints it, for a page holding its child urls as ids in a {@link UrlDictionary}
+ * as the crawler creates them, and for one holding its own copy.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PageBenchmark {
+
+    private static final int CHILD_URLS = 200;
+
+    @Param({"true", "false"})
+    boolean dictionary;
+
+    private Page page;
+    private IndentingPrintWriter writer;
+
+    @Setup
+    public void setUp() {
+        Set<URI> childUrls = new LinkedHashSet<>();
+        for (int i = 0; i < CHILD_URLS; i++) {
+            childUrls.add(URI.create("https://example.com/section-" + (i % 7) + "/page-" + i));
+        }
+        URI url = URI.create("https://example.com/");
+        if (dictionary) {
+            UrlDictionary urlDictionary = new UrlDictionary();
+            page = new Page(url, urlDictionary.internAll(childUrls), urlDictionary);
+        } else {
+            page = new Page(url, childUrls);
+        }
+        writer = new IndentingPrintWriter(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void getChildUrls(Blackhole blackhole) {
+        for (URI childUrl : page.getChildUrls()) {
+            blackhole.consume(childUrl);
+        }
+    }
+
+    @Benchmark
+    public void print() {
+        page.print(writer);
+    }
+}
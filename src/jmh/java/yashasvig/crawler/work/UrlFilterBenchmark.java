@@ -0,0 +1,70 @@
+package yashasvig.crawler.work;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import yashasvig.crawler.Fixtures;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UrlFilter#isValid(String)} and {@link UrlFilter#isValid(URI)} over the canonical links of the listing
+ * fixture, about half of which are out of scope.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlFilterBenchmark {
+
+    private final UrlFilter filter = new UrlFilter("https", "example.com");
+    private List<String> canonicalUrls;
+    private List<URI> uris;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> links = new ArrayList<>();
+        new StreamingLinkExtractor().extract(new ByteArrayInputStream(Fixtures.read("listing.html")), "UTF-8",
+                Fixtures.BASE_URI, links::add);
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(false);
+        canonicalUrls = links.stream().map(canonicalizer::canonicalize).filter(Objects::nonNull).toList();
+        uris = canonicalUrls.stream().map(URI::create).toList();
+    }
+
+    @Benchmark
+    public int isValidCanonical() {
+        int valid = 0;
+        for (String url : canonicalUrls) {
+            if (filter.isValid(url)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int isValidUri() {
+        int valid = 0;
+        for (URI uri : uris) {
+            if (filter.isValid(uri)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,131 @@
+package yashasvig.crawler.work;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import yashasvig.crawler.Fixtures;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.models.UrlDictionary;
+import yashasvig.crawler.work.cache.NoOpValidatorCache;
+import yashasvig.crawler.work.cache.ValidatorCache;
+import yashasvig.crawler.work.cache.Validators;
+import yashasvig.crawler.work.limit.ConcurrencyLimiter;
+import yashasvig.crawler.work.limit.FixedConcurrencyLimiter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crawls the html fixtures without any network: extracting their links, turning the links into canonical urls in
+ * scope, and the whole of {@link Worker} on top of a fetcher which hands the fixture over right away.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkerBenchmark {
+
+    @Param({"article.html", "listing.html"})
+    String fixture;
+
+    @Param({"DOM", "STREAMING"})
+    CrawlConfig.LinkExtractionMode extraction;
+
+    private byte[] body;
+    private LinkExtractor extractor;
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(false);
+    private final UrlFilter filter = new UrlFilter("https", "example.com");
+    private final ValidatorCache validatorCache = new NoOpValidatorCache();
+    private final UrlDictionary urlDictionary = new UrlDictionary();
+    private final ConcurrencyLimiter limiter = new FixedConcurrencyLimiter(1);
+    private final CrawlMetrics metrics = new CrawlMetrics();
+    private final LastPage lastPage = new LastPage();
+    private final URI url = URI.create(Fixtures.BASE_URI);
+    private List<String> links;
+    private Fetcher fetcher;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = Fixtures.read(fixture);
+        extractor = extraction == CrawlConfig.LinkExtractionMode.STREAMING
+                ? new StreamingLinkExtractor() : new DomLinkExtractor();
+        links = new ArrayList<>();
+        extractor.extract(new ByteArrayInputStream(body), "UTF-8", Fixtures.BASE_URI, links::add);
+        fetcher = (pageUrl, sendHeadRequest, validators, bodyConsumer) -> {
+            try {
+                bodyConsumer.accept(new ByteArrayInputStream(body), "UTF-8", pageUrl.toString());
+                return CompletableFuture.completedFuture(Fetcher.Result.fetched(Validators.NONE, 0));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        };
+    }
+
+    @Benchmark
+    public void extractLinks(Blackhole blackhole) throws IOException {
+        extractor.extract(new ByteArrayInputStream(body), "UTF-8", Fixtures.BASE_URI, blackhole::consume);
+    }
+
+    /**
+     * Canonicalizes the links already extracted from the fixture and keeps the ones in scope.
+     */
+    @Benchmark
+    public int filterLinks() {
+        int valid = 0;
+        for (String link : links) {
+            String canonical = canonicalizer.canonicalize(link);
+            if (canonical != null && filter.isValid(canonical)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Runs a {@link Worker} over the fixture. The dictionary is shared by all the runs, so the links are only new the
+     * first time, as most links of a site are once a crawl is under way.
+     */
+    @Benchmark
+    public Page crawlPage() throws InterruptedException {
+        limiter.acquire();
+        new Worker(fetcher, extractor, validatorCache, filter, canonicalizer, urlDictionary, lastPage, limiter,
+                metrics, url, false).run();
+        return lastPage.page;
+    }
+
+    private static final class LastPage implements WorkCallback {
+        private Page page;
+
+        @Override
+        public void onFinishedPageSuccessfully(Page page) {
+            this.page = page;
+        }
+
+        @Override
+        public void onError(String url, String errorMessage) {
+            throw new IllegalStateException(errorMessage);
+        }
+
+        @Override
+        public void onFinishedCrawling() {
+        }
+    }
+}
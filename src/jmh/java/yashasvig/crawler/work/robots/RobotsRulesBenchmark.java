@@ -0,0 +1,67 @@
+package yashasvig.crawler.work.robots;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import yashasvig.crawler.Fixtures;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RobotsRules#isAllowed(URI)} over a thousand urls of the fixture site, against a robots.txt with a hundred
+ * plain rules and a few wildcard ones, which is on the large side for a real site.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RobotsRulesBenchmark {
+
+    private RobotsRules rules;
+    private List<URI> urls;
+
+    @Setup
+    public void setUp() {
+        StringBuilder robotsTxt = new StringBuilder("User-agent: *\n");
+        for (int i = 0; i < 100; i++) {
+            robotsTxt.append("Disallow: /section-").append(i).append("/private\n");
+        }
+        robotsTxt.append("Disallow: /*?sort=\nDisallow: /*.pdf$\nAllow: /blog/*/public$\n");
+        rules = RobotsRules.parse(robotsTxt.toString(), "WebCrawler");
+
+        URI base = URI.create(Fixtures.BASE_URI);
+        urls = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String path = switch (i % 4) {
+                case 0 -> "/section-" + i % 150 + "/private/page-" + i;
+                case 1 -> "/blog/post-" + i + "?sort=date";
+                case 2 -> "/files/report-" + i + ".pdf";
+                default -> "/blog/post-" + i + "/public";
+            };
+            urls.add(base.resolve(path));
+        }
+    }
+
+    @Benchmark
+    public int isAllowed() {
+        int allowed = 0;
+        for (URI url : urls) {
+            if (rules.isAllowed(url)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,102 @@
+package yashasvig.crawler.work.visited;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import yashasvig.crawler.global.CrawlConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Marks urls as visited from 4 threads at once, the way the sessions do when the workers report their pages.
+ *
+ * <p>Every iteration starts with an empty store and the threads walk through the same pool of urls from different
+ * offsets, so the store sees new urls first and more and more urls it already knows, as it does during a crawl.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class VisitedStoreBenchmark {
+
+    private static final int URLS = 1 << 20;
+    private static final int LINKS_PER_PAGE = 64;
+
+    @Param({"STRINGS", "FINGERPRINTS", "TIERED"})
+    CrawlConfig.VisitedStoreMode mode;
+
+    private final List<String> urls = IntStream.range(0, URLS)
+            .mapToObj(i -> "https://example.com/section-" + (i % 97) + "/page-" + i + "?ref=" + (i * 31 % 1000))
+            .toList();
+    private VisitedStore store;
+    private Path directory;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        store = switch (mode) {
+            case STRINGS -> new StringVisitedStore();
+            case FINGERPRINTS -> new FingerprintVisitedStore();
+            case TIERED -> new TieredVisitedStore(directory = Files.createTempDirectory("visited"), URLS);
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        store.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            directory = null;
+        }
+    }
+
+    @Benchmark
+    public boolean markVisited(Cursor cursor) {
+        return store.markVisited(urls.get(cursor.next()));
+    }
+
+    /**
+     * Marks the links of a whole page at once, as a session does.
+     */
+    @Benchmark
+    public boolean[] markAllVisited(Cursor cursor) {
+        int from = cursor.next() & ~(LINKS_PER_PAGE - 1);
+        return store.markAllVisited(urls.subList(from, from + LINKS_PER_PAGE));
+    }
+
+    /**
+     * The position of a thread in the pool of urls.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position = ThreadLocalRandom.current().nextInt(URLS);
+
+        int next() {
+            position = (position + 1) & (URLS - 1);
+            return position;
+        }
+    }
+}
@@ -2,11 +2,14 @@ package yashasvig.crawler.api;
 
 import yashasvig.crawler.centre.CrawlCentre;
 import yashasvig.crawler.global.Constants;
+import yashasvig.crawler.work.CrawlSession;
+import yashasvig.crawler.work.seed.SeedSource;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 
 /**
  * Entry point into the crawler system.
@@ -30,17 +33,28 @@ public final class Crawler {
     }
 
     /**
-     * Starts the crawling process.
+     * Starts the crawling process in a new {@link CrawlSession}.
      *
-     * <p>The process happens asynchronously and this method returns shortly after scheduling it.</p>
+     * <p>The process happens asynchronously and this method returns shortly after scheduling it. Any no of sites can
+     * be crawled at the same time, each one in its own session with its own output, sharing the same workers.</p>
      *
      * <p>Note that it throws {@link IllegalArgumentException} if the passed url scheme is not supported. See
      * {@link Constants#SUPPORTED_SCHEMES} to see what all schemes are supported</p>
      *
      * @param baseUrl the base url to start crawling
-     * @throws IllegalArgumentException if the passed url is not supported
+     * @return the session crawling the site, which can be used to wait for it to finish
+     * @throws IllegalArgumentException if the passed url is not supported or its site is already being crawled
      */
-    public void crawl(String baseUrl) throws URISyntaxException {
-        crawlCentre.start(new URI(baseUrl));
+    public CrawlSession crawl(String baseUrl) throws URISyntaxException {
+        return crawlCentre.start(new URI(baseUrl));
+    }
+
+    /**
+     * Same as {@link #crawl(String)}, but also starts from all the urls of the site found in {@code seedSources}, for
+     * example {@link SeedSource#sitemap(URI, String)} or {@link SeedSource#file(java.nio.file.Path)}. This fills the
+     * frontier right away instead of waiting for the links to be discovered page by page.
+     */
+    public CrawlSession crawl(String baseUrl, SeedSource... seedSources) throws URISyntaxException {
+        return crawlCentre.start(new URI(baseUrl), List.of(seedSources));
     }
 }
@@ -1,21 +1,31 @@
 package yashasvig.crawler.centre;
 
-import dagger.Lazy;
+import yashasvig.crawler.centre.bus.PostProcessingBus;
 import yashasvig.crawler.centre.di.qualifiers.PostProcessingPool;
 import yashasvig.crawler.global.Constants;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.jfr.PostProcessEvent;
 import yashasvig.crawler.models.Page;
 import yashasvig.crawler.postprocessing.PostProcessor;
+import yashasvig.crawler.work.CrawlSession;
 import yashasvig.crawler.work.WorkCallback;
 import yashasvig.crawler.work.WorkCoordinator;
+import yashasvig.crawler.work.seed.SeedSource;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.net.URI;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +33,16 @@ import static yashasvig.crawler.global.Constants.SUPPORTED_SCHEMES;
 
 /**
  * Schedules the crawling of all the web pages and handles the post-processing once a page has been crawled.
+ *
+ * <p>Every crawl runs in its own {@link CrawlSession} with its own set of post processors, so several sites can be
+ * crawled at the same time. The events of all the sessions go through the same post processing thread.</p>
+ *
+ * <p>The events are handed over to the post processors either through a single threaded executor or, in
+ * {@link CrawlConfig.PostProcessingMode#RING_BUFFER}, through a {@link PostProcessingBus}. Either way, the time an
+ * event waits to be picked up and the time its post processing takes are recorded in {@link CrawlMetrics}, and
+ * every callback of a processor is emitted as a {@link PostProcessEvent} to the flight recorder.</p>
+ *
+ * <p>A page is {@linkplain Page#release() released} once all the processors are done with it.</p>
  */
 @Singleton
 public class CrawlCentre {
@@ -31,93 +51,169 @@ public class CrawlCentre {
 
     private final WorkCoordinator workCoordinator;
     private final ExecutorService postProcessingExecutor;
-    private final Lazy<Set<PostProcessor>> postProcessors;
-    private Instant startTime;
+    private final Provider<Set<PostProcessor>> postProcessors;
+    private final CrawlMetrics metrics;
+    private final CrawlConfig config;
 
     @Inject
-    CrawlCentre(Lazy<Set<PostProcessor>> postProcessors, WorkCoordinator workCoordinator,
-                @PostProcessingPool ExecutorService postProcessingExecutor) {
+    CrawlCentre(Provider<Set<PostProcessor>> postProcessors, WorkCoordinator workCoordinator,
+                @PostProcessingPool ExecutorService postProcessingExecutor, CrawlMetrics metrics, CrawlConfig config) {
         this.workCoordinator = workCoordinator;
+        this.metrics = metrics;
         this.postProcessingExecutor = postProcessingExecutor;
         this.postProcessors = postProcessors;
+        this.config = config;
     }
 
     /**
-     * Starts the crawling process.
+     * Starts the crawling process in a new session.
      *
      * <p>The process happens asynchronously and this method returns shortly after scheduling it.</p>
      *
      * <p>Note that it throws {@link IllegalArgumentException} if the passed url scheme is not supported. See
-     * {@link Constants#SUPPORTED_SCHEMES} to see what all schemes are supported</p>
+     * {@link Constants#SUPPORTED_SCHEMES} to see what all schemes are supported. It also throws if the site is already
+     * being crawled.</p>
      */
-    public void start(URI baseUri) {
+    public CrawlSession start(URI baseUri) {
+        return start(baseUri, List.of());
+    }
+
+    /**
+     * Same as {@link #start(URI)}, with the urls of {@code seedSources} as more seeds. The sitemap and seed files of
+     * the {@link CrawlConfig} are added to them.
+     */
+    public CrawlSession start(URI baseUri, List<SeedSource> seedSources) {
         if (Arrays.stream(SUPPORTED_SCHEMES).noneMatch(s -> s.equals(baseUri.getScheme()))) {
             throw new IllegalArgumentException(
                     String.format("Only %s schemes are supported currently", Arrays.toString(SUPPORTED_SCHEMES)));
         }
 
-        workCoordinator.setCallback(new WorkCallbackImpl());
+        CrawlSession session = workCoordinator.newSession(baseUri);
+        for (SeedSource source : seedSourcesOf(baseUri, seedSources)) {
+            session.seedFrom(source);
+        }
+        Set<PostProcessor> processors = postProcessors.get();
+        if (config.getPostProcessingMode() == CrawlConfig.PostProcessingMode.RING_BUFFER) {
+            PostProcessingBus bus = new PostProcessingBus(processors, config.getRingBufferSize(),
+                    config.getBusWaitStrategy(), metrics);
+            // Published before the crawl starts so that it's always the first event seen by the processors.
+            bus.publishCrawlingStarted(baseUri);
+            session.start(new BusWorkCallback(bus, Instant.now()));
+            return session;
+        }
 
-        this.startTime = Instant.now();
-        workCoordinator.crawlDomain(baseUri);
+        session.start(new WorkCallbackImpl(processors, Instant.now()));
         postProcessingExecutor.submit(() -> {
-            for (PostProcessor processor : postProcessors.get()) {
-                try {
-                    processor.onCrawlingStarted(baseUri);
-                } catch (Exception e) {
-                    logger.log(Level.WARNING,
-                            String.format("Couldn't invoke onCrawlingStarted on listener:%s", processor.getName()), e);
-                }
+            for (PostProcessor processor : processors) {
+                invoke(processor, "onCrawlingStarted", baseUri.toString(), p -> p.onCrawlingStarted(baseUri));
             }
         });
+        return session;
+    }
+
+    private List<SeedSource> seedSourcesOf(URI baseUri, List<SeedSource> seedSources) {
+        List<SeedSource> all = new ArrayList<>(seedSources);
+        if (config.seedsFromSitemap()) {
+            all.add(SeedSource.sitemap(baseUri.resolve("/sitemap.xml"), config.getRobotsUserAgent()));
+        }
+        for (Path seedFile : config.getSeedFiles()) {
+            all.add(SeedSource.file(seedFile));
+        }
+        return all;
+    }
+
+    /**
+     * Invokes {@code callback} on {@code processor}, logging whatever it throws, and emits a {@link PostProcessEvent}.
+     */
+    private void invoke(PostProcessor processor, String callbackName, String url, Consumer<PostProcessor> callback) {
+        PostProcessEvent event = new PostProcessEvent();
+        event.begin();
+        try {
+            callback.accept(processor);
+        } catch (Exception e) {
+            logger.log(Level.WARNING,
+                    String.format("Couldn't invoke %s on listener:%s", callbackName, processor.getName()), e);
+        }
+        event.finish(processor.getName(), callbackName, url);
+    }
+
+    /**
+     * Publishes the events to a {@link PostProcessingBus}. The workers wait in here when the slowest processor is
+     * too far behind.
+     */
+    private static class BusWorkCallback implements WorkCallback {
+        private final PostProcessingBus bus;
+        private final Instant startTime;
+
+        private BusWorkCallback(PostProcessingBus bus, Instant startTime) {
+            this.bus = bus;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onFinishedPageSuccessfully(Page page) {
+            bus.publishFinishedPage(page);
+        }
+
+        @Override
+        public void onError(String url, String errorMessage) {
+            bus.publishError(url, errorMessage);
+        }
+
+        @Override
+        public void onFinishedCrawling() {
+            bus.publishFinishedCrawling(Duration.between(startTime, Instant.now()));
+        }
     }
 
     private class WorkCallbackImpl implements WorkCallback {
+        private final Set<PostProcessor> processors;
+        private final Instant startTime;
+
+        private WorkCallbackImpl(Set<PostProcessor> processors, Instant startTime) {
+            this.processors = processors;
+            this.startTime = startTime;
+        }
 
         @Override
         public void onFinishedPageSuccessfully(Page page) {
-            postProcessingExecutor.submit(() -> {
-                for (PostProcessor processor : postProcessors.get()) {
-                    try {
-                        processor.onFinishedPageSuccessfully(page);
-                    } catch (Exception e) {
-                        logger.log(Level.WARNING,
-                                String.format("Couldn't invoke onFinishedPageSuccessfully on listener:%s",
-                                        processor.getName()), e);
-                    }
+            submitTimed(() -> {
+                for (PostProcessor processor : processors) {
+                    invoke(processor, "onFinishedPageSuccessfully", page.getUrl().toString(),
+                            p -> p.onFinishedPageSuccessfully(page));
                 }
+                page.release();
             });
         }
 
         @Override
         public void onError(String url, String errorMessage) {
-            postProcessingExecutor.submit(() -> {
-                for (PostProcessor processor : postProcessors.get()) {
-                    try {
-                        processor.onError(url, errorMessage);
-                    } catch (Exception e) {
-                        logger.log(Level.WARNING,
-                                String.format("Couldn't invoke onError on listener:%s", processor.getName()), e);
-                    }
+            submitTimed(() -> {
+                for (PostProcessor processor : processors) {
+                    invoke(processor, "onError", url, p -> p.onError(url, errorMessage));
                 }
             });
         }
 
         @Override
         public void onFinishedCrawling() {
-            postProcessingExecutor.execute(() -> {
+            submitTimed(() -> {
                 Duration timeTaken = Duration.between(startTime, Instant.now());
 
-                for (PostProcessor processor : postProcessors.get()) {
-                    try {
-                        processor.onFinishedCrawling(timeTaken);
-                    } catch (Exception e) {
-                        logger.log(Level.WARNING,
-                                String.format("Couldn't invoke onFinishedCrawling on listener:%s", processor.getName()),
-                                e);
-                    }
+                for (PostProcessor processor : processors) {
+                    invoke(processor, "onFinishedCrawling", null, p -> p.onFinishedCrawling(timeTaken));
                 }
             });
         }
+
+        private void submitTimed(Runnable postProcessing) {
+            long submitted = System.nanoTime();
+            postProcessingExecutor.execute(() -> {
+                long start = System.nanoTime();
+                metrics.record(CrawlMetrics.Stage.DISPATCH_LAG, start - submitted);
+                postProcessing.run();
+                metrics.record(CrawlMetrics.Stage.POST_PROCESSING, System.nanoTime() - start);
+            });
+        }
     }
 }
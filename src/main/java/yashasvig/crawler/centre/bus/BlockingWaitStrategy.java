@@ -0,0 +1,49 @@
+package yashasvig.crawler.centre.bus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parks the consumers on a {@link Condition}. The cheapest in terms of CPU, at the cost of a wake up per event.
+ *
+ * <p>Producers only take the lock when some consumer is actually waiting. A consumer registers itself as waiting
+ * before checking for events one last time, so a producer either sees it waiting or the consumer sees the event.</p>
+ */
+final class BlockingWaitStrategy implements WaitStrategy {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    @Override
+    public void waitFor(BooleanSupplier available) throws InterruptedException {
+        if (available.getAsBoolean()) {
+            return;
+        }
+        lock.lock();
+        waiting.incrementAndGet();
+        try {
+            while (!available.getAsBoolean()) {
+                published.await();
+            }
+        } finally {
+            waiting.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void signalAll() {
+        if (waiting.get() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
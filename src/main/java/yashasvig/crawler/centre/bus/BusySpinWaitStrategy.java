@@ -0,0 +1,23 @@
+package yashasvig.crawler.centre.bus;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps a core busy checking for new events. The lowest latency, but only worth it with a core per consumer.
+ */
+final class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void waitFor(BooleanSupplier available) throws InterruptedException {
+        while (!available.getAsBoolean()) {
+            Thread.onSpinWait();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public void signalAll() {
+    }
+}
@@ -0,0 +1,301 @@
+package yashasvig.crawler.centre.bus;
+
+import com.google.common.annotations.VisibleForTesting;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.jfr.PostProcessEvent;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the events of a crawl to the {@link PostProcessor}s through a preallocated ring buffer, in the spirit of
+ * the LMAX Disruptor.
+ *
+ * <p>Every processor gets its own thread and its own sequence, i.e. the last event it has processed. A consumer
+ * processes all the events available to it in one go and only then moves its sequence forward, so a busy consumer
+ * catches up in batches. A slow processor only delays itself, as long as it's less than a whole buffer behind.</p>
+ *
+ * <p>Producers claim a slot, fill it in place and publish it. A producer which is about to overwrite an event that
+ * the slowest consumer hasn't processed yet waits for it, so a processor which can't keep up slows down the workers
+ * instead of letting the events pile up in memory.</p>
+ *
+ * <p>A bus serves a single crawl. The consumer threads stop once they have processed the end of the crawl.</p>
+ *
+ * <p>Every event is stamped when published, so that {@link CrawlMetrics} can tell how long it sat in the ring before
+ * each processor got to it, as well as how long the processor took. Every callback is emitted as a
+ * {@link PostProcessEvent} to the flight recorder as well.</p>
+ *
+ * <p>The last consumer to process an event clears its slot, so that the ring doesn't keep a reference to anything
+ * once it has been delivered, and {@linkplain Page#release() releases} the page it carried.</p>
+ */
+public final class PostProcessingBus {
+
+    private static final long PRODUCER_PARK_NANOS = 1_000;
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final Event[] events;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    /**
+     * The sequence last published in every slot, which tells the consumers whether a slot is ready for them.
+     */
+    private final AtomicLongArray published;
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final WaitStrategy waitStrategy;
+    private final CrawlMetrics metrics;
+    private volatile long cachedSlowestSequence = -1;
+
+    /**
+     * @param bufferSize no of events in the ring, a power of 2
+     */
+    public PostProcessingBus(Collection<PostProcessor> processors, int bufferSize,
+                             CrawlConfig.BusWaitStrategy waitStrategy) {
+        this(processors, bufferSize, waitStrategy, new CrawlMetrics());
+    }
+
+    /**
+     * @param metrics records the time the events wait for the processors and the time the processors take
+     */
+    public PostProcessingBus(Collection<PostProcessor> processors, int bufferSize,
+                             CrawlConfig.BusWaitStrategy waitStrategy, CrawlMetrics metrics) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize should be a power of 2");
+        }
+        this.events = new Event[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            events[i] = new Event();
+        }
+        this.mask = bufferSize - 1;
+        this.published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+        this.waitStrategy = WaitStrategy.of(waitStrategy);
+        this.metrics = metrics;
+        for (PostProcessor processor : processors) {
+            consumers.add(new Consumer(processor));
+        }
+        consumers.forEach(Thread::start);
+    }
+
+    public void publishCrawlingStarted(URI url) {
+        long sequence = claim();
+        Event event = events[index(sequence)];
+        event.type = EventType.CRAWLING_STARTED;
+        event.url = url;
+        publish(sequence);
+    }
+
+    public void publishFinishedPage(Page page) {
+        long sequence = claim();
+        Event event = events[index(sequence)];
+        event.type = EventType.FINISHED_PAGE;
+        event.page = page;
+        publish(sequence);
+        if (consumers.isEmpty()) {
+            event.clear();
+        }
+    }
+
+    public void publishError(String url, String errorMessage) {
+        long sequence = claim();
+        Event event = events[index(sequence)];
+        event.type = EventType.ERROR;
+        event.failedUrl = url;
+        event.errorMessage = errorMessage;
+        publish(sequence);
+    }
+
+    /**
+     * Publishes the last event of the crawl, after which the consumers stop.
+     */
+    public void publishFinishedCrawling(Duration timeTaken) {
+        long sequence = claim();
+        Event event = events[index(sequence)];
+        event.type = EventType.FINISHED_CRAWLING;
+        event.timeTaken = timeTaken;
+        publish(sequence);
+    }
+
+    /**
+     * Waits for all the consumers to process the end of the crawl.
+     */
+    public void awaitTermination() throws InterruptedException {
+        for (Consumer consumer : consumers) {
+            consumer.join();
+        }
+    }
+
+    /**
+     * Claims the next sequence, waiting for the slowest consumer if the ring is full.
+     */
+    private long claim() {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - events.length;
+        if (wrapPoint > cachedSlowestSequence) {
+            long slowest;
+            while (wrapPoint > (slowest = slowestSequence())) {
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+            }
+            cachedSlowestSequence = slowest;
+        }
+        return sequence;
+    }
+
+    private void publish(long sequence) {
+        events[index(sequence)].pendingConsumers.set(consumers.size());
+        events[index(sequence)].publishedAtNanos = System.nanoTime();
+        published.set(index(sequence), sequence);
+        waitStrategy.signalAll();
+    }
+
+    private long slowestSequence() {
+        long slowest = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.sequence.get());
+        }
+        return consumers.isEmpty() ? claimed.get() : slowest;
+    }
+
+    /**
+     * Returns the no of slots still holding a page.
+     */
+    @VisibleForTesting
+    int pagesHeld() {
+        int held = 0;
+        for (Event event : events) {
+            if (event.page != null) {
+                held++;
+            }
+        }
+        return held;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get(index(sequence)) == sequence;
+    }
+
+    private enum EventType {CRAWLING_STARTED, FINISHED_PAGE, ERROR, FINISHED_CRAWLING}
+
+    private static String urlOf(Event event) {
+        return switch (event.type) {
+            case CRAWLING_STARTED -> event.url.toString();
+            case FINISHED_PAGE -> event.page.getUrl().toString();
+            case ERROR -> event.failedUrl;
+            case FINISHED_CRAWLING -> null;
+        };
+    }
+
+    /**
+     * A slot of the ring. Its fields are written by a single producer before the slot is published and only read
+     * by the consumers after that.
+     */
+    private static final class Event {
+        private EventType type;
+        private URI url;
+        private Page page;
+        private String failedUrl;
+        private String errorMessage;
+        private Duration timeTaken;
+        private long publishedAtNanos;
+        // The no of consumers which haven't processed the event yet.
+        private final AtomicInteger pendingConsumers = new AtomicInteger();
+
+        /**
+         * Drops the references the event holds, releasing its page. Only called once every consumer is done with it,
+         * and before the last one moves its sequence past it, so the producer which reuses the slot sees it cleared.
+         */
+        private void clear() {
+            if (page != null) {
+                page.release();
+            }
+            url = null;
+            page = null;
+            failedUrl = null;
+            errorMessage = null;
+            timeTaken = null;
+        }
+    }
+
+    private final class Consumer extends Thread {
+        private final PostProcessor processor;
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private Consumer(PostProcessor processor) {
+            super("post-processor-" + processor.getName());
+            this.processor = processor;
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            try {
+                while (true) {
+                    long nextToWait = next;
+                    waitStrategy.waitFor(() -> isPublished(nextToWait));
+                    long last = next;
+                    while (isPublished(last + 1)) {
+                        last++;
+                    }
+                    boolean finished = false;
+                    for (long current = next; current <= last; current++) {
+                        finished |= dispatch(events[index(current)]);
+                    }
+                    sequence.set(last);
+                    if (finished) {
+                        return;
+                    }
+                    next = last + 1;
+                }
+            } catch (InterruptedException e) {
+                // The application is going down.
+            }
+        }
+
+        /**
+         * @return true if that was the end of the crawl
+         */
+        private boolean dispatch(Event event) {
+            long start = System.nanoTime();
+            metrics.record(CrawlMetrics.Stage.DISPATCH_LAG, start - event.publishedAtNanos);
+            PostProcessEvent recorded = new PostProcessEvent();
+            recorded.begin();
+            try {
+                switch (event.type) {
+                    case CRAWLING_STARTED -> processor.onCrawlingStarted(event.url);
+                    case FINISHED_PAGE -> processor.onFinishedPageSuccessfully(event.page);
+                    case ERROR -> processor.onError(event.failedUrl, event.errorMessage);
+                    case FINISHED_CRAWLING -> processor.onFinishedCrawling(event.timeTaken);
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, String.format("Couldn't invoke %s on listener:%s", event.type,
+                        processor.getName()), e);
+            } finally {
+                metrics.record(CrawlMetrics.Stage.POST_PROCESSING, System.nanoTime() - start);
+                recorded.finish(processor.getName(), event.type.name(), urlOf(event));
+            }
+            boolean finished = event.type == EventType.FINISHED_CRAWLING;
+            if (event.pendingConsumers.decrementAndGet() == 0) {
+                event.clear();
+            }
+            return finished;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package yashasvig.crawler.centre.bus;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins for a while, then yields and finally sleeps for short periods. A good compromise when the events come in
+ * bursts, without any cost for the producers.
+ */
+final class SleepingWaitStrategy implements WaitStrategy {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long SLEEP_NANOS = 100_000;
+
+    @Override
+    public void waitFor(BooleanSupplier available) throws InterruptedException {
+        int attempts = 0;
+        while (!available.getAsBoolean()) {
+            if (attempts < SPINS) {
+                Thread.onSpinWait();
+            } else if (attempts < SPINS + YIELDS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(SLEEP_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            attempts++;
+        }
+    }
+
+    @Override
+    public void signalAll() {
+    }
+}
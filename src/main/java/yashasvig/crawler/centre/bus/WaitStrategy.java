@@ -0,0 +1,31 @@
+package yashasvig.crawler.centre.bus;
+
+import yashasvig.crawler.global.CrawlConfig;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decides what a consumer of the {@link PostProcessingBus} does while there's no new event for it, trading latency
+ * against CPU usage.
+ */
+interface WaitStrategy {
+
+    /**
+     * Returns once {@code available} is true.
+     */
+    void waitFor(BooleanSupplier available) throws InterruptedException;
+
+    /**
+     * Called by the producers after publishing an event, to wake up the consumers which are blocked.
+     */
+    void signalAll();
+
+    static WaitStrategy of(CrawlConfig.BusWaitStrategy mode) {
+        return switch (mode) {
+            case BLOCKING -> new BlockingWaitStrategy();
+            case SLEEPING -> new SleepingWaitStrategy();
+            case YIELDING -> new YieldingWaitStrategy();
+            case BUSY_SPIN -> new BusySpinWaitStrategy();
+        };
+    }
+}
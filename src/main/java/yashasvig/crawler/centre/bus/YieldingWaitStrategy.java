@@ -0,0 +1,30 @@
+package yashasvig.crawler.centre.bus;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins for a while and then keeps yielding the CPU. Low latency as long as there are spare cores.
+ */
+final class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPINS = 100;
+
+    @Override
+    public void waitFor(BooleanSupplier available) throws InterruptedException {
+        int attempts = 0;
+        while (!available.getAsBoolean()) {
+            if (attempts++ < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void signalAll() {
+    }
+}
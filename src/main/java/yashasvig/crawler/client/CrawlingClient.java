@@ -2,6 +2,7 @@ package yashasvig.crawler.client;
 
 import yashasvig.crawler.api.Crawler;
 import yashasvig.crawler.di.DaggerGlobalComponent;
+import yashasvig.crawler.global.CrawlConfig;
 
 import javax.inject.Inject;
 import java.net.URISyntaxException;
@@ -22,7 +23,7 @@ public final class CrawlingClient {
     Crawler crawler;
 
     public CrawlingClient() {
-        DaggerGlobalComponent.create().inject(this);
+        DaggerGlobalComponent.factory().create(CrawlConfig.fromSystemProperties()).inject(this);
     }
 
     public void init() {
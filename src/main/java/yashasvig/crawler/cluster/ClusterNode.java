@@ -0,0 +1,483 @@
+package yashasvig.crawler.cluster;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import yashasvig.crawler.work.CrawlSession;
+import yashasvig.crawler.work.UrlRouter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One process of a crawl spread over several processes, each one running its own
+ * {@link yashasvig.crawler.work.WorkCoordinator}.
+ *
+ * <p>The urls are split between the nodes with a {@link ConsistentHashRing} by the hash of the complete url, which
+ * spreads the pages of a single site over all the nodes. Per host rate limits then apply to every node separately.
+ * Every node crawls the urls it owns and sends the ones it discovers for
+ * other nodes to their owner. They're batched per node and written over a plain socket every few milliseconds, and the
+ * owner checks them against its own visited store like any other discovered url.</p>
+ *
+ * <p>A node runs out of work whenever its own pages are crawled, but more urls can still come from the others. The
+ * crawl is over only once every node is idle and no url is on its way. The first node detects this in waves: it asks
+ * every node whether it's idle and how many urls it has sent and received so far, and declares the end of the crawl
+ * once two waves in a row find every node idle, the same no of urls sent as received, and the same counts as the
+ * wave before. It then tells every node to finish its session.</p>
+ *
+ * <p>The frames on the wire are a type byte followed by:</p>
+ * <ul>
+ *     <li>{@code URLS}: an int count, then every url as an int length and its UTF-8 bytes.</li>
+ *     <li>{@code STATUS_REQUEST}: the long id of the wave.</li>
+ *     <li>{@code STATUS}: the int index of the node, the long id of the wave, a boolean telling whether the node is
+ *     idle and the long counts of urls sent and received.</li>
+ *     <li>{@code TERMINATE}: nothing.</li>
+ * </ul>
+ *
+ * <p>A node crawls a single session. Every node is started with the same seed, which is only scheduled by its
+ * owner.</p>
+ */
+public final class ClusterNode implements UrlRouter {
+
+    private static final byte URLS = 1;
+    private static final byte STATUS_REQUEST = 2;
+    private static final byte STATUS = 3;
+    private static final byte TERMINATE = 4;
+    private static final int MAX_BATCH_URLS = 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+    private static final long WAVE_INTERVAL_MILLIS = 50;
+    private static final int WAVE_TIMEOUT_TICKS = 40;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final int index;
+    private final int nodeCount;
+    private final ConsistentHashRing ring;
+    private final ServerSocket server;
+    private final Peer[] peers;
+    private final ScheduledExecutorService scheduler;
+    private final List<Socket> inbound = new CopyOnWriteArrayList<>();
+    private final AtomicLong sentUrls = new AtomicLong();
+    private final AtomicLong receivedUrls = new AtomicLong();
+
+    private final Object sessionLock = new Object();
+    private CrawlSession session;
+    private List<URI> receivedBeforeJoin = new ArrayList<>();
+    private boolean released;
+    private volatile boolean closed;
+
+    // Only used on the first node, by the scheduler thread.
+    private final AtomicReferenceArray<long[]> statuses;
+    private long wave;
+    private int waveTicks;
+    private long[] previousTotals;
+
+    /**
+     * Starts listening on the address of this node.
+     *
+     * @param nodes the addresses of all the nodes, in the same order on every node
+     * @param index the position of this node in {@code nodes}
+     */
+    public ClusterNode(List<HostAndPort> nodes, int index) {
+        this(bind(nodes.get(index)), nodes, index);
+    }
+
+    @VisibleForTesting
+    ClusterNode(ServerSocket server, List<HostAndPort> nodes, int index) {
+        this.server = server;
+        this.index = index;
+        this.nodeCount = nodes.size();
+        this.ring = new ConsistentHashRing(nodeCount);
+        this.peers = new Peer[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            if (i != index) {
+                peers[i] = new Peer(nodes.get(i));
+            }
+        }
+        this.statuses = new AtomicReferenceArray<>(nodeCount);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("cluster-scheduler-" + index).setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(this::flushAll, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        if (index == 0) {
+            scheduler.scheduleWithFixedDelay(this::runWave, WAVE_INTERVAL_MILLIS, WAVE_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+        // Not a daemon, so that the process waits for the rest of the cluster even when it has nothing to crawl.
+        Thread acceptor = new Thread(this::accept, "cluster-acceptor-" + index);
+        acceptor.start();
+    }
+
+    /**
+     * Makes this node route the urls of {@code session} and holds the session open until the whole cluster has
+     * finished. The urls already received from other nodes are scheduled right away.
+     *
+     * @throws IllegalStateException if this node already has a session
+     */
+    public ClusterNode join(CrawlSession session) {
+        synchronized (sessionLock) {
+            if (this.session != null || closed) {
+                throw new IllegalStateException("A cluster node can only crawl a single session");
+            }
+            this.session = session;
+            session.hold();
+            for (URI url : receivedBeforeJoin) {
+                session.schedule(url);
+            }
+            receivedBeforeJoin = null;
+        }
+        return this;
+    }
+
+    @Override
+    public boolean isLocal(URI url) {
+        return ownerOf(url) == index;
+    }
+
+    @Override
+    public void send(URI url) {
+        sentUrls.incrementAndGet();
+        peers[ownerOf(url)].add(url.toString());
+    }
+
+    /**
+     * Stops listening and closes all the connections. Called once the session of this node has finished.
+     */
+    @Override
+    public void close() {
+        synchronized (sessionLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        scheduler.shutdownNow();
+        closeQuietly(server);
+        for (Peer peer : peers) {
+            if (peer != null) {
+                peer.close();
+            }
+        }
+        inbound.forEach(ClusterNode::closeQuietly);
+    }
+
+    @VisibleForTesting
+    long getSentUrls() {
+        return sentUrls.get();
+    }
+
+    private int ownerOf(URI url) {
+        return ring.ownerOf(url.toString());
+    }
+
+    private void accept() {
+        int readers = 0;
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                inbound.add(socket);
+                Thread reader = new Thread(() -> read(socket), "cluster-reader-" + index + "-" + readers++);
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.log(Level.WARNING, "Couldn't accept a connection from another node", e);
+                }
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16))) {
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case URLS -> {
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i++) {
+                            byte[] url = new byte[in.readInt()];
+                            in.readFully(url);
+                            receive(URI.create(new String(url, StandardCharsets.UTF_8)));
+                        }
+                    }
+                    case STATUS_REQUEST -> peers[0].sendStatus(localStatus(in.readLong()));
+                    case STATUS -> statuses.set(in.readInt(),
+                            new long[]{in.readLong(), in.readBoolean() ? 1 : 0, in.readLong(), in.readLong()});
+                    case TERMINATE -> finish();
+                    default -> throw new IOException("Unknown frame type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // The other node has closed the connection.
+        } catch (IOException e) {
+            if (!closed) {
+                logger.log(Level.WARNING, "Lost the connection to another node", e);
+            }
+        }
+    }
+
+    private void receive(URI url) {
+        synchronized (sessionLock) {
+            if (session == null) {
+                receivedBeforeJoin.add(url);
+            } else {
+                session.schedule(url);
+            }
+        }
+        receivedUrls.incrementAndGet();
+    }
+
+    /**
+     * Returns {wave, idle, sent, received} for this node. A node which hasn't joined its session yet is never idle,
+     * so the crawl can't be declared over before every node has started.
+     */
+    private long[] localStatus(long waveId) {
+        boolean idle;
+        synchronized (sessionLock) {
+            idle = session != null && session.isIdle();
+        }
+        return new long[]{waveId, idle ? 1 : 0, sentUrls.get(), receivedUrls.get()};
+    }
+
+    private void flushAll() {
+        for (Peer peer : peers) {
+            if (peer != null) {
+                peer.flush();
+            }
+        }
+    }
+
+    /**
+     * Collects the answers to the current wave and starts the next one. Only runs on the first node.
+     */
+    private void runWave() {
+        boolean complete = wave > 0;
+        for (int i = 0; i < nodeCount && complete; i++) {
+            long[] status = statuses.get(i);
+            complete = status != null && status[0] == wave;
+        }
+        if (!complete && wave > 0 && ++waveTicks < WAVE_TIMEOUT_TICKS) {
+            return;
+        }
+        if (complete && isOver()) {
+            for (Peer peer : peers) {
+                if (peer != null) {
+                    peer.sendTerminate();
+                }
+            }
+            logger.log(Level.INFO, String.format("The cluster has finished crawling after %d waves", wave));
+            finish();
+            return;
+        }
+        wave++;
+        waveTicks = 0;
+        statuses.set(0, localStatus(wave));
+        for (Peer peer : peers) {
+            if (peer != null) {
+                peer.sendStatusRequest(wave);
+            }
+        }
+    }
+
+    /**
+     * Returns true if this wave and the one before both found every node idle, as many urls received as sent, and
+     * the same totals.
+     */
+    private boolean isOver() {
+        boolean allIdle = true;
+        long sent = 0;
+        long received = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            long[] status = statuses.get(i);
+            allIdle &= status[1] == 1;
+            sent += status[2];
+            received += status[3];
+        }
+        long[] totals = allIdle && sent == received ? new long[]{sent, received} : null;
+        boolean over = totals != null && previousTotals != null
+                && previousTotals[0] == sent && previousTotals[1] == received;
+        previousTotals = totals;
+        return over;
+    }
+
+    /**
+     * Lets the session of this node finish, which closes this node in turn.
+     */
+    private void finish() {
+        synchronized (sessionLock) {
+            if (released || session == null) {
+                return;
+            }
+            released = true;
+        }
+        session.release();
+    }
+
+    private static ServerSocket bind(HostAndPort address) {
+        try {
+            ServerSocket server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(address.getHost(), address.getPort()));
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Closing anyway.
+        }
+    }
+
+    /**
+     * The connection to another node. The urls for it are buffered and written in batches by the scheduler thread,
+     * which connects lazily since the other node may not be up yet.
+     */
+    private final class Peer {
+        private final HostAndPort address;
+        private final Object pendingLock = new Object();
+        private List<String> pending = new ArrayList<>();
+        private Socket socket;
+        private DataOutputStream out;
+
+        private Peer(HostAndPort address) {
+            this.address = address;
+        }
+
+        private void add(String url) {
+            boolean full;
+            synchronized (pendingLock) {
+                pending.add(url);
+                full = pending.size() == MAX_BATCH_URLS;
+            }
+            if (full && !closed) {
+                scheduler.execute(this::flush);
+            }
+        }
+
+        /**
+         * Writes the buffered urls. They're put back in the buffer if the other node can't be reached, and remain
+         * counted as sent until they're written.
+         */
+        private void flush() {
+            List<String> batch;
+            synchronized (pendingLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            try {
+                synchronized (this) {
+                    DataOutputStream output = output();
+                    output.writeByte(URLS);
+                    output.writeInt(batch.size());
+                    for (String url : batch) {
+                        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+                        output.writeInt(bytes.length);
+                        output.write(bytes);
+                    }
+                    output.flush();
+                }
+            } catch (IOException e) {
+                disconnect();
+                synchronized (pendingLock) {
+                    batch.addAll(pending);
+                    pending = batch;
+                }
+            }
+        }
+
+        private void sendStatusRequest(long waveId) {
+            try {
+                synchronized (this) {
+                    DataOutputStream output = output();
+                    output.writeByte(STATUS_REQUEST);
+                    output.writeLong(waveId);
+                    output.flush();
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        private void sendStatus(long[] status) {
+            try {
+                synchronized (this) {
+                    DataOutputStream output = output();
+                    output.writeByte(STATUS);
+                    output.writeInt(index);
+                    output.writeLong(status[0]);
+                    output.writeBoolean(status[1] == 1);
+                    output.writeLong(status[2]);
+                    output.writeLong(status[3]);
+                    output.flush();
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        private void sendTerminate() {
+            try {
+                synchronized (this) {
+                    DataOutputStream output = output();
+                    output.writeByte(TERMINATE);
+                    output.flush();
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, String.format("Couldn't tell %s that the crawl is over", address), e);
+                disconnect();
+            }
+        }
+
+        private DataOutputStream output() throws IOException {
+            if (out == null) {
+                Socket connection = new Socket();
+                connection.setTcpNoDelay(true);
+                connection.connect(new InetSocketAddress(address.getHost(), address.getPort()),
+                        CONNECT_TIMEOUT_MILLIS);
+                socket = connection;
+                out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), 1 << 16));
+            }
+            return out;
+        }
+
+        private synchronized void disconnect() {
+            if (socket != null) {
+                closeQuietly(socket);
+            }
+            socket = null;
+            out = null;
+        }
+
+        private void close() {
+            disconnect();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package yashasvig.crawler.cluster;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps keys to the nodes of a cluster through consistent hashing.
+ *
+ * <p>Every node is placed on a ring of 32-bit hashes at many points, and a key belongs to the node at the first point
+ * at or after the hash of the key. Using many points per node keeps the share of every node close to even, and
+ * adding or removing a node only moves the keys of the ring sections it gains or loses.</p>
+ *
+ * <p>The ring only depends on the no of nodes, so every node computes the same one without talking to the others.
+ * Immutable and safe to use from any no of threads.</p>
+ */
+public final class ConsistentHashRing {
+
+    private static final int POINTS_PER_NODE = 160;
+    private static final HashFunction HASH = Hashing.murmur3_32_fixed();
+
+    private final int[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(int nodes) {
+        if (nodes <= 0) {
+            throw new IllegalArgumentException("nodes should be positive");
+        }
+        long[] sorted = new long[nodes * POINTS_PER_NODE];
+        for (int node = 0; node < nodes; node++) {
+            for (int point = 0; point < POINTS_PER_NODE; point++) {
+                int hash = HASH.hashString("node-" + node + "-" + point, StandardCharsets.UTF_8).asInt();
+                // The hash in the high bits, so that sorting orders by hash and the node comes along.
+                sorted[node * POINTS_PER_NODE + point] = ((long) hash << 32) | node;
+            }
+        }
+        Arrays.sort(sorted);
+        points = new int[sorted.length];
+        owners = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            points[i] = (int) (sorted[i] >> 32);
+            owners[i] = (int) sorted[i];
+        }
+    }
+
+    /**
+     * Returns the index of the node owning {@code key}.
+     */
+    public int ownerOf(String key) {
+        int hash = HASH.hashString(key, StandardCharsets.UTF_8).asInt();
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+}
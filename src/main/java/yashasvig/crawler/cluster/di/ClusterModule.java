@@ -0,0 +1,21 @@
+package yashasvig.crawler.cluster.di;
+
+import dagger.Module;
+import dagger.Provides;
+import yashasvig.crawler.cluster.ClusterNode;
+import yashasvig.crawler.global.CrawlConfig;
+
+import javax.inject.Singleton;
+
+@Module
+public class ClusterModule {
+
+    /**
+     * Provides the node of this process, which is only asked for when the config lists the nodes of a cluster.
+     */
+    @Provides
+    @Singleton
+    static ClusterNode provideClusterNode(CrawlConfig config) {
+        return new ClusterNode(config.getClusterNodes(), config.getClusterNodeIndex());
+    }
+}
@@ -1,16 +1,26 @@
 package yashasvig.crawler.di;
 
+import dagger.BindsInstance;
 import dagger.Component;
 import yashasvig.crawler.centre.di.CentreModule;
 import yashasvig.crawler.client.CrawlingClient;
+import yashasvig.crawler.cluster.di.ClusterModule;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.di.MetricsModule;
 import yashasvig.crawler.postprocessing.di.PostProducersModule;
 import yashasvig.crawler.work.di.WorkModule;
 
 import javax.inject.Singleton;
 
 @Singleton
-@Component(modules = {PostProducersModule.class, WorkModule.class, CentreModule.class})
+@Component(modules = {PostProducersModule.class, WorkModule.class, CentreModule.class,
+        ClusterModule.class, MetricsModule.class})
 public interface GlobalComponent {
 
     void inject(CrawlingClient crawlingClient);
+
+    @Component.Factory
+    interface Factory {
+        GlobalComponent create(@BindsInstance CrawlConfig config);
+    }
 }
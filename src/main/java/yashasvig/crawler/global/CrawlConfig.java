@@ -0,0 +1,1080 @@
+package yashasvig.crawler.global;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HostAndPort;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * An immutable set of knobs used to tune the crawling system.
+ *
+ * <p>Use {@link #builder()} to create a custom configuration or {@link #fromSystemProperties()} to read it from the
+ * {@code -Dcrawler.*} flags passed to the JVM. Anything not set explicitly falls back to the defaults which keep the
+ * original behaviour of the crawler.</p>
+ */
+public final class CrawlConfig {
+
+    /**
+     * Defines how the {@code Worker}s are executed.
+     */
+    public enum ExecutionMode {
+        /**
+         * A fixed size pool of platform threads. The no of concurrent fetches is equal to the no of threads.
+         */
+        PLATFORM_POOL,
+        /**
+         * Every worker runs on its own virtual thread. The no of concurrent fetches is capped separately by
+         * {@link CrawlConfig#getMaxConcurrentFetches()}.
+         */
+        VIRTUAL_THREADS
+    }
+
+    /**
+     * Defines the order in which the discovered urls are handed out to the workers.
+     */
+    public enum FrontierMode {
+        /**
+         * Urls are crawled in the order they are discovered, without any rate control.
+         */
+        FIFO,
+        /**
+         * Urls are queued per host and every host is rate limited to
+         * {@link CrawlConfig#getHostRequestsPerSecond(String)}.
+         */
+        PER_HOST,
+        /**
+         * Urls are crawled in the order they are discovered, but only {@link CrawlConfig#getFrontierMemoryUrls()} of
+         * them are kept in memory and the rest wait on disk, see {@link CrawlConfig#getFrontierDirectory()}.
+         */
+        TIERED,
+        /**
+         * The most valuable urls are crawled first, as scored by {@link CrawlConfig#getPriorityScoring()}.
+         */
+        PRIORITY
+    }
+
+    /**
+     * Defines how the {@link FrontierMode#PRIORITY} frontier decides which urls are the most valuable.
+     */
+    public enum PriorityScoring {
+        /**
+         * The closer to the seed, the better, which crawls the site breadth first.
+         */
+        DEPTH,
+        /**
+         * The more links to the url found so far, the better.
+         */
+        IN_LINKS,
+        /**
+         * The weight of the first of {@link CrawlConfig#getUrlPatternWeights()} found in the url, 0 if there's none.
+         */
+        URL_PATTERNS
+    }
+
+    /**
+     * Defines how the urls which have already been scheduled are remembered.
+     */
+    public enum VisitedStoreMode {
+        /**
+         * The complete url is stored. Exact, but the most expensive in terms of memory.
+         */
+        STRINGS,
+        /**
+         * Only a 64-bit fingerprint of the url is stored, cutting the memory per url by an order of magnitude at the
+         * cost of a negligible probability of skipping a url.
+         */
+        FINGERPRINTS,
+        /**
+         * Fingerprints are stored on disk behind a Bloom filter, keeping the heap flat no matter how big the crawl
+         * gets. See {@link CrawlConfig#getVisitedStoreDirectory()} and {@link CrawlConfig#getExpectedUrls()}.
+         */
+        TIERED
+    }
+
+    /**
+     * Defines how the links are extracted from a downloaded page.
+     */
+    public enum LinkExtractionMode {
+        /**
+         * The complete page is parsed into a jsoup document and the links are selected from it.
+         */
+        DOM,
+        /**
+         * The page is tokenized as it's read from the network and only the links are kept.
+         */
+        STREAMING
+    }
+
+    /**
+     * Defines how a page is downloaded.
+     */
+    public enum FetchMode {
+        /**
+         * A {@code HEAD} request is sent first and the page is downloaded with a {@code GET} only if it's html. Two
+         * round-trips per html page, but never a byte of the body of the other pages.
+         */
+        HEAD_THEN_GET,
+        /**
+         * A single {@code GET} is sent and the body is dropped as soon as the headers show it's not html. Hosts
+         * present in {@link CrawlConfig#getHeadFetchHosts()} still get {@link #HEAD_THEN_GET}.
+         */
+        SINGLE_GET
+    }
+
+    /**
+     * Defines the http client used to download the pages.
+     */
+    public enum FetcherMode {
+        /**
+         * jsoup's blocking client. Every fetch occupies a thread of the worker pool until the page is processed.
+         */
+        JSOUP,
+        /**
+         * The asynchronous JDK http client, preferring HTTP/2. Threads are only used to parse the pages, so the no
+         * of concurrent fetches is capped by {@link CrawlConfig#getMaxConcurrentFetches()} whatever the
+         * {@link ExecutionMode}.
+         */
+        HTTP_CLIENT
+    }
+
+    /**
+     * Defines how the no of pages being fetched at the same time is decided.
+     */
+    public enum ConcurrencyMode {
+        /**
+         * Always {@link CrawlConfig#getFetchConcurrency()}.
+         */
+        FIXED,
+        /**
+         * Starts at {@link CrawlConfig#getWorkerThreads()} and adapts to the servers at runtime: grows by one for
+         * every window of fast, successful fetches, halves when the fetches time out or get refused and shrinks by
+         * a tenth when they get much slower, staying between 1 and {@link CrawlConfig#getMaxConcurrentFetches()}. A
+         * pool of platform threads blocked by jsoup is resized along with the limit.
+         */
+        AIMD
+    }
+
+    /**
+     * Defines how the events of the crawl are delivered to the post processors.
+     */
+    public enum PostProcessingMode {
+        /**
+         * A single thread runs all the post processors one after another, through an unbounded queue.
+         */
+        EXECUTOR,
+        /**
+         * Every post processor consumes the events from a shared ring buffer on its own thread. The workers wait when
+         * the slowest post processor is {@link CrawlConfig#getRingBufferSize()} events behind.
+         */
+        RING_BUFFER
+    }
+
+    /**
+     * Defines what the post processors do while waiting for new events in {@link PostProcessingMode#RING_BUFFER}.
+     */
+    public enum BusWaitStrategy {
+        /**
+         * Wait on a lock. The least CPU, the highest latency.
+         */
+        BLOCKING,
+        /**
+         * Spin, then yield, then sleep for short periods.
+         */
+        SLEEPING,
+        /**
+         * Spin, then keep yielding.
+         */
+        YIELDING,
+        /**
+         * Spin all the time. Only worth it with a spare core per post processor.
+         */
+        BUSY_SPIN
+    }
+
+    /**
+     * Defines the format of the file in which the crawling output is written.
+     */
+    public enum OutputFormat {
+        /**
+         * Human-readable, indented text.
+         */
+        TEXT,
+        /**
+         * Compact binary, with every url written only once. See {@code BinaryOutputReader} to read it back or to
+         * convert it to text.
+         */
+        BINARY,
+        /**
+         * The same text as {@link #TEXT}, formatted in large buffers and written on background threads. Can be split
+         * into {@link CrawlConfig#getOutputShards()} files and gzipped with {@link CrawlConfig#isOutputGzipped()}.
+         */
+        SHARDED_TEXT
+    }
+
+    private static final String PROPERTY_PREFIX = "crawler.";
+
+    private final ExecutionMode executionMode;
+    private final int workerThreads;
+    private final int maxConcurrentFetches;
+    private final ConcurrencyMode concurrencyMode;
+    private final FrontierMode frontierMode;
+    private final int frontierMemoryUrls;
+    private final Path frontierDirectory;
+    private final double defaultHostRequestsPerSecond;
+    private final int hostBurst;
+    private final ImmutableMap<String, Double> hostRequestsPerSecond;
+    private final PriorityScoring priorityScoring;
+    private final ImmutableMap<String, Double> urlPatternWeights;
+    private final int maxDepth;
+    private final int maxPages;
+    private final boolean robotsTxt;
+    private final String robotsUserAgent;
+    private final int robotsCacheMinutes;
+    private final boolean sitemapSeeding;
+    private final ImmutableList<Path> seedFiles;
+    private final VisitedStoreMode visitedStoreMode;
+    private final Path visitedStoreDirectory;
+    private final long expectedUrls;
+    private final LinkExtractionMode linkExtractionMode;
+    private final FetchMode fetchMode;
+    private final ImmutableSet<String> headFetchHosts;
+    private final FetcherMode fetcherMode;
+    private final Path validatorCacheFile;
+    private final Path journalDirectory;
+    private final PostProcessingMode postProcessingMode;
+    private final int ringBufferSize;
+    private final BusWaitStrategy busWaitStrategy;
+    private final OutputFormat outputFormat;
+    private final int outputShards;
+    private final boolean outputGzipped;
+    private final boolean sortQueryParameters;
+    private final ImmutableList<HostAndPort> clusterNodes;
+    private final int clusterNodeIndex;
+    private final int metricsSnapshotSeconds;
+
+    private CrawlConfig(Builder builder) {
+        this.executionMode = builder.executionMode;
+        this.workerThreads = builder.workerThreads;
+        this.maxConcurrentFetches = builder.maxConcurrentFetches;
+        this.concurrencyMode = builder.concurrencyMode;
+        this.frontierMode = builder.frontierMode;
+        this.frontierMemoryUrls = builder.frontierMemoryUrls;
+        this.frontierDirectory = builder.frontierDirectory;
+        this.defaultHostRequestsPerSecond = builder.defaultHostRequestsPerSecond;
+        this.hostBurst = builder.hostBurst;
+        this.hostRequestsPerSecond = builder.hostRequestsPerSecond.buildKeepingLast();
+        this.priorityScoring = builder.priorityScoring;
+        this.urlPatternWeights = builder.urlPatternWeights.buildKeepingLast();
+        this.maxDepth = builder.maxDepth;
+        this.maxPages = builder.maxPages;
+        this.robotsTxt = builder.robotsTxt;
+        this.robotsUserAgent = builder.robotsUserAgent;
+        this.robotsCacheMinutes = builder.robotsCacheMinutes;
+        this.sitemapSeeding = builder.sitemapSeeding;
+        this.seedFiles = builder.seedFiles.build();
+        this.visitedStoreMode = builder.visitedStoreMode;
+        this.visitedStoreDirectory = builder.visitedStoreDirectory;
+        this.expectedUrls = builder.expectedUrls;
+        this.linkExtractionMode = builder.linkExtractionMode;
+        this.fetchMode = builder.fetchMode;
+        this.headFetchHosts = builder.headFetchHosts.build();
+        this.fetcherMode = builder.fetcherMode;
+        this.validatorCacheFile = builder.validatorCacheFile;
+        this.journalDirectory = builder.journalDirectory;
+        this.postProcessingMode = builder.postProcessingMode;
+        this.ringBufferSize = builder.ringBufferSize;
+        this.busWaitStrategy = builder.busWaitStrategy;
+        this.outputFormat = builder.outputFormat;
+        this.outputShards = builder.outputShards;
+        this.outputGzipped = builder.outputGzipped;
+        this.sortQueryParameters = builder.sortQueryParameters;
+        this.clusterNodes = builder.clusterNodes.build();
+        this.clusterNodeIndex = builder.clusterNodeIndex;
+        this.metricsSnapshotSeconds = builder.metricsSnapshotSeconds;
+    }
+
+    /**
+     * Returns a configuration with all the defaults.
+     */
+    public static CrawlConfig defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reads the configuration from the system properties, for example {@code -Dcrawler.executionMode=VIRTUAL_THREADS}.
+     * Every property is named after the {@link Builder} method it goes to, in the plural for the methods which are
+     * called once per value of a list. Enum values are case insensitive.
+     */
+    public static CrawlConfig fromSystemProperties() {
+        Builder builder = builder();
+        String executionMode = property("executionMode");
+        if (executionMode != null) {
+            builder.setExecutionMode(ExecutionMode.valueOf(executionMode.toUpperCase(Locale.ROOT)));
+        }
+        String workerThreads = property("workerThreads");
+        if (workerThreads != null) {
+            builder.setWorkerThreads(Integer.parseInt(workerThreads));
+        }
+        String maxConcurrentFetches = property("maxConcurrentFetches");
+        if (maxConcurrentFetches != null) {
+            builder.setMaxConcurrentFetches(Integer.parseInt(maxConcurrentFetches));
+        }
+        String concurrencyMode = property("concurrencyMode");
+        if (concurrencyMode != null) {
+            builder.setConcurrencyMode(ConcurrencyMode.valueOf(concurrencyMode.toUpperCase(Locale.ROOT)));
+        }
+        String frontierMode = property("frontierMode");
+        if (frontierMode != null) {
+            builder.setFrontierMode(FrontierMode.valueOf(frontierMode.toUpperCase(Locale.ROOT)));
+        }
+        String frontierMemoryUrls = property("frontierMemoryUrls");
+        if (frontierMemoryUrls != null) {
+            builder.setFrontierMemoryUrls(Integer.parseInt(frontierMemoryUrls));
+        }
+        String frontierDirectory = property("frontierDirectory");
+        if (frontierDirectory != null) {
+            builder.setFrontierDirectory(Path.of(frontierDirectory));
+        }
+        String defaultHostRequestsPerSecond = property("defaultHostRequestsPerSecond");
+        if (defaultHostRequestsPerSecond != null) {
+            builder.setDefaultHostRequestsPerSecond(Double.parseDouble(defaultHostRequestsPerSecond));
+        }
+        String hostBurst = property("hostBurst");
+        if (hostBurst != null) {
+            builder.setHostBurst(Integer.parseInt(hostBurst));
+        }
+        String priorityScoring = property("priorityScoring");
+        if (priorityScoring != null) {
+            builder.setPriorityScoring(PriorityScoring.valueOf(priorityScoring.toUpperCase(Locale.ROOT)));
+        }
+        String urlPatternWeights = property("urlPatternWeights");
+        if (urlPatternWeights != null) {
+            // Space separated regex=weight pairs. A regex may contain '=' itself, the weight follows the last one.
+            for (String patternWeight : urlPatternWeights.trim().split("\\s+")) {
+                int separator = patternWeight.lastIndexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Invalid url pattern weight: " + patternWeight);
+                }
+                builder.setUrlPatternWeight(patternWeight.substring(0, separator),
+                        Double.parseDouble(patternWeight.substring(separator + 1)));
+            }
+        }
+        String maxDepth = property("maxDepth");
+        if (maxDepth != null) {
+            builder.setMaxDepth(Integer.parseInt(maxDepth));
+        }
+        String maxPages = property("maxPages");
+        if (maxPages != null) {
+            builder.setMaxPages(Integer.parseInt(maxPages));
+        }
+        String robotsTxt = property("robotsTxt");
+        if (robotsTxt != null) {
+            builder.setRobotsTxt(Boolean.parseBoolean(robotsTxt));
+        }
+        String robotsUserAgent = property("robotsUserAgent");
+        if (robotsUserAgent != null) {
+            builder.setRobotsUserAgent(robotsUserAgent);
+        }
+        String robotsCacheMinutes = property("robotsCacheMinutes");
+        if (robotsCacheMinutes != null) {
+            builder.setRobotsCacheMinutes(Integer.parseInt(robotsCacheMinutes));
+        }
+        String sitemapSeeding = property("sitemapSeeding");
+        if (sitemapSeeding != null) {
+            builder.setSitemapSeeding(Boolean.parseBoolean(sitemapSeeding));
+        }
+        String seedFiles = property("seedFiles");
+        if (seedFiles != null) {
+            for (String seedFile : seedFiles.split(",")) {
+                builder.addSeedFile(Path.of(seedFile.trim()));
+            }
+        }
+        String visitedStoreMode = property("visitedStoreMode");
+        if (visitedStoreMode != null) {
+            builder.setVisitedStoreMode(VisitedStoreMode.valueOf(visitedStoreMode.toUpperCase(Locale.ROOT)));
+        }
+        String visitedStoreDirectory = property("visitedStoreDirectory");
+        if (visitedStoreDirectory != null) {
+            builder.setVisitedStoreDirectory(Path.of(visitedStoreDirectory));
+        }
+        String expectedUrls = property("expectedUrls");
+        if (expectedUrls != null) {
+            builder.setExpectedUrls(Long.parseLong(expectedUrls));
+        }
+        String linkExtractionMode = property("linkExtractionMode");
+        if (linkExtractionMode != null) {
+            builder.setLinkExtractionMode(LinkExtractionMode.valueOf(linkExtractionMode.toUpperCase(Locale.ROOT)));
+        }
+        String fetchMode = property("fetchMode");
+        if (fetchMode != null) {
+            builder.setFetchMode(FetchMode.valueOf(fetchMode.toUpperCase(Locale.ROOT)));
+        }
+        String headFetchHosts = property("headFetchHosts");
+        if (headFetchHosts != null) {
+            for (String host : headFetchHosts.split(",")) {
+                builder.addHeadFetchHost(host.trim());
+            }
+        }
+        String fetcherMode = property("fetcherMode");
+        if (fetcherMode != null) {
+            builder.setFetcherMode(FetcherMode.valueOf(fetcherMode.toUpperCase(Locale.ROOT)));
+        }
+        String validatorCacheFile = property("validatorCacheFile");
+        if (validatorCacheFile != null) {
+            builder.setValidatorCacheFile(Path.of(validatorCacheFile));
+        }
+        String journalDirectory = property("journalDirectory");
+        if (journalDirectory != null) {
+            builder.setJournalDirectory(Path.of(journalDirectory));
+        }
+        String postProcessingMode = property("postProcessingMode");
+        if (postProcessingMode != null) {
+            builder.setPostProcessingMode(PostProcessingMode.valueOf(postProcessingMode.toUpperCase(Locale.ROOT)));
+        }
+        String ringBufferSize = property("ringBufferSize");
+        if (ringBufferSize != null) {
+            builder.setRingBufferSize(Integer.parseInt(ringBufferSize));
+        }
+        String busWaitStrategy = property("busWaitStrategy");
+        if (busWaitStrategy != null) {
+            builder.setBusWaitStrategy(BusWaitStrategy.valueOf(busWaitStrategy.toUpperCase(Locale.ROOT)));
+        }
+        String outputFormat = property("outputFormat");
+        if (outputFormat != null) {
+            builder.setOutputFormat(OutputFormat.valueOf(outputFormat.toUpperCase(Locale.ROOT)));
+        }
+        String outputShards = property("outputShards");
+        if (outputShards != null) {
+            builder.setOutputShards(Integer.parseInt(outputShards));
+        }
+        String outputGzipped = property("outputGzipped");
+        if (outputGzipped != null) {
+            builder.setOutputGzipped(Boolean.parseBoolean(outputGzipped));
+        }
+        String sortQueryParameters = property("sortQueryParameters");
+        if (sortQueryParameters != null) {
+            builder.setSortQueryParameters(Boolean.parseBoolean(sortQueryParameters));
+        }
+        String clusterNodes = property("clusterNodes");
+        if (clusterNodes != null) {
+            for (String node : clusterNodes.split(",")) {
+                builder.addClusterNode(HostAndPort.fromString(node.trim()));
+            }
+        }
+        String clusterNodeIndex = property("clusterNodeIndex");
+        if (clusterNodeIndex != null) {
+            builder.setClusterNodeIndex(Integer.parseInt(clusterNodeIndex));
+        }
+        String metricsSnapshotSeconds = property("metricsSnapshotSeconds");
+        if (metricsSnapshotSeconds != null) {
+            builder.setMetricsSnapshotSeconds(Integer.parseInt(metricsSnapshotSeconds));
+        }
+        return builder.build();
+    }
+
+    private static String property(String name) {
+        return System.getProperty(PROPERTY_PREFIX + name);
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * No of threads in the worker pool when running in {@link ExecutionMode#PLATFORM_POOL}.
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Max no of pages being fetched at the same time when running in {@link ExecutionMode#VIRTUAL_THREADS} or with
+     * {@link FetcherMode#HTTP_CLIENT}.
+     */
+    public int getMaxConcurrentFetches() {
+        return maxConcurrentFetches;
+    }
+
+    /**
+     * Max no of pages being fetched at the same time in the configured {@link ExecutionMode} and {@link FetcherMode}.
+     */
+    public int getFetchConcurrency() {
+        return executionMode == ExecutionMode.VIRTUAL_THREADS || fetcherMode == FetcherMode.HTTP_CLIENT
+                ? maxConcurrentFetches : workerThreads;
+    }
+
+    public ConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    public FrontierMode getFrontierMode() {
+        return frontierMode;
+    }
+
+    /**
+     * Max no of urls the {@link FrontierMode#TIERED} frontier keeps in memory before spilling to disk.
+     */
+    public int getFrontierMemoryUrls() {
+        return frontierMemoryUrls;
+    }
+
+    /**
+     * Directory in which the {@link FrontierMode#TIERED} frontier keeps its files, or null to use a temporary one.
+     */
+    public Path getFrontierDirectory() {
+        return frontierDirectory;
+    }
+
+    /**
+     * Max no of requests per second sent to {@code host} when running in {@link FrontierMode#PER_HOST}.
+     */
+    public double getHostRequestsPerSecond(String host) {
+        return hostRequestsPerSecond.getOrDefault(host.toLowerCase(Locale.ROOT), defaultHostRequestsPerSecond);
+    }
+
+    /**
+     * Max no of requests per second sent to any host that doesn't have an override in
+     * {@link #getHostRequestsPerSecondOverrides()}.
+     */
+    public double getDefaultHostRequestsPerSecond() {
+        return defaultHostRequestsPerSecond;
+    }
+
+    public ImmutableMap<String, Double> getHostRequestsPerSecondOverrides() {
+        return hostRequestsPerSecond;
+    }
+
+    public PriorityScoring getPriorityScoring() {
+        return priorityScoring;
+    }
+
+    /**
+     * The weights of the regular expressions used by {@link PriorityScoring#URL_PATTERNS}, in the order they are tried.
+     */
+    public ImmutableMap<String, Double> getUrlPatternWeights() {
+        return urlPatternWeights;
+    }
+
+    /**
+     * Max no of links between the seed and a crawled page. The seed is at depth 0, so 0 crawls only the seed.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean limitsDepth() {
+        return maxDepth != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Max no of pages crawled per site, the seed included. Once it's reached the urls left in the frontier are dropped.
+     */
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Whether the robots.txt of every site is fetched and followed. Its {@code Crawl-delay} slows down the host in
+     * {@link FrontierMode#PER_HOST}.
+     */
+    public boolean obeysRobotsTxt() {
+        return robotsTxt;
+    }
+
+    /**
+     * The product token looked for in the {@code User-agent} lines of a robots.txt. Sites without a group for it get
+     * the rules of {@code *}.
+     */
+    public String getRobotsUserAgent() {
+        return robotsUserAgent;
+    }
+
+    /**
+     * How long the rules of a robots.txt are followed before the file is fetched again.
+     */
+    public int getRobotsCacheMinutes() {
+        return robotsCacheMinutes;
+    }
+
+    /**
+     * Whether every site is also seeded with the urls of its {@code /sitemap.xml}, which can be a sitemap index.
+     */
+    public boolean seedsFromSitemap() {
+        return sitemapSeeding;
+    }
+
+    /**
+     * Local files listing urls to seed the crawls with, one per line. Every site is seeded with its own urls.
+     */
+    public ImmutableList<Path> getSeedFiles() {
+        return seedFiles;
+    }
+
+    /**
+     * Max no of requests that can be sent back to back to a host which has been idle for a while.
+     */
+    public int getHostBurst() {
+        return hostBurst;
+    }
+
+    public VisitedStoreMode getVisitedStoreMode() {
+        return visitedStoreMode;
+    }
+
+    /**
+     * Directory in which the {@link VisitedStoreMode#TIERED} store keeps its files, or null to use a temporary one.
+     */
+    public Path getVisitedStoreDirectory() {
+        return visitedStoreDirectory;
+    }
+
+    /**
+     * No of urls the crawl is expected to discover, used to size the data structures which can't grow.
+     */
+    public long getExpectedUrls() {
+        return expectedUrls;
+    }
+
+    public LinkExtractionMode getLinkExtractionMode() {
+        return linkExtractionMode;
+    }
+
+    public FetchMode getFetchMode() {
+        return fetchMode;
+    }
+
+    /**
+     * Hosts which are always fetched with {@link FetchMode#HEAD_THEN_GET}, whatever the {@link #getFetchMode()}.
+     */
+    public ImmutableSet<String> getHeadFetchHosts() {
+        return headFetchHosts;
+    }
+
+    /**
+     * Returns true if the pages of {@code host} should be checked with a {@code HEAD} request before downloading them.
+     */
+    public boolean sendsHeadRequest(String host) {
+        return fetchMode == FetchMode.HEAD_THEN_GET
+                || (host != null && headFetchHosts.contains(host.toLowerCase(Locale.ROOT)));
+    }
+
+    public FetcherMode getFetcherMode() {
+        return fetcherMode;
+    }
+
+    /**
+     * File in which the validators and links of the crawled pages are kept between crawls, or null to always
+     * download every page in full.
+     */
+    public Path getValidatorCacheFile() {
+        return validatorCacheFile;
+    }
+
+    /**
+     * Directory in which the progress of the crawl is journaled so that it can be resumed after a crash, or null to
+     * not journal it at all.
+     */
+    public Path getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    public PostProcessingMode getPostProcessingMode() {
+        return postProcessingMode;
+    }
+
+    /**
+     * No of events in the ring buffer when running in {@link PostProcessingMode#RING_BUFFER}, a power of 2.
+     */
+    public int getRingBufferSize() {
+        return ringBufferSize;
+    }
+
+    public BusWaitStrategy getBusWaitStrategy() {
+        return busWaitStrategy;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * No of files the output is split into with {@link OutputFormat#SHARDED_TEXT}.
+     */
+    public int getOutputShards() {
+        return outputShards;
+    }
+
+    /**
+     * Whether the output files are gzipped with {@link OutputFormat#SHARDED_TEXT}.
+     */
+    public boolean isOutputGzipped() {
+        return outputGzipped;
+    }
+
+    /**
+     * Whether the query parameters of the discovered urls are sorted by name, so that urls which only differ in the
+     * order of their parameters are crawled once.
+     */
+    public boolean sortsQueryParameters() {
+        return sortQueryParameters;
+    }
+
+    /**
+     * The addresses of all the nodes of the cluster this process is part of, in the same order on every node, or an
+     * empty list when crawling alone.
+     */
+    public ImmutableList<HostAndPort> getClusterNodes() {
+        return clusterNodes;
+    }
+
+    public boolean isClustered() {
+        return !clusterNodes.isEmpty();
+    }
+
+    /**
+     * The position of this process in {@link #getClusterNodes()}.
+     */
+    public int getClusterNodeIndex() {
+        return clusterNodeIndex;
+    }
+
+    /**
+     * How often a snapshot of the crawl metrics is logged while crawling, 0 for never.
+     */
+    public int getMetricsSnapshotSeconds() {
+        return metricsSnapshotSeconds;
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder()
+                .setExecutionMode(executionMode)
+                .setWorkerThreads(workerThreads)
+                .setMaxConcurrentFetches(maxConcurrentFetches)
+                .setConcurrencyMode(concurrencyMode)
+                .setFrontierMode(frontierMode)
+                .setFrontierMemoryUrls(frontierMemoryUrls)
+                .setFrontierDirectory(frontierDirectory)
+                .setDefaultHostRequestsPerSecond(defaultHostRequestsPerSecond)
+                .setHostBurst(hostBurst)
+                .setPriorityScoring(priorityScoring)
+                .setMaxDepth(maxDepth)
+                .setMaxPages(maxPages)
+                .setRobotsTxt(robotsTxt)
+                .setRobotsUserAgent(robotsUserAgent)
+                .setRobotsCacheMinutes(robotsCacheMinutes)
+                .setSitemapSeeding(sitemapSeeding)
+                .setVisitedStoreMode(visitedStoreMode)
+                .setVisitedStoreDirectory(visitedStoreDirectory)
+                .setExpectedUrls(expectedUrls)
+                .setLinkExtractionMode(linkExtractionMode)
+                .setFetchMode(fetchMode)
+                .setFetcherMode(fetcherMode)
+                .setValidatorCacheFile(validatorCacheFile)
+                .setJournalDirectory(journalDirectory)
+                .setPostProcessingMode(postProcessingMode)
+                .setRingBufferSize(ringBufferSize)
+                .setBusWaitStrategy(busWaitStrategy)
+                .setOutputFormat(outputFormat)
+                .setOutputShards(outputShards)
+                .setOutputGzipped(outputGzipped)
+                .setSortQueryParameters(sortQueryParameters)
+                .setClusterNodeIndex(clusterNodeIndex)
+                .setMetricsSnapshotSeconds(metricsSnapshotSeconds);
+        hostRequestsPerSecond.forEach(builder::setHostRequestsPerSecond);
+        urlPatternWeights.forEach(builder::setUrlPatternWeight);
+        headFetchHosts.forEach(builder::addHeadFetchHost);
+        clusterNodes.forEach(builder::addClusterNode);
+        seedFiles.forEach(builder::addSeedFile);
+        return builder;
+    }
+
+    public static final class Builder {
+        private ExecutionMode executionMode = ExecutionMode.PLATFORM_POOL;
+        private int workerThreads = 10;
+        private int maxConcurrentFetches = 200;
+        private ConcurrencyMode concurrencyMode = ConcurrencyMode.FIXED;
+        private FrontierMode frontierMode = FrontierMode.FIFO;
+        private int frontierMemoryUrls = 100_000;
+        private Path frontierDirectory;
+        private double defaultHostRequestsPerSecond = 10;
+        private int hostBurst = 1;
+        private final ImmutableMap.Builder<String, Double> hostRequestsPerSecond = ImmutableMap.builder();
+        private PriorityScoring priorityScoring = PriorityScoring.DEPTH;
+        private final ImmutableMap.Builder<String, Double> urlPatternWeights = ImmutableMap.builder();
+        private int maxDepth = Integer.MAX_VALUE;
+        private int maxPages = Integer.MAX_VALUE;
+        private boolean robotsTxt;
+        private String robotsUserAgent = "WebCrawler";
+        private int robotsCacheMinutes = 60;
+        private boolean sitemapSeeding;
+        private final ImmutableList.Builder<Path> seedFiles = ImmutableList.builder();
+        private VisitedStoreMode visitedStoreMode = VisitedStoreMode.STRINGS;
+        private Path visitedStoreDirectory;
+        private long expectedUrls = 10_000_000;
+        private LinkExtractionMode linkExtractionMode = LinkExtractionMode.DOM;
+        private FetchMode fetchMode = FetchMode.HEAD_THEN_GET;
+        private final ImmutableSet.Builder<String> headFetchHosts = ImmutableSet.builder();
+        private FetcherMode fetcherMode = FetcherMode.JSOUP;
+        private Path validatorCacheFile;
+        private Path journalDirectory;
+        private PostProcessingMode postProcessingMode = PostProcessingMode.EXECUTOR;
+        private int ringBufferSize = 4096;
+        private BusWaitStrategy busWaitStrategy = BusWaitStrategy.BLOCKING;
+        private OutputFormat outputFormat = OutputFormat.TEXT;
+        private int outputShards = 1;
+        private boolean outputGzipped;
+        private boolean sortQueryParameters;
+        private final ImmutableList.Builder<HostAndPort> clusterNodes = ImmutableList.builder();
+        private int clusterNodeIndex;
+        private int metricsSnapshotSeconds;
+
+        private Builder() {
+        }
+
+        public Builder setExecutionMode(ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        public Builder setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder setMaxConcurrentFetches(int maxConcurrentFetches) {
+            this.maxConcurrentFetches = maxConcurrentFetches;
+            return this;
+        }
+
+        public Builder setConcurrencyMode(ConcurrencyMode concurrencyMode) {
+            this.concurrencyMode = concurrencyMode;
+            return this;
+        }
+
+        public Builder setFrontierMode(FrontierMode frontierMode) {
+            this.frontierMode = frontierMode;
+            return this;
+        }
+
+        public Builder setFrontierMemoryUrls(int frontierMemoryUrls) {
+            this.frontierMemoryUrls = frontierMemoryUrls;
+            return this;
+        }
+
+        public Builder setFrontierDirectory(Path frontierDirectory) {
+            this.frontierDirectory = frontierDirectory;
+            return this;
+        }
+
+        public Builder setDefaultHostRequestsPerSecond(double requestsPerSecond) {
+            this.defaultHostRequestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        public Builder setHostRequestsPerSecond(String host, double requestsPerSecond) {
+            this.hostRequestsPerSecond.put(host.toLowerCase(Locale.ROOT), requestsPerSecond);
+            return this;
+        }
+
+        public Builder setHostBurst(int hostBurst) {
+            this.hostBurst = hostBurst;
+            return this;
+        }
+
+        public Builder setPriorityScoring(PriorityScoring priorityScoring) {
+            this.priorityScoring = priorityScoring;
+            return this;
+        }
+
+        public Builder setUrlPatternWeight(String regex, double weight) {
+            this.urlPatternWeights.put(regex, weight);
+            return this;
+        }
+
+        public Builder setMaxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public Builder setMaxPages(int maxPages) {
+            this.maxPages = maxPages;
+            return this;
+        }
+
+        public Builder setRobotsTxt(boolean robotsTxt) {
+            this.robotsTxt = robotsTxt;
+            return this;
+        }
+
+        public Builder setRobotsUserAgent(String robotsUserAgent) {
+            this.robotsUserAgent = robotsUserAgent;
+            return this;
+        }
+
+        public Builder setRobotsCacheMinutes(int robotsCacheMinutes) {
+            this.robotsCacheMinutes = robotsCacheMinutes;
+            return this;
+        }
+
+        public Builder setSitemapSeeding(boolean sitemapSeeding) {
+            this.sitemapSeeding = sitemapSeeding;
+            return this;
+        }
+
+        public Builder addSeedFile(Path seedFile) {
+            this.seedFiles.add(seedFile);
+            return this;
+        }
+
+        public Builder setVisitedStoreMode(VisitedStoreMode visitedStoreMode) {
+            this.visitedStoreMode = visitedStoreMode;
+            return this;
+        }
+
+        public Builder setVisitedStoreDirectory(Path visitedStoreDirectory) {
+            this.visitedStoreDirectory = visitedStoreDirectory;
+            return this;
+        }
+
+        public Builder setExpectedUrls(long expectedUrls) {
+            this.expectedUrls = expectedUrls;
+            return this;
+        }
+
+        public Builder setLinkExtractionMode(LinkExtractionMode linkExtractionMode) {
+            this.linkExtractionMode = linkExtractionMode;
+            return this;
+        }
+
+        public Builder setFetchMode(FetchMode fetchMode) {
+            this.fetchMode = fetchMode;
+            return this;
+        }
+
+        public Builder addHeadFetchHost(String host) {
+            this.headFetchHosts.add(host.toLowerCase(Locale.ROOT));
+            return this;
+        }
+
+        public Builder setFetcherMode(FetcherMode fetcherMode) {
+            this.fetcherMode = fetcherMode;
+            return this;
+        }
+
+        public Builder setValidatorCacheFile(Path validatorCacheFile) {
+            this.validatorCacheFile = validatorCacheFile;
+            return this;
+        }
+
+        public Builder setJournalDirectory(Path journalDirectory) {
+            this.journalDirectory = journalDirectory;
+            return this;
+        }
+
+        public Builder setPostProcessingMode(PostProcessingMode postProcessingMode) {
+            this.postProcessingMode = postProcessingMode;
+            return this;
+        }
+
+        public Builder setRingBufferSize(int ringBufferSize) {
+            this.ringBufferSize = ringBufferSize;
+            return this;
+        }
+
+        public Builder setBusWaitStrategy(BusWaitStrategy busWaitStrategy) {
+            this.busWaitStrategy = busWaitStrategy;
+            return this;
+        }
+
+        public Builder setOutputFormat(OutputFormat outputFormat) {
+            this.outputFormat = outputFormat;
+            return this;
+        }
+
+        public Builder setOutputShards(int outputShards) {
+            this.outputShards = outputShards;
+            return this;
+        }
+
+        public Builder setOutputGzipped(boolean outputGzipped) {
+            this.outputGzipped = outputGzipped;
+            return this;
+        }
+
+        public Builder setSortQueryParameters(boolean sortQueryParameters) {
+            this.sortQueryParameters = sortQueryParameters;
+            return this;
+        }
+
+        public Builder addClusterNode(HostAndPort node) {
+            this.clusterNodes.add(node);
+            return this;
+        }
+
+        public Builder setClusterNodeIndex(int clusterNodeIndex) {
+            this.clusterNodeIndex = clusterNodeIndex;
+            return this;
+        }
+
+        public Builder setMetricsSnapshotSeconds(int metricsSnapshotSeconds) {
+            this.metricsSnapshotSeconds = metricsSnapshotSeconds;
+            return this;
+        }
+
+        public CrawlConfig build() {
+            if (workerThreads <= 0) {
+                throw new IllegalArgumentException("workerThreads should be positive");
+            }
+            if (maxConcurrentFetches <= 0) {
+                throw new IllegalArgumentException("maxConcurrentFetches should be positive");
+            }
+            if (defaultHostRequestsPerSecond <= 0 || hostBurst <= 0) {
+                throw new IllegalArgumentException("Per host rate limits should be positive");
+            }
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("maxDepth can't be negative");
+            }
+            if (maxPages <= 0) {
+                throw new IllegalArgumentException("maxPages should be positive");
+            }
+            if (robotsCacheMinutes <= 0) {
+                throw new IllegalArgumentException("robotsCacheMinutes should be positive");
+            }
+            if (robotsUserAgent == null || robotsUserAgent.isBlank()) {
+                throw new IllegalArgumentException("robotsUserAgent can't be blank");
+            }
+            if (frontierMemoryUrls <= 0) {
+                throw new IllegalArgumentException("frontierMemoryUrls should be positive");
+            }
+            if (expectedUrls <= 0) {
+                throw new IllegalArgumentException("expectedUrls should be positive");
+            }
+            if (ringBufferSize <= 0 || Integer.bitCount(ringBufferSize) != 1) {
+                throw new IllegalArgumentException("ringBufferSize should be a power of 2");
+            }
+            if (outputShards <= 0) {
+                throw new IllegalArgumentException("outputShards should be positive");
+            }
+            if (metricsSnapshotSeconds < 0) {
+                throw new IllegalArgumentException("metricsSnapshotSeconds can't be negative");
+            }
+            int nodes = clusterNodes.build().size();
+            if (nodes > 0 && (clusterNodeIndex < 0 || clusterNodeIndex >= nodes)) {
+                throw new IllegalArgumentException("clusterNodeIndex should point into clusterNodes");
+            }
+            for (HostAndPort node : clusterNodes.build()) {
+                if (!node.hasPort()) {
+                    throw new IllegalArgumentException("Cluster node " + node + " has no port");
+                }
+            }
+            return new CrawlConfig(this);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package yashasvig.crawler.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counts what the crawler is doing and times every stage a page goes through, from the fetch to the post processors.
+ *
+ * <p>Every stage gets a {@link LatencyHistogram} and the counters are {@link LongAdder}s, so recording never takes a
+ * lock and hardly ever contends with other threads. The pages and errors are also broken down by host, up to
+ * {@value #MAX_HOSTS} hosts after which the rest are counted under {@value #OTHER_HOSTS}, and the responses by http
+ * status code.</p>
+ *
+ * <p>Everything can be read over JMX once {@link #registerMBeans(MBeanServer)} has been called, or as text through
+ * {@link #format()}.</p>
+ */
+public final class CrawlMetrics implements CrawlMetricsMXBean {
+
+    public static final String OBJECT_NAME = "yashasvig.crawler:type=CrawlMetrics";
+
+    /**
+     * The stages timed by the crawler.
+     */
+    public enum Stage {
+        /**
+         * A {@code HEAD} request, until its response arrives.
+         */
+        HEAD,
+        /**
+         * A {@code GET} request, until its headers arrive with jsoup, which streams the body into the parser, or
+         * until the whole body arrives with the http client.
+         */
+        GET,
+        /**
+         * Extracting the links out of a body, which includes reading it with jsoup.
+         */
+        PARSE,
+        /**
+         * Canonicalizing the links of a page and checking them against the scope of the crawl.
+         */
+        FILTER,
+        /**
+         * Checking the child urls of a page against the visited urls.
+         */
+        DEDUP,
+        /**
+         * Waiting for a fetch slot before a url can be handed over to the worker pool.
+         */
+        SLOT_WAIT,
+        /**
+         * Waiting in the queue of the worker pool for a thread.
+         */
+        QUEUE_WAIT,
+        /**
+         * From the moment a worker reports an event until a post processor picks it up.
+         */
+        DISPATCH_LAG,
+        /**
+         * Running the post processors on an event.
+         */
+        POST_PROCESSING
+    }
+
+    static final int MAX_HOSTS = 10_000;
+    static final String OTHER_HOSTS = "(other)";
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final LongAdder pagesCrawled = new LongAdder();
+    private final LongAdder pagesFailed = new LongAdder();
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final Map<String, HostCounters> hosts = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public CrawlMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public void recordStatus(int statusCode) {
+        statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+    }
+
+    public void recordPage(String host) {
+        pagesCrawled.increment();
+        countersOf(host).pages.increment();
+    }
+
+    public void recordError(String host) {
+        pagesFailed.increment();
+        countersOf(host).errors.increment();
+    }
+
+    /**
+     * Publishes the current value of {@code gauge} under {@code name}, replacing any gauge with the same name.
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    @Override
+    public long getPagesCrawled() {
+        return pagesCrawled.sum();
+    }
+
+    @Override
+    public long getPagesFailed() {
+        return pagesFailed.sum();
+    }
+
+    @Override
+    public Map<String, Long> getStatusCodes() {
+        Map<String, Long> codes = new TreeMap<>();
+        statusCodes.forEach((code, count) -> codes.put(String.valueOf(code), count.sum()));
+        return codes;
+    }
+
+    @Override
+    public Map<String, Long> getPagesByHost() {
+        Map<String, Long> pages = new TreeMap<>();
+        hosts.forEach((host, counters) -> pages.put(host, counters.pages.sum()));
+        return pages;
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByHost() {
+        Map<String, Long> errors = new TreeMap<>();
+        hosts.forEach((host, counters) -> errors.put(host, counters.errors.sum()));
+        return errors;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Registers this registry under {@link #OBJECT_NAME}, and every stage under
+     * {@code yashasvig.crawler:type=Stage,name=<stage>}. Anything registered under the same names before, like the
+     * metrics of a previous crawler in the same process, is replaced.
+     */
+    public void registerMBeans(MBeanServer server) {
+        try {
+            register(server, this, new ObjectName(OBJECT_NAME));
+            for (Stage stage : Stage.values()) {
+                register(server, new StageView(stages.get(stage)),
+                        new ObjectName("yashasvig.crawler:type=Stage,name=" + stage));
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Couldn't publish the metrics over JMX", e);
+        }
+    }
+
+    /**
+     * Returns all the metrics as a few lines of text.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder(String.format("Pages crawled: %d, failed: %d%n", getPagesCrawled(),
+                getPagesFailed()));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = stages.get(stage);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            text.append(String.format("%-15s count: %d, mean: %.2f ms, p50: %.2f ms, p90: %.2f ms, p99: %.2f ms, "
+                            + "max: %.2f ms%n", stage, histogram.getCount(), millis(histogram.getMean()),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getMax())));
+        }
+        text.append(String.format("Status codes: %s%n", getStatusCodes()));
+        text.append(String.format("Gauges: %s%n", getGauges()));
+        Map<String, Long> pagesByHost = getPagesByHost();
+        Map<String, Long> errorsByHost = getErrorsByHost();
+        text.append("Hosts:");
+        pagesByHost.forEach((host, pages) -> text.append(String.format(" %s (%d pages, %d errors)", host, pages,
+                errorsByHost.getOrDefault(host, 0L))));
+        return text.toString();
+    }
+
+    private HostCounters countersOf(String host) {
+        String key = host == null ? OTHER_HOSTS : host;
+        HostCounters counters = hosts.get(key);
+        if (counters != null) {
+            return counters;
+        }
+        if (hosts.size() >= MAX_HOSTS) {
+            key = OTHER_HOSTS;
+        }
+        return hosts.computeIfAbsent(key, h -> new HostCounters());
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+        }
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static final class HostCounters {
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private static final class StageView implements StageMXBean {
+        private final LatencyHistogram histogram;
+
+        private StageView(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return millis(histogram.getMean());
+        }
+
+        @Override
+        public double getP50Millis() {
+            return millis(histogram.getValueAtPercentile(50));
+        }
+
+        @Override
+        public double getP90Millis() {
+            return millis(histogram.getValueAtPercentile(90));
+        }
+
+        @Override
+        public double getP99Millis() {
+            return millis(histogram.getValueAtPercentile(99));
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return millis(histogram.getMax());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package yashasvig.crawler.metrics;
+
+import java.util.Map;
+
+/**
+ * The counters of {@link CrawlMetrics}, as published over JMX under {@link CrawlMetrics#OBJECT_NAME}.
+ */
+public interface CrawlMetricsMXBean {
+
+    long getPagesCrawled();
+
+    long getPagesFailed();
+
+    /**
+     * Returns the no of responses per http status code, including the ones which failed the fetch.
+     */
+    Map<String, Long> getStatusCodes();
+
+    Map<String, Long> getPagesByHost();
+
+    Map<String, Long> getErrorsByHost();
+
+    /**
+     * Returns the current values of the gauges, like the no of urls waiting in the frontiers.
+     */
+    Map<String, Long> getGauges();
+}
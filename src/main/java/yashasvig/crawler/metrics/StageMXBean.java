@@ -0,0 +1,19 @@
+package yashasvig.crawler.metrics;
+
+/**
+ * The latencies of one {@link CrawlMetrics.Stage}, as published over JMX.
+ */
+public interface StageMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,23 @@
+package yashasvig.crawler.metrics.di;
+
+import dagger.Module;
+import dagger.Provides;
+import yashasvig.crawler.metrics.CrawlMetrics;
+
+import javax.inject.Singleton;
+import java.lang.management.ManagementFactory;
+
+@Module
+public class MetricsModule {
+
+    /**
+     * Provides the metrics of the whole process, published over JMX as soon as they're created.
+     */
+    @Provides
+    @Singleton
+    static CrawlMetrics provideCrawlMetrics() {
+        CrawlMetrics metrics = new CrawlMetrics();
+        metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+        return metrics;
+    }
+}
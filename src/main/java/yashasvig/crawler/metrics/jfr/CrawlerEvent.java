@@ -0,0 +1,22 @@
+package yashasvig.crawler.metrics.jfr;
+
+import jdk.jfr.Event;
+
+/**
+ * A stage of the crawl recorded into flight recordings.
+ *
+ * <p>The {@code @Threshold} of every event is only its default. A recording can override it per event, either from a
+ * settings file such as {@code crawler.jfc} at the root of the repository, or right on the command line with
+ * {@code -XX:StartFlightRecording:+yashasvig.crawler.Fetch#threshold=100ms}.</p>
+ */
+abstract class CrawlerEvent extends Event {
+
+    /**
+     * Ends the event and tells whether it has to be committed, that is whether the recording has it enabled and it
+     * took longer than its threshold. The fields of the event only need to be filled in when it does.
+     */
+    final boolean endAndShouldCommit() {
+        end();
+        return shouldCommit();
+    }
+}
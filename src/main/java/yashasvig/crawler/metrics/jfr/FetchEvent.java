@@ -0,0 +1,39 @@
+package yashasvig.crawler.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A single {@code HEAD} or {@code GET} request, until its response arrives.
+ */
+@Name("yashasvig.crawler.Fetch")
+@Label("Page Fetch")
+@Category({"Crawler", "Fetch"})
+@Description("A HEAD or GET request of a page")
+@Threshold("20 ms")
+@StackTrace(false)
+public final class FetchEvent extends CrawlerEvent {
+
+    @Label("URL")
+    String url;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    @Description("The status code of the response, 0 if there was none")
+    int status;
+
+    public void finish(String url, String method, int status) {
+        if (endAndShouldCommit()) {
+            this.url = url;
+            this.method = method;
+            this.status = status;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package yashasvig.crawler.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Canonicalizing the links of a page and checking them against the scope of the crawl.
+ */
+@Name("yashasvig.crawler.Filter")
+@Label("Link Filtering")
+@Category({"Crawler", "Parse"})
+@Description("Canonicalizing and filtering the links of a page")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class FilterEvent extends CrawlerEvent {
+
+    @Label("URL")
+    String url;
+
+    @Label("Links")
+    int links;
+
+    @Label("Kept Links")
+    @Description("The no of distinct links left to be scheduled")
+    int keptLinks;
+
+    public void finish(String url, int links, int keptLinks) {
+        if (endAndShouldCommit()) {
+            this.url = url;
+            this.links = links;
+            this.keptLinks = keptLinks;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package yashasvig.crawler.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Reading the body of a page and extracting its links.
+ */
+@Name("yashasvig.crawler.Parse")
+@Label("Page Parse")
+@Category({"Crawler", "Parse"})
+@Description("Extracting the links out of the body of a page")
+@Threshold("5 ms")
+@StackTrace(false)
+public final class ParseEvent extends CrawlerEvent {
+
+    @Label("URL")
+    String url;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Links")
+    @Description("The no of links found in the body, before any filtering")
+    int links;
+
+    public void finish(String url, long bytes, int links) {
+        if (endAndShouldCommit()) {
+            this.url = url;
+            this.bytes = bytes;
+            this.links = links;
+            commit();
+        }
+    }
+}
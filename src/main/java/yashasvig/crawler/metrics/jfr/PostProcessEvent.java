@@ -0,0 +1,39 @@
+package yashasvig.crawler.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A single callback of a post processor.
+ */
+@Name("yashasvig.crawler.PostProcess")
+@Label("Post Processor Callback")
+@Category({"Crawler", "Post Processing"})
+@Description("A post processor handling an event of a crawl")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class PostProcessEvent extends CrawlerEvent {
+
+    @Label("Processor")
+    String processor;
+
+    @Label("Callback")
+    String callback;
+
+    @Label("URL")
+    @Description("The page the callback was about, if any")
+    String url;
+
+    public void finish(String processor, String callback, String url) {
+        if (endAndShouldCommit()) {
+            this.processor = processor;
+            this.callback = callback;
+            this.url = url;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package yashasvig.crawler.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Handing a url taken out of a frontier over to the worker pool, which includes waiting for a fetch slot.
+ */
+@Name("yashasvig.crawler.Schedule")
+@Label("Url Scheduling")
+@Category({"Crawler", "Scheduling"})
+@Description("Waiting for a fetch slot and submitting a url to the worker pool")
+@Threshold("10 ms")
+@StackTrace(false)
+public final class ScheduleEvent extends CrawlerEvent {
+
+    @Label("URL")
+    String url;
+
+    @Label("Fetch Limit")
+    @Description("The no of pages which could be fetched at the same time when the url got its slot")
+    int fetchLimit;
+
+    /**
+     * The fetch limit is only read when the event is committed, since it may take a lock.
+     */
+    public void finish(String url, IntSupplier fetchLimit) {
+        if (endAndShouldCommit()) {
+            this.url = url;
+            this.fetchLimit = fetchLimit.getAsInt();
+            commit();
+        }
+    }
+}
@@ -1,29 +1,105 @@
 package yashasvig.crawler.models;
 
 import com.google.common.collect.ImmutableList;
-import com.google.errorprone.annotations.Immutable;
 import yashasvig.crawler.util.IndentingPrintWriter;
 
 import java.net.URI;
+import java.util.AbstractList;
+import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * An Immutable representation of a web page in the system.
+ * A web page in the system, along with the urls it links to.
+ *
+ * <p>Pages created during a crawl only hold the ids of their child urls in the crawl's {@link UrlDictionary}, so the
+ * same link showing up on many pages costs 4 bytes per page instead of a {@link URI} of its own. Such a page holds a
+ * reference to each of its child urls until {@link #release()} is called once it has been post-processed, after which
+ * its child urls can't be read any more.</p>
  */
-@Immutable
 public final class Page {
 
+    private static final int[] NO_IDS = new int[0];
+
     private final URI url;
-    private final Set<URI> childUrls;   // we store URI in set since #equals and #hashcode for
+    private final UrlDictionary dictionary;
+    private final int[] childIds;
+    private final List<URI> childUrls;
+    private final AtomicBoolean released = new AtomicBoolean();
 
+    /**
+     * Creates a page holding its own copy of {@code childUrls}, outside of any {@link UrlDictionary}.
+     */
     public Page(URI url, Set<URI> childUrls) {
         this.url = url;
-        this.childUrls = childUrls;
+        this.dictionary = null;
+        this.childIds = NO_IDS;
+        this.childUrls = ImmutableList.copyOf(childUrls);
+    }
+
+    /**
+     * Creates a page whose child urls are {@code childIds} in {@code dictionary}. The array is not copied, so it
+     * must not be modified afterwards.
+     */
+    public Page(URI url, int[] childIds, UrlDictionary dictionary) {
+        this.url = url;
+        this.dictionary = dictionary;
+        this.childIds = childIds;
+        this.childUrls = new ChildUrls();
+    }
+
+    public URI getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns an unmodifiable view of the child urls, which doesn't copy anything.
+     *
+     * @throws IllegalStateException if the page was created with a {@link UrlDictionary} and has been released
+     */
+    public List<URI> getChildUrls() {
+        checkNotReleased();
+        return childUrls;
+    }
+
+    /**
+     * Returns true if the child urls are held as ids in {@link #getDictionary()}.
+     */
+    public boolean hasChildIds() {
+        return dictionary != null;
+    }
+
+    /**
+     * Returns the id of the {@code index}th child url in {@link #getDictionary()}.
+     *
+     * @throws IllegalStateException if the page was not created with a {@link UrlDictionary}, or has been released
+     */
+    public int getChildId(int index) {
+        if (dictionary == null) {
+            throw new IllegalStateException("The child urls of " + url + " are not in a dictionary");
+        }
+        checkNotReleased();
+        return childIds[index];
+    }
+
+    /**
+     * Returns the dictionary holding the child urls, or null if the page holds its own copy.
+     */
+    public UrlDictionary getDictionary() {
+        return dictionary;
     }
 
-    public ImmutableList<URI> getChildUrls() {
-        return ImmutableList.copyOf(childUrls);
+    /**
+     * Gives the references to the child urls back to the dictionary, so that the urls no other page links to can be
+     * dropped. The child urls can't be read afterwards, which makes this the last thing to do with the page. Only
+     * the first call has any effect, and it does nothing for a page holding its own copy.
+     */
+    public void release() {
+        if (dictionary != null && released.compareAndSet(false, true)) {
+            dictionary.releaseAll(childIds);
+        }
     }
 
     @Override
@@ -56,4 +132,26 @@ public final class Page {
         writer.decreaseIndent();
         writer.decreaseIndent();
     }
+
+    private void checkNotReleased() {
+        if (released.get()) {
+            throw new IllegalStateException("The child urls of " + url + " have been released");
+        }
+    }
+
+    /**
+     * Looks the child ids up in the dictionary as they are read.
+     */
+    private final class ChildUrls extends AbstractList<URI> implements RandomAccess {
+        @Override
+        public URI get(int index) {
+            checkNotReleased();
+            return dictionary.get(childIds[index]);
+        }
+
+        @Override
+        public int size() {
+            return childIds.length;
+        }
+    }
 }
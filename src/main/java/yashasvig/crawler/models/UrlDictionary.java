@@ -0,0 +1,203 @@
+package yashasvig.crawler.models;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A dictionary of the child urls of the pages of a crawl which are waiting to be post-processed. It gives every
+ * distinct url an int id, so that a url linked from thousands of pages is held by a single {@link URI} instance and
+ * every {@link Page} only keeps the ids of its child urls.
+ *
+ * <p>Every url is reference counted: each {@link #intern} takes a reference and each {@link #release(int)} gives
+ * one back. Once a url has no references left, it's dropped from the dictionary and its id is handed out again to
+ * the next new url. The dictionary so only grows with the no of pages in flight, not with the size of the crawl.</p>
+ *
+ * <p>The urls are kept in fixed size chunks indexed by id, so growing the dictionary never copies the urls already in
+ * it. Safe to use from any no of threads.</p>
+ */
+public final class UrlDictionary {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile AtomicReferenceArray<AtomicReferenceArray<Entry>> chunks = new AtomicReferenceArray<>(8);
+    private final Object idLock = new Object();
+    // The ids given back by released urls, reused before new ones are made. Guarded by idLock.
+    private int[] freeIds = new int[64];
+    private int freeIdCount;
+    private int nextId;
+
+    public UrlDictionary() {
+    }
+
+    /**
+     * Returns the id of {@code url}, giving it a new one if it's not in the dictionary, and takes a reference to it.
+     */
+    public int intern(URI url) {
+        return add(url.toString(), url);
+    }
+
+    /**
+     * Same as {@link #intern(URI)}, except that the {@link URI} is only created if {@code url} is not in the
+     * dictionary. Two urls get the same id only if they are the same string, so {@code url} should be canonical.
+     *
+     * @throws IllegalArgumentException if {@code url} is not a valid {@link URI}
+     */
+    public int intern(String url) {
+        return add(url, null);
+    }
+
+    /**
+     * Returns the ids of all the {@code urls}, in iteration order, taking a reference to every one of them.
+     */
+    public int[] internAll(Collection<URI> urls) {
+        int[] result = new int[urls.size()];
+        int i = 0;
+        for (URI url : urls) {
+            result[i++] = intern(url);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of all the canonical {@code urls}, in iteration order, taking a reference to every one of them.
+     */
+    public int[] internAllCanonical(Collection<String> urls) {
+        int[] result = new int[urls.size()];
+        int i = 0;
+        for (String url : urls) {
+            result[i++] = intern(url);
+        }
+        return result;
+    }
+
+    /**
+     * Gives back a reference to the url with the given id, dropping the url if that was the last one.
+     *
+     * @throws IllegalArgumentException if no url has that id
+     */
+    public void release(int id) {
+        entries.computeIfPresent(entry(id).key, (key, entry) -> {
+            if (--entry.references > 0) {
+                return entry;
+            }
+            chunk(entry.id).set(entry.id & (CHUNK_SIZE - 1), null);
+            freeId(entry.id);
+            return null;
+        });
+    }
+
+    /**
+     * Gives back a reference to all the urls with the given ids.
+     */
+    public void releaseAll(int[] ids) {
+        for (int id : ids) {
+            release(id);
+        }
+    }
+
+    /**
+     * Returns the url with the given id.
+     *
+     * @throws IllegalArgumentException if no url has that id
+     */
+    public URI get(int id) {
+        return entry(id).url;
+    }
+
+    /**
+     * Returns the no of distinct urls in the dictionary.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private int add(String key, URI url) {
+        return entries.compute(key, (ignored, entry) -> {
+            if (entry == null) {
+                // Created before the id is taken, so that an invalid url doesn't leak one.
+                URI value = url != null ? url : URI.create(key);
+                int id = newId();
+                entry = new Entry(id, key, value);
+                chunk(id).set(id & (CHUNK_SIZE - 1), entry);
+            }
+            entry.references++;
+            return entry;
+        }).id;
+    }
+
+    private Entry entry(int id) {
+        AtomicReferenceArray<AtomicReferenceArray<Entry>> current = chunks;
+        int index = id >>> CHUNK_BITS;
+        AtomicReferenceArray<Entry> chunk = id >= 0 && index < current.length() ? current.get(index) : null;
+        Entry entry = chunk == null ? null : chunk.get(id & (CHUNK_SIZE - 1));
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown url id " + id);
+        }
+        return entry;
+    }
+
+    private int newId() {
+        synchronized (idLock) {
+            return freeIdCount > 0 ? freeIds[--freeIdCount] : nextId++;
+        }
+    }
+
+    private void freeId(int id) {
+        synchronized (idLock) {
+            if (freeIdCount == freeIds.length) {
+                int[] grown = new int[freeIds.length * 2];
+                System.arraycopy(freeIds, 0, grown, 0, freeIdCount);
+                freeIds = grown;
+            }
+            freeIds[freeIdCount++] = id;
+        }
+    }
+
+    private AtomicReferenceArray<Entry> chunk(int id) {
+        int index = id >>> CHUNK_BITS;
+        AtomicReferenceArray<AtomicReferenceArray<Entry>> current = chunks;
+        AtomicReferenceArray<Entry> chunk = index < current.length() ? current.get(index) : null;
+        if (chunk != null) {
+            return chunk;
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.length()) {
+                AtomicReferenceArray<AtomicReferenceArray<Entry>> grown =
+                        new AtomicReferenceArray<>(Math.max(current.length() * 2, index + 1));
+                for (int i = 0; i < current.length(); i++) {
+                    grown.set(i, current.get(i));
+                }
+                chunks = grown;
+                current = grown;
+            }
+            chunk = current.get(index);
+            if (chunk == null) {
+                chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+                current.set(index, chunk);
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * A url of the dictionary. The references are only read and written inside a compute of {@link #entries} for
+     * its key, which serializes them.
+     */
+    private static final class Entry {
+        private final int id;
+        private final String key;
+        private final URI url;
+        private int references;
+
+        private Entry(int id, String key, URI url) {
+            this.id = id;
+            this.key = key;
+            this.url = url;
+        }
+    }
+}
@@ -2,18 +2,42 @@ package yashasvig.crawler.postprocessing.di;
 
 import dagger.Module;
 import dagger.Provides;
+import dagger.multibindings.ElementsIntoSet;
 import dagger.multibindings.IntoSet;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
 import yashasvig.crawler.postprocessing.PostProcessor;
+import yashasvig.crawler.postprocessing.print.BinaryFilePrinter;
 import yashasvig.crawler.postprocessing.print.FilePrinter;
+import yashasvig.crawler.postprocessing.print.MetricsSnapshotPrinter;
+import yashasvig.crawler.postprocessing.print.ShardedTextPrinter;
 import yashasvig.crawler.postprocessing.print.UserConsolePrinter;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
 @Module
 public class PostProducersModule {
 
     @Provides
-    @IntoSet
-    static PostProcessor provideFilePrinter() {
-        return new FilePrinter();
+    @ElementsIntoSet
+    static Set<PostProcessor> provideFilePrinters(CrawlConfig config) {
+        return switch (config.getOutputFormat()) {
+            case TEXT -> Set.of(new FilePrinter());
+            case BINARY -> Set.of(new BinaryFilePrinter());
+            case SHARDED_TEXT -> Set.of(new ShardedTextPrinter(Path.of(""), config.getOutputShards(),
+                    config.isOutputGzipped()));
+        };
+    }
+
+    @Provides
+    @ElementsIntoSet
+    static Set<PostProcessor> provideMetricsSnapshotPrinter(CrawlConfig config, CrawlMetrics metrics) {
+        if (config.getMetricsSnapshotSeconds() == 0) {
+            return Set.of();
+        }
+        return Set.of(new MetricsSnapshotPrinter(metrics, Duration.ofSeconds(config.getMetricsSnapshotSeconds())));
     }
 
     @Provides
@@ -22,4 +46,3 @@ public class PostProducersModule {
         return new UserConsolePrinter();
     }
 }
-
@@ -0,0 +1,197 @@
+package yashasvig.crawler.postprocessing.print;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.CountingOutputStream;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An implementation of {@link PostProcessor} that writes the crawling output to a compact binary file, see
+ * {@link BinaryFormat}.
+ *
+ * <p>Every url gets an integer id the first time it's seen and the pages only refer to the ids of their links, so the
+ * navigation and footer links repeated on every page cost a couple of bytes each instead of the complete url. Use
+ * {@link BinaryOutputReader} to read the file or to convert it back to the text output of {@link FilePrinter}.</p>
+ */
+public final class BinaryFilePrinter implements PostProcessor {
+
+    private static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final int blockBytes;
+    private final Map<String, Integer> urlIds = new HashMap<>();
+    private final List<String> urls = new ArrayList<>();
+    private final List<long[]> index = new ArrayList<>();
+    private final BinaryFormat.Buffer block;
+    private final CRC32 crc = new CRC32();
+
+    private Path file;
+    private CountingOutputStream counter;
+    private DataOutputStream out;
+    private int pages;
+    private int blockFirstPage;
+
+    public BinaryFilePrinter() {
+        this(Path.of(""));
+    }
+
+    /**
+     * @param directory directory in which the output file is created
+     */
+    public BinaryFilePrinter(Path directory) {
+        this(directory, DEFAULT_BLOCK_BYTES);
+    }
+
+    @VisibleForTesting
+    BinaryFilePrinter(Path directory, int blockBytes) {
+        this.directory = directory;
+        this.blockBytes = blockBytes;
+        this.block = new BinaryFormat.Buffer(blockBytes + 1024);
+    }
+
+    @Override
+    public void onCrawlingStarted(URI url) {
+        file = directory.resolve(FilePrinter.outputFileName(url, "crawl"));
+        try {
+            counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out = new DataOutputStream(counter);
+            out.writeInt(BinaryFormat.MAGIC);
+            out.writeByte(BinaryFormat.VERSION);
+            out.writeLong(System.currentTimeMillis());
+            writeString(url.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onFinishedPageSuccessfully(Page page) {
+        int urlId = idOf(page.getUrl().toString());
+        List<URI> childUrls = page.getChildUrls();
+        int[] childIds = new int[childUrls.size()];
+        for (int i = 0; i < childIds.length; i++) {
+            childIds[i] = idOf(childUrls.get(i).toString());
+        }
+
+        block.writeByte(BinaryFormat.PAGE);
+        block.writeVarInt(urlId);
+        block.writeVarInt(childIds.length);
+        int previous = urlId;
+        for (int childId : childIds) {
+            block.writeVarInt(BinaryFormat.zigZag(childId - previous));
+            previous = childId;
+        }
+        pages++;
+        maybeFlushBlock();
+    }
+
+    @Override
+    public void onError(String url, String errorMessage) {
+        int urlId = idOf(url);
+        block.writeByte(BinaryFormat.ERROR);
+        block.writeVarInt(urlId);
+        block.writeString(errorMessage == null ? "null" : errorMessage);
+        maybeFlushBlock();
+    }
+
+    /**
+     * Writes the last block, the dictionary and the index, and closes the file.
+     */
+    @Override
+    public void onFinishedCrawling(Duration timeTaken) {
+        try {
+            flushBlock();
+            out.writeByte(BinaryFormat.END);
+            out.writeLong(timeTaken.toMillis());
+
+            long dictionaryOffset = counter.getCount();
+            out.writeInt(urls.size());
+            for (String url : urls) {
+                writeString(url);
+            }
+
+            long indexOffset = counter.getCount();
+            out.writeInt(index.size());
+            for (long[] entry : index) {
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+            }
+
+            out.writeLong(dictionaryOffset);
+            out.writeLong(indexOffset);
+            out.writeInt(BinaryFormat.MAGIC);
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "BinaryPrinter";
+    }
+
+    /**
+     * Returns the file being written, or null before the crawling starts.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    private int idOf(String url) {
+        Integer id = urlIds.get(url);
+        if (id == null) {
+            id = urls.size();
+            urlIds.put(url, id);
+            urls.add(url);
+            block.writeByte(BinaryFormat.DEFINE_URL);
+            block.writeString(url);
+        }
+        return id;
+    }
+
+    private void maybeFlushBlock() {
+        if (block.length() >= blockBytes) {
+            try {
+                flushBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (block.length() == 0) {
+            return;
+        }
+        index.add(new long[]{counter.getCount(), blockFirstPage});
+        crc.reset();
+        crc.update(block.array(), 0, block.length());
+        out.writeByte(BinaryFormat.BLOCK);
+        out.writeInt(block.length());
+        out.writeInt((int) crc.getValue());
+        out.write(block.array(), 0, block.length());
+        block.reset();
+        blockFirstPage = pages;
+    }
+
+    private void writeString(String value) throws IOException {
+        BinaryFormat.Buffer buffer = new BinaryFormat.Buffer(value.length() + 5);
+        buffer.writeString(value);
+        out.write(buffer.array(), 0, buffer.length());
+    }
+}
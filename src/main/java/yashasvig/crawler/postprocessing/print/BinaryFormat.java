@@ -0,0 +1,131 @@
+package yashasvig.crawler.postprocessing.print;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Layout and encoding primitives of the binary crawl output written by {@link BinaryFilePrinter} and read by
+ * {@link BinaryOutputReader}.
+ *
+ * <pre>
+ * file       := header block* end dictionary index trailer
+ * header     := MAGIC:int VERSION:byte startMillis:long seed:string
+ * block      := BLOCK:byte length:int crc32:int record*        (length bytes of records)
+ * record     := DEFINE_URL url:string                          (the url gets the next id, starting at 0)
+ *             | PAGE urlId:varint count:varint delta:zigzag*   (child ids, each relative to the previous one)
+ *             | ERROR urlId:varint message:string
+ * end        := END:byte timeTakenMillis:long
+ * dictionary := count:int url:string*                          (all the urls, by id)
+ * index      := count:int (offset:long firstPage:int)*         (one entry per block)
+ * trailer    := dictionaryOffset:long indexOffset:long MAGIC:int
+ * string     := length:varint utf8-bytes
+ * </pre>
+ *
+ * <p>A url is defined in the block where it's first used, so the blocks can be read one after another even if the
+ * crawl never finished writing the dictionary and the index. Those two only make random access possible.</p>
+ */
+final class BinaryFormat {
+
+    static final int MAGIC = 0x43524c31;
+    static final byte VERSION = 1;
+
+    static final byte BLOCK = 'B';
+    static final byte END = 'E';
+
+    static final byte DEFINE_URL = 1;
+    static final byte PAGE = 2;
+    static final byte ERROR = 3;
+
+    static final int BLOCK_HEADER_BYTES = 1 + Integer.BYTES + Integer.BYTES;
+    static final int TRAILER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private BinaryFormat() {
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static String readString(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    static void skipString(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * A growable byte array in which the records of a block are encoded before being written out in one go.
+     */
+    static final class Buffer {
+        private byte[] bytes;
+        private int length;
+
+        Buffer(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        int length() {
+            return length;
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package yashasvig.crawler.postprocessing.print;
+
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the output of {@link BinaryFilePrinter}.
+ *
+ * <p>{@link #replay(PostProcessor)} streams the whole file through a {@link PostProcessor}, in the order the events
+ * happened during the crawl. It works for files of unfinished crawls as well, up to the last complete block.
+ * {@link #readPage(int)} jumps straight to a single page through the index, which is only present once the crawl
+ * finished.</p>
+ *
+ * <p>Can also be run from the command line to convert a file back to the text output of {@link FilePrinter}:</p>
+ * <pre>
+ * java yashasvig.crawler.postprocessing.print.BinaryOutputReader &lt;file.crawl&gt; [&lt;output.txt&gt;]
+ * </pre>
+ */
+public final class BinaryOutputReader implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final URI seed;
+    private final long startMillis;
+    private final long blocksOffset;
+    private List<String> dictionary;
+    private long[] blockOffsets;
+    private int[] blockFirstPages;
+    private int pageCount;
+
+    private BinaryOutputReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0))));
+        if (in.readInt() != BinaryFormat.MAGIC) {
+            channel.close();
+            throw new IOException("Not a binary crawl output: " + file);
+        }
+        byte version = in.readByte();
+        if (version != BinaryFormat.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported binary crawl output version: " + version);
+        }
+        this.startMillis = in.readLong();
+        String seed = readString(in);
+        this.seed = URI.create(seed);
+        this.blocksOffset = Integer.BYTES + 1 + Long.BYTES + encodedLength(seed);
+        readIndex();
+    }
+
+    public static BinaryOutputReader open(Path file) throws IOException {
+        return new BinaryOutputReader(file);
+    }
+
+    public URI getSeed() {
+        return seed;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Returns true if the crawl which wrote this file finished, i.e. the file can be read through
+     * {@link #readPage(int)}.
+     */
+    public boolean isComplete() {
+        return dictionary != null;
+    }
+
+    /**
+     * Returns the no of pages in the file.
+     *
+     * @throws IllegalStateException if the file is not {@link #isComplete() complete}
+     */
+    public int getPageCount() {
+        checkComplete();
+        return pageCount;
+    }
+
+    /**
+     * Returns the {@code n}th page of the file, reading only the block which contains it.
+     *
+     * @throws IllegalStateException if the file is not {@link #isComplete() complete}
+     */
+    public Page readPage(int n) throws IOException {
+        checkComplete();
+        if (n < 0 || n >= pageCount) {
+            throw new IndexOutOfBoundsException(n + " is out of [0, " + pageCount + ")");
+        }
+        int block = lastBlockStartingAtOrBefore(n);
+        ByteBuffer records = readBlock(blockOffsets[block]);
+        int page = blockFirstPages[block];
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            switch (type) {
+                case BinaryFormat.DEFINE_URL -> BinaryFormat.skipString(records);
+                case BinaryFormat.PAGE -> {
+                    if (page++ == n) {
+                        return readPage(records, dictionary);
+                    }
+                    skipPage(records);
+                }
+                case BinaryFormat.ERROR -> {
+                    BinaryFormat.readVarInt(records);
+                    BinaryFormat.skipString(records);
+                }
+                default -> throw new IOException("Unknown record type " + type + " in " + file);
+            }
+        }
+        throw new IOException("Page " + n + " is missing from its block in " + file);
+    }
+
+    /**
+     * Calls {@code processor} with every event in the file, in the order they happened during the crawl.
+     *
+     * <p>{@link PostProcessor#onFinishedCrawling(Duration)} is called only if the crawl finished. A block cut short
+     * by a crash ends the replay.</p>
+     */
+    public void replay(PostProcessor processor) throws IOException {
+        List<String> urls = new ArrayList<>();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(blocksOffset)), 1 << 16));
+        processor.onCrawlingStarted(seed);
+        byte[] payload = new byte[0];
+        CRC32 crc = new CRC32();
+        while (true) {
+            int marker = in.read();
+            if (marker == BinaryFormat.END) {
+                processor.onFinishedCrawling(Duration.ofMillis(in.readLong()));
+                return;
+            }
+            if (marker != BinaryFormat.BLOCK) {
+                return;
+            }
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+            } catch (EOFException e) {
+                return;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Corrupt block in " + file);
+            }
+            replayBlock(ByteBuffer.wrap(payload, 0, length), urls, processor);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void replayBlock(ByteBuffer records, List<String> urls, PostProcessor processor) throws IOException {
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            switch (type) {
+                case BinaryFormat.DEFINE_URL -> urls.add(BinaryFormat.readString(records));
+                case BinaryFormat.PAGE -> processor.onFinishedPageSuccessfully(readPage(records, urls));
+                case BinaryFormat.ERROR -> processor.onError(urls.get(BinaryFormat.readVarInt(records)),
+                        BinaryFormat.readString(records));
+                default -> throw new IOException("Unknown record type " + type + " in " + file);
+            }
+        }
+    }
+
+    private static Page readPage(ByteBuffer records, List<String> urls) throws IOException {
+        int urlId = BinaryFormat.readVarInt(records);
+        int count = BinaryFormat.readVarInt(records);
+        Set<URI> childUrls = new LinkedHashSet<>(Math.max(16, count * 2));
+        int previous = urlId;
+        for (int i = 0; i < count; i++) {
+            previous += BinaryFormat.unZigZag(BinaryFormat.readVarInt(records));
+            childUrls.add(URI.create(urls.get(previous)));
+        }
+        return new Page(URI.create(urls.get(urlId)), childUrls);
+    }
+
+    private static void skipPage(ByteBuffer records) throws IOException {
+        BinaryFormat.readVarInt(records);
+        int count = BinaryFormat.readVarInt(records);
+        for (int i = 0; i < count; i++) {
+            BinaryFormat.readVarInt(records);
+        }
+    }
+
+    private ByteBuffer readBlock(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BinaryFormat.BLOCK_HEADER_BYTES);
+        readFully(header, offset);
+        if (header.get() != BinaryFormat.BLOCK) {
+            throw new IOException("No block at offset " + offset + " of " + file);
+        }
+        int length = header.getInt();
+        int checksum = header.getInt();
+        ByteBuffer records = ByteBuffer.allocate(length);
+        readFully(records, offset + BinaryFormat.BLOCK_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(records.array(), 0, length);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Corrupt block at offset " + offset + " of " + file);
+        }
+        return records;
+    }
+
+    /**
+     * Loads the dictionary and the index if the trailer is present, leaving the file incomplete otherwise.
+     */
+    private void readIndex() throws IOException {
+        long size = channel.size();
+        if (size < blocksOffset + BinaryFormat.TRAILER_BYTES) {
+            return;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(BinaryFormat.TRAILER_BYTES);
+        readFully(trailer, size - BinaryFormat.TRAILER_BYTES);
+        long dictionaryOffset = trailer.getLong();
+        long indexOffset = trailer.getLong();
+        if (trailer.getInt() != BinaryFormat.MAGIC) {
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(dictionaryOffset)), 1 << 16));
+        int urlCount = in.readInt();
+        List<String> urls = new ArrayList<>(urlCount);
+        for (int i = 0; i < urlCount; i++) {
+            urls.add(readString(in));
+        }
+
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(indexOffset))));
+        int blocks = in.readInt();
+        blockOffsets = new long[blocks];
+        blockFirstPages = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            blockOffsets[i] = in.readLong();
+            blockFirstPages[i] = in.readInt();
+        }
+        pageCount = countPages(blocks);
+        dictionary = urls;
+    }
+
+    /**
+     * Only the first page of every block is in the index, so the pages of the last one are counted by reading it.
+     */
+    private int countPages(int blocks) throws IOException {
+        if (blocks == 0) {
+            return 0;
+        }
+        ByteBuffer records = readBlock(blockOffsets[blocks - 1]);
+        int pages = blockFirstPages[blocks - 1];
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            switch (type) {
+                case BinaryFormat.DEFINE_URL -> BinaryFormat.skipString(records);
+                case BinaryFormat.PAGE -> {
+                    pages++;
+                    skipPage(records);
+                }
+                case BinaryFormat.ERROR -> {
+                    BinaryFormat.readVarInt(records);
+                    BinaryFormat.skipString(records);
+                }
+                default -> throw new IOException("Unknown record type " + type + " in " + file);
+            }
+        }
+        return pages;
+    }
+
+    private int lastBlockStartingAtOrBefore(int page) {
+        int low = 0;
+        int high = blockFirstPages.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blockFirstPages[middle] <= page) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void checkComplete() {
+        if (!isComplete()) {
+            throw new IllegalStateException("The crawl which wrote " + file + " didn't finish, it has no index");
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of " + file);
+            }
+        }
+        buffer.flip();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int encodedLength(String value) {
+        BinaryFormat.Buffer buffer = new BinaryFormat.Buffer(value.length() + 5);
+        buffer.writeString(value);
+        return buffer.length();
+    }
+
+    /**
+     * Converts a binary crawl output to text, written to the given file or to the standard output.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BinaryOutputReader <file.crawl> [<output.txt>]");
+            System.exit(1);
+        }
+        try (BinaryOutputReader reader = open(Path.of(args[0]));
+             Writer writer = args.length == 2
+                     ? Files.newBufferedWriter(Path.of(args[1]))
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            FilePrinter printer = new FilePrinter(writer);
+            reader.replay(printer);
+            writer.flush();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import yashasvig.crawler.util.IndentingPrintWriter;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
@@ -18,9 +19,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 public final class FilePrinter implements PostProcessor {
 
     private IndentingPrintWriter writer;
+    private final Writer output;
     private final AtomicInteger crawledPages;
 
     public FilePrinter() {
+        this(null);
+    }
+
+    /**
+     * Prints to {@code output} instead of a file named after the crawled domain. {@code output} is flushed but not
+     * closed when the crawling finishes.
+     */
+    public FilePrinter(Writer output) {
+        this.output = output;
         crawledPages = new AtomicInteger(0);
     }
 
@@ -62,15 +73,25 @@ public final class FilePrinter implements PostProcessor {
     }
 
     private void initializeFileWriter(URI uri) {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd MM yyyy HH:mm:ss");
-        Date resultdate = new Date(System.currentTimeMillis());
-        try {
-            this.writer = new IndentingPrintWriter(
-                    new PrintWriter(uri.getAuthority() + "-" + sdf.format(resultdate) + ".txt"));
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+        if (output != null) {
+            this.writer = new IndentingPrintWriter(output);
+        } else {
+            try {
+                this.writer = new IndentingPrintWriter(new PrintWriter(outputFileName(uri, "txt")));
+            } catch (FileNotFoundException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         writer.println("Crawling started, let's go!");
     }
+
+    /**
+     * Returns the name of the file in which the crawl of {@code uri} starting now is written.
+     */
+    static String outputFileName(URI uri, String extension) {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd MM yyyy HH:mm:ss");
+        Date resultdate = new Date(System.currentTimeMillis());
+        return uri.getAuthority() + "-" + sdf.format(resultdate) + "." + extension;
+    }
 }
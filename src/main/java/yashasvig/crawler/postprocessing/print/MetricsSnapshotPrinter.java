@@ -0,0 +1,77 @@
+package yashasvig.crawler.postprocessing.print;
+
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An implementation of {@link PostProcessor} which logs a snapshot of the {@link CrawlMetrics} every now and then
+ * while crawling is going on, and once more at the end of the crawl.
+ *
+ * <p>The metrics are shared by all the crawls of the process, so with several sites being crawled every snapshot
+ * covers all of them.</p>
+ */
+public final class MetricsSnapshotPrinter implements PostProcessor {
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final CrawlMetrics metrics;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param interval time between two snapshots
+     */
+    public MetricsSnapshotPrinter(CrawlMetrics metrics, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval should be positive");
+        }
+        this.metrics = metrics;
+        this.interval = interval;
+    }
+
+    @Override
+    public synchronized void onCrawlingStarted(URI url) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-snapshot-" + url.getAuthority());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::logSnapshot, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onFinishedPageSuccessfully(Page page) {
+    }
+
+    @Override
+    public void onError(String url, String errorMessage) {
+    }
+
+    @Override
+    public synchronized void onFinishedCrawling(Duration timeTaken) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        logSnapshot();
+    }
+
+    @Override
+    public String getName() {
+        return "MetricsSnapshotPrinter";
+    }
+
+    private void logSnapshot() {
+        logger.log(Level.INFO, String.format("Crawl metrics:%n%s", metrics.format()));
+    }
+}
@@ -0,0 +1,289 @@
+package yashasvig.crawler.postprocessing.print;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An implementation of {@link PostProcessor} that writes the same text as {@link FilePrinter}, built for high crawl
+ * rates.
+ *
+ * <p>The pages are formatted straight into large byte buffers, without going through the per character indent
+ * bookkeeping of {@link yashasvig.crawler.util.IndentingPrintWriter}. A full buffer is handed over to a small pool of
+ * threads, which optionally gzips it and writes it to its shard through a {@link FileChannel}. Meanwhile the post
+ * processing thread carries on with the next buffer. The buffers are recycled, and the post processing thread waits
+ * when all of them are in use.</p>
+ *
+ * <p>With more than one shard, the buffers go to the shards in turn, starting with the first one. The last buffer,
+ * with the stats, always goes to the last shard, so concatenating the shards in order gives a file in the format of
+ * {@link FilePrinter}, only with the pages in a different order. Every compressed buffer is a complete gzip member,
+ * so compressed shards can be decompressed on their own or after being concatenated.</p>
+ */
+public final class ShardedTextPrinter implements PostProcessor {
+
+    private static final String INDENT = "  ";
+    private static final int DEFAULT_BLOCK_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final int shards;
+    private final boolean gzip;
+    private final int blockBytes;
+    private final ExecutorService executor;
+    private final BlockingQueue<byte[]> freeBuffers;
+
+    private FileChannel[] channels;
+    private Path[] files;
+    private List<CompletableFuture<Void>> shardTails;
+    private byte[] buffer;
+    private int length;
+    private int nextShard;
+    private int crawledPages;
+
+    /**
+     * @param directory directory in which the output files are created
+     * @param shards    no of files the output is split into
+     * @param gzip      whether the output files are gzipped
+     */
+    public ShardedTextPrinter(Path directory, int shards, boolean gzip) {
+        this(directory, shards, gzip, DEFAULT_BLOCK_BYTES);
+    }
+
+    @VisibleForTesting
+    ShardedTextPrinter(Path directory, int shards, boolean gzip, int blockBytes) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards should be positive");
+        }
+        this.directory = directory;
+        this.shards = shards;
+        this.gzip = gzip;
+        this.blockBytes = blockBytes;
+        int threads = Math.max(1, Math.min(gzip ? Runtime.getRuntime().availableProcessors() : shards, 8));
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("text-output-%d").setDaemon(true).build());
+        this.freeBuffers = new ArrayBlockingQueue<>(2 * threads + 1);
+        for (int i = 0; i < 2 * threads + 1; i++) {
+            freeBuffers.add(new byte[blockBytes + 1024]);
+        }
+    }
+
+    @Override
+    public void onCrawlingStarted(URI url) {
+        String name = FilePrinter.outputFileName(url, "txt");
+        channels = new FileChannel[shards];
+        files = new Path[shards];
+        shardTails = new ArrayList<>(shards);
+        try {
+            for (int i = 0; i < shards; i++) {
+                String shardName = shards == 1 ? name : name.replaceFirst("\\.txt$", String.format(".%03d.txt", i));
+                files[i] = directory.resolve(gzip ? shardName + ".gz" : shardName);
+                channels[i] = FileChannel.open(files[i], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                shardTails.add(CompletableFuture.completedFuture(null));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer = takeBuffer();
+        length = 0;
+        appendLine("", "Crawling started, let's go!");
+    }
+
+    @Override
+    public void onFinishedPageSuccessfully(Page page) {
+        crawledPages++;
+        List<URI> childUrls = page.getChildUrls();
+        appendLine(INDENT, "Page: " + page.getUrl());
+        if (childUrls.isEmpty()) {
+            appendLine(INDENT + INDENT, "No urls present on this page.");
+            appendLine(INDENT + INDENT, "");
+        } else {
+            appendLine(INDENT + INDENT, "Urls on this page:");
+            for (URI childUrl : childUrls) {
+                appendLine(INDENT + INDENT + INDENT, childUrl.toString());
+            }
+            appendLine(INDENT + INDENT + INDENT, "");
+        }
+        maybeSubmit();
+    }
+
+    @Override
+    public void onError(String url, String errorMessage) {
+        appendLine(INDENT, "Error: " + errorMessage);
+        appendLine(INDENT, "");
+        maybeSubmit();
+    }
+
+    /**
+     * Writes the stats and waits for all the shards to be written and closed.
+     */
+    @Override
+    public void onFinishedCrawling(Duration timeTaken) {
+        appendLine("", "\n\n*******Stats********");
+        appendLine(INDENT, "Total no of pages scraped=" + crawledPages + " ");
+        appendLine(INDENT, "Time taken (in seconds)=" + timeTaken.getSeconds() + " ");
+        submit(shards - 1);
+        try {
+            CompletableFuture.allOf(shardTails.toArray(new CompletableFuture[0])).join();
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException cause ? cause : e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "ShardedTextPrinter";
+    }
+
+    /**
+     * Returns the files being written, in the order they should be concatenated, or null before the crawling starts.
+     */
+    public List<Path> getFiles() {
+        return files == null ? null : List.of(files);
+    }
+
+    /**
+     * Appends {@code text} and a newline the way {@link yashasvig.crawler.util.IndentingPrintWriter#println(String)}
+     * would, i.e. with {@code indent} in front of every line of {@code text}, empty ones included.
+     */
+    private void appendLine(String indent, String text) {
+        int start = 0;
+        while (true) {
+            int newline = text.indexOf('\n', start);
+            int end = newline < 0 ? text.length() : newline;
+            appendAscii(indent);
+            append(text, start, end);
+            ensureCapacity(1);
+            buffer[length++] = '\n';
+            if (newline < 0) {
+                return;
+            }
+            start = newline + 1;
+        }
+    }
+
+    private void appendAscii(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Copies ascii characters one by one and falls back to the charset encoder for the rest.
+     */
+    private void append(String text, int start, int end) {
+        ensureCapacity(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = text.substring(i, end).getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(encoded.length);
+                System.arraycopy(encoded, 0, buffer, length, encoded.length);
+                length += encoded.length;
+                return;
+            }
+            buffer[length++] = (byte) c;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void maybeSubmit() {
+        if (length >= blockBytes) {
+            int shard = nextShard;
+            nextShard = (nextShard + 1) % shards;
+            submit(shard);
+            buffer = takeBuffer();
+        }
+    }
+
+    /**
+     * Hands the current buffer over to be written to {@code shard}, after the buffers submitted to it before.
+     */
+    private void submit(int shard) {
+        byte[] block = buffer;
+        int blockLength = length;
+        buffer = null;
+        length = 0;
+        CompletableFuture<ByteBuffer> encoded = CompletableFuture.supplyAsync(() -> encode(block, blockLength),
+                executor);
+        CompletableFuture<Void> previous = shardTails.get(shard);
+        shardTails.set(shard, previous.thenCombineAsync(encoded, (ignored, bytes) -> {
+            write(channels[shard], bytes);
+            return (Void) null;
+        }, executor).whenComplete((ignored, error) -> recycle(block)));
+    }
+
+    private ByteBuffer encode(byte[] block, int blockLength) {
+        if (!gzip) {
+            return ByteBuffer.wrap(block, 0, blockLength);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(blockLength / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 1 << 16)) {
+            out.write(block, 0, blockLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(compressed.toByteArray());
+    }
+
+    private static void write(FileChannel channel, ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] takeBuffer() {
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void recycle(byte[] block) {
+        if (block.length <= blockBytes + 1024) {
+            freeBuffers.offer(block);
+        } else {
+            freeBuffers.offer(new byte[blockBytes + 1024]);
+        }
+    }
+}
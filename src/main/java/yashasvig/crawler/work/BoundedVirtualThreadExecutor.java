@@ -0,0 +1,72 @@
+package yashasvig.crawler.work;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link ExecutorService} that runs every submitted task on a new virtual thread while capping how many of them
+ * can be running at the same time.
+ *
+ * <p>Unlike a {@link java.util.concurrent.ThreadPoolExecutor}, the cap here is not tied to a no of threads. Tasks
+ * waiting for their turn are parked virtual threads which are cheap to keep around, so the only real limit on the
+ * parallelism of network-bound work is the no of permits.</p>
+ */
+public final class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    /**
+     * @param maxConcurrentTasks max no of tasks that can be running at the same time
+     */
+    public BoundedVirtualThreadExecutor(int maxConcurrentTasks) {
+        this.delegate = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(maxConcurrentTasks);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,431 @@
+package yashasvig.crawler.work;
+
+import com.google.common.annotations.VisibleForTesting;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.models.UrlDictionary;
+import yashasvig.crawler.work.frontier.Frontier;
+import yashasvig.crawler.work.journal.CrawlJournal;
+import yashasvig.crawler.work.journal.CrawlState;
+import yashasvig.crawler.work.robots.RobotsRules;
+import yashasvig.crawler.work.seed.SeedSource;
+import yashasvig.crawler.work.visited.VisitedStore;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The crawl of a single site, created through {@link WorkCoordinator#newSession(URI)}.
+ *
+ * <p>A session has its own scope filter, frontier, visited urls, journal, url dictionary and work tracker, so any no
+ * of sessions can run side by side in the same process. What's shared is the worker pool and the fetch slots of the
+ * {@link WorkCoordinator}: the dispatcher of every session moves its urls to the pool one fetch slot at a time, and
+ * the slots are handed out first come first served, so the sessions with pending urls take turns.</p>
+ *
+ * <p>The dispatcher is a virtual thread, which costs next to nothing while it's blocked on the frontier. The thread
+ * waiting for the session to finish is a platform one, which keeps the process alive until the crawl is over, even
+ * while no page is being fetched.</p>
+ *
+ * <p>In a cluster, the {@link UrlRouter} of the session sends the urls owned by other nodes over to them, and the
+ * cluster holds the session open with {@link #hold()} until every node has run out of work.</p>
+ *
+ * <p>Every url discovered, scheduled and completed is recorded in the {@link CrawlJournal} of the session, which lets
+ * a later session of the same site pick up where it left off if the process died before it finished.</p>
+ *
+ * <p>The links of a page deeper than {@link CrawlConfig#getMaxDepth()} are dropped before they are even checked
+ * against the visited urls, and once {@link CrawlConfig#getMaxPages()} pages have been handed over to the pool the
+ * urls left in the frontier are dropped too. With a {@code PriorityFrontier} the budget is spent on the most valuable
+ * urls. The depth of a url is only known from the page linking to it, so the urls pending in a resumed crawl and the
+ * ones sent over by other nodes of a cluster start again from depth 0.</p>
+ *
+ * <p>The urls disallowed by the robots.txt of the site are dropped before they reach the frontier as well, if the
+ * config follows it. The dispatcher looks the rules up before handing over the seed, so it's the only thread waiting
+ * for them to be fetched. The dispatcher also waits for the {@code Crawl-delay} of the rules between two urls, whatever
+ * the frontier.</p>
+ *
+ * <p>Besides the seed, a session can start from the urls of any no of {@link SeedSource}s, such as sitemaps. Each one
+ * is read on its own virtual thread and its urls are scheduled {@value #SEED_BATCH} at a time, through the same
+ * filter, robots.txt and visited store checks as the links found on the pages.</p>
+ */
+public class CrawlSession {
+
+    private static final int SEED_BATCH = 1000;
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final WorkCoordinator coordinator;
+    private final SessionStateFactory stateFactory;
+    private final URI seed;
+    private final String name;
+    private final UrlFilter filter;
+    private final WorkTracker workTracker;
+    private final Frontier frontier;
+    private final VisitedStore visitedUrls;
+    private final CrawlJournal journal;
+    private final UrlDictionary urlDictionary = new UrlDictionary();
+    private final int maxDepth;
+    private final int maxPages;
+    // The depth of every url waiting or being crawled, null if neither the config nor the frontier cares about it.
+    private final Map<String, Integer> depths;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final List<SeedSource> seedSources = new ArrayList<>();
+    private final Thread dispatcherThread;
+    private final Thread awaitingFinishThread;
+    private WorkCallback workCallback;
+    private UrlRouter router = UrlRouter.LOCAL;
+    private volatile int holds;
+    private volatile int dispatchedPages;
+    private volatile RobotsRules appliedRobotsRules;
+    private volatile long crawlDelayNanos;
+
+    CrawlSession(WorkCoordinator coordinator, URI seed, SessionStateFactory stateFactory) {
+        this.coordinator = coordinator;
+        this.stateFactory = stateFactory;
+        this.seed = seed;
+        this.name = nameOf(seed);
+        this.filter = new UrlFilter(seed.getScheme(), seed.getAuthority());
+        this.workTracker = stateFactory.newWorkTracker();
+        this.frontier = stateFactory.newFrontier(name);
+        this.visitedUrls = stateFactory.newVisitedStore(name);
+        this.journal = stateFactory.newJournal(name);
+        CrawlConfig config = coordinator.getConfig();
+        this.maxDepth = config.getMaxDepth();
+        this.maxPages = config.getMaxPages();
+        this.depths = config.limitsDepth() || config.getFrontierMode() == CrawlConfig.FrontierMode.PRIORITY
+                ? new ConcurrentHashMap<>() : null;
+        this.dispatcherThread = Thread.ofVirtual().name("frontier-dispatcher-" + name).unstarted(this::dispatch);
+        this.awaitingFinishThread = new Thread(this::awaitFinish, "awaiting-finish-" + name);
+    }
+
+    /**
+     * Adds the urls of {@code source} to the seeds of this session. The urls of other sites are skipped.
+     *
+     * @throws IllegalStateException if the session has already been started
+     */
+    public void seedFrom(SeedSource source) {
+        if (workCallback != null) {
+            throw new IllegalStateException("The seeds have to be added before the session is started");
+        }
+        seedSources.add(source);
+    }
+
+    /**
+     * Starts crawling the seed and all the nested pages of its site. {@code callback} is invoked for every page
+     * crawled and once the whole site has been crawled.
+     *
+     * <p>This method returns immediately after scheduling the seed. The {@link #seedFrom(SeedSource) seed sources} are
+     * read in the background, and the session doesn't finish before they have all been read. If the journal holds an
+     * unfinished crawl of the same seed, that crawl is resumed instead.</p>
+     */
+    public void start(WorkCallback callback) {
+        if (workCallback != null) {
+            throw new IllegalStateException("The session has already been started");
+        }
+        workCallback = new WorkCallbackDelegate(callback);
+        router = stateFactory.newRouter(this);
+        CrawlState recovered = journal.recover(seed);
+        if (recovered != null) {
+            resume(recovered);
+        } else {
+            journal.start(seed);
+            // Marked visited like any discovered url, so that links back to the seed don't crawl it a second time.
+            String canonicalSeed = coordinator.getCanonicalizer().canonicalize(seed.toString());
+            if (canonicalSeed != null && visitedUrls.markVisited(canonicalSeed)) {
+                journal.discovered(canonicalSeed);
+            }
+            if (router.isLocal(seed)) {
+                scheduleUrl(seed, 0);
+            }
+        }
+        for (SeedSource source : seedSources) {
+            hold();
+            Thread.ofVirtual().name("seeder-" + name).start(() -> readSeeds(source));
+        }
+        awaitingFinishThread.start();
+        dispatcherThread.start();
+    }
+
+    public URI getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the name identifying this session among the running ones, derived from the authority of the seed.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits until all the pages of the site have been crawled and the callback has been told so.
+     *
+     * <p><b>This blocks the calling thread.</b></p>
+     */
+    public void awaitFinished() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * Schedules {@code url}, discovered by another node of the cluster, unless it has already been visited or the
+     * robots.txt disallows it.
+     *
+     * @return true if the url was scheduled
+     */
+    public boolean schedule(URI url) {
+        if (!robotsRules().isAllowed(url) || !visitedUrls.markVisited(url.toString())) {
+            return false;
+        }
+        journal.discovered(url.toString());
+        scheduleUrl(url, 0);
+        return true;
+    }
+
+    /**
+     * Keeps the session from finishing until {@link #release()} is called, even if it runs out of pages to crawl.
+     */
+    public synchronized void hold() {
+        holds++;
+        workTracker.trackNewPage();
+    }
+
+    public synchronized void release() {
+        holds--;
+        workTracker.finishedPage();
+    }
+
+    /**
+     * Returns true if no page of this session is waiting or being crawled. Only {@link #hold()}s keep it open.
+     */
+    public boolean isIdle() {
+        return workTracker.getPendingPages() == holds;
+    }
+
+    /**
+     * Returns the no of urls waiting in the frontier of this session.
+     */
+    int getQueuedUrls() {
+        return frontier.size();
+    }
+
+    /**
+     * Returns a name safe to use as a file name, which is the same for all the seeds of a site.
+     */
+    static String nameOf(URI seed) {
+        return seed.getAuthority().toLowerCase(Locale.ROOT).replace(':', '_');
+    }
+
+    @VisibleForTesting
+    WorkCallback getWorkCallback() {
+        return workCallback;
+    }
+
+    /**
+     * Schedules the urls of {@code source} in batches, then releases the hold taken for it when the session started.
+     */
+    private void readSeeds(SeedSource source) {
+        UrlCanonicalizer canonicalizer = coordinator.getCanonicalizer();
+        List<URI> batch = new ArrayList<>(SEED_BATCH);
+        AtomicInteger read = new AtomicInteger();
+        try {
+            source.read(url -> {
+                read.incrementAndGet();
+                String canonical = canonicalizer.canonicalize(url.toString());
+                if (canonical == null || !filter.isValid(canonical)) {
+                    return;
+                }
+                batch.add(URI.create(canonical));
+                if (batch.size() == SEED_BATCH) {
+                    scheduleUrlsIfRequired(batch, 0);
+                    batch.clear();
+                }
+            });
+            scheduleUrlsIfRequired(batch, 0);
+            logger.log(Level.INFO, String.format("Read %d seeds of %s from %s", read.get(), seed, source));
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, String.format("Stopped reading the seeds of %s from %s after %d urls: %s", seed,
+                    source, read.get(), e));
+        } finally {
+            release();
+        }
+    }
+
+    private void resume(CrawlState recovered) {
+        logger.log(Level.INFO, String.format("Resuming the crawl of %s with %d visited and %d pending urls",
+                recovered.getSeed(), recovered.getVisitedUrls().size(), recovered.getPendingUrls().size()));
+        visitedUrls.markAllVisited(List.copyOf(recovered.getVisitedUrls()));
+        for (String pending : recovered.getPendingUrls()) {
+            workTracker.trackNewPage();
+            frontier.add(URI.create(pending));
+        }
+    }
+
+    /**
+     * Schedules the urls of {@code childUrls} which the robots.txt allows and haven't been visited yet. The whole
+     * list is checked against the visited store in one batch. The frontier is told about the links to the urls which
+     * have been visited already.
+     *
+     * <p>The urls owned by other nodes are marked as visited as well, so that each of them is sent over only once.</p>
+     */
+    private void scheduleUrlsIfRequired(List<URI> childUrls, int depth) {
+        if (childUrls.isEmpty() || depth > maxDepth) {
+            return;
+        }
+        RobotsRules rules = robotsRules();
+        if (rules != RobotsRules.ALLOW_ALL) {
+            childUrls = childUrls.stream().filter(rules::isAllowed).toList();
+        }
+        long start = System.nanoTime();
+        boolean[] isNew = visitedUrls.markAllVisited(childUrls.stream().map(URI::toString).toList());
+        coordinator.getMetrics().record(CrawlMetrics.Stage.DEDUP, System.nanoTime() - start);
+        for (int i = 0; i < isNew.length; i++) {
+            URI childUrl = childUrls.get(i);
+            if (!isNew[i]) {
+                frontier.linked(childUrl);
+                continue;
+            }
+            if (router.isLocal(childUrl)) {
+                journal.discovered(childUrl.toString());
+                scheduleUrl(childUrl, depth);
+            } else {
+                router.send(childUrl);
+            }
+        }
+    }
+
+    /**
+     * Schedules a child url, unless the page budget has been spent already. Those are canonical http(s) urls, so they
+     * don't need to be checked again.
+     */
+    private void scheduleUrl(URI uri, int depth) {
+        if (dispatchedPages >= maxPages) {
+            return;
+        }
+        workTracker.trackNewPage();
+        if (depths != null) {
+            depths.put(uri.toString(), depth);
+        }
+        frontier.add(uri, depth);
+        journal.scheduled(uri.toString());
+    }
+
+    /**
+     * Returns the current robots.txt rules of the site, and hands their {@code Crawl-delay} over to the dispatcher if
+     * they are new.
+     */
+    private RobotsRules robotsRules() {
+        RobotsRules rules = coordinator.robotsRulesFor(seed);
+        if (rules != appliedRobotsRules) {
+            appliedRobotsRules = rules;
+            crawlDelayNanos = (long) (rules.getCrawlDelaySeconds() * TimeUnit.SECONDS.toNanos(1));
+        }
+        return rules;
+    }
+
+    /**
+     * Forgets the depth of a url which is done with and returns it.
+     */
+    private int removeDepth(String url) {
+        Integer depth = depths == null ? null : depths.remove(url);
+        return depth == null ? 0 : depth;
+    }
+
+    /**
+     * Moves urls from the {@link Frontier} to the worker pool of the coordinator, waiting for a free fetch slot for
+     * every one of them. The worker gives the slot back once its fetch is over.
+     *
+     * <p>Once the page budget is spent, the urls still coming out of the frontier are completed without a fetch, and
+     * so is the seed if the robots.txt disallows it.</p>
+     *
+     * <p>Two urls are at least the {@code Crawl-delay} of the robots.txt apart. Pacing here rather than in the frontier
+     * keeps it independent of the frontier mode, and a session only ever crawls a single host.</p>
+     */
+    private void dispatch() {
+        boolean seedDisallowed = !robotsRules().isAllowed(seed);
+        if (seedDisallowed) {
+            logger.log(Level.WARNING, String.format("The robots.txt of %s disallows crawling it", seed));
+        }
+        long lastDispatch = 0;
+        try {
+            while (true) {
+                URI url = frontier.take();
+                if (dispatchedPages >= maxPages || seedDisallowed && url.equals(seed)) {
+                    removeDepth(url.toString());
+                    journal.completed(url.toString());
+                    workTracker.finishedPage();
+                    continue;
+                }
+                if (++dispatchedPages == maxPages) {
+                    logger.log(Level.INFO, String.format("Reached the budget of %d pages for %s, dropping the rest",
+                            maxPages, seed));
+                }
+                long wait = lastDispatch + crawlDelayNanos - System.nanoTime();
+                if (lastDispatch != 0 && wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                lastDispatch = System.nanoTime();
+                coordinator.dispatch(url, filter, urlDictionary, workCallback);
+            }
+        } catch (InterruptedException e) {
+            // Crawling has finished.
+        }
+    }
+
+    private void awaitFinish() {
+        workTracker.waitForFinish();
+        dispatcherThread.interrupt();
+        logger.log(Level.INFO, String.format(
+                "Visited %d urls of %s using %d KB, estimated false positive probability: %.2e", visitedUrls.size(),
+                seed, visitedUrls.memoryBytes() / 1024, visitedUrls.estimatedFalsePositiveProbability()));
+        visitedUrls.close();
+        frontier.close();
+        journal.finish();
+        router.close();
+        coordinator.onSessionFinished(this);
+        workCallback.onFinishedCrawling();
+        finished.countDown();
+    }
+
+    private class WorkCallbackDelegate implements WorkCallback {
+        private final WorkCallback delegate;
+
+        public WorkCallbackDelegate(WorkCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onFinishedPageSuccessfully(Page page) {
+            scheduleUrlsIfRequired(page.getChildUrls(), removeDepth(page.getUrl().toString()) + 1);
+            journal.completed(page.getUrl().toString());
+            delegate.onFinishedPageSuccessfully(page);
+            workTracker.finishedPage();
+        }
+
+        @Override
+        public void onError(String url, String errorMessage) {
+            removeDepth(url);
+            journal.completed(url);
+            delegate.onError(url, errorMessage);
+            workTracker.finishedPage();
+        }
+
+        @Override
+        public void onFinishedCrawling() {
+            delegate.onFinishedCrawling();
+        }
+    }
+}
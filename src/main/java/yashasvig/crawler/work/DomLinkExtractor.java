@@ -0,0 +1,20 @@
+package yashasvig.crawler.work;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * A {@link LinkExtractor} which parses the complete page into a jsoup {@link Document} and selects the links from it.
+ */
+final class DomLinkExtractor implements LinkExtractor {
+
+    @Override
+    public void extract(InputStream body, String charset, String baseUri, Consumer<String> links) throws IOException {
+        Document document = Jsoup.parse(body, charset, baseUri);
+        document.select("a[href]").forEach(element -> links.accept(element.attr("abs:href")));
+    }
+}
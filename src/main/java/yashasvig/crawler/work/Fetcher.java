@@ -0,0 +1,99 @@
+package yashasvig.crawler.work;
+
+import yashasvig.crawler.work.cache.Validators;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads the web pages crawled by the {@link Worker}s.
+ *
+ * <p>An implementation can either do all the work on the calling thread and return a completed future, or send the
+ * request and return right away, completing the future from its own threads once the page has been processed. The
+ * latter lets a handful of threads keep a large no of fetches in flight.</p>
+ */
+public interface Fetcher {
+
+    /**
+     * Fetches {@code url} and passes its body to {@code bodyConsumer} if it's an html page. Pages with any other
+     * content type complete successfully without invoking the consumer.
+     *
+     * @param sendHeadRequest if true, a {@code HEAD} request is sent to check the content type before downloading
+     *                        the page. Otherwise, a single {@code GET} is sent and dropped early if it's not html.
+     * @param validators      if not empty, the page is requested only if it has changed since these validators
+     *                        were handed out
+     * @return a future which completes with the {@link Result} once the body has been consumed, or exceptionally
+     * with an {@link IOException} if the page couldn't be fetched
+     */
+    CompletableFuture<Result> fetch(URI url, boolean sendHeadRequest, Validators validators,
+                                    BodyConsumer bodyConsumer);
+
+    /**
+     * Returns true if {@code contentType} is the one of a page we look for links in. A missing content type is
+     * given the benefit of the doubt.
+     */
+    static boolean isHtml(String contentType) {
+        return contentType == null || contentType.contains("text/html");
+    }
+
+    /**
+     * The outcome of a successful {@link #fetch}.
+     */
+    final class Result {
+        private final boolean notModified;
+        private final Validators validators;
+        private final long responseNanos;
+
+        private Result(boolean notModified, Validators validators, long responseNanos) {
+            this.notModified = notModified;
+            this.validators = validators;
+            this.responseNanos = responseNanos;
+        }
+
+        /**
+         * The server answered {@code 304 Not Modified} and no body was read.
+         */
+        public static Result notModified(long responseNanos) {
+            return new Result(true, Validators.NONE, responseNanos);
+        }
+
+        /**
+         * The page was fetched and the server attached {@code validators} to it.
+         */
+        public static Result fetched(Validators validators, long responseNanos) {
+            return new Result(false, validators, responseNanos);
+        }
+
+        public boolean isNotModified() {
+            return notModified;
+        }
+
+        public Validators getValidators() {
+            return validators;
+        }
+
+        /**
+         * Returns how long the server took to answer the last request sent for the page, from sending it until its
+         * response headers arrived. Unlike the whole fetch, this leaves out the time spent waiting for a thread and
+         * reading and parsing the body, so it tracks how loaded the server is.
+         */
+        public long getResponseNanos() {
+            return responseNanos;
+        }
+    }
+
+    /**
+     * Consumes the body of an html page.
+     */
+    @FunctionalInterface
+    interface BodyConsumer {
+
+        /**
+         * @param charset the charset declared by the server, or null if there's none
+         * @param baseUri the url the page was finally served from, after following redirects
+         */
+        void accept(InputStream body, String charset, String baseUri) throws IOException;
+    }
+}
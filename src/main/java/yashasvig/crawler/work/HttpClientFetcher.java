@@ -0,0 +1,234 @@
+package yashasvig.crawler.work;
+
+import org.jsoup.HttpStatusException;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.jfr.FetchEvent;
+import yashasvig.crawler.work.cache.Validators;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A non-blocking {@link Fetcher} built on the JDK {@link HttpClient}.
+ *
+ * <p>Requests are sent asynchronously and no thread waits on the network until the headers of a response are in.
+ * Over HTTP/2, the requests to the same host are multiplexed on a single connection. The body of an html page is then
+ * streamed to the {@link BodyConsumer}, which extracts its links as the bytes arrive, so that the page is never held
+ * in memory as a whole.</p>
+ *
+ * <p>The consumer reads a blocking {@link InputStream}, so it holds its thread until the last byte of the page has
+ * arrived. Every consumer therefore runs on a virtual thread of its own: on a bounded pool, as many slow pages as
+ * there are threads would keep every other page, however fast its server, from being read. The no of pages being read
+ * at once is capped by the {@link yashasvig.crawler.work.limit.ConcurrencyLimiter} instead.</p>
+ *
+ * <p>Bodies of the pages which are not html, or which came back with an error status, are never read: the response
+ * is dropped as soon as its headers are in.</p>
+ */
+public final class HttpClientFetcher implements Fetcher {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Pattern CHARSET = Pattern.compile("(?i)\\bcharset=\\s*\"?([^\\s;\"]*)");
+
+    private final HttpClient client;
+    private final CrawlMetrics metrics;
+    // Runs the consumers, so that the threads of the client are never busy parsing.
+    private final Executor parseExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("page-parser-", 0).factory());
+
+    public HttpClientFetcher(HttpClient client) {
+        this(client, new CrawlMetrics());
+    }
+
+    /**
+     * @param metrics times the requests and counts their status codes
+     */
+    public HttpClientFetcher(HttpClient client, CrawlMetrics metrics) {
+        this.client = client;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a client preferring HTTP/2 and following redirects, with the same timeout as the jsoup session.
+     */
+    public static HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(TIMEOUT)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Result> fetch(URI url, boolean sendHeadRequest, Validators validators,
+                                           BodyConsumer bodyConsumer) {
+        if (!sendHeadRequest) {
+            return get(url, validators, bodyConsumer);
+        }
+        HttpRequest head = request(url, validators).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        return send(head, HttpResponse.BodyHandlers.discarding(), CrawlMetrics.Stage.HEAD)
+                .thenCompose(timed -> {
+                    HttpResponse<Void> response = timed.response;
+                    checkStatus(response);
+                    if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                        return CompletableFuture.completedFuture(Result.notModified(timed.nanos));
+                    }
+                    return isHtml(response.headers()) ? get(url, validators, bodyConsumer)
+                            : CompletableFuture.completedFuture(Result.fetched(validatorsOf(response), timed.nanos));
+                });
+    }
+
+    private CompletableFuture<Result> get(URI url, Validators validators, BodyConsumer bodyConsumer) {
+        return send(request(url, validators).GET().build(), HttpClientFetcher::htmlBodyOnly, CrawlMetrics.Stage.GET)
+                .thenApplyAsync(timed -> {
+                    HttpResponse<InputStream> response = timed.response;
+                    checkStatus(response);
+                    if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                        return Result.notModified(timed.nanos);
+                    }
+                    if (response.body() != null) {
+                        // Closing the body cancels whatever the consumer didn't read.
+                        try (InputStream body = response.body()) {
+                            bodyConsumer.accept(body, charset(response.headers()), response.uri().toString());
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                    return Result.fetched(validatorsOf(response), timed.nanos);
+                }, parseExecutor);
+    }
+
+    /**
+     * Sends {@code request} and times it until its response has arrived. A streamed body is read after that, so the
+     * time spent downloading it counts as parsing.
+     */
+    private <T> CompletableFuture<Timed<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler,
+                                                 CrawlMetrics.Stage stage) {
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        return client.sendAsync(request, bodyHandler).handle((response, error) -> {
+            long nanos = System.nanoTime() - start;
+            metrics.record(stage, nanos);
+            if (response != null) {
+                metrics.recordStatus(response.statusCode());
+            }
+            event.finish(request.uri().toString(), request.method(), response == null ? 0 : response.statusCode());
+            if (error != null) {
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            }
+            return new Timed<>(response, nanos);
+        });
+    }
+
+    private static HttpRequest.Builder request(URI url, Validators validators) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(url).timeout(TIMEOUT);
+        if (validators.getEtag() != null) {
+            builder.header("If-None-Match", validators.getEtag());
+        }
+        if (validators.getLastModified() != null) {
+            builder.header("If-Modified-Since", validators.getLastModified());
+        }
+        return builder;
+    }
+
+    private static Validators validatorsOf(HttpResponse<?> response) {
+        return new Validators(response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+    /**
+     * Reads the body only for a successful html response.
+     */
+    private static HttpResponse.BodySubscriber<InputStream> htmlBodyOnly(HttpResponse.ResponseInfo info) {
+        if (isSuccessful(info.statusCode()) && info.statusCode() != HTTP_NOT_MODIFIED && isHtml(info.headers())) {
+            return HttpResponse.BodySubscribers.ofInputStream();
+        }
+        return new AbortingSubscriber();
+    }
+
+    private static boolean isHtml(HttpHeaders headers) {
+        return Fetcher.isHtml(headers.firstValue("Content-Type").orElse(null));
+    }
+
+    private static String charset(HttpHeaders headers) {
+        return headers.firstValue("Content-Type")
+                .map(CHARSET::matcher)
+                .filter(Matcher::find)
+                .map(matcher -> matcher.group(1))
+                .filter(charset -> !charset.isEmpty())
+                .orElse(null);
+    }
+
+    /**
+     * Fails the same way jsoup does for the status codes it doesn't accept.
+     */
+    private static void checkStatus(HttpResponse<?> response) {
+        if (!isSuccessful(response.statusCode())) {
+            throw new CompletionException(new HttpStatusException("HTTP error fetching URL", response.statusCode(),
+                    response.request().uri().toString()));
+        }
+    }
+
+    private static boolean isSuccessful(int statusCode) {
+        return statusCode >= 200 && statusCode < 400;
+    }
+
+    /**
+     * Cancels the subscription as soon as it starts, which makes the client drop the response instead of reading
+     * its body. The response completes with a null body.
+     */
+    private static final class AbortingSubscriber implements HttpResponse.BodySubscriber<InputStream> {
+
+        @Override
+        public CompletionStage<InputStream> getBody() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * A response along with how long it took to arrive.
+     */
+    private static final class Timed<T> {
+        private final HttpResponse<T> response;
+        private final long nanos;
+
+        private Timed(HttpResponse<T> response, long nanos) {
+            this.response = response;
+            this.nanos = nanos;
+        }
+    }
+}
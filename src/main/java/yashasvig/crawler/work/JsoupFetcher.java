@@ -0,0 +1,123 @@
+package yashasvig.crawler.work;
+
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.jfr.FetchEvent;
+import yashasvig.crawler.work.cache.Validators;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link Fetcher} built on jsoup's blocking {@link Connection}. The calling thread is occupied for the whole
+ * request and the returned future is always complete.
+ */
+public final class JsoupFetcher implements Fetcher {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final Connection session;
+    private final CrawlMetrics metrics;
+
+    /**
+     * @param session the jsoup session from which a new request is created for every page
+     */
+    public JsoupFetcher(Connection session) {
+        this(session, new CrawlMetrics());
+    }
+
+    /**
+     * @param metrics times the requests and counts their status codes
+     */
+    public JsoupFetcher(Connection session, CrawlMetrics metrics) {
+        this.session = session;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletableFuture<Result> fetch(URI url, boolean sendHeadRequest, Validators validators,
+                                           BodyConsumer bodyConsumer) {
+        try {
+            Connection connection = session.newRequest().url(url.toString());
+            if (validators.getEtag() != null) {
+                connection.header("If-None-Match", validators.getEtag());
+            }
+            if (validators.getLastModified() != null) {
+                connection.header("If-Modified-Since", validators.getLastModified());
+            }
+            return CompletableFuture.completedFuture(fetchPage(connection, sendHeadRequest, bodyConsumer));
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private Result fetchPage(Connection connection, boolean sendHeadRequest, BodyConsumer bodyConsumer)
+            throws IOException {
+        if (sendHeadRequest) {
+            long start = System.nanoTime();
+            Connection.Response response = execute(connection, Connection.Method.HEAD);
+            long responseNanos = System.nanoTime() - start;
+            if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                return Result.notModified(responseNanos);
+            }
+            if (!Fetcher.isHtml(response.contentType())) {
+                return Result.fetched(validatorsOf(response), responseNanos);
+            }
+        } else {
+            // jsoup gives up on binary content types as soon as the headers arrive, without reading the body.
+            connection.ignoreContentType(false);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Connection.Response page = execute(connection, Connection.Method.GET);
+            long responseNanos = System.nanoTime() - start;
+            if (page.statusCode() == HTTP_NOT_MODIFIED) {
+                return Result.notModified(responseNanos);
+            }
+            try (InputStream body = page.bodyStream()) {
+                // Closing the body right away drops the pages with a textual but non html content type.
+                if (Fetcher.isHtml(page.contentType())) {
+                    bodyConsumer.accept(body, page.charset(), page.url().toExternalForm());
+                }
+            }
+            return Result.fetched(validatorsOf(page), responseNanos);
+        } catch (UnsupportedMimeTypeException exception) {
+            // Not an html page, so there are no links to follow. jsoup throws as soon as the headers are in.
+            return Result.fetched(Validators.NONE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Sends the request and returns once its headers are in, the body being read later by the caller.
+     */
+    private Connection.Response execute(Connection connection, Connection.Method method) throws IOException {
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int status = 0;
+        try {
+            Connection.Response response = connection.method(method).execute();
+            status = response.statusCode();
+            return response;
+        } catch (HttpStatusException exception) {
+            status = exception.getStatusCode();
+            throw exception;
+        } finally {
+            metrics.record(method == Connection.Method.HEAD ? CrawlMetrics.Stage.HEAD : CrawlMetrics.Stage.GET,
+                    System.nanoTime() - start);
+            if (status != 0) {
+                metrics.recordStatus(status);
+            }
+            event.finish(connection.request().url().toString(), method.name(), status);
+        }
+    }
+
+    private static Validators validatorsOf(Connection.Response response) {
+        return new Validators(response.header("ETag"), response.header("Last-Modified"));
+    }
+}
@@ -0,0 +1,22 @@
+package yashasvig.crawler.work;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the links present on an html page.
+ */
+interface LinkExtractor {
+
+    /**
+     * Reads the html page from {@code body} and passes the absolute url of every {@code <a href>} on it to
+     * {@code links}, in the order they appear on the page.
+     *
+     * <p>Links which can't be resolved are passed as an empty string, same as jsoup's {@code abs:href}.</p>
+     *
+     * @param charset the charset of the body if known, or null to let the implementation decide
+     * @param baseUri the url of the page, used to resolve the relative links
+     */
+    void extract(InputStream body, String charset, String baseUri, Consumer<String> links) throws IOException;
+}
@@ -0,0 +1,29 @@
+package yashasvig.crawler.work;
+
+import yashasvig.crawler.work.frontier.Frontier;
+import yashasvig.crawler.work.journal.CrawlJournal;
+import yashasvig.crawler.work.visited.VisitedStore;
+
+/**
+ * Creates the state which every {@link CrawlSession} keeps to itself, so that sessions running side by side never see
+ * each other's urls.
+ *
+ * <p>{@code sessionName} is derived from the authority of the seed, so it's the same every time a site is crawled.
+ * Implementations keeping files use it to tell the sessions apart on disk, and to find the journal left behind by an
+ * earlier crawl of the same site.</p>
+ */
+public interface SessionStateFactory {
+
+    Frontier newFrontier(String sessionName);
+
+    VisitedStore newVisitedStore(String sessionName);
+
+    CrawlJournal newJournal(String sessionName);
+
+    WorkTracker newWorkTracker();
+
+    /**
+     * Returns the router deciding which urls {@code session} crawls itself. Called once the session is starting.
+     */
+    UrlRouter newRouter(CrawlSession session);
+}
@@ -0,0 +1,476 @@
+package yashasvig.crawler.work;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link LinkExtractor} which tokenizes the page as it's being read from the network, without building a DOM.
+ *
+ * <p>Only the tags and attributes relevant for link discovery are materialized. Everything else, including comments
+ * and the content of {@code <script>} and {@code <style>} blocks, is skipped character by character through a fixed
+ * size buffer, so the memory used doesn't depend on the size of the page.</p>
+ *
+ * <p>Some differences with the {@link DomLinkExtractor} worth knowing about:</p>
+ * <ul>
+ *     <li>A {@code <base href>} applies to the links which come after it. Pages almost always declare it in the
+ *     head, before any link.</li>
+ *     <li>The charset is not sniffed from the {@code <meta>} tags. This only matters for non ascii characters in the
+ *     links themselves.</li>
+ *     <li>Only the common character references are decoded in the links.</li>
+ * </ul>
+ */
+final class StreamingLinkExtractor implements LinkExtractor {
+
+    private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+    // The ".." segments which would climb above the root of the path.
+    private static final Pattern EXTRA_DOT_SEGMENTS = Pattern.compile("^/((\\.{1,2}/)+)");
+    // Accepted in links by browsers, but not by URI.
+    private static final String ILLEGAL = "\"<>\\^`{|}";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    @Override
+    public void extract(InputStream body, String charset, String baseUri, Consumer<String> links) throws IOException {
+        Charset decoder = charset != null && Charset.isSupported(charset)
+                ? Charset.forName(charset) : StandardCharsets.UTF_8;
+        new Tokenizer(new InputStreamReader(body, decoder), baseUri, links).run();
+    }
+
+    private static final class Tokenizer {
+        private static final int BUFFER_SIZE = 8192;
+        private static final int EOF = -1;
+        private static final int NONE = -2;
+        /**
+         * Tags are matched on a prefix of this length, which is enough to tell apart the ones we care about.
+         */
+        private static final int MAX_NAME_LENGTH = 8;
+
+        private enum Tag {A, BASE, SCRIPT, STYLE, OTHER}
+
+        private final Reader reader;
+        private final Consumer<String> links;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final char[] name = new char[MAX_NAME_LENGTH];
+        private final StringBuilder value = new StringBuilder();
+        private String baseUri;
+        private URI parsedBaseUri;
+        private boolean baseUriSet;
+        private int position;
+        private int limit;
+        private int pushedBack = NONE;
+
+        private Tokenizer(Reader reader, String baseUri, Consumer<String> links) {
+            this.reader = reader;
+            this.links = links;
+            setBaseUri(baseUri);
+        }
+
+        void run() throws IOException {
+            int c;
+            while ((c = read()) != EOF) {
+                if (c != '<') {
+                    continue;
+                }
+                c = read();
+                if (c == '!') {
+                    readMarkupDeclaration();
+                } else if (c == '/' || c == '?') {
+                    skipPast('>');
+                } else if (isLetter(c)) {
+                    readStartTag(c);
+                } else {
+                    unread(c);
+                }
+            }
+        }
+
+        private void readMarkupDeclaration() throws IOException {
+            int c = read();
+            if (c == '-') {
+                c = read();
+                if (c == '-') {
+                    skipComment();
+                    return;
+                }
+            }
+            unread(c);
+            skipPast('>');
+        }
+
+        private void skipComment() throws IOException {
+            int dashes = 0;
+            int c;
+            while ((c = read()) != EOF) {
+                if (c == '-') {
+                    dashes++;
+                } else if (c == '>' && dashes >= 2) {
+                    return;
+                } else {
+                    dashes = 0;
+                }
+            }
+        }
+
+        private void readStartTag(int first) throws IOException {
+            int length = readName(first);
+            Tag tag = tagOf(length);
+            String href = null;
+            boolean selfClosing = false;
+
+            while (true) {
+                int c = skipWhitespace();
+                if (c == EOF) {
+                    return;
+                }
+                if (c == '>') {
+                    break;
+                }
+                if (c == '/') {
+                    selfClosing = true;
+                    continue;
+                }
+                selfClosing = false;
+                int nameLength = readName(c);
+                boolean isHref = (tag == Tag.A || tag == Tag.BASE) && nameEquals(nameLength, "href");
+                c = skipWhitespace();
+                if (c != '=') {
+                    unread(c);
+                    if (isHref && href == null) {
+                        href = "";
+                    }
+                    continue;
+                }
+                String attributeValue = readValue(isHref && href == null);
+                if (attributeValue != null) {
+                    href = attributeValue;
+                }
+            }
+
+            if (href != null) {
+                if (tag == Tag.A) {
+                    links.accept(resolve(decodeReferences(href)));
+                } else if (!baseUriSet) {
+                    String resolved = resolve(decodeReferences(href));
+                    if (!resolved.isEmpty()) {
+                        setBaseUri(resolved);
+                        baseUriSet = true;
+                    }
+                }
+            } else if ((tag == Tag.SCRIPT || tag == Tag.STYLE) && !selfClosing) {
+                skipRawText(tag == Tag.SCRIPT ? "script" : "style");
+            }
+        }
+
+        private void setBaseUri(String baseUri) {
+            this.baseUri = stripControlCharacters(baseUri);
+            URI parsed = parse(this.baseUri);
+            if (parsed != null && (!parsed.isAbsolute() || parsed.isOpaque())) {
+                parsed = null;
+            } else if (parsed != null && parsed.getRawPath().isEmpty()) {
+                // URI#resolve would glue a relative link right onto the authority.
+                parsed = parsed.resolve("/");
+            }
+            this.parsedBaseUri = parsed;
+        }
+
+        /**
+         * Resolves {@code link} against the base uri following the same rules as jsoup's {@code abs:href}, so that
+         * both extractors find the same links, but without parsing the base uri again for every link. A link which
+         * can't be resolved is kept as is if it has a scheme, and dropped otherwise.
+         */
+        private String resolve(String link) {
+            link = stripControlCharacters(link);
+            if (parsedBaseUri == null) {
+                URI absolute = parse(link);
+                return absolute != null && absolute.isAbsolute() ? link : "";
+            }
+            if (link.isEmpty()) {
+                return baseUri;
+            }
+            URI relative = parse(link.startsWith("?") ? parsedBaseUri.getRawPath() + link : link);
+            if (relative == null) {
+                return SCHEME.matcher(link).find() ? link : "";
+            }
+            URI resolved = parsedBaseUri.resolve(relative);
+            if (resolved.isOpaque() || resolved.getHost() == null) {
+                return resolved.toString();
+            }
+            String path = resolved.getRawPath();
+            if (path.startsWith("/.")) {
+                path = EXTRA_DOT_SEGMENTS.matcher(path).replaceFirst("/");
+            }
+            // Rebuilt without the user info, as jsoup does.
+            StringBuilder out = new StringBuilder(link.length() + 32)
+                    .append(resolved.getScheme()).append("://").append(resolved.getHost());
+            if (resolved.getPort() != -1) {
+                out.append(':').append(resolved.getPort());
+            }
+            out.append(path);
+            if (resolved.getRawQuery() != null) {
+                out.append('?').append(resolved.getRawQuery());
+            }
+            if (resolved.getRawFragment() != null) {
+                out.append('#').append(resolved.getRawFragment());
+            }
+            return out.toString();
+        }
+
+        /**
+         * Parses {@code link}, percent-encoding the characters browsers accept but {@link URI} doesn't if it has to.
+         * Returns null if it still can't be parsed.
+         */
+        private static URI parse(String link) {
+            try {
+                return new URI(link);
+            } catch (URISyntaxException e) {
+                try {
+                    return new URI(escapeIllegalCharacters(link));
+                } catch (URISyntaxException stillInvalid) {
+                    return null;
+                }
+            }
+        }
+
+        private static String escapeIllegalCharacters(String link) {
+            StringBuilder escaped = new StringBuilder(link.length() + 16);
+            for (int i = 0; i < link.length(); i++) {
+                char c = link.charAt(i);
+                if (c > ' ' && c < 0x7f && ILLEGAL.indexOf(c) < 0) {
+                    escaped.append(c);
+                    continue;
+                }
+                int codePoint = link.codePointAt(i);
+                i += Character.charCount(codePoint) - 1;
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    escaped.append('%').append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+                }
+            }
+            return escaped.toString();
+        }
+
+        private static String stripControlCharacters(String link) {
+            for (int i = 0; i < link.length(); i++) {
+                if (link.charAt(i) < ' ') {
+                    StringBuilder stripped = new StringBuilder(link.length());
+                    for (int j = 0; j < link.length(); j++) {
+                        if (link.charAt(j) >= ' ') {
+                            stripped.append(link.charAt(j));
+                        }
+                    }
+                    return stripped.toString();
+                }
+            }
+            return link;
+        }
+
+        /**
+         * Reads a tag or attribute name starting with {@code first} into {@link #name}, lower cased. Only the first
+         * {@link #MAX_NAME_LENGTH} characters are kept.
+         *
+         * @return the actual length of the name
+         */
+        private int readName(int first) throws IOException {
+            int length = 0;
+            int c = first;
+            while (c != EOF && !isWhitespace(c) && c != '>' && c != '/' && c != '=') {
+                if (length < MAX_NAME_LENGTH) {
+                    name[length] = Character.toLowerCase((char) c);
+                }
+                length++;
+                c = read();
+            }
+            unread(c);
+            return length;
+        }
+
+        /**
+         * Reads an attribute value, quoted or not. The value is materialized only when {@code keep} is true.
+         */
+        private String readValue(boolean keep) throws IOException {
+            value.setLength(0);
+            int c = skipWhitespace();
+            if (c == '"' || c == '\'') {
+                int quote = c;
+                while ((c = read()) != EOF && c != quote) {
+                    if (keep) {
+                        value.append((char) c);
+                    }
+                }
+            } else {
+                while (c != EOF && !isWhitespace(c) && c != '>') {
+                    if (keep) {
+                        value.append((char) c);
+                    }
+                    c = read();
+                }
+                unread(c);
+            }
+            return keep ? value.toString() : null;
+        }
+
+        /**
+         * Skips the content of a raw text element until its end tag.
+         */
+        private void skipRawText(String tagName) throws IOException {
+            int c;
+            while ((c = read()) != EOF) {
+                if (c != '<') {
+                    continue;
+                }
+                c = read();
+                if (c != '/') {
+                    unread(c);
+                    continue;
+                }
+                int matched = 0;
+                while (matched < tagName.length()) {
+                    c = read();
+                    if (c == EOF || Character.toLowerCase((char) c) != tagName.charAt(matched)) {
+                        break;
+                    }
+                    matched++;
+                }
+                if (matched == tagName.length()) {
+                    c = read();
+                    if (c == '>' || c == '/' || isWhitespace(c)) {
+                        if (c != '>') {
+                            skipPast('>');
+                        }
+                        return;
+                    }
+                }
+                unread(c);
+            }
+        }
+
+        private Tag tagOf(int length) {
+            if (nameEquals(length, "a")) {
+                return Tag.A;
+            } else if (nameEquals(length, "base")) {
+                return Tag.BASE;
+            } else if (nameEquals(length, "script")) {
+                return Tag.SCRIPT;
+            } else if (nameEquals(length, "style")) {
+                return Tag.STYLE;
+            }
+            return Tag.OTHER;
+        }
+
+        private boolean nameEquals(int length, String expected) {
+            if (length != expected.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (name[i] != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skipPast(char target) throws IOException {
+            int c;
+            while ((c = read()) != EOF && c != target) {
+                // skip
+            }
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (isWhitespace(c));
+            return c;
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != NONE) {
+                int c = pushedBack;
+                pushedBack = NONE;
+                return c;
+            }
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return EOF;
+                }
+            }
+            return buffer[position++];
+        }
+
+        private void unread(int c) {
+            pushedBack = c;
+        }
+
+        private static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+        }
+
+        private static boolean isLetter(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+    }
+
+    /**
+     * Decodes the character references that commonly show up in links.
+     */
+    static String decodeReferences(String link) {
+        int ampersand = link.indexOf('&');
+        if (ampersand < 0) {
+            return link;
+        }
+        StringBuilder decoded = new StringBuilder(link.length());
+        decoded.append(link, 0, ampersand);
+        int i = ampersand;
+        while (i < link.length()) {
+            char c = link.charAt(i);
+            int semicolon = c == '&' ? link.indexOf(';', i) : -1;
+            if (semicolon < 0 || semicolon - i > 10) {
+                decoded.append(c);
+                i++;
+                continue;
+            }
+            String reference = link.substring(i + 1, semicolon);
+            int codePoint = switch (reference) {
+                case "amp" -> '&';
+                case "quot" -> '"';
+                case "apos" -> '\'';
+                case "lt" -> '<';
+                case "gt" -> '>';
+                default -> numericReference(reference);
+            };
+            if (codePoint < 0) {
+                decoded.append(c);
+                i++;
+            } else {
+                decoded.appendCodePoint(codePoint);
+                i = semicolon + 1;
+            }
+        }
+        return decoded.toString();
+    }
+
+    private static int numericReference(String reference) {
+        if (reference.length() < 2 || reference.charAt(0) != '#') {
+            return -1;
+        }
+        try {
+            boolean hex = reference.charAt(1) == 'x' || reference.charAt(1) == 'X';
+            int codePoint = hex
+                    ? Integer.parseInt(reference.substring(2), 16)
+                    : Integer.parseInt(reference.substring(1));
+            return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package yashasvig.crawler.work;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Turns the links found on the pages into a canonical form, so that equivalent urls are filtered and deduplicated as
+ * the same string.
+ *
+ * <p>The link is read in a single pass, without going through {@link java.net.URI}. Only absolute {@code http} and
+ * {@code https} urls are accepted, and the following is normalized:</p>
+ * <ul>
+ *     <li>The scheme and host are lower cased and the default port is dropped.</li>
+ *     <li>An empty path becomes {@code /} and the {@code .} and {@code ..} segments are resolved.</li>
+ *     <li>Percent-encoded unreserved characters are decoded, the other escapes are upper cased and the characters
+ *     which can't appear in a url (spaces, non ascii, ...) are encoded in UTF-8.</li>
+ *     <li>An empty query is dropped. The query parameters are sorted by name if asked to.</li>
+ * </ul>
+ *
+ * <p>The canonical form is always accepted by {@link java.net.URI}. The fragment is kept, so that the
+ * {@link UrlFilter} can still tell it apart.</p>
+ */
+public final class UrlCanonicalizer {
+
+    private static final boolean[] PATH = allowed("-._~!$&'()*+,;=:@/");
+    private static final boolean[] QUERY = allowed("-._~!$&'()*+,;=:@/?");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final Comparator<String> BY_NAME = Comparator.comparing(UrlCanonicalizer::parameterName);
+
+    private final boolean sortQueryParameters;
+
+    /**
+     * @param sortQueryParameters whether the query parameters are sorted by name. Stable, so repeated parameters
+     *                            keep their order.
+     */
+    public UrlCanonicalizer(boolean sortQueryParameters) {
+        this.sortQueryParameters = sortQueryParameters;
+    }
+
+    /**
+     * Returns the canonical form of {@code url}, or null if it's not an absolute http(s) url or can't be parsed.
+     */
+    public String canonicalize(String url) {
+        int start = 0;
+        int end = url.length();
+        while (start < end && url.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && url.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        boolean https;
+        if (url.regionMatches(true, start, "https://", 0, 8)) {
+            https = true;
+            start += 8;
+        } else if (url.regionMatches(true, start, "http://", 0, 7)) {
+            https = false;
+            start += 7;
+        } else {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(end - start + 16);
+        out.append(https ? "https://" : "http://");
+
+        int authorityEnd = indexOfAny(url, start, end, "/?#");
+        if (!appendAuthority(url, start, authorityEnd, https, out)) {
+            return null;
+        }
+
+        int pathEnd = indexOfAny(url, authorityEnd, end, "?#");
+        appendPath(url, authorityEnd, pathEnd, out);
+
+        int position = pathEnd;
+        if (position < end && url.charAt(position) == '?') {
+            int queryEnd = indexOfAny(url, position + 1, end, "#");
+            appendQuery(url, position + 1, queryEnd, out);
+            position = queryEnd;
+        }
+        if (position < end) {
+            out.append('#');
+            appendEncoded(url, position + 1, end, QUERY, out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends the lower cased host and the port, unless it's the default one. User info is not supported.
+     */
+    private static boolean appendAuthority(String url, int start, int end, boolean https, StringBuilder out) {
+        if (start == end) {
+            return false;
+        }
+        int portStart;
+        if (url.charAt(start) == '[') {
+            int bracket = url.indexOf(']', start);
+            if (bracket < 0 || bracket >= end) {
+                return false;
+            }
+            for (int i = start; i <= bracket; i++) {
+                char c = Character.toLowerCase(url.charAt(i));
+                if (!isHexDigit(c) && c != ':' && c != '.' && c != '[' && c != ']') {
+                    return false;
+                }
+                out.append(c);
+            }
+            portStart = bracket + 1;
+            if (portStart < end && url.charAt(portStart) != ':') {
+                return false;
+            }
+        } else {
+            portStart = end;
+            for (int i = start; i < end; i++) {
+                char c = url.charAt(i);
+                if (c == ':') {
+                    portStart = i;
+                    break;
+                }
+                if (c >= 'A' && c <= 'Z') {
+                    c = (char) (c + ('a' - 'A'));
+                } else if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '-' && c != '.' && c != '_'
+                        && c != '~') {
+                    return false;
+                }
+                out.append(c);
+            }
+            if (portStart == start) {
+                return false;
+            }
+        }
+
+        if (portStart + 1 < end) {
+            int port = 0;
+            for (int i = portStart + 1; i < end; i++) {
+                char c = url.charAt(i);
+                if (c < '0' || c > '9' || port > 65535) {
+                    return false;
+                }
+                port = port * 10 + (c - '0');
+            }
+            if (port > 65535) {
+                return false;
+            }
+            if (port != (https ? 443 : 80)) {
+                out.append(':').append(port);
+            }
+        }
+        return true;
+    }
+
+    private static void appendPath(String url, int start, int end, StringBuilder out) {
+        if (start == end) {
+            out.append('/');
+            return;
+        }
+        int pathStart = out.length();
+        appendEncoded(url, start, end, PATH, out);
+        if (out.indexOf("/.", pathStart) >= 0) {
+            String path = out.substring(pathStart);
+            out.setLength(pathStart);
+            removeDotSegments(path, out);
+        }
+    }
+
+    /**
+     * Resolves the {@code .} and {@code ..} segments of {@code path}, as in RFC 3986 section 5.2.4.
+     */
+    private static void removeDotSegments(String path, StringBuilder out) {
+        List<String> segments = new ArrayList<>();
+        String[] parts = path.substring(1).split("/", -1);
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            boolean last = i == parts.length - 1;
+            if (part.equals(".") || part.equals("..")) {
+                if (part.equals("..") && !segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+                if (last) {
+                    segments.add("");
+                }
+            } else {
+                segments.add(part);
+            }
+        }
+        out.append('/').append(String.join("/", segments));
+    }
+
+    private void appendQuery(String url, int start, int end, StringBuilder out) {
+        int queryStart = out.length();
+        out.append('?');
+        appendEncoded(url, start, end, QUERY, out);
+        if (out.length() == queryStart + 1) {
+            out.setLength(queryStart);
+            return;
+        }
+        if (sortQueryParameters && out.indexOf("&", queryStart) >= 0) {
+            List<String> parameters = new ArrayList<>();
+            for (String parameter : out.substring(queryStart + 1).split("&")) {
+                if (!parameter.isEmpty()) {
+                    parameters.add(parameter);
+                }
+            }
+            parameters.sort(BY_NAME);
+            out.setLength(queryStart);
+            if (!parameters.isEmpty()) {
+                out.append('?').append(String.join("&", parameters));
+            }
+        }
+    }
+
+    private static String parameterName(String parameter) {
+        int equals = parameter.indexOf('=');
+        return equals < 0 ? parameter : parameter.substring(0, equals);
+    }
+
+    /**
+     * Appends {@code url[start, end)}, normalizing its percent-encoding. The characters not in {@code allowed} are
+     * encoded, and tabs and newlines are dropped as browsers do.
+     */
+    private static void appendEncoded(String url, int start, int end, boolean[] allowed, StringBuilder out) {
+        int i = start;
+        while (i < end) {
+            char c = url.charAt(i);
+            if (c == '%') {
+                if (i + 2 < end && isHexDigit(url.charAt(i + 1)) && isHexDigit(url.charAt(i + 2))) {
+                    int value = Character.digit(url.charAt(i + 1), 16) * 16 + Character.digit(url.charAt(i + 2), 16);
+                    if (isUnreserved(value)) {
+                        out.append((char) value);
+                    } else {
+                        appendEscape(value, out);
+                    }
+                    i += 3;
+                } else {
+                    out.append("%25");
+                    i++;
+                }
+            } else if (c == '\t' || c == '\n' || c == '\r') {
+                i++;
+            } else if (c < 0x80) {
+                if (allowed[c]) {
+                    out.append(c);
+                } else {
+                    appendEscape(c, out);
+                }
+                i++;
+            } else {
+                int codePoint = url.codePointAt(i);
+                int length = Character.charCount(codePoint);
+                if (Character.isSurrogate((char) codePoint)) {
+                    codePoint = 0xFFFD;
+                }
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscape(b & 0xff, out);
+                }
+                i += length;
+            }
+        }
+    }
+
+    private static void appendEscape(int value, StringBuilder out) {
+        out.append('%').append(HEX[value >> 4]).append(HEX[value & 0xf]);
+    }
+
+    private static boolean isUnreserved(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static int indexOfAny(String url, int start, int end, String characters) {
+        for (int i = start; i < end; i++) {
+            if (characters.indexOf(url.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean[] allowed(String punctuation) {
+        boolean[] allowed = new boolean[0x80];
+        for (int c = 0; c < allowed.length; c++) {
+            allowed[c] = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        for (char c : punctuation.toCharArray()) {
+            allowed[c] = true;
+        }
+        return allowed;
+    }
+}
@@ -1,6 +1,7 @@
 package yashasvig.crawler.work;
 
 import java.net.URI;
+import java.util.Locale;
 
 /**
  * Provides API to check if a particular {@link URI} is a valid one for our program to crawl.
@@ -9,16 +10,40 @@ final class UrlFilter {
     private final String authority;
 
     /**
+     * @param scheme    the scheme of the seed, which tells which port is the default one
      * @param authority the authority which should be used to filter out links for further crawling
      */
-    UrlFilter(String authority) {
-        this.authority = authority;
+    UrlFilter(String scheme, String authority) {
+        this.authority = canonicalAuthority(scheme, authority);
     }
 
     /**
      * Returns true if we should try to crawl the passed {@code uri}.
      */
     public boolean isValid(URI uri) {
-        return uri.getAuthority().equals(authority) && uri.getFragment() == null;
+        return uri.getAuthority() != null && canonicalAuthority(uri.getScheme(), uri.getAuthority()).equals(authority)
+                && uri.getFragment() == null;
+    }
+
+    /**
+     * Same as {@link #isValid(URI)} for a url in the form returned by {@link UrlCanonicalizer}, without parsing it.
+     */
+    public boolean isValid(String canonicalUrl) {
+        int authorityStart = canonicalUrl.indexOf("://") + 3;
+        int authorityEnd = canonicalUrl.indexOf('/', authorityStart);
+        return authorityEnd - authorityStart == authority.length()
+                && canonicalUrl.startsWith(authority, authorityStart)
+                && canonicalUrl.indexOf('#', authorityEnd) < 0;
+    }
+
+    /**
+     * Lower cases {@code authority} and drops the port if it's the default one of {@code scheme}, the same way as
+     * {@link UrlCanonicalizer}.
+     */
+    private static String canonicalAuthority(String scheme, String authority) {
+        String lowerCased = authority.toLowerCase(Locale.ROOT);
+        String defaultPort = "http".equalsIgnoreCase(scheme) ? ":80" : "https".equalsIgnoreCase(scheme) ? ":443" : null;
+        return defaultPort != null && lowerCased.endsWith(defaultPort)
+                ? lowerCased.substring(0, lowerCased.length() - defaultPort.length()) : lowerCased;
     }
 }
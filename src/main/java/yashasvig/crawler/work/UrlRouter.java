@@ -0,0 +1,43 @@
+package yashasvig.crawler.work;
+
+import java.net.URI;
+
+/**
+ * Decides which of the discovered urls are crawled by this process.
+ *
+ * <p>A process crawling alone keeps all of them, see {@link #LOCAL}. In a cluster, every url is owned by one node and
+ * the ones owned by other nodes are sent over to them.</p>
+ */
+public interface UrlRouter {
+
+    /**
+     * A router for a process crawling alone.
+     */
+    UrlRouter LOCAL = new UrlRouter() {
+        @Override
+        public boolean isLocal(URI url) {
+            return true;
+        }
+
+        @Override
+        public void send(URI url) {
+            throw new UnsupportedOperationException("All the urls are local");
+        }
+    };
+
+    /**
+     * Returns true if {@code url} should be crawled by this process.
+     */
+    boolean isLocal(URI url);
+
+    /**
+     * Hands a url for which {@link #isLocal(URI)} is false over to its owner. This never waits for the owner.
+     */
+    void send(URI url);
+
+    /**
+     * Called once the session using this router has finished.
+     */
+    default void close() {
+    }
+}
@@ -1,127 +1,176 @@
 package yashasvig.crawler.work;
 
-import com.google.common.annotations.VisibleForTesting;
-import org.jsoup.Connection;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.jfr.ScheduleEvent;
 import yashasvig.crawler.models.Page;
+import yashasvig.crawler.models.UrlDictionary;
+import yashasvig.crawler.work.cache.ValidatorCache;
 import yashasvig.crawler.work.di.qualifier.WorkerPool;
+import yashasvig.crawler.work.frontier.Frontier;
+import yashasvig.crawler.work.limit.ConcurrencyLimiter;
+import yashasvig.crawler.work.robots.RobotsCache;
+import yashasvig.crawler.work.robots.RobotsRules;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URL;
-import java.util.Collections;
-import java.util.Set;
+import java.time.Duration;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Provides API to schedule the crawling of a new {@link Page}. This class also provides way to be invoked when the
- * crawling finishes through {@link WorkCallback}.
+ * Provides API to start the crawling of a site in a new {@link CrawlSession}. The session informs its caller of every
+ * crawled {@link Page} and of the end of the crawl through {@link WorkCallback}.
+ *
+ * <p>Any no of sessions, one per site, can run at the same time. They all share the worker pool and the fetch slots
+ * of the {@link ConcurrencyLimiter} held here, which cap the no of pages being fetched across all the sessions.
+ * Discovered urls are parked in the {@link Frontier} of their session and handed over to the pool only when there's a
+ * free fetch slot, so the order and pacing of the crawl is decided by the frontiers and not by the queue of the
+ * pool.</p>
+ *
+ * <p>The time a url waits for its fetch slot and then for a thread of the pool is recorded in {@link CrawlMetrics},
+ * which also shows the no of urls waiting in the frontiers, the fetch limit and the no of running sessions. Handing
+ * a url over is also emitted as a {@link ScheduleEvent} to the flight recorder.</p>
+ *
+ * <p>If the config says so, the robots.txt rules of the sites are kept in a {@link RobotsCache} shared by the
+ * sessions, so a site crawled again while its rules are fresh doesn't fetch them again.</p>
  */
 @Singleton
 public class WorkCoordinator {
 
     private final Logger logger = Logger.getLogger(getClass().getSimpleName());
 
-    private final Connection connection;
-    private UrlFilter filter;
-    private WorkCallback workCallback;
+    private final Fetcher fetcher;
+    private final LinkExtractor linkExtractor;
+    private final UrlCanonicalizer canonicalizer;
+    private final CrawlConfig config;
     private final ExecutorService workerPool;
-    private final WorkTracker workTracker;
-    private final Set<String> visitedUrls;
-    private final AwaitingFinishThread awaitingFinishThread;
-
+    private final ValidatorCache validatorCache;
+    private final SessionStateFactory stateFactory;
+    private final ConcurrencyLimiter limiter;
+    private final CrawlMetrics metrics;
+    private final RobotsCache robots;
+    private final Map<String, CrawlSession> sessions = new ConcurrentHashMap<>();
 
     @Inject
-    WorkCoordinator(WorkTracker workTracker, @WorkerPool ExecutorService workerPool, Connection connection) {
-        this.visitedUrls = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        this.workTracker = workTracker;
+    public WorkCoordinator(@WorkerPool ExecutorService workerPool, Fetcher fetcher, ValidatorCache validatorCache,
+                           SessionStateFactory stateFactory, ConcurrencyLimiter limiter, CrawlMetrics metrics,
+                           CrawlConfig config) {
+        this.validatorCache = validatorCache;
+        this.stateFactory = stateFactory;
         this.workerPool = workerPool;
-        this.connection = connection;
-        awaitingFinishThread = new AwaitingFinishThread();
-    }
-
-    /**
-     * @param callback an instance of {@link WorkCallback} which would be invoked
-     *                 after crawling for a page finishes
-     */
-    public void setCallback(WorkCallback callback) {
-        this.workCallback = new WorkCallbackDelegate(callback);
+        this.fetcher = fetcher;
+        this.config = config;
+        this.linkExtractor = config.getLinkExtractionMode() == CrawlConfig.LinkExtractionMode.STREAMING
+                ? new StreamingLinkExtractor() : new DomLinkExtractor();
+        this.canonicalizer = new UrlCanonicalizer(config.sortsQueryParameters());
+        this.limiter = limiter;
+        this.metrics = metrics;
+        this.robots = config.obeysRobotsTxt()
+                ? new RobotsCache(config.getRobotsUserAgent(), Duration.ofMinutes(config.getRobotsCacheMinutes()))
+                : null;
+        metrics.registerGauge("frontierUrls",
+                () -> sessions.values().stream().mapToLong(CrawlSession::getQueuedUrls).sum());
+        metrics.registerGauge("fetchLimit", limiter::getLimit);
+        metrics.registerGauge("runningSessions", sessions::size);
     }
 
     /**
-     * Submits a new {@code Page} to be crawled by the system.
+     * Creates the session which would crawl {@code seed} and all the nested pages of its site once started with
+     * {@link CrawlSession#start(WorkCallback)}.
      *
-     * <p>Note that this would crawl all the nested pages on the passed page as well.</p>
+     * <p>Note that the requests would be picked up by a shared pool of workers and are not guaranteed to be executed
+     * immediately.</p>
      *
-     * <p>Note that the request would be picked up a shared pool of workers and is not guaranteed to be executed
-     * immediately. This method returns immediately after submitting the request.</p>
+     * @throws IllegalArgumentException if {@code seed} has no authority or a session of the same site is running
      */
-    public void crawlDomain(URI url) {
-        if (awaitingFinishThread.isAlive()) {
-            throw new IllegalArgumentException("Only 1 crawling allowed at a time");
+    public synchronized CrawlSession newSession(URI seed) {
+        if (seed.getAuthority() == null) {
+            throw new IllegalArgumentException(String.format("Can't crawl %s, it has no authority", seed));
         }
-
-        filter = new UrlFilter(url.getAuthority());
-        workTracker.trackNewPage();
-        awaitingFinishThread.start();
-
-        workerPool.submit(new Worker(connection.newRequest(), filter, workCallback, url));
+        String name = CrawlSession.nameOf(seed);
+        if (sessions.containsKey(name)) {
+            throw new IllegalArgumentException(String.format("%s is already being crawled", seed.getAuthority()));
+        }
+        CrawlSession session = new CrawlSession(this, seed, stateFactory);
+        sessions.put(name, session);
+        return session;
     }
 
-    private void scheduleUrlIfRequired(URI uri) {
-        if (visitedUrls.add(uri.toString())) {
-            try {
-                URL ignored = uri.toURL();
-                workTracker.trackNewPage();
-                workerPool.submit(new Worker(connection.newRequest(), filter, workCallback, uri));
-            } catch (MalformedURLException e) {
-                logger.log(Level.INFO, String.format("Can't schedule %s for crawling", uri), e);
-            }
-        }
+    /**
+     * Returns the no of sessions which haven't finished yet.
+     */
+    public int getRunningSessions() {
+        return sessions.size();
     }
 
-    @VisibleForTesting
-    WorkCallback getWorkCallback() {
-        return workCallback;
+    /**
+     * Returns the limiter deciding how many pages can be fetched at the same time, which tells the current limit and
+     * how it changed over time.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return limiter;
     }
 
-    private class WorkCallbackDelegate implements WorkCallback {
-        private final WorkCallback delegate;
+    /**
+     * Waits for a free fetch slot and hands {@code url} over to the worker pool. The worker gives the slot back.
+     */
+    void dispatch(URI url, UrlFilter filter, UrlDictionary urlDictionary, WorkCallback workCallback)
+            throws InterruptedException {
+        ScheduleEvent event = new ScheduleEvent();
+        event.begin();
+        long start = System.nanoTime();
+        limiter.acquire();
+        long submitted = System.nanoTime();
+        metrics.record(CrawlMetrics.Stage.SLOT_WAIT, submitted - start);
+        Worker worker = new Worker(fetcher, linkExtractor, validatorCache, filter, canonicalizer, urlDictionary,
+                workCallback, limiter, metrics, url, config.sendsHeadRequest(url.getHost()));
+        workerPool.submit(() -> {
+            metrics.record(CrawlMetrics.Stage.QUEUE_WAIT, System.nanoTime() - submitted);
+            worker.run();
+        });
+        event.finish(url.toString(), limiter::getLimit);
+    }
 
-        public WorkCallbackDelegate(WorkCallback delegate) {
-            this.delegate = delegate;
-        }
+    CrawlMetrics getMetrics() {
+        return metrics;
+    }
 
-        @Override
-        public void onFinishedPageSuccessfully(Page page) {
-//            System.out.printf("Total Queued: %s, Active threads: %s\n", workerPool.,
-//                    workerPool.getActiveCount());
-            page.getChildUrls().forEach(WorkCoordinator.this::scheduleUrlIfRequired);
-            workTracker.finishedPage();
-            delegate.onFinishedPageSuccessfully(page);
-        }
+    CrawlConfig getConfig() {
+        return config;
+    }
 
-        @Override
-        public void onError(String url, String errorMessage) {
-            workTracker.finishedPage();
-            delegate.onError(url, errorMessage);
-        }
+    UrlCanonicalizer getCanonicalizer() {
+        return canonicalizer;
+    }
 
-        @Override
-        public void onFinishedCrawling() {
-            delegate.onFinishedCrawling();
-        }
+    /**
+     * Returns the robots.txt rules of the host of {@code url}, which allow everything if the config ignores them.
+     *
+     * <p><b>This blocks the calling thread</b> the first time a host is looked up. Once the rules have expired, they
+     * keep being returned while the new ones are fetched in the background, so a crawl never stalls on a refresh.</p>
+     */
+    RobotsRules robotsRulesFor(URI url) {
+        return robots == null ? RobotsRules.ALLOW_ALL : robots.rulesFor(url);
     }
 
-    private class AwaitingFinishThread extends Thread {
-        @Override
-        public void run() {
-            workTracker.waitForFinish();
-            workCallback.onFinishedCrawling();
+    /**
+     * Forgets {@code session}. The validator cache is saved every time the last running session finishes.
+     */
+    void onSessionFinished(CrawlSession session) {
+        boolean last;
+        synchronized (this) {
+            sessions.remove(session.getName(), session);
+            last = sessions.isEmpty();
+        }
+        logger.log(Level.INFO, String.format("Finished %s, fetch concurrency limit: %d", session.getSeed(),
+                limiter.getLimit()));
+        if (last) {
+            validatorCache.close();
         }
     }
 }
@@ -25,4 +25,9 @@ public interface WorkTracker {
      * Decrements the number of work items that we need to wait before completion.
      */
     void finishedPage();
+
+    /**
+     * Returns the no of work items which have been tracked but haven't finished yet.
+     */
+    int getPendingPages();
 }
@@ -2,8 +2,6 @@ package yashasvig.crawler.work;
 
 import com.google.common.annotations.VisibleForTesting;
 
-import javax.inject.Inject;
-import javax.inject.Singleton;
 import java.util.concurrent.Phaser;
 
 /**
@@ -11,14 +9,12 @@ import java.util.concurrent.Phaser;
  * that allows us to dynamically change the no of parties that are taking part in the synchronization. Due to our
  * nature of work where we don't know beforehand how many pages we'd be crawling, this is super helpful to us. </p>
  */
-@Singleton
 public final class WorkTrackerImpl implements WorkTracker {
 
     @VisibleForTesting
     final Phaser phaser;
 
-    @Inject
-    WorkTrackerImpl() {
+    public WorkTrackerImpl() {
         phaser = new Phaser();
     }
 
@@ -37,4 +33,9 @@ public final class WorkTrackerImpl implements WorkTracker {
     public void finishedPage() {
         phaser.arrive();
     }
+
+    @Override
+    public int getPendingPages() {
+        return phaser.getUnarrivedParties();
+    }
 }
@@ -1,21 +1,34 @@
 package yashasvig.crawler.work;
 
-import org.jsoup.Connection;
-import org.jsoup.nodes.Document;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.jfr.FilterEvent;
+import yashasvig.crawler.metrics.jfr.ParseEvent;
 import yashasvig.crawler.models.Page;
+import yashasvig.crawler.models.UrlDictionary;
+import yashasvig.crawler.work.cache.CachedPage;
+import yashasvig.crawler.work.cache.ValidatorCache;
+import yashasvig.crawler.work.cache.Validators;
+import yashasvig.crawler.work.limit.ConcurrencyLimiter;
+import yashasvig.crawler.work.limit.FetchOutcome;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static yashasvig.crawler.global.Constants.SUPPORTED_SCHEMES;
-
 /**
  * Represents a single instance of {@link Runnable} in the system which is responsible for scraping a single
  * webpage (represented by {@code Page} in our system).
@@ -26,31 +39,71 @@ import static yashasvig.crawler.global.Constants.SUPPORTED_SCHEMES;
  *     <li> Invokes a callback (see {@code PageProcessingFinishCallback}) after finishing the processing and
  *     populating the child links for that page.</li>
  * </ul>
+ * <p>
+ * With an asynchronous {@link Fetcher}, {@link #run()} returns as soon as the request is sent and the callback is
+ * invoked later from the threads of the fetcher.
+ * <p>
+ * If the page is known to the {@link ValidatorCache}, a conditional request is sent and the child links found last
+ * time are reused when the server says the page hasn't changed. The body of every page is hashed while its links
+ * are extracted, so a server which doesn't support conditional requests but sends back exactly the same body gets its
+ * links from last time too, without the body ever being held in memory.
+ * <p>
+ * The slot taken from the {@link ConcurrencyLimiter} for this page is given back as soon as the fetch is over, along
+ * with its latency and outcome, and before the callback is invoked.
+ * <p>
+ * The time spent parsing the page and filtering its child links is recorded in {@link CrawlMetrics}, along with the
+ * outcome of the page under its host, and both stages are emitted as flight recorder events with the url of the page.
  */
 final class Worker implements Runnable {
 
+    private static final HashFunction CONTENT_HASH = Hashing.farmHashFingerprint64();
+
     private final Logger logger = Logger.getLogger(getClass().getSimpleName());
 
-    private final Connection session;
+    private final Fetcher fetcher;
+    private final LinkExtractor linkExtractor;
+    private final ValidatorCache validatorCache;
     private final UrlFilter filter;
+    private final UrlCanonicalizer canonicalizer;
+    private final UrlDictionary urlDictionary;
     private final WorkCallback finishCallback;
+    private final ConcurrencyLimiter limiter;
+    private final CrawlMetrics metrics;
     private final URI url;
+    private final boolean sendHeadRequest;
 
 
     /**
      * Constructs a new worker instance.
      *
-     * @param session      an instance of {@link Connection} used to fetch the web page and parse it
-     * @param filter       would be applied to the child urls on this page to decide if we want to
-     *                     further process them
-     * @param workCallback to be invoked when the processing for this page finishes
-     * @param url          the page to be crawled by this worker
+     * @param fetcher         used to fetch the web page
+     * @param linkExtractor   used to extract the child links from the downloaded page
+     * @param validatorCache  remembers the pages from the previous crawls
+     * @param filter          would be applied to the child urls on this page to decide if we want to
+     *                        further process them
+     * @param canonicalizer   used to turn the child links into canonical urls before filtering them
+     * @param urlDictionary   holds the child urls of the crawled pages
+     * @param workCallback    to be invoked when the processing for this page finishes
+     * @param limiter         the limiter from which a slot was acquired for this page
+     * @param metrics         records the time spent in every stage of the page
+     * @param url             the page to be crawled by this worker
+     * @param sendHeadRequest if true, a {@code HEAD} request is sent to check the content type before downloading
+     *                        the page. Otherwise, a single {@code GET} is sent and dropped early if it's not html.
      */
-    Worker(Connection session, UrlFilter filter, WorkCallback workCallback, URI url) {
-        this.session = session;
+    Worker(Fetcher fetcher, LinkExtractor linkExtractor, ValidatorCache validatorCache, UrlFilter filter,
+           UrlCanonicalizer canonicalizer, UrlDictionary urlDictionary, WorkCallback workCallback,
+           ConcurrencyLimiter limiter, CrawlMetrics metrics, URI url, boolean sendHeadRequest) {
+        this.fetcher = fetcher;
+        this.linkExtractor = linkExtractor;
+        this.validatorCache = validatorCache;
         this.filter = filter;
+        this.canonicalizer = canonicalizer;
+        this.urlDictionary = urlDictionary;
         this.finishCallback = workCallback;
+        this.limiter = limiter;
+        this.metrics = metrics;
         this.url = url;
+        this.sendHeadRequest = sendHeadRequest;
     }
 
     @Override
@@ -59,38 +112,118 @@ final class Worker implements Runnable {
     }
 
     private void processPage(URI pageUrl) {
-        Document document;
-        try {
-            Connection connection = session.url(pageUrl.toString());
-            Connection.Response response = connection.method(Connection.Method.HEAD).execute();
-            String contentType = response.contentType();
-            if (contentType != null && !contentType.contains("text/html")) {
-                finishCallback.onFinishedPageSuccessfully(new Page(pageUrl, new HashSet<>()));
-                //System.out.printf("Skip downloading %s\n", response.url());
-                return;
-            }
+        CachedPage cached = validatorCache.get(pageUrl.toString());
+        LinkCollector collector = new LinkCollector(cached);
+        long start = System.nanoTime();
+        // The cached page tells whether it's html, so there's no point in asking again with a HEAD request.
+        fetcher.fetch(pageUrl, sendHeadRequest && cached == null,
+                        cached == null ? Validators.NONE : cached.getValidators(), collector)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        limiter.release(pageUrl.getHost(), result.getResponseNanos(), FetchOutcome.OK);
+                        long filterStart = System.nanoTime();
+                        Set<String> childUrls = childUrls(result, cached, collector);
+                        metrics.record(CrawlMetrics.Stage.FILTER, System.nanoTime() - filterStart);
+                        metrics.recordPage(pageUrl.getHost());
+                        finishCallback.onFinishedPageSuccessfully(new Page(pageUrl, intern(childUrls), urlDictionary));
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    limiter.release(pageUrl.getHost(), System.nanoTime() - start, FetchOutcome.of(cause));
+                    metrics.recordError(pageUrl.getHost());
+                    logger.log(Level.INFO, String.format("Error: %s for %s", cause.getLocalizedMessage(), pageUrl));
+                    finishCallback.onError(url.toString(), cause.getLocalizedMessage());
+                });
+    }
 
-            document = connection.get();
-        } catch (IOException exception) {
-            logger.log(Level.INFO, String.format("Error: %s for %s", exception.getLocalizedMessage(), pageUrl));
-            finishCallback.onError(url.toString(), exception.getLocalizedMessage());
-            return;
+    /**
+     * Returns the canonical form of the child urls worth crawling, in the order they appear on the page.
+     */
+    private Set<String> childUrls(Fetcher.Result result, CachedPage cached, LinkCollector collector) {
+        FilterEvent event = new FilterEvent();
+        event.begin();
+        List<String> links = result.isNotModified()
+                ? cached == null ? List.of() : cached.getChildUrls()
+                : collector.links;
+        Set<String> childUrls = new LinkedHashSet<>();
+        links.forEach(link -> addIfValid(link, childUrls));
+        event.finish(url.toString(), links.size(), childUrls.size());
+        if (!result.isNotModified()) {
+            validatorCache.put(url.toString(), new CachedPage(result.getValidators(), collector.contentHash,
+                    List.copyOf(childUrls)));
+        }
+        return childUrls;
+    }
+
+    private int[] intern(Set<String> childUrls) {
+        int[] ids = new int[childUrls.size()];
+        int count = 0;
+        for (String childUrl : childUrls) {
+            int id;
+            try {
+                id = urlDictionary.intern(childUrl);
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.INFO, "Invalid url found: " + childUrl);
+                continue;
+            }
+            ids[count++] = id;
         }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
 
-        List<String> childLinks = document.select("a[href]").stream().map(element -> element.attr("abs:href"))
-                .filter(link -> Arrays.stream(SUPPORTED_SCHEMES).anyMatch(link::startsWith)).toList();
+    /**
+     * Extracts the links from the body of the page while hashing it. If the hash turns out to be the same as last
+     * time, the links found last time are kept instead.
+     */
+    private final class LinkCollector implements Fetcher.BodyConsumer {
+        private final CachedPage cached;
+        private final List<String> links = new ArrayList<>();
+        private long contentHash = CachedPage.UNKNOWN_HASH;
 
-        Set<URI> childURIs = new HashSet<>();
-        for (String link : childLinks) {
+        private LinkCollector(CachedPage cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public void accept(InputStream body, String charset, String baseUri) throws IOException {
+            ParseEvent event = new ParseEvent();
+            event.begin();
+            long start = System.nanoTime();
+            CountingInputStream countingBody = new CountingInputStream(body);
             try {
-                URI uri = new URI(link);
-                if (filter.isValid(uri)) {
-                    childURIs.add(uri);
+                extract(countingBody, charset, baseUri);
+            } finally {
+                metrics.record(CrawlMetrics.Stage.PARSE, System.nanoTime() - start);
+                event.finish(url.toString(), countingBody.getCount(), links.size());
+            }
+        }
+
+        private void extract(InputStream body, String charset, String baseUri) throws IOException {
+            HashingInputStream hashingBody = new HashingInputStream(CONTENT_HASH, body);
+            // jsoup closes the stream once parsed, but whatever it didn't read still has to be hashed.
+            linkExtractor.extract(new FilterInputStream(hashingBody) {
+                @Override
+                public void close() {
                 }
-            } catch (URISyntaxException e) {
-                logger.log(Level.INFO, "Invalid url found: " + link);
+            }, charset, baseUri, links::add);
+            ByteStreams.exhaust(hashingBody);
+            contentHash = hashingBody.hash().asLong();
+            if (cached != null && contentHash == cached.getContentHash()) {
+                links.clear();
+                links.addAll(cached.getChildUrls());
             }
         }
-        finishCallback.onFinishedPageSuccessfully(new Page(pageUrl, childURIs));
+    }
+
+    /**
+     * Adds the canonical form of {@code link} to {@code childUrls} if it's a supported url that passes the
+     * {@link UrlFilter}. Only http(s) links survive the {@link UrlCanonicalizer}.
+     */
+    private void addIfValid(String link, Set<String> childUrls) {
+        String canonical = canonicalizer.canonicalize(link);
+        if (canonical != null && filter.isValid(canonical)) {
+            childUrls.add(canonical);
+        }
     }
 }
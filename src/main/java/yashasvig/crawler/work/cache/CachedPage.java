@@ -0,0 +1,57 @@
+package yashasvig.crawler.work.cache;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What we remember about a page from the previous crawl.
+ */
+public final class CachedPage {
+
+    /**
+     * Content hash of a page whose body was never read, for example because it's not html.
+     */
+    public static final long UNKNOWN_HASH = 0;
+
+    private final Validators validators;
+    private final long contentHash;
+    private final ImmutableList<String> childUrls;
+
+    /**
+     * @param contentHash hash of the body of the page, or {@link #UNKNOWN_HASH}
+     * @param childUrls   the urls found on the page
+     */
+    public CachedPage(Validators validators, long contentHash, List<String> childUrls) {
+        this.validators = validators;
+        this.contentHash = contentHash;
+        this.childUrls = ImmutableList.copyOf(childUrls);
+    }
+
+    public Validators getValidators() {
+        return validators;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public ImmutableList<String> getChildUrls() {
+        return childUrls;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CachedPage that = (CachedPage) o;
+        return contentHash == that.contentHash && validators.equals(that.validators)
+                && childUrls.equals(that.childUrls);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(validators, contentHash, childUrls);
+    }
+}
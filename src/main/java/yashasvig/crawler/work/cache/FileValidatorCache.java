@@ -0,0 +1,151 @@
+package yashasvig.crawler.work.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ValidatorCache} saved to a single file between crawls.
+ *
+ * <p>The file is read completely when this cache is created and rewritten when it's closed. Only the pages reached
+ * by the crawl which just finished are written back, so the pages which disappeared from the site don't pile up in
+ * the file forever. If the crawl never finishes, the file is left untouched.</p>
+ */
+public final class FileValidatorCache implements ValidatorCache {
+
+    private static final int MAGIC = 0x56414c31;
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final Path file;
+    private final Map<String, CachedPage> previousCrawl;
+    private final ConcurrentHashMap<String, CachedPage> currentCrawl = new ConcurrentHashMap<>();
+
+    public FileValidatorCache(Path file) {
+        this.file = file;
+        this.previousCrawl = load();
+    }
+
+    @Override
+    public CachedPage get(String url) {
+        CachedPage page = currentCrawl.get(url);
+        if (page != null) {
+            return page;
+        }
+        page = previousCrawl.get(url);
+        if (page != null) {
+            currentCrawl.putIfAbsent(url, page);
+        }
+        return page;
+    }
+
+    @Override
+    public void put(String url, CachedPage page) {
+        currentCrawl.put(url, page);
+    }
+
+    /**
+     * Returns the no of pages which would be saved by {@link #close()}.
+     */
+    @VisibleForTesting
+    int size() {
+        return currentCrawl.size();
+    }
+
+    /**
+     * Writes the pages seen during this crawl to the file. The old file is replaced only once the new one is
+     * completely written.
+     */
+    @Override
+    public void close() {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(currentCrawl.size());
+                for (Map.Entry<String, CachedPage> entry : currentCrawl.entrySet()) {
+                    CachedPage page = entry.getValue();
+                    writeString(out, entry.getKey());
+                    writeString(out, page.getValidators().getEtag());
+                    writeString(out, page.getValidators().getLastModified());
+                    out.writeLong(page.getContentHash());
+                    out.writeInt(page.getChildUrls().size());
+                    for (String childUrl : page.getChildUrls()) {
+                        writeString(out, childUrl);
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Couldn't save the validator cache to %s", file), e);
+        }
+    }
+
+    private Map<String, CachedPage> load() {
+        Map<String, CachedPage> pages = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a validator cache file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String url = readString(in);
+                Validators validators = new Validators(readString(in), readString(in));
+                long contentHash = in.readLong();
+                int childCount = in.readInt();
+                List<String> childUrls = new ArrayList<>(childCount);
+                for (int j = 0; j < childCount; j++) {
+                    childUrls.add(readString(in));
+                }
+                pages.put(url, new CachedPage(validators, contentHash, childUrls));
+            }
+            logger.log(Level.INFO, String.format("Loaded %d pages from the validator cache", pages.size()));
+            return pages;
+        } catch (NoSuchFileException e) {
+            return pages;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Ignoring the unreadable validator cache %s", file), e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Unlike {@link DataOutputStream#writeUTF(String)}, supports nulls and strings longer than 64 KB.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,16 @@
+package yashasvig.crawler.work.cache;
+
+/**
+ * A {@link ValidatorCache} which doesn't remember anything, so every page is downloaded in full.
+ */
+public final class NoOpValidatorCache implements ValidatorCache {
+
+    @Override
+    public CachedPage get(String url) {
+        return null;
+    }
+
+    @Override
+    public void put(String url, CachedPage page) {
+    }
+}
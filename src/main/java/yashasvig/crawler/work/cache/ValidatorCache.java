@@ -0,0 +1,24 @@
+package yashasvig.crawler.work.cache;
+
+/**
+ * Remembers the validators, content hash and child links of the pages crawled previously, so that a recrawl can
+ * send conditional requests and skip the pages which haven't changed.
+ */
+public interface ValidatorCache {
+
+    /**
+     * Returns what we know about {@code url} from a previous crawl, or null if it's unknown.
+     */
+    CachedPage get(String url);
+
+    /**
+     * Records what was found for {@code url} during this crawl.
+     */
+    void put(String url, CachedPage page);
+
+    /**
+     * Called once the crawl has finished. Persistent implementations save what they have learnt here.
+     */
+    default void close() {
+    }
+}
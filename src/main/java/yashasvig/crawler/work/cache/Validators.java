@@ -0,0 +1,51 @@
+package yashasvig.crawler.work.cache;
+
+import java.util.Objects;
+
+/**
+ * The validators a server attached to a page, used to ask it later whether the page has changed since.
+ */
+public final class Validators {
+
+    public static final Validators NONE = new Validators(null, null);
+
+    private final String etag;
+    private final String lastModified;
+
+    /**
+     * @param etag         value of the {@code ETag} header, or null
+     * @param lastModified value of the {@code Last-Modified} header, or null
+     */
+    public Validators(String etag, String lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns true if there's nothing to make a conditional request with.
+     */
+    public boolean isEmpty() {
+        return etag == null && lastModified == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Validators that = (Validators) o;
+        return Objects.equals(etag, that.etag) && Objects.equals(lastModified, that.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(etag, lastModified);
+    }
+}
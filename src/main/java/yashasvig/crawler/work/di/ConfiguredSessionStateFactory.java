@@ -0,0 +1,124 @@
+package yashasvig.crawler.work.di;
+
+import dagger.Lazy;
+import yashasvig.crawler.cluster.ClusterNode;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.work.CrawlSession;
+import yashasvig.crawler.work.SessionStateFactory;
+import yashasvig.crawler.work.UrlRouter;
+import yashasvig.crawler.work.WorkTracker;
+import yashasvig.crawler.work.WorkTrackerImpl;
+import yashasvig.crawler.work.frontier.FifoFrontier;
+import yashasvig.crawler.work.frontier.Frontier;
+import yashasvig.crawler.work.frontier.HostPolitenessFrontier;
+import yashasvig.crawler.work.frontier.PatternWeightScorer;
+import yashasvig.crawler.work.frontier.PriorityFrontier;
+import yashasvig.crawler.work.frontier.TieredFrontier;
+import yashasvig.crawler.work.frontier.UrlScorer;
+import yashasvig.crawler.work.journal.CrawlJournal;
+import yashasvig.crawler.work.journal.FileCrawlJournal;
+import yashasvig.crawler.work.journal.NoOpCrawlJournal;
+import yashasvig.crawler.work.visited.FingerprintVisitedStore;
+import yashasvig.crawler.work.visited.StringVisitedStore;
+import yashasvig.crawler.work.visited.TieredVisitedStore;
+import yashasvig.crawler.work.visited.VisitedStore;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A {@link SessionStateFactory} which picks the implementations from the {@link CrawlConfig}. The configured
+ * directories get a sub directory per session.
+ */
+public final class ConfiguredSessionStateFactory implements SessionStateFactory {
+
+    private final CrawlConfig config;
+    private final Lazy<ClusterNode> clusterNode;
+
+    @Inject
+    public ConfiguredSessionStateFactory(CrawlConfig config, Lazy<ClusterNode> clusterNode) {
+        this.config = config;
+        this.clusterNode = clusterNode;
+    }
+
+    /**
+     * Creates a factory for a config which isn't {@link CrawlConfig#isClustered() clustered}.
+     */
+    public ConfiguredSessionStateFactory(CrawlConfig config) {
+        this(config, () -> {
+            throw new IllegalStateException("No cluster node was given for a clustered config");
+        });
+    }
+
+    @Override
+    public Frontier newFrontier(String sessionName) {
+        return switch (config.getFrontierMode()) {
+            case FIFO -> new FifoFrontier();
+            case PER_HOST -> new HostPolitenessFrontier(config.getDefaultHostRequestsPerSecond(),
+                    config.getHostBurst(), config.getHostRequestsPerSecondOverrides());
+            case TIERED -> new TieredFrontier(directory(config.getFrontierDirectory(), sessionName, "crawler-frontier"),
+                    config.getFrontierMemoryUrls());
+            case PRIORITY -> new PriorityFrontier(scorer());
+        };
+    }
+
+    @Override
+    public VisitedStore newVisitedStore(String sessionName) {
+        return switch (config.getVisitedStoreMode()) {
+            case STRINGS -> new StringVisitedStore();
+            case FINGERPRINTS -> new FingerprintVisitedStore();
+            case TIERED -> new TieredVisitedStore(
+                    directory(config.getVisitedStoreDirectory(), sessionName, "crawler-visited"),
+                    config.getExpectedUrls());
+        };
+    }
+
+    /**
+     * Returns the journal from which a crashed crawl can be resumed, if there's a directory to keep it in.
+     */
+    @Override
+    public CrawlJournal newJournal(String sessionName) {
+        if (config.getJournalDirectory() == null) {
+            return new NoOpCrawlJournal();
+        }
+        return new FileCrawlJournal(config.getJournalDirectory().resolve(sessionName));
+    }
+
+    @Override
+    public WorkTracker newWorkTracker() {
+        return new WorkTrackerImpl();
+    }
+
+    /**
+     * Joins the {@link ClusterNode} of this process if the config lists the nodes of a cluster. The node is only
+     * created, and its port bound, when the first session starts.
+     */
+    @Override
+    public UrlRouter newRouter(CrawlSession session) {
+        return config.isClustered() ? clusterNode.get().join(session) : UrlRouter.LOCAL;
+    }
+
+    private UrlScorer scorer() {
+        return switch (config.getPriorityScoring()) {
+            case DEPTH -> UrlScorer.DEPTH;
+            case IN_LINKS -> UrlScorer.IN_LINKS;
+            case URL_PATTERNS -> new PatternWeightScorer(config.getUrlPatternWeights());
+        };
+    }
+
+    /**
+     * Creates the directory of the session under {@code parent}, or a temporary one if there's no {@code parent}.
+     */
+    private static Path directory(Path parent, String sessionName, String temporaryPrefix) {
+        try {
+            return parent != null
+                    ? Files.createDirectories(parent.resolve(sessionName))
+                    : Files.createTempDirectory(temporaryPrefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
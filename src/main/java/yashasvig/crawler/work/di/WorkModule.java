@@ -4,30 +4,47 @@ import dagger.Module;
 import dagger.Provides;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
-import yashasvig.crawler.work.WorkTracker;
-import yashasvig.crawler.work.WorkTrackerImpl;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.work.BoundedVirtualThreadExecutor;
+import yashasvig.crawler.work.Fetcher;
+import yashasvig.crawler.work.HttpClientFetcher;
+import yashasvig.crawler.work.JsoupFetcher;
+import yashasvig.crawler.work.SessionStateFactory;
+import yashasvig.crawler.work.cache.FileValidatorCache;
+import yashasvig.crawler.work.cache.NoOpValidatorCache;
+import yashasvig.crawler.work.cache.ValidatorCache;
 import yashasvig.crawler.work.di.qualifier.WorkerPool;
+import yashasvig.crawler.work.limit.AimdConcurrencyLimiter;
+import yashasvig.crawler.work.limit.ConcurrencyLimiter;
+import yashasvig.crawler.work.limit.FixedConcurrencyLimiter;
 
 import javax.inject.Singleton;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 @Module
 public class WorkModule {
 
     /**
-     * Max no of concurrent workers that the factory can create. Each concurrent worker corresponds to a new thread
-     * being spawn in the system.
+     * Provides the pool on which the workers run.
+     *
+     * <p>In {@link CrawlConfig.ExecutionMode#PLATFORM_POOL}, each concurrent worker corresponds to a new thread being
+     * spawn in the system. In {@link CrawlConfig.ExecutionMode#VIRTUAL_THREADS}, each worker gets its own virtual
+     * thread and only the no of in-flight fetches is capped.</p>
      */
-    private static final int NUM_OF_WORKERS = 10;
-
     @Provides
     @WorkerPool
     @Singleton
-    static ExecutorService provideWorkerPool() {
-        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(NUM_OF_WORKERS, NUM_OF_WORKERS, 2L,
+    static ExecutorService provideWorkerPool(CrawlConfig config) {
+        if (config.getExecutionMode() == CrawlConfig.ExecutionMode.VIRTUAL_THREADS) {
+            return new BoundedVirtualThreadExecutor(config.getMaxConcurrentFetches());
+        }
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(config.getWorkerThreads(),
+                config.getWorkerThreads(), 2L,
                 TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>());
         threadPoolExecutor.allowCoreThreadTimeOut(true);
@@ -40,9 +57,68 @@ public class WorkModule {
         return Jsoup.newSession().ignoreContentType(true).timeout(5000);
     }
 
+    /**
+     * Provides the client used by the workers to download the pages. The asynchronous one parses the pages on virtual
+     * threads of its own rather than on the worker pool.
+     */
+    @Provides
+    @Singleton
+    static Fetcher provideFetcher(CrawlConfig config, Connection connection, CrawlMetrics metrics) {
+        if (config.getFetcherMode() == CrawlConfig.FetcherMode.HTTP_CLIENT) {
+            return new HttpClientFetcher(HttpClientFetcher.newHttpClient(), metrics);
+        }
+        return new JsoupFetcher(connection, metrics);
+    }
+
+    /**
+     * Provides the cache which turns a recrawl into conditional requests, if there's a file to keep it in.
+     */
+    @Provides
+    @Singleton
+    static ValidatorCache provideValidatorCache(CrawlConfig config) {
+        if (config.getValidatorCacheFile() == null) {
+            return new NoOpValidatorCache();
+        }
+        return new FileValidatorCache(config.getValidatorCacheFile());
+    }
+
+    /**
+     * Provides the limiter which caps the no of pages being fetched at the same time.
+     *
+     * <p>With {@link CrawlConfig.ConcurrencyMode#AIMD}, the limit starts at the no of worker threads. If the fetches
+     * block the threads of a pool of platform threads, the pool is resized along with the limit, since a limit above
+     * the no of threads would only queue the fetches up.</p>
+     */
     @Provides
     @Singleton
-    static WorkTracker provideWorkTracker(WorkTrackerImpl workTrackerImpl) {
-        return workTrackerImpl;
+    static ConcurrencyLimiter provideConcurrencyLimiter(CrawlConfig config, @WorkerPool ExecutorService workerPool) {
+        if (config.getConcurrencyMode() == CrawlConfig.ConcurrencyMode.FIXED) {
+            return new FixedConcurrencyLimiter(config.getFetchConcurrency());
+        }
+        IntConsumer onLimitChanged = limit -> {
+        };
+        if (workerPool instanceof ThreadPoolExecutor pool && config.getFetcherMode() == CrawlConfig.FetcherMode.JSOUP) {
+            onLimitChanged = limit -> resize(pool, limit);
+        }
+        int maxLimit = config.getMaxConcurrentFetches();
+        return new AimdConcurrencyLimiter(Math.min(config.getWorkerThreads(), maxLimit), 1, maxLimit, onLimitChanged);
+    }
+
+    @Provides
+    static SessionStateFactory provideSessionStateFactory(ConfiguredSessionStateFactory factory) {
+        return factory;
+    }
+
+    /**
+     * The core size has to stay below the max size, so the order depends on whether the pool grows or shrinks.
+     */
+    private static void resize(ThreadPoolExecutor pool, int threads) {
+        if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        } else {
+            pool.setCorePoolSize(threads);
+            pool.setMaximumPoolSize(threads);
+        }
     }
 }
@@ -0,0 +1,28 @@
+package yashasvig.crawler.work.frontier;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A {@link Frontier} that hands out the urls in the order they were discovered, without any rate control.
+ */
+public final class FifoFrontier implements Frontier {
+
+    private final BlockingQueue<URI> queue = new LinkedBlockingQueue<>();
+
+    @Override
+    public void add(URI url) {
+        queue.add(url);
+    }
+
+    @Override
+    public URI take() throws InterruptedException {
+        return queue.take();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
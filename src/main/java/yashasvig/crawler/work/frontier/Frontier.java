@@ -0,0 +1,51 @@
+package yashasvig.crawler.work.frontier;
+
+import java.net.URI;
+
+/**
+ * Holds the urls which have been discovered but not yet handed over to a worker for crawling.
+ *
+ * <p>Implementations decide the order in which the urls are handed out and may also hold them back, for example to
+ * respect a per-host rate limit. Implementations must be thread safe.</p>
+ */
+public interface Frontier {
+
+    /**
+     * Adds a new url to be crawled.
+     */
+    void add(URI url);
+
+    /**
+     * Adds a new url to be crawled, found {@code depth} links away from the seed. Frontiers which don't order the urls
+     * by their depth ignore it.
+     */
+    default void add(URI url, int depth) {
+        add(url);
+    }
+
+    /**
+     * Tells the frontier that one more link to {@code url} has been found, after the url itself was added. Frontiers
+     * which don't order the urls by their links ignore it, and so does everyone once the url has been taken.
+     */
+    default void linked(URI url) {
+    }
+
+    /**
+     * Returns the next url that should be crawled, waiting until there's one which is allowed to be fetched right
+     * now.
+     *
+     * <p><b>This blocks the calling thread.</b></p>
+     */
+    URI take() throws InterruptedException;
+
+    /**
+     * Returns the no of urls waiting in the frontier.
+     */
+    int size();
+
+    /**
+     * Releases any resources held by this frontier. The frontier can't be used after this.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,154 @@
+package yashasvig.crawler.work.frontier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Frontier} which keeps a separate queue per host and rate limits every host with its own
+ * {@link TokenBucket}.
+ *
+ * <p>Hosts which have pending urls sit in a heap ordered by the time at which their bucket allows the next fetch.
+ * {@link #take()} always looks at the head of this heap, so a slow or heavily rate limited host never blocks the
+ * urls of other hosts which are allowed to be fetched right now.</p>
+ */
+public final class HostPolitenessFrontier implements Frontier {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readyChanged = lock.newCondition();
+
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final PriorityQueue<HostQueue> readyHeap =
+            new PriorityQueue<>(Comparator.comparingLong(hostQueue -> hostQueue.readyAtNanos));
+    private final Map<String, Double> hostRequestsPerSecond;
+    private final double defaultRequestsPerSecond;
+    private final int burst;
+    private final Ticker ticker;
+    private int size;
+
+    /**
+     * @param defaultRequestsPerSecond max no of requests per second sent to a host not present in
+     *                                 {@code hostRequestsPerSecond}
+     * @param burst                    max no of requests that can be sent back to back to a host which has been idle
+     * @param hostRequestsPerSecond    per host overrides of {@code defaultRequestsPerSecond}
+     */
+    public HostPolitenessFrontier(double defaultRequestsPerSecond, int burst,
+                                  Map<String, Double> hostRequestsPerSecond) {
+        this(defaultRequestsPerSecond, burst, hostRequestsPerSecond, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    HostPolitenessFrontier(double defaultRequestsPerSecond, int burst, Map<String, Double> hostRequestsPerSecond,
+                           Ticker ticker) {
+        this.defaultRequestsPerSecond = defaultRequestsPerSecond;
+        this.burst = burst;
+        this.hostRequestsPerSecond = Map.copyOf(hostRequestsPerSecond);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public void add(URI url) {
+        String host = hostOf(url);
+        lock.lock();
+        try {
+            long now = ticker.read();
+            HostQueue hostQueue = hosts.computeIfAbsent(host, h -> new HostQueue(
+                    new TokenBucket(hostRequestsPerSecond.getOrDefault(h, defaultRequestsPerSecond), burst, now)));
+            hostQueue.urls.add(url);
+            size++;
+            if (!hostQueue.inHeap) {
+                hostQueue.readyAtNanos = hostQueue.bucket.nextAvailableNanos(now);
+                hostQueue.inHeap = true;
+                readyHeap.add(hostQueue);
+                readyChanged.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public URI take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                URI url = pollReady();
+                if (url != null) {
+                    return url;
+                }
+                HostQueue head = readyHeap.peek();
+                if (head == null) {
+                    readyChanged.await();
+                } else {
+                    readyChanged.awaitNanos(head.readyAtNanos - ticker.read());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next url whose host is allowed to be fetched right now, or null if there's none.
+     */
+    @VisibleForTesting
+    URI pollReady() {
+        lock.lock();
+        try {
+            HostQueue head = readyHeap.peek();
+            long now = ticker.read();
+            if (head == null || head.readyAtNanos > now) {
+                return null;
+            }
+            readyHeap.poll();
+            URI url = head.urls.poll();
+            size--;
+            head.bucket.consume(now);
+            if (head.urls.isEmpty()) {
+                head.inHeap = false;
+            } else {
+                head.readyAtNanos = head.bucket.nextAvailableNanos(now);
+                readyHeap.add(head);
+            }
+            return url;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String hostOf(URI url) {
+        String host = url.getHost();
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class HostQueue {
+        private final Queue<URI> urls = new ArrayDeque<>();
+        private final TokenBucket bucket;
+        private long readyAtNanos;
+        private boolean inHeap;
+
+        private HostQueue(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package yashasvig.crawler.work.frontier;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link UrlScorer} which gives every url the weight of the first pattern found in it, or 0 if there's none.
+ *
+ * <p>Negative weights push urls such as deep pagination or calendars to the back of the crawl.</p>
+ */
+public final class PatternWeightScorer implements UrlScorer {
+
+    private final Pattern[] patterns;
+    private final double[] weights;
+
+    /**
+     * @param weights the weight of every regular expression, tried in the iteration order of the map
+     */
+    public PatternWeightScorer(Map<String, Double> weights) {
+        this.patterns = new Pattern[weights.size()];
+        this.weights = new double[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Double> weight : weights.entrySet()) {
+            patterns[i] = Pattern.compile(weight.getKey());
+            this.weights[i++] = weight.getValue();
+        }
+    }
+
+    @Override
+    public double score(URI url, int depth, int inLinks) {
+        String text = url.toString();
+        for (int i = 0; i < weights.length; i++) {
+            if (patterns[i].matcher(text).find()) {
+                return weights[i];
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,113 @@
+package yashasvig.crawler.work.frontier;
+
+import java.net.URI;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Frontier} which hands out the most valuable url first, as decided by a {@link UrlScorer}.
+ *
+ * <p>Urls with the same score go by their depth and then by the order they were discovered in. A url which gets
+ * {@link #linked(URI) linked} again while waiting is scored again, so scorers looking at the in-links see the links
+ * found so far and not only the first one.</p>
+ *
+ * <p>Like the other frontiers, a url added twice is handed out twice. Only the latest of the two gets the links.</p>
+ */
+public final class PriorityFrontier implements Frontier {
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator.<Entry>comparingDouble(entry -> -entry.score)
+            .thenComparingInt(entry -> entry.depth)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final UrlScorer scorer;
+    private final Map<URI, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> queue = new TreeSet<>(BEST_FIRST);
+    private long sequence;
+
+    public PriorityFrontier(UrlScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    @Override
+    public void add(URI url) {
+        add(url, 0);
+    }
+
+    @Override
+    public void add(URI url, int depth) {
+        lock.lock();
+        try {
+            Entry entry = new Entry(url, depth, sequence++);
+            entry.score = scorer.score(url, depth, entry.inLinks);
+            entries.put(url, entry);
+            queue.add(entry);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void linked(URI url) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(url);
+            if (entry == null) {
+                return;
+            }
+            // The position in the tree depends on the score, so it has to be taken out while the score changes.
+            queue.remove(entry);
+            entry.inLinks++;
+            entry.score = scorer.score(url, entry.depth, entry.inLinks);
+            queue.add(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public URI take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            Entry best = queue.pollFirst();
+            entries.remove(best.url, best);
+            return best.url;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        private final URI url;
+        private final int depth;
+        private final long sequence;
+        private int inLinks = 1;
+        private double score;
+
+        private Entry(URI url, int depth, long sequence) {
+            this.url = url;
+            this.depth = depth;
+            this.sequence = sequence;
+        }
+    }
+}
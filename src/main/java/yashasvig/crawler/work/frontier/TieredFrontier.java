@@ -0,0 +1,201 @@
+package yashasvig.crawler.work.frontier;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A FIFO {@link Frontier} for crawls which discover more urls than fit in the heap.
+ *
+ * <p>Only a bounded head of the queue is kept in memory, as UTF-8 encoded urls rather than {@link URI} objects. Once
+ * the head is full, new urls are appended to segment files on disk, which are written and read back sequentially in
+ * the order they were created. The head is refilled from the oldest segment when it runs empty, and a segment is
+ * deleted as soon as it has been read, so the disk only holds the urls still waiting to be crawled.</p>
+ *
+ * <p>Urls are handed out in exactly the order they were added, whether they went through the disk or not.</p>
+ */
+public final class TieredFrontier implements Frontier {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Path directory;
+    private final int maxInMemoryUrls;
+    private final int segmentUrls;
+    private final Queue<byte[]> head = new ArrayDeque<>();
+    private final Queue<Path> segments = new ArrayDeque<>();
+    private DataOutputStream tail;
+    private Path tailFile;
+    private int tailUrls;
+    private int nextSegmentId;
+    private int spilledUrls;
+    private int size;
+
+    /**
+     * @param directory       an existing directory in which the segment files would be created
+     * @param maxInMemoryUrls max no of urls kept in memory. Every segment file holds half as many.
+     */
+    public TieredFrontier(Path directory, int maxInMemoryUrls) {
+        if (maxInMemoryUrls <= 0) {
+            throw new IllegalArgumentException("maxInMemoryUrls should be positive");
+        }
+        this.directory = directory;
+        this.maxInMemoryUrls = maxInMemoryUrls;
+        this.segmentUrls = Math.max(1, maxInMemoryUrls / 2);
+    }
+
+    @Override
+    public void add(URI url) {
+        byte[] encoded = url.toString().getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (spilledUrls == 0 && head.size() < maxInMemoryUrls) {
+                head.add(encoded);
+            } else {
+                spill(encoded);
+            }
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public URI take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            if (head.isEmpty()) {
+                refill();
+            }
+            size--;
+            return URI.create(new String(head.poll(), StandardCharsets.UTF_8));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the no of urls currently waiting on disk.
+     */
+    @VisibleForTesting
+    int spilledUrls() {
+        lock.lock();
+        try {
+            return spilledUrls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segment files. Any url still waiting in them is lost.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closeTail();
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+            }
+            segments.clear();
+            head.clear();
+            spilledUrls = 0;
+            size = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spill(byte[] encoded) {
+        try {
+            if (tail == null) {
+                tailFile = directory.resolve(String.format("frontier-%06d.seg", nextSegmentId++));
+                tail = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tailFile), BUFFER_BYTES));
+            }
+            tail.writeInt(encoded.length);
+            tail.write(encoded);
+            spilledUrls++;
+            if (++tailUrls == segmentUrls) {
+                closeTail();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the segment being written and queues it for reading.
+     */
+    private void closeTail() throws IOException {
+        if (tail != null) {
+            tail.close();
+            segments.add(tailFile);
+            tail = null;
+            tailFile = null;
+            tailUrls = 0;
+        }
+    }
+
+    /**
+     * Moves the oldest segment into the empty head. The segment being written is closed first if it's the only one.
+     */
+    private void refill() {
+        try {
+            if (segments.isEmpty()) {
+                closeTail();
+            }
+            Path segment = segments.remove();
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(segment), BUFFER_BYTES))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    byte[] encoded = new byte[length];
+                    in.readFully(encoded);
+                    head.add(encoded);
+                }
+            }
+            Files.delete(segment);
+            spilledUrls -= head.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
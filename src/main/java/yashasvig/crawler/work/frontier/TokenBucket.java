@@ -0,0 +1,54 @@
+package yashasvig.crawler.work.frontier;
+
+/**
+ * A classic token bucket used to rate limit the requests to a single host.
+ *
+ * <p>The bucket holds up to {@code burst} tokens and gets refilled at {@code permitsPerSecond}. Each request
+ * consumes one token. Time is passed in explicitly by the caller so that a whole set of buckets can be driven by
+ * the same clock. This class is not thread safe.</p>
+ */
+final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double burst;
+    private final double nanosPerToken;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond should be positive");
+        }
+        this.burst = burst;
+        this.nanosPerToken = NANOS_PER_SECOND / permitsPerSecond;
+        this.tokens = burst;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Returns the earliest time at which a token would be available.
+     */
+    long nextAvailableNanos(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            return nowNanos;
+        }
+        return nowNanos + (long) Math.ceil((1 - tokens) * nanosPerToken);
+    }
+
+    /**
+     * Consumes a token. Callers should make sure one is available through {@link #nextAvailableNanos(long)}.
+     */
+    void consume(long nowNanos) {
+        refill(nowNanos);
+        tokens -= 1;
+    }
+
+    private void refill(long nowNanos) {
+        if (nowNanos > lastRefillNanos) {
+            tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) / nanosPerToken);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package yashasvig.crawler.work.frontier;
+
+import java.net.URI;
+
+/**
+ * Decides how valuable a url is to the {@link PriorityFrontier}. Urls with a higher score are crawled first.
+ *
+ * <p>Implementations must be thread safe and cheap, the score is computed while the frontier is locked.</p>
+ */
+@FunctionalInterface
+public interface UrlScorer {
+
+    /**
+     * Prefers the urls closest to the seed, which makes the crawl breadth first.
+     */
+    UrlScorer DEPTH = (url, depth, inLinks) -> -depth;
+
+    /**
+     * Prefers the urls linked from the most pages crawled so far.
+     */
+    UrlScorer IN_LINKS = (url, depth, inLinks) -> inLinks;
+
+    /**
+     * @param url     the url to be crawled
+     * @param depth   the no of links between the seed and {@code url}
+     * @param inLinks the no of links to {@code url} found so far, at least 1
+     */
+    double score(URI url, int depth, int inLinks);
+}
@@ -0,0 +1,42 @@
+package yashasvig.crawler.work.journal;
+
+import java.net.URI;
+
+/**
+ * Records the progress of a crawl so that it can be resumed after a crash instead of starting over.
+ *
+ * <p>The calls of a crawl are expected in this order: {@link #recover(URI)}, then {@link #start(URI)} if there was
+ * nothing to recover, then any no of events and finally {@link #finish()}.</p>
+ */
+public interface CrawlJournal {
+
+    /**
+     * Returns the state of an unfinished crawl of {@code seed}, or null if there's none to resume.
+     */
+    CrawlState recover(URI seed);
+
+    /**
+     * Marks the beginning of a new crawl of {@code seed}, dropping anything recorded for a previous one.
+     */
+    void start(URI seed);
+
+    /**
+     * {@code url} has been seen for the first time and added to the visited urls.
+     */
+    void discovered(String url);
+
+    /**
+     * {@code url} has been queued for crawling.
+     */
+    void scheduled(String url);
+
+    /**
+     * The crawling of {@code url} has finished, successfully or not.
+     */
+    void completed(String url);
+
+    /**
+     * Called once the whole crawl has finished. There's nothing left to resume after this.
+     */
+    void finish();
+}
@@ -0,0 +1,109 @@
+package yashasvig.crawler.work.journal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The state of a crawl as rebuilt from its journal: the urls visited so far and the ones still waiting to be
+ * crawled.
+ */
+public final class CrawlState {
+
+    static final byte STARTED = 1;
+    static final byte DISCOVERED = 2;
+    static final byte SCHEDULED = 3;
+    static final byte COMPLETED = 4;
+
+    private String seed;
+    private final Set<String> visitedUrls = new LinkedHashSet<>();
+    private final Set<String> pendingUrls = new LinkedHashSet<>();
+
+    /**
+     * Returns the url the crawl started from, or null if the journal doesn't say.
+     */
+    public String getSeed() {
+        return seed;
+    }
+
+    public Set<String> getVisitedUrls() {
+        return Collections.unmodifiableSet(visitedUrls);
+    }
+
+    /**
+     * Returns the urls which have been scheduled but not completed, in the order they were scheduled.
+     */
+    public Set<String> getPendingUrls() {
+        return Collections.unmodifiableSet(pendingUrls);
+    }
+
+    void apply(byte type, String url) throws IOException {
+        switch (type) {
+            case STARTED -> {
+                seed = url;
+                visitedUrls.clear();
+                pendingUrls.clear();
+            }
+            case DISCOVERED -> visitedUrls.add(url);
+            case SCHEDULED -> pendingUrls.add(url);
+            case COMPLETED -> pendingUrls.remove(url);
+            default -> throw new IOException("Unknown journal record " + type);
+        }
+    }
+
+    /**
+     * Writes this state as the records which would rebuild it.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        if (seed != null) {
+            writeRecord(out, STARTED, seed);
+        }
+        for (String url : visitedUrls) {
+            writeRecord(out, DISCOVERED, url);
+        }
+        for (String url : pendingUrls) {
+            writeRecord(out, SCHEDULED, url);
+        }
+    }
+
+    /**
+     * Applies the records of {@code in} until its end, and returns the no of bytes they take up. A record cut short
+     * by a crash marks the end, and so does a zero type, which is what a file extended by the filesystem but never
+     * written to reads as.
+     */
+    long readFrom(DataInputStream in) throws IOException {
+        long bytesRead = 0;
+        while (true) {
+            int type = in.read();
+            if (type <= 0) {
+                return bytesRead;
+            }
+            int length;
+            byte[] url;
+            try {
+                length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Corrupted journal record");
+                }
+                url = new byte[length];
+                in.readFully(url);
+            } catch (EOFException e) {
+                return bytesRead;
+            }
+            apply((byte) type, new String(url, StandardCharsets.UTF_8));
+            bytesRead += 1 + Integer.BYTES + length;
+        }
+    }
+
+    static void writeRecord(DataOutputStream out, byte type, String url) throws IOException {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(type);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,372 @@
+package yashasvig.crawler.work.journal;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A {@link CrawlJournal} kept as append-only files in a directory.
+ *
+ * <p>Events are appended to an in-memory batch and never wait for the disk. A single writer thread takes the whole
+ * batch, writes it to the current segment file and forces it to the disk, so a single {@code fsync} covers all the
+ * events which came in while the previous one was running. Since the events are written in the order they happen, a
+ * crash can only lose the most recent ones: a page whose completion survived always has its children recorded.</p>
+ *
+ * <p>Once a segment grows past its limit, a new one is started and a background thread folds the old segments into
+ * a snapshot which only holds the current state, i.e. the visited urls and the pending ones. Recovery reads the
+ * latest snapshot and replays the segments written after it.</p>
+ */
+public final class FileCrawlJournal implements CrawlJournal {
+
+    private static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    /**
+     * A batch this big is written right away instead of waiting for the next flush.
+     */
+    private static final int EAGER_FLUSH_BYTES = 1 << 20;
+    /**
+     * Producers wait for the writer once this much is waiting to be written, so a slow disk can't fill the heap.
+     */
+    private static final int MAX_PENDING_BYTES = 8 << 20;
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "crawl-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private Batch pending = new Batch();
+    private Batch writing = new Batch();
+    private boolean closed;
+    private Thread writer;
+
+    // Only used by the writer thread once it's started.
+    private FileChannel segment;
+    private int segmentId;
+    private long segmentSize;
+
+    public FileCrawlJournal(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    @VisibleForTesting
+    FileCrawlJournal(Path directory, long segmentBytes) {
+        this.segmentBytes = segmentBytes;
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CrawlState recover(URI seed) {
+        int snapshotId = latestId(SNAPSHOT);
+        CrawlState state = new CrawlState();
+        try {
+            if (snapshotId > 0) {
+                read(snapshotFile(snapshotId), state);
+            }
+            for (int id : ids(SEGMENT)) {
+                if (id > snapshotId) {
+                    truncateTail(segmentFile(id), read(segmentFile(id), state));
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Ignoring the unreadable journal in %s", directory), e);
+            return null;
+        }
+        if (!seed.toString().equals(state.getSeed()) || state.getPendingUrls().isEmpty()) {
+            return null;
+        }
+        // Never append to a segment which might end with a torn record.
+        openWriter(Math.max(snapshotId, latestId(SEGMENT)) + 1);
+        return state;
+    }
+
+    @Override
+    public void start(URI seed) {
+        deleteAll();
+        openWriter(1);
+        append(CrawlState.STARTED, seed.toString());
+    }
+
+    @Override
+    public void discovered(String url) {
+        append(CrawlState.DISCOVERED, url);
+    }
+
+    @Override
+    public void scheduled(String url) {
+        append(CrawlState.SCHEDULED, url);
+    }
+
+    @Override
+    public void completed(String url) {
+        append(CrawlState.COMPLETED, url);
+    }
+
+    /**
+     * Writes what's left and deletes the journal since there's nothing to resume anymore.
+     */
+    @Override
+    public void finish() {
+        close();
+        deleteAll();
+    }
+
+    /**
+     * Writes what's left and stops, keeping the journal on disk so that the crawl can be resumed later.
+     */
+    public void close() {
+        Thread writerThread;
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+            writerThread = writer;
+        }
+        try {
+            if (writerThread != null) {
+                writerThread.join();
+            }
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(byte type, String url) {
+        synchronized (lock) {
+            while (pending.size() >= MAX_PENDING_BYTES && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (closed || writer == null) {
+                return;
+            }
+            try {
+                CrawlState.writeRecord(pending.data, type, url);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (pending.size() >= EAGER_FLUSH_BYTES) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void openWriter(int firstSegmentId) {
+        try {
+            openSegment(firstSegmentId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (lock) {
+            writer = new Thread(this::writeLoop, "crawl-journal-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Batch batch;
+                boolean stopping;
+                synchronized (lock) {
+                    if (pending.size() == 0 && !closed) {
+                        lock.wait(FLUSH_INTERVAL_MILLIS);
+                    }
+                    batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    stopping = closed;
+                    lock.notifyAll();
+                }
+                if (batch.size() > 0) {
+                    write(batch);
+                }
+                if (stopping) {
+                    segment.close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, String.format("Couldn't write to the journal in %s, it's disabled from now on",
+                    directory), e);
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Batch batch) throws IOException {
+        ByteBuffer buffer = batch.asByteBuffer();
+        while (buffer.hasRemaining()) {
+            segmentSize += segment.write(buffer);
+        }
+        segment.force(false);
+        batch.reset();
+        if (segmentSize >= segmentBytes) {
+            segment.close();
+            int sealed = segmentId;
+            openSegment(sealed + 1);
+            compactor.execute(() -> compact(sealed));
+        }
+    }
+
+    private void openSegment(int id) throws IOException {
+        segmentId = id;
+        segmentSize = 0;
+        segment = FileChannel.open(segmentFile(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Folds the latest snapshot and all the segments up to {@code lastSegmentId} into a new snapshot, then deletes
+     * them.
+     */
+    private void compact(int lastSegmentId) {
+        int snapshotId = latestId(SNAPSHOT);
+        CrawlState state = new CrawlState();
+        try {
+            if (snapshotId > 0) {
+                read(snapshotFile(snapshotId), state);
+            }
+            List<Integer> segments = ids(SEGMENT).stream()
+                    .filter(id -> id > snapshotId && id <= lastSegmentId)
+                    .toList();
+            for (int id : segments) {
+                read(segmentFile(id), state);
+            }
+            Path snapshot = snapshotFile(lastSegmentId);
+            Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                state.writeTo(out);
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            for (int id : segments) {
+                Files.deleteIfExists(segmentFile(id));
+            }
+            if (snapshotId > 0) {
+                Files.deleteIfExists(snapshotFile(snapshotId));
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Couldn't compact the journal in %s", directory), e);
+        }
+    }
+
+    /**
+     * Applies the records of {@code file} to {@code state} and returns the no of bytes they take up.
+     */
+    private static long read(Path file, CrawlState state) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return state.readFrom(in);
+        }
+    }
+
+    /**
+     * Cuts off whatever follows the last complete record of a segment, so that the torn or zero filled tail a crash
+     * left behind doesn't get in the way of the compaction.
+     */
+    private void truncateTail(Path file, long validBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > validBytes) {
+                logger.log(Level.WARNING, String.format("Dropping the last %d bytes of %s, left behind by a crash",
+                        channel.size() - validBytes, file));
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+    }
+
+    private void deleteAll() {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (SEGMENT.matcher(name).matches() || SNAPSHOT.matcher(name).matches() || name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Integer> ids(Pattern pattern) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Integer.parseInt(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int latestId(Pattern pattern) {
+        List<Integer> ids = ids(pattern);
+        return ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+    }
+
+    private Path segmentFile(int id) {
+        return directory.resolve(String.format("journal-%06d.log", id));
+    }
+
+    private Path snapshotFile(int id) {
+        return directory.resolve(String.format("snapshot-%06d.snap", id));
+    }
+
+    /**
+     * The events waiting to be written.
+     */
+    private static final class Batch extends ByteArrayOutputStream {
+        private final DataOutputStream data = new DataOutputStream(this);
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
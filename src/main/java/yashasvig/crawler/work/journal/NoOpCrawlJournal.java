@@ -0,0 +1,34 @@
+package yashasvig.crawler.work.journal;
+
+import java.net.URI;
+
+/**
+ * A {@link CrawlJournal} which doesn't record anything, so a crashed crawl starts from scratch.
+ */
+public final class NoOpCrawlJournal implements CrawlJournal {
+
+    @Override
+    public CrawlState recover(URI seed) {
+        return null;
+    }
+
+    @Override
+    public void start(URI seed) {
+    }
+
+    @Override
+    public void discovered(String url) {
+    }
+
+    @Override
+    public void scheduled(String url) {
+    }
+
+    @Override
+    public void completed(String url) {
+    }
+
+    @Override
+    public void finish() {
+    }
+}
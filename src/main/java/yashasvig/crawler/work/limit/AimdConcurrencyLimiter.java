@@ -0,0 +1,184 @@
+package yashasvig.crawler.work.limit;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ConcurrencyLimiter} which finds the limit on its own with additive increase, multiplicative decrease, the
+ * way TCP finds the size of its congestion window.
+ *
+ * <p>Every window of successful fetches, that is as many fetches as the current limit, grows the limit by one. A
+ * fetch which times out, gets refused or gets a 429 or 5xx status halves it instead. A smoothed latency growing past
+ * twice the baseline, which is a sign of requests queueing up at the server, cuts it by a tenth. The limit is cut at
+ * most once per window, since the fetches which were already in flight when the server got into trouble are likely
+ * to report the same trouble.</p>
+ *
+ * <p>The latency is the time to the response headers, and both its smoothed value and its baseline are kept per host,
+ * since a crawl mixes hosts which answer in a few milliseconds with ones which take a second. A shared baseline would
+ * sit at the fastest host and take every slower one for a server queueing requests. Only the
+ * {@value #MAX_HOSTS} most recently fetched hosts are kept, one starting over from scratch once it's dropped.</p>
+ *
+ * <p>The baseline of a host is the lowest latency seen from it so far. After every {@value #BASELINE_WINDOW} fetches
+ * from the host it moves a quarter of the way up to the lowest latency of that window, so it follows a server which
+ * got slower for good without drifting up as fast as the queueing it's meant to detect.</p>
+ */
+public final class AimdConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private static final double ERROR_BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2;
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final double BASELINE_SMOOTHING = 0.25;
+    private static final int BASELINE_WINDOW = 500;
+    private static final int MAX_HISTORY = 1000;
+    private static final int MAX_HOSTS = 10_000;
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    // Fair, so that the dispatchers of the sessions get the free slots in turns.
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition slotFreed = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final IntConsumer onLimitChanged;
+    private final Deque<LimitChange> history = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private int releasedSinceBackoff;
+    // In access order, so that the host fetched the longest time ago is dropped first.
+    private final Map<String, HostLatency> latencies = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HostLatency> eldest) {
+            return size() > MAX_HOSTS;
+        }
+    };
+
+    /**
+     * @param initialLimit   the limit until the first fetches are over
+     * @param minLimit       the limit never goes below this
+     * @param maxLimit       the limit never goes above this
+     * @param onLimitChanged called with the new limit whenever it changes, while no other fetch can be released
+     */
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, IntConsumer onLimitChanged) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(String.format("Invalid limits, min: %d, initial: %d, max: %d",
+                    minLimit, initialLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.onLimitChanged = onLimitChanged;
+        this.limit = initialLimit;
+        this.releasedSinceBackoff = initialLimit;
+        history.add(new LimitChange(Instant.now(), initialLimit));
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(String host, long latencyNanos, FetchOutcome outcome) {
+        lock.lock();
+        try {
+            inFlight--;
+            releasedSinceBackoff++;
+            int before = (int) limit;
+            double backoffRatio = switch (outcome) {
+                case OVERLOADED, TIMED_OUT -> ERROR_BACKOFF_RATIO;
+                case OK -> latencies.computeIfAbsent(host, ignored -> new HostLatency()).isQueueing(latencyNanos)
+                        ? LATENCY_BACKOFF_RATIO : 1;
+                case FAILED -> 1;
+            };
+            if (backoffRatio < 1) {
+                if (releasedSinceBackoff >= before) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    releasedSinceBackoff = 0;
+                }
+            } else if (outcome == FetchOutcome.OK) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            int after = (int) limit;
+            if (after != before) {
+                onChanged(after);
+            }
+            for (int free = after - inFlight; free > 0; free--) {
+                slotFreed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<LimitChange> getHistory() {
+        lock.lock();
+        try {
+            return List.copyOf(history);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onChanged(int newLimit) {
+        history.addLast(new LimitChange(Instant.now(), newLimit));
+        if (history.size() > MAX_HISTORY) {
+            history.removeFirst();
+        }
+        logger.log(Level.FINE, String.format("Fetch concurrency limit is now %d", newLimit));
+        onLimitChanged.accept(newLimit);
+    }
+
+    /**
+     * The latency averages of a single host.
+     */
+    private static final class HostLatency {
+        private double smoothedNanos = -1;
+        private double baselineNanos = Double.MAX_VALUE;
+        private long windowMinNanos = Long.MAX_VALUE;
+        private int windowSamples;
+
+        /**
+         * Feeds a successful fetch to the averages and returns true if the host seems to be queueing requests.
+         */
+        boolean isQueueing(long latencyNanos) {
+            smoothedNanos = smoothedNanos < 0 ? latencyNanos
+                    : smoothedNanos + LATENCY_SMOOTHING * (latencyNanos - smoothedNanos);
+            windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+            baselineNanos = Math.min(baselineNanos, latencyNanos);
+            if (++windowSamples == BASELINE_WINDOW) {
+                baselineNanos += BASELINE_SMOOTHING * (windowMinNanos - baselineNanos);
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            return smoothedNanos > LATENCY_TOLERANCE * baselineNanos;
+        }
+    }
+}
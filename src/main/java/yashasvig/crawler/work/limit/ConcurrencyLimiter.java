@@ -0,0 +1,43 @@
+package yashasvig.crawler.work.limit;
+
+import java.util.List;
+
+/**
+ * Caps the no of pages being fetched at the same time, across all the sessions of a
+ * {@link yashasvig.crawler.work.WorkCoordinator}.
+ *
+ * <p>Every fetch takes a slot with {@link #acquire()} before it's handed over to the worker pool, and gives it back
+ * with {@link #release(String, long, FetchOutcome)} once the worker is done with it. Implementations may use the
+ * latency and outcome of the fetches to change the limit at runtime. Implementations must be thread safe.</p>
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Waits until one more fetch is allowed.
+     *
+     * <p><b>This blocks the calling thread.</b></p>
+     */
+    void acquire() throws InterruptedException;
+
+    /**
+     * Gives back the slot of a fetch which has finished.
+     *
+     * @param host         the host the page was fetched from
+     * @param latencyNanos how long the server took to send the response headers, see
+     *                     {@link yashasvig.crawler.work.Fetcher.Result#getResponseNanos()}. Only meaningful for a
+     *                     fetch which went {@link FetchOutcome#OK}.
+     * @param outcome      how the fetch went
+     */
+    void release(String host, long latencyNanos, FetchOutcome outcome);
+
+    /**
+     * Returns the no of fetches allowed at the same time right now.
+     */
+    int getLimit();
+
+    /**
+     * Returns the past values of the limit, oldest first, starting with the initial one. Only the most recent changes
+     * are kept.
+     */
+    List<LimitChange> getHistory();
+}
@@ -0,0 +1,51 @@
+package yashasvig.crawler.work.limit;
+
+import org.jsoup.HttpStatusException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * How a fetch went, as far as the load on the server is concerned.
+ */
+public enum FetchOutcome {
+    /**
+     * The page was fetched.
+     */
+    OK,
+    /**
+     * The fetch failed for a reason which says nothing about the load on the server, like a missing page.
+     */
+    FAILED,
+    /**
+     * The server refused the connection or answered with 429 or a 5xx status.
+     */
+    OVERLOADED,
+    /**
+     * The server didn't answer in time.
+     */
+    TIMED_OUT;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    /**
+     * Returns the outcome of a fetch which failed with {@code error}.
+     */
+    public static FetchOutcome of(Throwable error) {
+        if (error instanceof SocketTimeoutException || error instanceof HttpTimeoutException
+                || error instanceof TimeoutException) {
+            return TIMED_OUT;
+        }
+        if (error instanceof ConnectException) {
+            return OVERLOADED;
+        }
+        if (error instanceof HttpStatusException statusException) {
+            int status = statusException.getStatusCode();
+            return status == TOO_MANY_REQUESTS || status >= SERVER_ERROR ? OVERLOADED : FAILED;
+        }
+        return FAILED;
+    }
+}
@@ -0,0 +1,40 @@
+package yashasvig.crawler.work.limit;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A {@link ConcurrencyLimiter} with a limit which never changes.
+ */
+public final class FixedConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private final Semaphore slots;
+    private final List<LimitChange> history;
+
+    public FixedConcurrencyLimiter(int limit) {
+        // Fair, so that the dispatchers of the sessions get the free slots in turns.
+        this.slots = new Semaphore(limit, true);
+        this.history = List.of(new LimitChange(Instant.now(), limit));
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        slots.acquire();
+    }
+
+    @Override
+    public void release(String host, long latencyNanos, FetchOutcome outcome) {
+        slots.release();
+    }
+
+    @Override
+    public int getLimit() {
+        return history.get(0).getLimit();
+    }
+
+    @Override
+    public List<LimitChange> getHistory() {
+        return history;
+    }
+}
@@ -0,0 +1,32 @@
+package yashasvig.crawler.work.limit;
+
+import java.time.Instant;
+
+/**
+ * A value taken by the limit of a {@link ConcurrencyLimiter}.
+ */
+public final class LimitChange {
+    private final Instant time;
+    private final int limit;
+
+    public LimitChange(Instant time, int limit) {
+        this.time = time;
+        this.limit = limit;
+    }
+
+    /**
+     * Returns when the limit took this value.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return limit + "@" + time;
+    }
+}
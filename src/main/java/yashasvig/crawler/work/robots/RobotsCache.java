@@ -0,0 +1,145 @@
+package yashasvig.crawler.work.robots;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches the robots.txt of every host once and keeps its compiled {@link RobotsRules} for a while.
+ *
+ * <p>Only the first lookup of a host waits for the fetch. Once the rules have expired, the next lookup starts fetching
+ * them again in the background and, like every lookup until the new rules are in, gets the expired ones without
+ * waiting. A host is never fetched twice at the same time, even if its rules expire before a slow fetch is over.</p>
+ *
+ * <p>Following RFC 9309, a host answering with a 4xx status has no rules, while one answering with a 5xx status or
+ * not answering at all is not crawled until the rules are fetched again. Only the first 500 KiB of a file are
+ * read.</p>
+ */
+public final class RobotsCache {
+
+    private static final int MAX_BYTES = 500 * 1024;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final HttpClient client;
+    private final String userAgent;
+    private final long ttlNanos;
+    private final Ticker ticker;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param userAgent the product token whose rules are followed, also sent when fetching the files
+     * @param ttl       how long the rules of a host are used before they are fetched again
+     */
+    public RobotsCache(String userAgent, Duration ttl) {
+        this(HttpClient.newBuilder()
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .connectTimeout(TIMEOUT)
+                        .build(),
+                userAgent, ttl, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    RobotsCache(HttpClient client, String userAgent, Duration ttl, Ticker ticker) {
+        this.client = client;
+        this.userAgent = userAgent;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns the rules for the host of {@code url}.
+     *
+     * <p><b>This blocks the calling thread</b> until the first fetch of the host is over. Refreshing expired rules
+     * never blocks.</p>
+     */
+    public RobotsRules rulesFor(URI url) {
+        String origin = url.getScheme().toLowerCase(Locale.ROOT) + "://" + url.getRawAuthority();
+        long now = ticker.read();
+        Entry entry = entries.get(origin);
+        if (entry == null || entry.isExpired(now)) {
+            entry = entries.compute(origin, (key, old) -> {
+                if (old != null && !old.isExpired(now)) {
+                    return old;
+                }
+                RobotsRules stale = old == null ? null : old.rules.getNow(old.stale);
+                return new Entry(fetch(key), stale, now + ttlNanos);
+            });
+        }
+        return entry.stale == null ? entry.rules.join() : entry.rules.getNow(entry.stale);
+    }
+
+    private CompletableFuture<RobotsRules> fetch(String origin) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(origin + "/robots.txt"))
+                .timeout(TIMEOUT)
+                .header("User-Agent", userAgent)
+                .GET()
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> rulesOf(origin, response))
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    logger.log(Level.WARNING, String.format("Couldn't fetch the robots.txt of %s: %s", origin, cause));
+                    return RobotsRules.DISALLOW_ALL;
+                });
+    }
+
+    private RobotsRules rulesOf(String origin, HttpResponse<InputStream> response) {
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status >= 500) {
+                logger.log(Level.WARNING, String.format("The robots.txt of %s answered with %d, not crawling it",
+                        origin, status));
+                return RobotsRules.DISALLOW_ALL;
+            }
+            if (status >= 400) {
+                return RobotsRules.ALLOW_ALL;
+            }
+            RobotsRules rules = RobotsRules.parse(new String(body.readNBytes(MAX_BYTES), StandardCharsets.UTF_8),
+                    userAgent);
+            logger.log(Level.INFO, String.format("Fetched the robots.txt of %s, crawl delay: %.1f s", origin,
+                    rules.getCrawlDelaySeconds()));
+            return rules;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<RobotsRules> rules;
+        // The previous rules of the host, handed out while the new ones are being fetched.
+        private final RobotsRules stale;
+        private final long expiresAtNanos;
+
+        private Entry(CompletableFuture<RobotsRules> rules, RobotsRules stale, long expiresAtNanos) {
+            this.rules = rules;
+            this.stale = stale;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        /**
+         * Returns true if the rules should be fetched again, which waits for the fetch in flight if there's one.
+         */
+        private boolean isExpired(long nowNanos) {
+            return nowNanos >= expiresAtNanos && rules.isDone();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package yashasvig.crawler.work.robots;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The rules of a robots.txt file which apply to our user agent, compiled for matching urls quickly.
+ *
+ * <p>As in RFC 9309, the longest rule matching the path of a url wins and an allow rule wins a tie. Plain rules sit
+ * in a trie of path characters, so checking a url against them is a single walk over its path however many rules
+ * there are. Rules with a {@code *} wildcard or a {@code $} end anchor are matched one by one, but only when they are
+ * longer than the best plain rule found, and sites rarely have more than a handful of them.</p>
+ */
+public final class RobotsRules {
+
+    /**
+     * The rules of a host without a robots.txt.
+     */
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(new Node(), List.of(), 0);
+
+    /**
+     * The rules of a host whose robots.txt couldn't be fetched because of a server or network error.
+     */
+    public static final RobotsRules DISALLOW_ALL;
+
+    static {
+        Node root = new Node();
+        root.verdict = Verdict.DISALLOW;
+        DISALLOW_ALL = new RobotsRules(root, List.of(), 0);
+    }
+
+    private final Node root;
+    private final List<PatternRule> patternRules;
+    private final double crawlDelaySeconds;
+
+    private RobotsRules(Node root, List<PatternRule> patternRules, double crawlDelaySeconds) {
+        this.root = root;
+        this.patternRules = patternRules;
+        this.crawlDelaySeconds = crawlDelaySeconds;
+    }
+
+    /**
+     * Compiles the rules of {@code robotsTxt} which apply to {@code userAgent}, that is the groups naming it or, if
+     * there are none, the groups for {@code *}. Lines which can't be understood are skipped.
+     *
+     * @param userAgent the product token of the crawler, matched case insensitively
+     */
+    public static RobotsRules parse(String robotsTxt, String userAgent) {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        List<String[]> ownRules = new ArrayList<>();
+        List<String[]> wildcardRules = new ArrayList<>();
+        double ownDelay = 0;
+        double wildcardDelay = 0;
+        boolean hasOwnGroup = false;
+        boolean inOwnGroup = false;
+        boolean inWildcardGroup = false;
+        boolean readingAgents = false;
+        for (String line : robotsTxt.split("\r\n|\r|\n")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (key.equals("user-agent")) {
+                if (!readingAgents) {
+                    inOwnGroup = false;
+                    inWildcardGroup = false;
+                    readingAgents = true;
+                }
+                String named = value.toLowerCase(Locale.ROOT);
+                inOwnGroup |= named.equals(agent);
+                hasOwnGroup |= inOwnGroup;
+                inWildcardGroup |= named.equals("*");
+                continue;
+            }
+            readingAgents = false;
+            if (key.equals("allow") || key.equals("disallow")) {
+                if (value.isEmpty()) {
+                    // An empty disallow allows everything, which is the default anyway.
+                    continue;
+                }
+                String[] rule = {key, value.startsWith("/") || value.startsWith("*") ? value : "/" + value};
+                if (inOwnGroup) {
+                    ownRules.add(rule);
+                }
+                if (inWildcardGroup) {
+                    wildcardRules.add(rule);
+                }
+            } else if (key.equals("crawl-delay")) {
+                double delay;
+                try {
+                    delay = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (inOwnGroup) {
+                    ownDelay = Math.max(ownDelay, delay);
+                }
+                if (inWildcardGroup) {
+                    wildcardDelay = Math.max(wildcardDelay, delay);
+                }
+            }
+        }
+        return compile(hasOwnGroup ? ownRules : wildcardRules, hasOwnGroup ? ownDelay : wildcardDelay);
+    }
+
+    private static RobotsRules compile(List<String[]> rules, double crawlDelaySeconds) {
+        Node root = new Node();
+        List<PatternRule> patternRules = new ArrayList<>();
+        for (String[] rule : rules) {
+            boolean allow = rule[0].equals("allow");
+            String path = rule[1];
+            if (path.indexOf('*') >= 0 || path.endsWith("$")) {
+                patternRules.add(new PatternRule(path, allow));
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.childOrNew(path.charAt(i));
+            }
+            node.verdict = allow || node.verdict == Verdict.ALLOW ? Verdict.ALLOW : Verdict.DISALLOW;
+        }
+        return new RobotsRules(root, List.copyOf(patternRules), crawlDelaySeconds);
+    }
+
+    /**
+     * Returns true if {@code url} may be crawled.
+     */
+    public boolean isAllowed(URI url) {
+        String path = url.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        return isAllowed(url.getRawQuery() == null ? path : path + "?" + url.getRawQuery());
+    }
+
+    /**
+     * Returns true if the url with {@code path}, its query included, may be crawled.
+     */
+    public boolean isAllowed(String path) {
+        int bestLength = -1;
+        boolean allowed = true;
+        Node node = root;
+        if (node.verdict != null) {
+            bestLength = 0;
+            allowed = node.verdict == Verdict.ALLOW;
+        }
+        for (int i = 0; i < path.length() && node != null; i++) {
+            node = node.child(path.charAt(i));
+            if (node != null && node.verdict != null) {
+                bestLength = i + 1;
+                allowed = node.verdict == Verdict.ALLOW;
+            }
+        }
+        for (PatternRule rule : patternRules) {
+            if ((rule.length > bestLength || rule.length == bestLength && rule.allow && !allowed)
+                    && rule.matches(path)) {
+                bestLength = rule.length;
+                allowed = rule.allow;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Returns the no of seconds the robots.txt asks us to wait between two requests, 0 if it doesn't say.
+     */
+    public double getCrawlDelaySeconds() {
+        return crawlDelaySeconds;
+    }
+
+    private enum Verdict {
+        ALLOW,
+        DISALLOW
+    }
+
+    /**
+     * A node of the trie of plain rules. The children are kept in a small array sorted by character, since most nodes
+     * have a single child.
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Verdict verdict;
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node childOrNew(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, keys.length - insertAt);
+            Node child = new Node();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /**
+     * A rule with {@code *} wildcards, each matching any run of characters, and maybe a {@code $} anchoring it to the
+     * end of the path.
+     */
+    private static final class PatternRule {
+        // The literal parts of the pattern, between the wildcards.
+        private final String[] parts;
+        private final boolean anchored;
+        private final boolean allow;
+        private final int length;
+
+        private PatternRule(String path, boolean allow) {
+            this.anchored = path.endsWith("$");
+            this.parts = (anchored ? path.substring(0, path.length() - 1) : path).split("\\*", -1);
+            this.allow = allow;
+            this.length = path.length();
+        }
+
+        /**
+         * Matches the pattern against the start of {@code path}, or the whole of it if anchored. Every literal part
+         * is searched for right after the previous one, and the leftmost occurrence is always the one to take, since
+         * it leaves the most room for the parts after it.
+         */
+        private boolean matches(String path) {
+            if (!path.startsWith(parts[0])) {
+                return false;
+            }
+            if (parts.length == 1) {
+                return !anchored || path.length() == parts[0].length();
+            }
+            int position = parts[0].length();
+            for (int i = 1; i < parts.length - 1; i++) {
+                int found = path.indexOf(parts[i], position);
+                if (found < 0) {
+                    return false;
+                }
+                position = found + parts[i].length();
+            }
+            String last = parts[parts.length - 1];
+            return anchored
+                    ? path.length() - last.length() >= position && path.endsWith(last)
+                    : path.indexOf(last, position) >= 0;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package yashasvig.crawler.work.seed;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Recognizes gzipped seed sources by their first bytes, since neither the name of a file nor the headers sent along
+ * with a sitemap can be trusted to tell.
+ */
+final class Decompression {
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+
+    private Decompression() {
+    }
+
+    /**
+     * Returns {@code in} itself or, if it's gzipped, a stream of its decompressed bytes.
+     */
+    static InputStream gunzipIfNeeded(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(2);
+        int magic = buffered.read() << 8 | buffered.read();
+        buffered.reset();
+        return magic == GZIP_MAGIC ? new GZIPInputStream(buffered, 64 * 1024) : buffered;
+    }
+}
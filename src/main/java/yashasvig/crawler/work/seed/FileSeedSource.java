@@ -0,0 +1,59 @@
+package yashasvig.crawler.work.seed;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link SeedSource} reading one url per line from a local file. Blank lines and lines starting with {@code #} are
+ * skipped.
+ */
+final class FileSeedSource implements SeedSource {
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final Path file;
+
+    FileSeedSource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void read(Consumer<URI> urls) throws IOException {
+        int invalid = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Decompression.gunzipIfNeeded(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                URI url;
+                try {
+                    url = new URI(line);
+                } catch (URISyntaxException e) {
+                    invalid++;
+                    continue;
+                }
+                urls.accept(url);
+            }
+        }
+        if (invalid > 0) {
+            logger.log(Level.INFO, String.format("Skipped %d invalid urls in %s", invalid, file));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
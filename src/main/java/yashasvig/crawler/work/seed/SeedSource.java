@@ -0,0 +1,42 @@
+package yashasvig.crawler.work.seed;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * A bulk list of urls to start crawling a site from, on top of its seed, so that the frontier fills up without waiting
+ * for the pages to be discovered one link at a time.
+ *
+ * <p>Sources are read as a stream and never held in memory as a whole.</p>
+ */
+public interface SeedSource {
+
+    /**
+     * Passes every url of this source to {@code urls}, in the order they are read. Entries which aren't valid urls are
+     * skipped.
+     *
+     * <p><b>This blocks the calling thread</b> until the whole source has been read.</p>
+     *
+     * @throws IOException if the source couldn't be read to its end. The urls read until then have been passed on.
+     */
+    void read(Consumer<URI> urls) throws IOException;
+
+    /**
+     * Returns the urls listed in the sitemap at {@code url}, or in all the sitemaps of a sitemap index. The files can
+     * be gzipped and {@code url} can point to a local file as well, but the sitemaps listed in an index can't.
+     *
+     * @param userAgent sent along with every request for a sitemap
+     */
+    static SeedSource sitemap(URI url, String userAgent) {
+        return new SitemapSeedSource(url, userAgent);
+    }
+
+    /**
+     * Returns the urls listed in a local file, one per line. The file can be gzipped.
+     */
+    static SeedSource file(Path file) {
+        return new FileSeedSource(file);
+    }
+}
@@ -0,0 +1,172 @@
+package yashasvig.crawler.work.seed;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link SeedSource} reading the {@code <loc>} of every url of a sitemap with a streaming parser, so a sitemap of any
+ * size takes the same little memory.
+ *
+ * <p>If the file turns out to be a sitemap index, the sitemaps it lists are read one after another. An index listing
+ * other indexes isn't followed any further, as the protocol doesn't allow it. A sitemap which can't be fetched is
+ * skipped, the others of the index are still read.</p>
+ *
+ * <p>DTDs and external entities are disabled, since the files come from the sites being crawled. For the same reason
+ * only the sitemap passed in can be a local file: the ones listed by an index have to be fetched over http(s) from the
+ * same origin as the index, or from any site if the index is a local file.</p>
+ */
+final class SitemapSeedSource implements SeedSource {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+
+    private final URI sitemap;
+    private final String userAgent;
+    private final HttpClient client;
+
+    SitemapSeedSource(URI sitemap, String userAgent) {
+        this.sitemap = sitemap;
+        this.userAgent = userAgent;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(TIMEOUT)
+                .build();
+    }
+
+    @Override
+    public void read(Consumer<URI> urls) throws IOException {
+        List<URI> nestedSitemaps = read(sitemap, urls);
+        for (URI nested : nestedSitemaps) {
+            if (!mayList(nested)) {
+                logger.log(Level.WARNING, String.format("Skipping the sitemap %s listed in %s, which isn't on its site",
+                        nested, sitemap));
+                continue;
+            }
+            try {
+                if (!read(nested, urls).isEmpty()) {
+                    logger.log(Level.WARNING, String.format("Not following the sitemap index %s nested in %s", nested,
+                            sitemap));
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, String.format("Skipping the sitemap %s: %s", nested, e));
+            }
+        }
+    }
+
+    /**
+     * Passes the urls of the sitemap at {@code url} to {@code urls} and returns the sitemaps it lists if it's an
+     * index.
+     */
+    private List<URI> read(URI url, Consumer<URI> urls) throws IOException {
+        List<URI> sitemaps = new ArrayList<>();
+        int invalid = 0;
+        try (InputStream in = Decompression.gunzipIfNeeded(open(url))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                boolean index = false;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String element = reader.getLocalName();
+                    if (element.equals("sitemapindex")) {
+                        index = true;
+                    } else if (element.equals("loc")) {
+                        URI loc;
+                        try {
+                            loc = new URI(reader.getElementText().trim());
+                        } catch (URISyntaxException e) {
+                            invalid++;
+                            continue;
+                        }
+                        if (index) {
+                            sitemaps.add(loc);
+                        } else {
+                            urls.accept(loc);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(String.format("%s isn't a valid sitemap", url), e);
+        }
+        if (invalid > 0) {
+            logger.log(Level.INFO, String.format("Skipped %d invalid urls in %s", invalid, url));
+        }
+        return sitemaps;
+    }
+
+    /**
+     * Returns true if {@code nested}, listed in the index, is an http(s) url on the same origin as the index. A local
+     * index, which the operator passed in, can list any site.
+     */
+    private boolean mayList(URI nested) {
+        if (!isHttp(nested) || nested.getHost() == null) {
+            return false;
+        }
+        return !isHttp(sitemap) || nested.getScheme().equalsIgnoreCase(sitemap.getScheme())
+                && nested.getHost().equalsIgnoreCase(sitemap.getHost()) && portOf(nested) == portOf(sitemap);
+    }
+
+    private static boolean isHttp(URI url) {
+        return "http".equalsIgnoreCase(url.getScheme()) || "https".equalsIgnoreCase(url.getScheme());
+    }
+
+    private static int portOf(URI url) {
+        return url.getPort() != -1 ? url.getPort() : "https".equalsIgnoreCase(url.getScheme()) ? 443 : 80;
+    }
+
+    private InputStream open(URI url) throws IOException {
+        if (url == sitemap && "file".equals(url.getScheme())) {
+            return Files.newInputStream(Path.of(url));
+        }
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(TIMEOUT)
+                .header("User-Agent", userAgent)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + url, e);
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException(String.format("%s answered with %d", url, response.statusCode()));
+        }
+        return response.body();
+    }
+
+    @Override
+    public String toString() {
+        return sitemap.toString();
+    }
+}
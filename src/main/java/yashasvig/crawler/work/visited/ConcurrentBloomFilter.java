@@ -0,0 +1,66 @@
+package yashasvig.crawler.work.visited;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, lock free Bloom filter over 64-bit fingerprints.
+ *
+ * <p>The k bit positions are derived from the fingerprint with double hashing, so no extra hashing
+ * of the url is needed. Bits are set with CAS, which makes {@link #put(long)} safe to call from multiple threads.</p>
+ */
+final class ConcurrentBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions no of fingerprints after which the false positive rate would reach {@code fpp}
+     * @param fpp                desired false positive rate at {@code expectedInsertions}
+     */
+    ConcurrentBloomFilter(long expectedInsertions, double fpp) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Returns false if the fingerprint has definitely never been added.
+     */
+    boolean mightContain(long fingerprint) {
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(fingerprint, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long fingerprint) {
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(fingerprint, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    long memoryBytes() {
+        return bitCount / 8;
+    }
+
+    /**
+     * Kirsch-Mitzenmacher double hashing, using the fingerprint and its rotation as the two base hashes.
+     */
+    private long bitIndex(long fingerprint, int i) {
+        return Math.floorMod(fingerprint + i * Long.rotateLeft(fingerprint, 32), bitCount);
+    }
+}
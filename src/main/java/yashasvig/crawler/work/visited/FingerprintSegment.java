@@ -0,0 +1,159 @@
+package yashasvig.crawler.work.visited;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * An immutable file of fingerprints sorted in ascending order, read through a memory mapped buffer.
+ *
+ * <p>The mapping lives outside the heap and its pages are cached by the OS, so lookups cost a binary search over
+ * memory without growing the heap no matter how big the file gets.</p>
+ */
+final class FingerprintSegment {
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private final Path file;
+    private final LongBuffer fingerprints;
+
+    private FingerprintSegment(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.fingerprints = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+    }
+
+    /**
+     * Writes {@code sortedFingerprints} to {@code file} and returns the segment backed by it.
+     */
+    static FingerprintSegment write(Path file, long[] sortedFingerprints) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.nativeOrder());
+            for (long fingerprint : sortedFingerprints) {
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(fingerprint);
+            }
+            drain(channel, buffer);
+            return new FingerprintSegment(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Merges {@code segments} into a single new segment at {@code file} in one sequential pass. The merged segments
+     * are left alone, so that they can still be searched until the caller swaps the new one in.
+     */
+    static FingerprintSegment merge(Path file, List<FingerprintSegment> segments) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.nativeOrder());
+            int[] positions = new int[segments.size()];
+            while (true) {
+                int next = -1;
+                long smallest = 0;
+                for (int i = 0; i < segments.size(); i++) {
+                    LongBuffer fingerprints = segments.get(i).fingerprints;
+                    if (positions[i] < fingerprints.limit()
+                            && (next == -1 || fingerprints.get(positions[i]) < smallest)) {
+                        next = i;
+                        smallest = fingerprints.get(positions[i]);
+                    }
+                }
+                if (next == -1) {
+                    break;
+                }
+                positions[next]++;
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(smallest);
+            }
+            drain(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return new FingerprintSegment(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return fingerprints.limit();
+    }
+
+    boolean contains(long fingerprint) {
+        return search(fingerprint, 0) >= 0;
+    }
+
+    /**
+     * Looks up all of {@code sortedProbes} in a single pass, narrowing the range of every binary search with the
+     * position of the previous probe.
+     *
+     * @param found set to true for every probe which is present in this segment
+     */
+    void containsAll(long[] sortedProbes, boolean[] found) {
+        int from = 0;
+        for (int i = 0; i < sortedProbes.length; i++) {
+            if (found[i]) {
+                continue;
+            }
+            int position = search(sortedProbes[i], from);
+            if (position >= 0) {
+                found[i] = true;
+                from = position;
+            } else {
+                from = -position - 1;
+            }
+        }
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Binary search in [from, size), returning the index of the fingerprint or (-(insertion point) - 1).
+     */
+    private int search(long fingerprint, int from) {
+        int low = from;
+        int high = fingerprints.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = fingerprints.get(mid);
+            if (value < fingerprint) {
+                low = mid + 1;
+            } else if (value > fingerprint) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
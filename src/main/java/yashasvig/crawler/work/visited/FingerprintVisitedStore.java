@@ -0,0 +1,126 @@
+package yashasvig.crawler.work.visited;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link VisitedStore} which keeps only a 64-bit fingerprint of every url.
+ *
+ * <p>The fingerprints live in primitive open addressing hash tables with linear probing. The key space is split into
+ * a fixed no of stripes, each guarded by its own lock and resized independently, so concurrent workers rarely
+ * contend with each other. This costs 8 bytes per slot, i.e. roughly 12 to 23 bytes per url depending on the load of
+ * the table, compared to 100+ bytes per url for {@link StringVisitedStore}.</p>
+ *
+ * <p>Two different urls sharing a fingerprint would make us skip one of them. With a 64-bit fingerprint, the chance
+ * of that happening even once is around n<sup>2</sup> / 2<sup>65</sup>, i.e. about 1 in 36 million for 1 million
+ * urls. See {@link #estimatedFalsePositiveProbability()}.</p>
+ */
+public final class FingerprintVisitedStore implements VisitedStore {
+
+    private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+    private static final int STRIPES = 64;
+    private static final int INITIAL_STRIPE_CAPACITY = 1024;
+    /**
+     * Replaces a fingerprint which happens to be {@link LongOpenHashSet#EMPTY}.
+     */
+    private static final long ZERO_REPLACEMENT = 0x9E3779B97F4A7C15L;
+
+    private final Stripe[] stripes;
+
+    public FingerprintVisitedStore() {
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public boolean markVisited(String url) {
+        return add(fingerprint(url));
+    }
+
+    /**
+     * Adds a raw fingerprint to the store.
+     *
+     * @return true if the fingerprint wasn't present before
+     */
+    boolean add(long fingerprint) {
+        fingerprint = nonZero(fingerprint);
+        // The top bits pick the stripe and the bottom ones pick the slot, so they stay independent.
+        return stripes[(int) (fingerprint >>> 58)].add(fingerprint);
+    }
+
+    /**
+     * Returns true if the fingerprint is present in the store.
+     */
+    boolean contains(long fingerprint) {
+        fingerprint = nonZero(fingerprint);
+        return stripes[(int) (fingerprint >>> 58)].contains(fingerprint);
+    }
+
+    /**
+     * Returns the 64-bit fingerprint of {@code url}, which is never {@link LongOpenHashSet#EMPTY}.
+     */
+    static long fingerprint(String url) {
+        return nonZero(FINGERPRINT.hashString(url, StandardCharsets.UTF_8).asLong());
+    }
+
+    private static long nonZero(long fingerprint) {
+        return fingerprint == LongOpenHashSet.EMPTY ? ZERO_REPLACEMENT : fingerprint;
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.memoryBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public double estimatedFalsePositiveProbability() {
+        return collisionProbability(size());
+    }
+
+    /**
+     * Birthday bound for at least one collision among {@code n} uniformly distributed 64-bit fingerprints.
+     */
+    @VisibleForTesting
+    static double collisionProbability(long n) {
+        double pairs = (double) n * (n - 1) / 2;
+        return -Math.expm1(-pairs / Math.pow(2, 64));
+    }
+
+    private static final class Stripe {
+        private final LongOpenHashSet fingerprints = new LongOpenHashSet(INITIAL_STRIPE_CAPACITY);
+
+        synchronized boolean add(long fingerprint) {
+            return fingerprints.add(fingerprint);
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            return fingerprints.contains(fingerprint);
+        }
+
+        synchronized int size() {
+            return fingerprints.size();
+        }
+
+        synchronized long memoryBytes() {
+            return fingerprints.memoryBytes();
+        }
+    }
+}
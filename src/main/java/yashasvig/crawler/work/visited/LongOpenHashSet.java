@@ -0,0 +1,105 @@
+package yashasvig.crawler.work.visited;
+
+import java.util.Arrays;
+
+/**
+ * A primitive set of non-zero longs backed by an open addressing table with linear probing.
+ *
+ * <p>Values are expected to be well distributed hashes already, so they're used as slot indices directly. This class
+ * is not thread safe.</p>
+ */
+final class LongOpenHashSet {
+
+    /**
+     * Marks an empty slot, so 0 can't be stored in this set.
+     */
+    static final long EMPTY = 0L;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private long[] slots;
+    private int size;
+
+    /**
+     * @param initialCapacity initial no of slots, must be a power of 2
+     */
+    LongOpenHashSet(int initialCapacity) {
+        slots = new long[initialCapacity];
+    }
+
+    /**
+     * @return true if the value wasn't present before
+     */
+    boolean add(long value) {
+        int mask = slots.length - 1;
+        int index = (int) value & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (++size > slots.length * MAX_LOAD_FACTOR) {
+            resize();
+        }
+        return true;
+    }
+
+    boolean contains(long value) {
+        int mask = slots.length - 1;
+        int index = (int) value & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long memoryBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    /**
+     * Returns all the values in ascending order.
+     */
+    long[] toSortedArray() {
+        long[] values = new long[size];
+        int i = 0;
+        for (long value : slots) {
+            if (value != EMPTY) {
+                values[i++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    /**
+     * Removes all the values while keeping the current capacity.
+     */
+    void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    private void resize() {
+        long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (long value : oldSlots) {
+            if (value != EMPTY) {
+                int index = (int) value & mask;
+                while (slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package yashasvig.crawler.work.visited;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link VisitedStore} which keeps the complete url string in a concurrent set.
+ *
+ * <p>It's exact but costs around 100 bytes per url once the string, the map node and the entry in the table are
+ * accounted for.</p>
+ */
+public final class StringVisitedStore implements VisitedStore {
+
+    /**
+     * Rough size of a {@link ConcurrentHashMap} node plus its slot in the table, on a 64-bit JVM with compressed oops.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 40;
+    /**
+     * Rough size of a {@link String} and its backing array, excluding the characters themselves.
+     */
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final Set<String> urls = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @Override
+    public boolean markVisited(String url) {
+        return urls.add(url);
+    }
+
+    @Override
+    public long size() {
+        return urls.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (String url : urls) {
+            bytes += ENTRY_OVERHEAD_BYTES + STRING_OVERHEAD_BYTES + url.length();
+        }
+        return bytes;
+    }
+}
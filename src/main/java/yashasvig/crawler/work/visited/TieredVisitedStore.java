@@ -0,0 +1,333 @@
+package yashasvig.crawler.work.visited;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link VisitedStore} for crawls bigger than the heap, which keeps url fingerprints on disk.
+ *
+ * <p>Lookups go through the following tiers:</p>
+ * <ul>
+ *     <li>A {@link ConcurrentBloomFilter} which answers "definitely new" for most of the new urls without any I/O.</li>
+ *     <li>A small in-memory buffer of the fingerprints added recently.</li>
+ *     <li>Immutable files of sorted fingerprints ({@link FingerprintSegment}), read through memory mapping. The buffer
+ *     is flushed into a new file when it fills up.</li>
+ * </ul>
+ *
+ * <p>Files are merged size-tiered: once the {@value #MERGE_FACTOR} newest files are of a similar size, they're merged
+ * into one, which may in turn complete a tier of bigger files. Every fingerprint is thus rewritten a logarithmic no of
+ * times instead of on every merge, and a lookup searches a few files per tier. A merge reads immutable files only, so
+ * it runs without the lock of its stripe, which is taken again just to swap the merged file in.</p>
+ *
+ * <p>The Bloom filter is sized up front and the buffers are bounded, so the heap used by this store stays flat while
+ * the crawl grows. The key space is split into stripes with their own buffer, files and lock.</p>
+ */
+public final class TieredVisitedStore implements VisitedStore {
+
+    private static final int STRIPES = 16;
+    private static final int DEFAULT_BUFFER_LIMIT = 1 << 14;
+    private static final int MERGE_FACTOR = 4;
+    /**
+     * Files whose sizes are within this ratio of each other belong to the same tier.
+     */
+    private static final int SIMILAR_SIZE_RATIO = 2;
+    private static final double BLOOM_FILTER_FPP = 0.01;
+
+    private final Path directory;
+    private final ConcurrentBloomFilter bloomFilter;
+    private final Stripe[] stripes;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * @param directory    an existing directory in which the fingerprint files would be created
+     * @param expectedUrls no of urls this store is sized for. Going beyond it doesn't break anything but the Bloom
+     *                     filter starts letting more lookups through to the disk.
+     */
+    public TieredVisitedStore(Path directory, long expectedUrls) {
+        this(directory, expectedUrls, DEFAULT_BUFFER_LIMIT);
+    }
+
+    @VisibleForTesting
+    TieredVisitedStore(Path directory, long expectedUrls, int bufferLimit) {
+        this.directory = directory;
+        this.bloomFilter = new ConcurrentBloomFilter(expectedUrls, BLOOM_FILTER_FPP);
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(i, bufferLimit);
+        }
+    }
+
+    @Override
+    public boolean markVisited(String url) {
+        long fingerprint = FingerprintVisitedStore.fingerprint(url);
+        return stripeOf(fingerprint).markAllAndMerge(new long[]{fingerprint})[0];
+    }
+
+    /**
+     * Looks up the whole batch stripe by stripe, so that the fingerprints which need to be confirmed against the disk
+     * are searched for in a single sorted pass over every file.
+     */
+    @Override
+    public boolean[] markAllVisited(List<String> urls) {
+        boolean[] result = new boolean[urls.size()];
+        long[] fingerprints = new long[urls.size()];
+        int[] countPerStripe = new int[STRIPES];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = FingerprintVisitedStore.fingerprint(urls.get(i));
+            countPerStripe[stripeIndex(fingerprints[i])]++;
+        }
+        for (int s = 0; s < STRIPES; s++) {
+            if (countPerStripe[s] == 0) {
+                continue;
+            }
+            long[] batch = new long[countPerStripe[s]];
+            int[] positions = new int[countPerStripe[s]];
+            int next = 0;
+            for (int i = 0; i < fingerprints.length; i++) {
+                if (stripeIndex(fingerprints[i]) == s) {
+                    batch[next] = fingerprints[i];
+                    positions[next++] = i;
+                }
+            }
+            boolean[] added = stripes[s].markAllAndMerge(batch);
+            for (int i = 0; i < batch.length; i++) {
+                result[positions[i]] = added[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = bloomFilter.memoryBytes();
+        for (Stripe stripe : stripes) {
+            bytes += stripe.memoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the no of bytes stored on disk.
+     */
+    public long diskBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.diskBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public double estimatedFalsePositiveProbability() {
+        return FingerprintVisitedStore.collisionProbability(size());
+    }
+
+    /**
+     * Deletes all the fingerprint files.
+     */
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            stripe.close();
+        }
+    }
+
+    private Stripe stripeOf(long fingerprint) {
+        return stripes[stripeIndex(fingerprint)];
+    }
+
+    private static int stripeIndex(long fingerprint) {
+        return (int) (fingerprint >>> 60);
+    }
+
+    private final class Stripe {
+        private final int id;
+        private final int bufferLimit;
+        private final LongOpenHashSet buffer;
+        // Oldest first, which is biggest first as well since a merged file takes the place of the ones it replaced.
+        private final List<FingerprintSegment> segments = new ArrayList<>();
+        private int nextSegmentId;
+        private boolean merging;
+
+        private Stripe(int id, int bufferLimit) {
+            this.id = id;
+            this.bufferLimit = bufferLimit;
+            this.buffer = new LongOpenHashSet(Integer.highestOneBit(bufferLimit) * 4);
+        }
+
+        /**
+         * Marks {@code fingerprints} and then runs the merges the new files called for, without holding the lock.
+         *
+         * @return for every fingerprint, true if it wasn't present before
+         */
+        boolean[] markAllAndMerge(long[] fingerprints) {
+            boolean[] added = markAll(fingerprints);
+            Merge merge;
+            while ((merge = claimMerge()) != null) {
+                FingerprintSegment merged;
+                try {
+                    merged = FingerprintSegment.merge(merge.file, merge.segments);
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        merging = false;
+                    }
+                    throw e;
+                }
+                swapIn(merge, merged);
+            }
+            return added;
+        }
+
+        private synchronized boolean[] markAll(long[] fingerprints) {
+            boolean[] added = new boolean[fingerprints.length];
+            long[] maybePresent = new long[fingerprints.length];
+            int maybeCount = 0;
+            for (int i = 0; i < fingerprints.length; i++) {
+                long fingerprint = fingerprints[i];
+                if (buffer.contains(fingerprint)) {
+                    continue;
+                }
+                if (!bloomFilter.mightContain(fingerprint)) {
+                    add(fingerprint);
+                    added[i] = true;
+                } else {
+                    maybePresent[maybeCount++] = fingerprint;
+                }
+            }
+
+            if (maybeCount > 0) {
+                long[] probes = Arrays.copyOf(maybePresent, maybeCount);
+                Arrays.sort(probes);
+                boolean[] found = new boolean[maybeCount];
+                for (FingerprintSegment segment : segments) {
+                    segment.containsAll(probes, found);
+                }
+                for (int i = 0; i < fingerprints.length; i++) {
+                    if (added[i] || buffer.contains(fingerprints[i])) {
+                        continue;
+                    }
+                    int probe = Arrays.binarySearch(probes, fingerprints[i]);
+                    if (probe >= 0 && !found[probe]) {
+                        add(fingerprints[i]);
+                        added[i] = true;
+                    }
+                }
+            }
+
+            if (buffer.size() >= bufferLimit) {
+                flush();
+            }
+            return added;
+        }
+
+        synchronized long memoryBytes() {
+            return buffer.memoryBytes();
+        }
+
+        synchronized long diskBytes() {
+            long bytes = 0;
+            for (FingerprintSegment segment : segments) {
+                bytes += (long) segment.size() * Long.BYTES;
+            }
+            return bytes;
+        }
+
+        synchronized void close() {
+            segments.forEach(FingerprintSegment::delete);
+            segments.clear();
+            buffer.clear();
+        }
+
+        private void add(long fingerprint) {
+            buffer.add(fingerprint);
+            bloomFilter.put(fingerprint);
+            size.incrementAndGet();
+        }
+
+        private void flush() {
+            segments.add(FingerprintSegment.write(nextFile(), buffer.toSortedArray()));
+            buffer.clear();
+        }
+
+        /**
+         * Returns the newest files if there are {@link #MERGE_FACTOR} of them of a similar size and no other merge
+         * is running in this stripe, or null otherwise.
+         */
+        private synchronized Merge claimMerge() {
+            if (merging || segments.size() < MERGE_FACTOR) {
+                return null;
+            }
+            List<FingerprintSegment> newest = segments.subList(segments.size() - MERGE_FACTOR, segments.size());
+            int smallest = Integer.MAX_VALUE;
+            int biggest = 0;
+            for (FingerprintSegment segment : newest) {
+                smallest = Math.min(smallest, segment.size());
+                biggest = Math.max(biggest, segment.size());
+            }
+            if (biggest > (long) smallest * SIMILAR_SIZE_RATIO) {
+                return null;
+            }
+            merging = true;
+            return new Merge(nextFile(), List.copyOf(newest));
+        }
+
+        /**
+         * Replaces the files of {@code merge} with {@code merged}. The files flushed while the merge was running are
+         * newer, so they stay after it.
+         */
+        private void swapIn(Merge merge, FingerprintSegment merged) {
+            boolean swapped;
+            synchronized (this) {
+                merging = false;
+                int first = segments.indexOf(merge.segments.get(0));
+                // The stripe was closed while merging.
+                swapped = first >= 0;
+                if (swapped) {
+                    segments.subList(first, first + merge.segments.size()).clear();
+                    segments.add(first, merged);
+                }
+            }
+            if (swapped) {
+                merge.segments.forEach(FingerprintSegment::delete);
+            } else {
+                merged.delete();
+            }
+        }
+
+        private Path nextFile() {
+            Path file = directory.resolve(String.format("visited-%02d-%06d.fp", id, nextSegmentId++));
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return file;
+        }
+    }
+
+    /**
+     * The files a merge has claimed and the file it writes them to.
+     */
+    private static final class Merge {
+        private final Path file;
+        private final List<FingerprintSegment> segments;
+
+        private Merge(Path file, List<FingerprintSegment> segments) {
+            this.file = file;
+            this.segments = segments;
+        }
+    }
+}
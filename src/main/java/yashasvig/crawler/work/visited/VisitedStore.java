@@ -0,0 +1,56 @@
+package yashasvig.crawler.work.visited;
+
+import java.util.List;
+
+/**
+ * Remembers the urls which have already been scheduled for crawling so that we crawl a page only once.
+ *
+ * <p>Implementations must be thread safe.</p>
+ */
+public interface VisitedStore {
+
+    /**
+     * Marks {@code url} as visited.
+     *
+     * @return true if the url hadn't been visited before
+     */
+    boolean markVisited(String url);
+
+    /**
+     * Marks a whole batch of urls as visited, which lets the implementations amortize the cost of the lookups.
+     *
+     * @return for every url in {@code urls}, true if it hadn't been visited before. If the same url is present
+     * multiple times in the batch, only its first occurrence is reported as new.
+     */
+    default boolean[] markAllVisited(List<String> urls) {
+        boolean[] result = new boolean[urls.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = markVisited(urls.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the no of urls marked as visited.
+     */
+    long size();
+
+    /**
+     * Returns an estimate of the heap used by this store, in bytes.
+     */
+    long memoryBytes();
+
+    /**
+     * Returns the probability that at least one url has been wrongly reported as already visited, worked out from the
+     * no of urls rather than measured. This is 0 for the stores keeping the complete url.
+     */
+    default double estimatedFalsePositiveProbability() {
+        return 0;
+    }
+
+    /**
+     * Releases any resources held by this store. The store can't be used after this.
+     */
+    default void close() {
+    }
+}
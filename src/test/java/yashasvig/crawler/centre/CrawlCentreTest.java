@@ -2,17 +2,26 @@ package yashasvig.crawler.centre;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
 import yashasvig.crawler.models.Page;
 import yashasvig.crawler.postprocessing.PostProcessor;
+import yashasvig.crawler.work.CrawlSession;
 import yashasvig.crawler.work.WorkCallback;
 import yashasvig.crawler.work.WorkCoordinator;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -37,11 +46,19 @@ class CrawlCentreTest {
 
     private final PostProcessor processor = mock(PostProcessor.class);
     private final WorkCoordinator workCoordinator = mock(WorkCoordinator.class);
+    private final CrawlSession session = mock(CrawlSession.class);
 
     private final CrawlCentre crawlCentre = new CrawlCentre(
             () -> ImmutableSet.of(processor),
             workCoordinator,
-            MoreExecutors.newDirectExecutorService());
+            MoreExecutors.newDirectExecutorService(),
+            new CrawlMetrics(),
+            CrawlConfig.defaults());
+
+    @BeforeEach
+    void setUp() {
+        when(workCoordinator.newSession(VALID_SCHEME_URI)).thenReturn(session);
+    }
 
     @Test
     void start_schemeNotSupported_throws() {
@@ -49,24 +66,43 @@ class CrawlCentreTest {
     }
 
     @Test
-    void start_addsWorkCallback() {
-        crawlCentre.start(VALID_SCHEME_URI);
+    void start_startsSessionWithWorkCallback() {
+        assertSame(session, crawlCentre.start(VALID_SCHEME_URI));
 
-        verify(workCoordinator).setCallback(any());
+        verify(session).start(any());
     }
 
     @Test
     void start_callsWorkCoordinatorAPI() {
         crawlCentre.start(VALID_SCHEME_URI);
 
-        verify(workCoordinator).crawlDomain(VALID_SCHEME_URI);
+        verify(workCoordinator).newSession(VALID_SCHEME_URI);
+    }
+
+    @Test
+    void start_twoSites_givesEachSessionItsOwnProcessors() {
+        URI otherSite = URI.create("https://example.com");
+        when(workCoordinator.newSession(otherSite)).thenReturn(mock(CrawlSession.class));
+        List<PostProcessor> created = new ArrayList<>();
+        CrawlCentre centre = new CrawlCentre(() -> {
+            PostProcessor newProcessor = mock(PostProcessor.class);
+            created.add(newProcessor);
+            return ImmutableSet.of(newProcessor);
+        }, workCoordinator, MoreExecutors.newDirectExecutorService(), new CrawlMetrics(), CrawlConfig.defaults());
+
+        centre.start(VALID_SCHEME_URI);
+        centre.start(otherSite);
+
+        assertEquals(2, created.size());
+        verify(created.get(0)).onCrawlingStarted(VALID_SCHEME_URI);
+        verify(created.get(1)).onCrawlingStarted(otherSite);
     }
 
     @Test
     void start_invalidUri_doesNotCallWorkCoordinatorAPI() {
         assertThrows(IllegalArgumentException.class, () -> crawlCentre.start(INVALID_SCHEME_URI));
 
-        verify(workCoordinator, never()).crawlDomain(any());
+        verify(workCoordinator, never()).newSession(any());
     }
 
     @Test
@@ -81,7 +117,7 @@ class CrawlCentreTest {
         ArgumentCaptor<WorkCallback> workCallbackCaptor = ArgumentCaptor.forClass(WorkCallback.class);
         crawlCentre.start(VALID_SCHEME_URI);
 
-        verify(workCoordinator).setCallback(workCallbackCaptor.capture());
+        verify(session).start(workCallbackCaptor.capture());
 
         WorkCallback workCallback = workCallbackCaptor.getValue();
         workCallback.onFinishedPageSuccessfully(SAMPLE_PAGE);
@@ -94,7 +130,7 @@ class CrawlCentreTest {
         ArgumentCaptor<WorkCallback> workCallbackCaptor = ArgumentCaptor.forClass(WorkCallback.class);
         crawlCentre.start(VALID_SCHEME_URI);
 
-        verify(workCoordinator).setCallback(workCallbackCaptor.capture());
+        verify(session).start(workCallbackCaptor.capture());
 
         WorkCallback workCallback = workCallbackCaptor.getValue();
         workCallback.onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
@@ -102,12 +138,33 @@ class CrawlCentreTest {
         verify(processor).onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
     }
 
+    @Test
+    void ringBuffer_forwardsAllEventsInOrder() {
+        CrawlCentre ringBufferCentre = new CrawlCentre(() -> ImmutableSet.of(processor), workCoordinator,
+                MoreExecutors.newDirectExecutorService(), new CrawlMetrics(),
+                CrawlConfig.builder().setPostProcessingMode(CrawlConfig.PostProcessingMode.RING_BUFFER).build());
+        ArgumentCaptor<WorkCallback> workCallbackCaptor = ArgumentCaptor.forClass(WorkCallback.class);
+        ringBufferCentre.start(VALID_SCHEME_URI);
+
+        verify(session).start(workCallbackCaptor.capture());
+        WorkCallback workCallback = workCallbackCaptor.getValue();
+        workCallback.onFinishedPageSuccessfully(SAMPLE_PAGE);
+        workCallback.onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
+        workCallback.onFinishedCrawling();
+
+        InOrder inOrder = inOrder(processor);
+        inOrder.verify(processor, timeout(5000)).onCrawlingStarted(VALID_SCHEME_URI);
+        inOrder.verify(processor, timeout(5000)).onFinishedPageSuccessfully(SAMPLE_PAGE);
+        inOrder.verify(processor, timeout(5000)).onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
+        inOrder.verify(processor, timeout(5000)).onFinishedCrawling(any());
+    }
+
     @Test
     void callback_forwardsOnFinishedCrawling() {
         ArgumentCaptor<WorkCallback> workCallbackCaptor = ArgumentCaptor.forClass(WorkCallback.class);
         crawlCentre.start(VALID_SCHEME_URI);
 
-        verify(workCoordinator).setCallback(workCallbackCaptor.capture());
+        verify(session).start(workCallbackCaptor.capture());
 
         WorkCallback workCallback = workCallbackCaptor.getValue();
         workCallback.onFinishedCrawling();
@@ -0,0 +1,193 @@
+package yashasvig.crawler.centre.bus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.models.UrlDictionary;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostProcessingBusTest {
+
+    private static final URI BASE_URI = URI.create("https://monzo.com");
+    private static final int PRODUCERS = 4;
+    private static final int PAGES_PER_PRODUCER = 5_000;
+
+    @ParameterizedTest
+    @EnumSource(CrawlConfig.BusWaitStrategy.class)
+    void everyProcessor_receivesEveryEventOfEveryProducer(CrawlConfig.BusWaitStrategy waitStrategy)
+            throws InterruptedException {
+        RecordingProcessor first = new RecordingProcessor("first");
+        RecordingProcessor second = new RecordingProcessor("second");
+        PostProcessingBus bus = new PostProcessingBus(List.of(first, second), 64, waitStrategy);
+
+        bus.publishCrawlingStarted(BASE_URI);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.add(Thread.startVirtualThread(() -> {
+                for (int i = 0; i < PAGES_PER_PRODUCER; i++) {
+                    bus.publishFinishedPage(page(producer + "/" + i));
+                }
+            }));
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        bus.publishError(BASE_URI + "/missing", "404");
+        bus.publishFinishedCrawling(Duration.ofSeconds(1));
+        bus.awaitTermination();
+
+        for (RecordingProcessor processor : List.of(first, second)) {
+            List<String> events = processor.events;
+            assertEquals(PRODUCERS * PAGES_PER_PRODUCER + 3, events.size());
+            assertEquals("started " + BASE_URI, events.get(0));
+            assertEquals("error " + BASE_URI + "/missing", events.get(events.size() - 2));
+            assertEquals("finished", events.get(events.size() - 1));
+            // The pages of a single producer come in the order they were published.
+            for (int p = 0; p < PRODUCERS; p++) {
+                String prefix = "page " + BASE_URI + "/" + p + "/";
+                List<String> pages = events.stream().filter(event -> event.startsWith(prefix)).toList();
+                for (int i = 0; i < PAGES_PER_PRODUCER; i++) {
+                    assertEquals(prefix + i, pages.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void slowProcessor_doesNotHoldBackOthers_untilBufferIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingProcessor fast = new RecordingProcessor("fast");
+        RecordingProcessor slow = new RecordingProcessor("slow") {
+            @Override
+            public void onFinishedPageSuccessfully(Page page) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onFinishedPageSuccessfully(page);
+            }
+        };
+        PostProcessingBus bus = new PostProcessingBus(List.of(fast, slow), 16, CrawlConfig.BusWaitStrategy.BLOCKING);
+        AtomicInteger published = new AtomicInteger();
+        Thread producer = Thread.startVirtualThread(() -> {
+            for (int i = 0; i < 100; i++) {
+                bus.publishFinishedPage(page(String.valueOf(i)));
+                published.incrementAndGet();
+            }
+            bus.publishFinishedCrawling(Duration.ZERO);
+        });
+
+        // The fast processor gets a whole buffer ahead of the slow one, then the producer has to wait.
+        assertTrue(fast.received.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(16, published.get());
+        assertEquals(16, fast.pages.get());
+        assertEquals(0, slow.pages.get());
+
+        release.countDown();
+        producer.join();
+        bus.awaitTermination();
+        assertEquals(100, fast.pages.get());
+        assertEquals(100, slow.pages.get());
+    }
+
+    @Test
+    void failingProcessor_keepsReceivingEvents() throws InterruptedException {
+        RecordingProcessor failing = new RecordingProcessor("failing") {
+            @Override
+            public void onFinishedPageSuccessfully(Page page) {
+                super.onFinishedPageSuccessfully(page);
+                throw new IllegalStateException("boom");
+            }
+        };
+        PostProcessingBus bus = new PostProcessingBus(List.of(failing), 8, CrawlConfig.BusWaitStrategy.SLEEPING);
+
+        for (int i = 0; i < 20; i++) {
+            bus.publishFinishedPage(page(String.valueOf(i)));
+        }
+        bus.publishFinishedCrawling(Duration.ZERO);
+        bus.awaitTermination();
+
+        assertEquals(20, failing.pages.get());
+        assertEquals("finished", failing.events.get(failing.events.size() - 1));
+    }
+
+    @Test
+    void finishedPage_releasedOnceEveryProcessorHasIt() throws InterruptedException {
+        UrlDictionary dictionary = new UrlDictionary();
+        PostProcessingBus bus = new PostProcessingBus(
+                List.of(new RecordingProcessor("first"), new RecordingProcessor("second")), 64,
+                CrawlConfig.BusWaitStrategy.BLOCKING);
+
+        for (int i = 0; i < 100; i++) {
+            bus.publishFinishedPage(new Page(URI.create(BASE_URI + "/" + i),
+                    dictionary.internAll(List.of(URI.create(BASE_URI + "/legal"))), dictionary));
+        }
+        bus.publishFinishedCrawling(Duration.ofSeconds(1));
+        bus.awaitTermination();
+
+        assertEquals(0, dictionary.size());
+        assertEquals(0, bus.pagesHeld());
+    }
+
+    private static Page page(String path) {
+        return new Page(URI.create(BASE_URI + "/" + path), new HashSet<>());
+    }
+
+    /**
+     * Records the events it receives. Only ever called from its own consumer thread.
+     */
+    private static class RecordingProcessor implements PostProcessor {
+        private final String name;
+        private final List<String> events = new ArrayList<>();
+        private final AtomicInteger pages = new AtomicInteger();
+        private final CountDownLatch received = new CountDownLatch(16);
+
+        private RecordingProcessor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onCrawlingStarted(URI url) {
+            events.add("started " + url);
+        }
+
+        @Override
+        public void onFinishedPageSuccessfully(Page page) {
+            events.add("page " + page.getUrl());
+            pages.incrementAndGet();
+            received.countDown();
+        }
+
+        @Override
+        public void onError(String url, String errorMessage) {
+            events.add("error " + url);
+        }
+
+        @Override
+        public void onFinishedCrawling(Duration timeTaken) {
+            events.add("finished");
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
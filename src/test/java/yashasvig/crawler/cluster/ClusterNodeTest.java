@@ -0,0 +1,170 @@
+package yashasvig.crawler.cluster;
+
+import com.google.common.net.HostAndPort;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.work.CrawlSession;
+import yashasvig.crawler.work.JsoupFetcher;
+import yashasvig.crawler.work.WorkCallback;
+import yashasvig.crawler.work.WorkCoordinator;
+import yashasvig.crawler.work.cache.NoOpValidatorCache;
+import yashasvig.crawler.work.di.ConfiguredSessionStateFactory;
+import yashasvig.crawler.work.limit.FixedConcurrencyLimiter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several nodes in this process, each with its own coordinator and worker pool, talking to each other over
+ * sockets on the loopback interface as separate processes would.
+ */
+class ClusterNodeTest {
+
+    private static final int PAGES = 400;
+    private static final int LATENCY_MILLIS = 5;
+    private static final int THREADS_PER_NODE = 2;
+
+    private HttpServer server;
+    private URI seed;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::serve);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        seed = URI.create("http://localhost:" + server.getAddress().getPort() + "/page/0");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void crawl_threeNodes_splitThePagesWithoutOverlap() throws Exception {
+        List<Set<String>> pages = crawl(3);
+
+        Set<String> all = new HashSet<>();
+        int total = 0;
+        for (Set<String> nodePages : pages) {
+            assertFalse(nodePages.isEmpty());
+            all.addAll(nodePages);
+            total += nodePages.size();
+        }
+        assertEquals(PAGES, all.size());
+        assertEquals(PAGES, total);
+    }
+
+    /**
+     * Crawls the site with {@code nodes} nodes and returns the pages crawled by every node.
+     */
+    private List<Set<String>> crawl(int nodes) throws Exception {
+        List<ServerSocket> sockets = new ArrayList<>();
+        List<HostAndPort> addresses = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            sockets.add(socket);
+            addresses.add(HostAndPort.fromParts(socket.getInetAddress().getHostAddress(), socket.getLocalPort()));
+        }
+
+        List<Set<String>> pages = new ArrayList<>();
+        List<ThreadPoolExecutor> pools = new ArrayList<>();
+        List<CountDownLatch> finished = new ArrayList<>();
+        AtomicInteger crawled = new AtomicInteger();
+        for (int i = 0; i < nodes; i++) {
+            CrawlConfig.Builder builder = CrawlConfig.builder().setWorkerThreads(THREADS_PER_NODE);
+            addresses.forEach(builder::addClusterNode);
+            CrawlConfig config = builder.setClusterNodeIndex(i).build();
+            ClusterNode clusterNode = new ClusterNode(sockets.get(i), addresses, i);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS_PER_NODE, THREADS_PER_NODE, 2L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            WorkCoordinator coordinator = new WorkCoordinator(pool,
+                    new JsoupFetcher(Jsoup.newSession().ignoreContentType(true).timeout(5000)),
+                    new NoOpValidatorCache(), new ConfiguredSessionStateFactory(config, () -> clusterNode),
+                    new FixedConcurrencyLimiter(THREADS_PER_NODE), new CrawlMetrics(), config);
+
+            Set<String> nodePages = ConcurrentHashMap.newKeySet();
+            CountDownLatch nodeFinished = new CountDownLatch(1);
+            CrawlSession session = coordinator.newSession(seed);
+            session.start(new WorkCallback() {
+                @Override
+                public void onFinishedPageSuccessfully(Page page) {
+                    nodePages.add(page.getUrl().toString());
+                    crawled.incrementAndGet();
+                }
+
+                @Override
+                public void onError(String url, String errorMessage) {
+                }
+
+                @Override
+                public void onFinishedCrawling() {
+                    nodeFinished.countDown();
+                }
+            });
+            pages.add(nodePages);
+            pools.add(pool);
+            finished.add(nodeFinished);
+        }
+
+        for (CountDownLatch nodeFinished : finished) {
+            assertTrue(nodeFinished.await(30, TimeUnit.SECONDS));
+        }
+        pools.forEach(ThreadPoolExecutor::shutdown);
+        assertEquals(PAGES, crawled.get());
+        return pages;
+    }
+
+    /**
+     * Serves a tree shaped site where page i links to pages 2i+1, 2i+2 and back to the root.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int id = Integer.parseInt(exchange.getRequestURI().getPath().substring("/page/".length()));
+        StringBuilder body = new StringBuilder("<html><body><a href=\"/page/0\">home</a>");
+        for (int child = 2 * id + 1; child <= 2 * id + 2 && child < PAGES; child++) {
+            body.append("<a href=\"/page/").append(child).append("\">").append(child).append("</a>");
+        }
+        body.append("</body></html>");
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,57 @@
+package yashasvig.crawler.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void ownerOf_manyKeys_spreadEvenly() {
+        int nodes = 4;
+        ConsistentHashRing ring = new ConsistentHashRing(nodes);
+
+        int[] owned = new int[nodes];
+        for (int i = 0; i < KEYS; i++) {
+            owned[ring.ownerOf("https://monzo.com/page/" + i)]++;
+        }
+
+        for (int count : owned) {
+            assertTrue(Math.abs(count - KEYS / nodes) < KEYS / nodes * 0.2, "Uneven share: " + count);
+        }
+    }
+
+    @Test
+    void ownerOf_nodeAdded_onlyMovesKeysToTheNewNode() {
+        ConsistentHashRing three = new ConsistentHashRing(3);
+        ConsistentHashRing four = new ConsistentHashRing(4);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "https://monzo.com/page/" + i;
+            int before = three.ownerOf(key);
+            int after = four.ownerOf(key);
+            if (before != after) {
+                assertEquals(3, after);
+                moved++;
+            }
+        }
+
+        // A fourth of the keys should move, a plain modulo would move three fourths.
+        assertTrue(moved < KEYS * 0.35, "Moved " + moved);
+    }
+
+    @Test
+    void ownerOf_sameKey_sameOwnerOnEveryRing() {
+        assertEquals(new ConsistentHashRing(5).ownerOf("monzo.com"), new ConsistentHashRing(5).ownerOf("monzo.com"));
+    }
+
+    @Test
+    void constructor_noNodes_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0));
+    }
+}
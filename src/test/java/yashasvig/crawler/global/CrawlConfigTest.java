@@ -0,0 +1,63 @@
+package yashasvig.crawler.global;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlConfigTest {
+
+    private final List<String> properties = new ArrayList<>();
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @AfterEach
+    void tearDown() {
+        properties.forEach(System::clearProperty);
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    void fromSystemProperties_propertiesNamedAfterSetters_areApplied() {
+        set("defaultHostRequestsPerSecond", "2.5");
+        set("visitedStoreMode", "FINGERPRINTS");
+        set("linkExtractionMode", "STREAMING");
+        set("fetcherMode", "HTTP_CLIENT");
+        set("validatorCacheFile", "validators.bin");
+        set("postProcessingMode", "RING_BUFFER");
+        set("outputGzipped", "true");
+
+        CrawlConfig config = CrawlConfig.fromSystemProperties();
+
+        assertEquals(2.5, config.getDefaultHostRequestsPerSecond());
+        assertEquals(CrawlConfig.VisitedStoreMode.FINGERPRINTS, config.getVisitedStoreMode());
+        assertEquals(CrawlConfig.LinkExtractionMode.STREAMING, config.getLinkExtractionMode());
+        assertEquals(CrawlConfig.FetcherMode.HTTP_CLIENT, config.getFetcherMode());
+        assertEquals(Path.of("validators.bin"), config.getValidatorCacheFile());
+        assertEquals(CrawlConfig.PostProcessingMode.RING_BUFFER, config.getPostProcessingMode());
+        assertTrue(config.isOutputGzipped());
+    }
+
+    @Test
+    void fromSystemProperties_lowerCaseEnumUnderTurkishLocale_isParsed() {
+        // Upper casing "i" with the Turkish rules gives a dotted capital I, which no enum constant has.
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        set("visitedStoreMode", "fingerprints");
+        set("linkExtractionMode", "streaming");
+
+        CrawlConfig config = CrawlConfig.fromSystemProperties();
+
+        assertEquals(CrawlConfig.VisitedStoreMode.FINGERPRINTS, config.getVisitedStoreMode());
+        assertEquals(CrawlConfig.LinkExtractionMode.STREAMING, config.getLinkExtractionMode());
+    }
+
+    private void set(String name, String value) {
+        properties.add("crawler." + name);
+        System.setProperty("crawler." + name, value);
+    }
+}
@@ -0,0 +1,53 @@
+package yashasvig.crawler.harness;
+
+import dagger.BindsInstance;
+import dagger.Component;
+import dagger.Module;
+import dagger.Provides;
+import dagger.multibindings.ElementsIntoSet;
+import yashasvig.crawler.api.Crawler;
+import yashasvig.crawler.centre.di.CentreModule;
+import yashasvig.crawler.centre.di.qualifiers.PostProcessingPool;
+import yashasvig.crawler.cluster.di.ClusterModule;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.postprocessing.PostProcessor;
+import yashasvig.crawler.work.di.WorkModule;
+import yashasvig.crawler.work.di.qualifier.WorkerPool;
+
+import javax.inject.Singleton;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The object graph of the crawler as the application builds it, without the printers, so that a run of the harness
+ * doesn't write any file or flood the console. The metrics are handed in, so that the nodes of a cluster running in
+ * the harness all record into the same ones.
+ */
+@Singleton
+@Component(modules = {WorkModule.class, CentreModule.class, ClusterModule.class,
+        HarnessComponent.NoPostProcessorsModule.class})
+interface HarnessComponent {
+
+    Crawler crawler();
+
+    @WorkerPool
+    ExecutorService workerPool();
+
+    @PostProcessingPool
+    ExecutorService postProcessingPool();
+
+    @Component.Factory
+    interface Factory {
+        HarnessComponent create(@BindsInstance CrawlConfig config, @BindsInstance CrawlMetrics metrics);
+    }
+
+    @Module
+    class NoPostProcessorsModule {
+        @Provides
+        @ElementsIntoSet
+        static Set<PostProcessor> provideNoPostProcessors() {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package yashasvig.crawler.harness;
+
+import com.google.common.net.HostAndPort;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.work.CrawlSession;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crawls a {@link SyntheticSite} end to end through {@link yashasvig.crawler.api.Crawler}, wired the same way as in
+ * the application, and measures the throughput, the page latency, the peak heap and the peak no of threads.
+ *
+ * <p>Runs from the command line with {@code gradle loadHarness}, taking the site from the {@code harness.*} system
+ * properties and the crawler from the usual {@code crawler.*} ones, and writes its result as json to
+ * {@code build/reports/load}. {@code harness.nodes} spreads the crawl over a cluster of that many nodes in the same
+ * process.</p>
+ */
+public final class LoadHarness {
+
+    static final Path REPORTS = Path.of("build", "reports", "load");
+
+    private static final long SAMPLING_MILLIS = 20;
+
+    private LoadHarness() {
+    }
+
+    /**
+     * Crawls {@code site} from its seed until the crawl is over.
+     */
+    static LoadResult run(SyntheticSite site, CrawlConfig config) throws Exception {
+        return run(site, config, 1);
+    }
+
+    /**
+     * Crawls {@code site} from its seed with a cluster of {@code nodes} nodes running in this process, each with its
+     * own object graph and talking to the others over the loopback interface, until the crawl is over on every node.
+     * A single node crawls without a cluster.
+     */
+    static LoadResult run(SyntheticSite site, CrawlConfig config, int nodes) throws Exception {
+        CrawlMetrics metrics = new CrawlMetrics();
+        List<HarnessComponent> components = new ArrayList<>();
+        if (nodes > 1) {
+            List<HostAndPort> addresses = freeLoopbackAddresses(nodes);
+            for (int i = 0; i < nodes; i++) {
+                CrawlConfig.Builder node = config.toBuilder().setClusterNodeIndex(i);
+                addresses.forEach(node::addClusterNode);
+                components.add(DaggerHarnessComponent.factory().create(node.build(), metrics));
+            }
+        } else {
+            components.add(DaggerHarnessComponent.factory().create(config, metrics));
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-harness-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threads.resetPeakThreadCount();
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, SAMPLING_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            long start = System.nanoTime();
+            List<CrawlSession> sessions = new ArrayList<>();
+            for (HarnessComponent component : components) {
+                sessions.add(component.crawler().crawl(site.getSeed().toString()));
+            }
+            for (CrawlSession session : sessions) {
+                session.awaitFinished();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new LoadResult(site, config, nodes, seconds, metrics, peakHeap.get(), threads.getPeakThreadCount());
+        } finally {
+            sampler.shutdownNow();
+            for (HarnessComponent component : components) {
+                component.workerPool().shutdown();
+                component.postProcessingPool().shutdown();
+            }
+        }
+    }
+
+    /**
+     * Writes {@code result} to a new file in {@link #REPORTS}, named after the current time.
+     */
+    static Path write(LoadResult result) throws IOException {
+        Files.createDirectories(REPORTS);
+        Path file = REPORTS.resolve("load-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern(
+                "yyyyMMdd-HHmmss-SSS")) + ".json");
+        Files.writeString(file, result.toJson());
+        return file;
+    }
+
+    /**
+     * Finds {@code count} ports which are free on the loopback interface. They're closed again before the nodes bind
+     * them, which is good enough for a harness.
+     */
+    private static List<HostAndPort> freeLoopbackAddresses(int count) throws IOException {
+        List<HostAndPort> addresses = new ArrayList<>();
+        List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+                sockets.add(socket);
+                addresses.add(HostAndPort.fromParts(socket.getInetAddress().getHostAddress(), socket.getLocalPort()));
+            }
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+        return addresses;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SyntheticSite.Builder builder = SyntheticSite.builder();
+        String pages = System.getProperty("harness.pages");
+        if (pages != null) {
+            builder.setPages(Integer.parseInt(pages));
+        }
+        String fanOut = System.getProperty("harness.fanOut");
+        if (fanOut != null) {
+            builder.setFanOut(Integer.parseInt(fanOut));
+        }
+        String pageBytes = System.getProperty("harness.pageBytes");
+        if (pageBytes != null) {
+            builder.setPageBytes(Integer.parseInt(pageBytes));
+        }
+        String nonHtmlRatio = System.getProperty("harness.nonHtmlRatio");
+        if (nonHtmlRatio != null) {
+            builder.setNonHtmlRatio(Double.parseDouble(nonHtmlRatio));
+        }
+        String medianLatency = System.getProperty("harness.medianLatencyMillis");
+        if (medianLatency != null) {
+            Duration median = Duration.ofMillis(Long.parseLong(medianLatency));
+            builder.setLatency(median, Duration.ofMillis(
+                    Long.parseLong(System.getProperty("harness.p99LatencyMillis", medianLatency))));
+        }
+        String errorRate = System.getProperty("harness.errorRate");
+        if (errorRate != null) {
+            builder.setErrorRate(Double.parseDouble(errorRate));
+        }
+        int nodes = Integer.parseInt(System.getProperty("harness.nodes", "1"));
+        LoadResult result;
+        try (SyntheticSite site = builder.start()) {
+            result = run(site, CrawlConfig.fromSystemProperties(), nodes);
+        }
+        Path file = write(result);
+        System.out.print(result.toJson());
+        System.out.printf("Pages/sec -> %.1f, written to %s%n", result.getPagesPerSecond(), file);
+        System.exit(0);
+    }
+}
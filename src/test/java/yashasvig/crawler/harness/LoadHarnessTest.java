@@ -0,0 +1,58 @@
+package yashasvig.crawler.harness;
+
+import org.junit.jupiter.api.Test;
+import yashasvig.crawler.global.CrawlConfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadHarnessTest {
+
+    @Test
+    void run_errorFreeSite_crawlsEveryPage() throws Exception {
+        LoadResult result;
+        try (SyntheticSite site = SyntheticSite.builder().setPages(300).setFanOut(8).setNonHtmlRatio(0.25)
+                .setLatency(Duration.ofMillis(2), Duration.ofMillis(10)).start()) {
+            result = LoadHarness.run(site, CrawlConfig.builder().setFetchMode(CrawlConfig.FetchMode.SINGLE_GET)
+                    .build());
+        }
+        Path file = LoadHarness.write(result);
+
+        // The documents count as crawled pages too, 2 per page.
+        assertEquals(300 * 3, result.getPagesCrawled());
+        String json = Files.readString(file);
+        for (String key : new String[]{"\"pagesPerSecond\"", "\"pageLatencyP50Millis\"", "\"pageLatencyP99Millis\"",
+                "\"peakHeapBytes\"", "\"peakThreads\"", "\"GET\""}) {
+            assertTrue(json.contains(key), key + " is missing from " + json);
+        }
+    }
+
+    @Test
+    void run_failingRequests_reportsThemAsFailedPages() throws Exception {
+        LoadResult result;
+        long serverErrors;
+        try (SyntheticSite site = SyntheticSite.builder().setPages(200).setErrorRate(0.1).setNonHtmlRatio(0)
+                .start()) {
+            result = LoadHarness.run(site, CrawlConfig.defaults());
+            serverErrors = site.getErrors();
+        }
+
+        assertTrue(serverErrors > 0);
+        assertTrue(result.toJson().contains("\"serverErrors\": " + serverErrors), result.toJson());
+    }
+
+    @Test
+    void run_twoNodes_crawlsEveryPageOnce() throws Exception {
+        LoadResult result;
+        try (SyntheticSite site = SyntheticSite.builder().setPages(200).setNonHtmlRatio(0).start()) {
+            result = LoadHarness.run(site, CrawlConfig.defaults(), 2);
+        }
+
+        assertEquals(200, result.getPagesCrawled());
+        assertTrue(result.toJson().contains("\"nodes\": 2"), result.toJson());
+    }
+}
@@ -0,0 +1,124 @@
+package yashasvig.crawler.harness;
+
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.metrics.LatencyHistogram;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a run of the {@link LoadHarness} measured, along with the site and the configuration it ran with, so that the
+ * runs can be compared with each other.
+ */
+final class LoadResult {
+
+    private final Map<String, Object> json = new LinkedHashMap<>();
+    private final long pagesCrawled;
+    private final double pagesPerSecond;
+
+    LoadResult(SyntheticSite site, CrawlConfig config, int nodes, double seconds, CrawlMetrics metrics,
+               long peakHeapBytes, int peakThreads) {
+        this.pagesCrawled = metrics.getPagesCrawled();
+        this.pagesPerSecond = pagesCrawled / seconds;
+
+        json.put("timestamp", Instant.now().toString());
+        Map<String, Object> siteJson = new LinkedHashMap<>();
+        siteJson.put("pages", site.getPages());
+        siteJson.put("fanOut", site.getFanOut());
+        siteJson.put("pageBytes", site.getPageBytes());
+        siteJson.put("nonHtmlRatio", site.getNonHtmlRatio());
+        siteJson.put("medianLatencyMillis", site.getMedianLatency().toNanos() / 1e6);
+        siteJson.put("p99LatencyMillis", site.getP99Latency().toNanos() / 1e6);
+        siteJson.put("errorRate", site.getErrorRate());
+        json.put("site", siteJson);
+
+        Map<String, Object> configJson = new LinkedHashMap<>();
+        configJson.put("executionMode", config.getExecutionMode());
+        configJson.put("workerThreads", config.getWorkerThreads());
+        configJson.put("maxConcurrentFetches", config.getMaxConcurrentFetches());
+        configJson.put("concurrencyMode", config.getConcurrencyMode());
+        configJson.put("fetcherMode", config.getFetcherMode());
+        configJson.put("fetchMode", config.getFetchMode());
+        configJson.put("linkExtractionMode", config.getLinkExtractionMode());
+        configJson.put("frontierMode", config.getFrontierMode());
+        configJson.put("visitedStoreMode", config.getVisitedStoreMode());
+        configJson.put("postProcessingMode", config.getPostProcessingMode());
+        configJson.put("nodes", nodes);
+        json.put("config", configJson);
+
+        LatencyHistogram pageLatency = metrics.getHistogram(CrawlMetrics.Stage.GET);
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("seconds", seconds);
+        results.put("pagesCrawled", pagesCrawled);
+        results.put("pagesFailed", metrics.getPagesFailed());
+        results.put("requests", site.getRequests());
+        results.put("serverErrors", site.getErrors());
+        results.put("pagesPerSecond", pagesPerSecond);
+        results.put("pageLatencyP50Millis", millis(pageLatency.getValueAtPercentile(50)));
+        results.put("pageLatencyP99Millis", millis(pageLatency.getValueAtPercentile(99)));
+        results.put("peakHeapBytes", peakHeapBytes);
+        results.put("peakThreads", peakThreads);
+        json.put("results", results);
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (CrawlMetrics.Stage stage : CrawlMetrics.Stage.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(stage);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            Map<String, Object> stageJson = new LinkedHashMap<>();
+            stageJson.put("count", histogram.getCount());
+            stageJson.put("meanMillis", millis(histogram.getMean()));
+            stageJson.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+            stageJson.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+            stageJson.put("maxMillis", millis(histogram.getMax()));
+            stages.put(stage.name(), stageJson);
+        }
+        json.put("stages", stages);
+    }
+
+    long getPagesCrawled() {
+        return pagesCrawled;
+    }
+
+    double getPagesPerSecond() {
+        return pagesPerSecond;
+    }
+
+    /**
+     * Returns the result as a json object, where the page latency is the time taken by the {@code GET} requests.
+     */
+    String toJson() {
+        StringBuilder out = new StringBuilder();
+        write(json, out, "");
+        return out.append('\n').toString();
+    }
+
+    private static void write(Object value, StringBuilder out, String indent) {
+        if (value instanceof Map<?, ?> map) {
+            out.append("{\n");
+            String inner = indent + "  ";
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.append(inner).append('"').append(entry.getKey()).append("\": ");
+                write(entry.getValue(), out, inner);
+                out.append(++i < map.size() ? ",\n" : "\n");
+            }
+            out.append(indent).append('}');
+        } else if (value instanceof Double number) {
+            out.append(number.isNaN() || number.isInfinite() ? "null" : String.format(Locale.ROOT, "%.3f", number));
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else {
+            out.append('"').append(String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,281 @@
+package yashasvig.crawler.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A site served from an embedded http server, made up of {@code pages} html pages linking to each other and to
+ * binary documents.
+ *
+ * <p>Every page has {@code fanOut} links. A share of them, {@code nonHtmlRatio}, point to documents which are never
+ * linked twice. Half of the rest point to the children of the page in a tree spanning all the pages, so that every
+ * page can be reached from {@code /page/0}, and the others point to random pages, which are mostly crawled already by
+ * the time they're found, as on a real site. The links of a page only depend on the seed of the site.</p>
+ *
+ * <p>Every request waits for a random time before it's answered, drawn from a log-normal distribution with the given
+ * median and 99th percentile, and fails with a 503 with a probability of {@code errorRate}.</p>
+ */
+final class SyntheticSite implements AutoCloseable {
+
+    private static final double Z_99 = 2.326;
+
+    private final int pages;
+    private final int fanOut;
+    private final int pageBytes;
+    private final double nonHtmlRatio;
+    private final Duration medianLatency;
+    private final Duration p99Latency;
+    private final double errorRate;
+    private final long seed;
+    private final int htmlLinks;
+    private final int treeLinks;
+    private final double latencySigma;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+
+    private SyntheticSite(Builder builder) throws IOException {
+        this.pages = builder.pages;
+        this.fanOut = builder.fanOut;
+        this.pageBytes = builder.pageBytes;
+        this.nonHtmlRatio = builder.nonHtmlRatio;
+        this.medianLatency = builder.medianLatency;
+        this.p99Latency = builder.p99Latency;
+        this.errorRate = builder.errorRate;
+        this.seed = builder.seed;
+        this.htmlLinks = (int) Math.round(fanOut * (1 - nonHtmlRatio));
+        this.treeLinks = Math.max(1, (htmlLinks + 1) / 2);
+        this.latencySigma = medianLatency.isZero() ? 0
+                : Math.log((double) p99Latency.toNanos() / medianLatency.toNanos()) / Z_99;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page/", this::servePage);
+        server.createContext("/doc/", this::serveDocument);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the url of the root of the tree spanning all the pages.
+     */
+    URI getSeed() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/page/0");
+    }
+
+    int getPages() {
+        return pages;
+    }
+
+    int getFanOut() {
+        return fanOut;
+    }
+
+    int getPageBytes() {
+        return pageBytes;
+    }
+
+    double getNonHtmlRatio() {
+        return nonHtmlRatio;
+    }
+
+    Duration getMedianLatency() {
+        return medianLatency;
+    }
+
+    Duration getP99Latency() {
+        return p99Latency;
+    }
+
+    double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Returns the no of requests received so far, errors included.
+     */
+    long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the no of requests answered with a 503 so far.
+     */
+    long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void servePage(HttpExchange exchange) throws IOException {
+        int id = Integer.parseInt(exchange.getRequestURI().getPath().substring("/page/".length()));
+        if (id < 0 || id >= pages) {
+            respond(exchange, 404, "text/html", new byte[0]);
+            return;
+        }
+        if (delayAndFail(exchange)) {
+            return;
+        }
+        respond(exchange, 200, "text/html; charset=utf-8", pageBody(id));
+    }
+
+    private void serveDocument(HttpExchange exchange) throws IOException {
+        if (delayAndFail(exchange)) {
+            return;
+        }
+        respond(exchange, 200, "application/octet-stream", new byte[pageBytes]);
+    }
+
+    /**
+     * Waits for the latency of the request and answers it with an error if it's one of the unlucky ones.
+     *
+     * @return true if the request has been answered
+     */
+    private boolean delayAndFail(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (!medianLatency.isZero()) {
+            long nanos = (long) (medianLatency.toNanos() * Math.exp(latencySigma * random.nextGaussian()));
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            respond(exchange, 503, "text/html", new byte[0]);
+            return true;
+        }
+        return false;
+    }
+
+    private byte[] pageBody(int id) {
+        Random random = new Random(seed * 31 + id);
+        StringBuilder body = new StringBuilder("<!DOCTYPE html><html><head><title>Page ").append(id)
+                .append("</title></head><body><h1>Page ").append(id).append("</h1><ul>");
+        for (int i = 0; i < treeLinks; i++) {
+            long child = (long) id * treeLinks + i + 1;
+            if (child < pages) {
+                link(body, "/page/" + child);
+            }
+        }
+        for (int i = treeLinks; i < htmlLinks; i++) {
+            link(body, "/page/" + random.nextInt(pages));
+        }
+        for (int i = htmlLinks; i < fanOut; i++) {
+            link(body, "/doc/" + id + "-" + i + ".bin");
+        }
+        body.append("</ul>");
+        while (body.length() < pageBytes) {
+            body.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.</p>");
+        }
+        return body.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void link(StringBuilder body, String path) {
+        body.append("<li><a href=\"").append(path).append("\">").append(path).append("</a></li>");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod()) || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // The crawler drops the documents as soon as it sees their content type.
+            }
+        }
+        exchange.close();
+    }
+
+    static final class Builder {
+        private int pages = 1000;
+        private int fanOut = 10;
+        private int pageBytes = 8 * 1024;
+        private double nonHtmlRatio = 0.1;
+        private Duration medianLatency = Duration.ZERO;
+        private Duration p99Latency = Duration.ZERO;
+        private double errorRate;
+        private long seed = 42;
+
+        private Builder() {
+        }
+
+        Builder setPages(int pages) {
+            this.pages = pages;
+            return this;
+        }
+
+        Builder setFanOut(int fanOut) {
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        Builder setPageBytes(int pageBytes) {
+            this.pageBytes = pageBytes;
+            return this;
+        }
+
+        Builder setNonHtmlRatio(double nonHtmlRatio) {
+            this.nonHtmlRatio = nonHtmlRatio;
+            return this;
+        }
+
+        Builder setLatency(Duration median, Duration p99) {
+            this.medianLatency = median;
+            this.p99Latency = p99;
+            return this;
+        }
+
+        Builder setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Starts serving the site on a free port of localhost.
+         */
+        SyntheticSite start() throws IOException {
+            if (pages <= 0 || fanOut <= 0 || pageBytes < 0) {
+                throw new IllegalArgumentException("pages and fanOut should be positive");
+            }
+            if (nonHtmlRatio < 0 || nonHtmlRatio >= 1 || errorRate < 0 || errorRate >= 1) {
+                throw new IllegalArgumentException("nonHtmlRatio and errorRate should be in [0, 1)");
+            }
+            if (medianLatency.isNegative() || p99Latency.compareTo(medianLatency) < 0) {
+                throw new IllegalArgumentException("The p99 latency can't be below the median");
+            }
+            return new SyntheticSite(this);
+        }
+    }
+}
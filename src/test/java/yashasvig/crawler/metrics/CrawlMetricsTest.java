@@ -0,0 +1,81 @@
+package yashasvig.crawler.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlMetricsTest {
+
+    private final CrawlMetrics metrics = new CrawlMetrics();
+
+    @Test
+    void recordPage_countsPerHost() {
+        metrics.recordPage("a.com");
+        metrics.recordPage("a.com");
+        metrics.recordPage("b.com");
+        metrics.recordError("b.com");
+
+        assertEquals(3, metrics.getPagesCrawled());
+        assertEquals(1, metrics.getPagesFailed());
+        assertEquals(Map.of("a.com", 2L, "b.com", 1L), metrics.getPagesByHost());
+        assertEquals(Map.of("a.com", 0L, "b.com", 1L), metrics.getErrorsByHost());
+    }
+
+    @Test
+    void recordPage_tooManyHosts_countsTheRestTogether() {
+        for (int i = 0; i < CrawlMetrics.MAX_HOSTS + 10; i++) {
+            metrics.recordPage("host" + i + ".com");
+        }
+
+        Map<String, Long> pagesByHost = metrics.getPagesByHost();
+        assertEquals(CrawlMetrics.MAX_HOSTS + 1, pagesByHost.size());
+        assertEquals(10, pagesByHost.get(CrawlMetrics.OTHER_HOSTS));
+    }
+
+    @Test
+    void registerMBeans_exposesCountersAndStages() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metrics.recordStatus(200);
+        metrics.recordStatus(200);
+        metrics.recordStatus(503);
+        metrics.registerGauge("frontierUrls", () -> 42);
+        metrics.record(CrawlMetrics.Stage.GET, TimeUnit.MILLISECONDS.toNanos(20));
+
+        metrics.registerMBeans(server);
+        // Registering again, as a second crawler in the same process would, replaces the beans.
+        metrics.registerMBeans(server);
+
+        ObjectName registry = new ObjectName(CrawlMetrics.OBJECT_NAME);
+        assertEquals(0L, server.getAttribute(registry, "PagesCrawled"));
+        TabularData statusCodes = (TabularData) server.getAttribute(registry, "StatusCodes");
+        assertEquals(2L, ((CompositeData) statusCodes.get(new Object[]{"200"})).get("value"));
+        TabularData gauges = (TabularData) server.getAttribute(registry, "Gauges");
+        assertEquals(42L, ((CompositeData) gauges.get(new Object[]{"frontierUrls"})).get("value"));
+        ObjectName get = new ObjectName("yashasvig.crawler:type=Stage,name=GET");
+        assertEquals(1L, server.getAttribute(get, "Count"));
+        double p99 = (double) server.getAttribute(get, "P99Millis");
+        assertTrue(p99 >= 20 && p99 < 21, "p99: " + p99);
+    }
+
+    @Test
+    void format_listsRecordedStagesOnly() {
+        metrics.record(CrawlMetrics.Stage.PARSE, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.recordPage("a.com");
+
+        String text = metrics.format();
+
+        assertTrue(text.contains("PARSE"), text);
+        assertFalse(text.contains("HEAD"), text);
+        assertTrue(text.contains("a.com (1 pages, 0 errors)"), text);
+    }
+}
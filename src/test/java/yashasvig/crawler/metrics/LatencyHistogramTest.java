@@ -0,0 +1,61 @@
+package yashasvig.crawler.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void getValueAtPercentile_nothingRecorded_returnsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    void getValueAtPercentile_smallValues_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 50; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(25, histogram.getValueAtPercentile(50));
+        assertEquals(50, histogram.getValueAtPercentile(100));
+        assertEquals(25.5, histogram.getMean());
+    }
+
+    @Test
+    void getValueAtPercentile_largeValues_withinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 to 100 ms
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertClose(TimeUnit.MILLISECONDS.toNanos(50), histogram.getValueAtPercentile(50));
+        assertClose(TimeUnit.MILLISECONDS.toNanos(90), histogram.getValueAtPercentile(90));
+        assertClose(TimeUnit.MILLISECONDS.toNanos(99), histogram.getValueAtPercentile(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), histogram.getValueAtPercentile(100));
+        assertEquals(100, histogram.getCount());
+    }
+
+    @Test
+    void record_outOfRange_isClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals((1L << 40) - 1, histogram.getMax());
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.03, actual + " is too far from " + expected);
+    }
+}
@@ -0,0 +1,134 @@
+package yashasvig.crawler.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UrlDictionaryTest {
+
+    @Test
+    void intern_sameUrl_returnsSameIdAndKeepsFirstInstance() {
+        UrlDictionary dictionary = new UrlDictionary();
+        URI first = URI.create("https://monzo.com/about");
+
+        int id = dictionary.intern(first);
+
+        assertEquals(id, dictionary.intern(URI.create("https://monzo.com/about")));
+        assertSame(first, dictionary.get(id));
+        assertEquals(1, dictionary.size());
+        assertThrows(IllegalArgumentException.class, () -> dictionary.get(id + 1));
+    }
+
+    @Test
+    void release_lastReference_dropsUrlAndReusesItsId() {
+        UrlDictionary dictionary = new UrlDictionary();
+        int shared = dictionary.intern(URI.create("https://monzo.com/about"));
+        dictionary.intern(URI.create("https://monzo.com/about"));
+        int single = dictionary.intern(URI.create("https://monzo.com/careers"));
+
+        dictionary.release(shared);
+        dictionary.release(single);
+
+        assertEquals(URI.create("https://monzo.com/about"), dictionary.get(shared));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.get(single));
+        assertEquals(1, dictionary.size());
+        assertEquals(single, dictionary.intern(URI.create("https://monzo.com/blog")));
+    }
+
+    @Test
+    void page_release_dropsChildUrlsNoOtherPageLinksTo() {
+        UrlDictionary dictionary = new UrlDictionary();
+        URI footer = URI.create("https://monzo.com/legal");
+        Page first = new Page(URI.create("https://monzo.com/a"),
+                dictionary.internAll(List.of(footer, URI.create("https://monzo.com/a/1"))), dictionary);
+        Page second = new Page(URI.create("https://monzo.com/b"), dictionary.internAll(List.of(footer)), dictionary);
+
+        first.release();
+
+        assertEquals(List.of(footer), second.getChildUrls());
+        assertEquals(1, dictionary.size());
+        second.release();
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void page_releasedTwice_releasesChildUrlsOnce() {
+        UrlDictionary dictionary = new UrlDictionary();
+        URI footer = URI.create("https://monzo.com/legal");
+        Page first = new Page(URI.create("https://monzo.com/a"), dictionary.internAll(List.of(footer)), dictionary);
+        Page second = new Page(URI.create("https://monzo.com/b"), dictionary.internAll(List.of(footer)), dictionary);
+
+        first.release();
+        first.release();
+
+        assertEquals(List.of(footer), second.getChildUrls());
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void page_readAfterRelease_throws() {
+        UrlDictionary dictionary = new UrlDictionary();
+        Page page = new Page(URI.create("https://monzo.com/a"),
+                dictionary.internAll(List.of(URI.create("https://monzo.com/a/1"))), dictionary);
+        List<URI> childUrls = page.getChildUrls();
+
+        page.release();
+
+        assertThrows(IllegalStateException.class, page::getChildUrls);
+        assertThrows(IllegalStateException.class, () -> page.getChildId(0));
+        assertThrows(IllegalStateException.class, () -> childUrls.get(0));
+    }
+
+    @Test
+    void intern_concurrently_givesEveryUrlOneId() throws Exception {
+        UrlDictionary dictionary = new UrlDictionary();
+        int urls = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                int[] ids = new int[urls];
+                for (int i = 0; i < urls; i++) {
+                    ids[i] = dictionary.intern(URI.create("https://monzo.com/page/" + i));
+                }
+                return ids;
+            }));
+        }
+        int[] expected = results.get(0).get();
+        for (Future<int[]> result : results) {
+            assertArrayEquals(expected, result.get());
+        }
+        pool.shutdown();
+
+        assertEquals(urls, dictionary.size());
+        for (int i = 0; i < urls; i++) {
+            assertEquals(URI.create("https://monzo.com/page/" + i), dictionary.get(expected[i]));
+        }
+    }
+
+    @Test
+    void page_childUrlsView_readsThroughTheDictionary() {
+        UrlDictionary dictionary = new UrlDictionary();
+        Set<URI> childUrls = new LinkedHashSet<>(List.of(URI.create("https://monzo.com/a"),
+                URI.create("https://monzo.com/b")));
+
+        Page page = new Page(URI.create("https://monzo.com"), dictionary.internAll(childUrls), dictionary);
+
+        assertEquals(List.copyOf(childUrls), page.getChildUrls());
+        assertSame(page.getChildUrls(), page.getChildUrls());
+        assertEquals(dictionary.intern(URI.create("https://monzo.com/b")), page.getChildId(1));
+        assertThrows(UnsupportedOperationException.class, () -> page.getChildUrls().add(URI.create("https://x.com")));
+    }
+}
@@ -0,0 +1,161 @@
+package yashasvig.crawler.postprocessing.print;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFilePrinterTest {
+
+    private static final URI SEED = URI.create("https://monzo.com");
+    private static final List<String> NAVIGATION = List.of("about", "help", "blog", "careers", "press", "pricing",
+            "business", "business/pricing", "current-account", "savings", "loans", "investments", "pensions",
+            "legal/terms-and-conditions", "legal/privacy-notice", "legal/cookie-notice", "i/security", "money-worries");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replay_convertsBackToTheTextOutput() throws IOException {
+        StringWriter expected = new StringWriter();
+        crawl(new FilePrinter(expected), 50);
+
+        BinaryFilePrinter binary = new BinaryFilePrinter(directory, 512);
+        crawl(binary, 50);
+        StringWriter converted = new StringWriter();
+        try (BinaryOutputReader reader = BinaryOutputReader.open(binary.getFile())) {
+            reader.replay(new FilePrinter(converted));
+        }
+
+        assertEquals(expected.toString(), converted.toString());
+    }
+
+    @Test
+    void readPage_jumpsToAnyPageThroughTheIndex() throws IOException {
+        BinaryFilePrinter binary = new BinaryFilePrinter(directory, 256);
+        List<Page> pages = crawl(binary, 200);
+
+        try (BinaryOutputReader reader = BinaryOutputReader.open(binary.getFile())) {
+            assertTrue(reader.isComplete());
+            assertEquals(SEED, reader.getSeed());
+            assertEquals(pages.size(), reader.getPageCount());
+            for (int i = pages.size() - 1; i >= 0; i -= 7) {
+                Page page = reader.readPage(i);
+                assertEquals(pages.get(i).getUrl(), page.getUrl());
+                assertEquals(pages.get(i).getChildUrls(), page.getChildUrls());
+            }
+        }
+    }
+
+    @Test
+    void replay_unfinishedCrawl_stopsAtTheLastCompleteBlock() throws IOException {
+        BinaryFilePrinter binary = new BinaryFilePrinter(directory, 256);
+        binary.onCrawlingStarted(SEED);
+        for (int i = 0; i < 100; i++) {
+            binary.onFinishedPageSuccessfully(page(i));
+        }
+        binary.onFinishedCrawling(Duration.ofSeconds(1));
+        byte[] bytes = Files.readAllBytes(binary.getFile());
+        Path truncated = directory.resolve("truncated.crawl");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+
+        List<Page> replayed = new ArrayList<>();
+        boolean[] finished = new boolean[1];
+        try (BinaryOutputReader reader = BinaryOutputReader.open(truncated)) {
+            assertFalse(reader.isComplete());
+            assertThrows(IllegalStateException.class, () -> reader.readPage(0));
+            reader.replay(new PostProcessor() {
+                @Override
+                public void onCrawlingStarted(URI url) {
+                }
+
+                @Override
+                public void onFinishedPageSuccessfully(Page page) {
+                    replayed.add(page);
+                }
+
+                @Override
+                public void onError(String url, String errorMessage) {
+                }
+
+                @Override
+                public void onFinishedCrawling(Duration timeTaken) {
+                    finished[0] = true;
+                }
+
+                @Override
+                public String getName() {
+                    return "Collector";
+                }
+            });
+        }
+
+        assertFalse(finished[0]);
+        assertTrue(replayed.size() > 10 && replayed.size() < 100);
+        for (int i = 0; i < replayed.size(); i++) {
+            assertEquals(page(i).getChildUrls(), replayed.get(i).getChildUrls());
+        }
+    }
+
+    @Test
+    void binaryOutput_isMuchSmallerThanText() throws IOException {
+        StringWriter text = new StringWriter();
+        crawl(new FilePrinter(text), 500);
+        BinaryFilePrinter binary = new BinaryFilePrinter(directory);
+        crawl(binary, 500);
+
+        long textBytes = text.toString().getBytes(StandardCharsets.UTF_8).length;
+        long binaryBytes = Files.size(binary.getFile());
+        assertTrue(binaryBytes * 4 < textBytes, binaryBytes + " binary bytes for " + textBytes + " text bytes");
+    }
+
+    private static List<Page> crawl(PostProcessor processor, int pageCount) {
+        List<Page> pages = new ArrayList<>();
+        processor.onCrawlingStarted(SEED);
+        for (int i = 0; i < pageCount; i++) {
+            Page page = page(i);
+            pages.add(page);
+            processor.onFinishedPageSuccessfully(page);
+            if (i % 10 == 3) {
+                processor.onError(SEED + "/missing/" + i,
+                        "HTTP error fetching URL. Status=404, URL=[" + SEED + "/missing/" + i + "]");
+            }
+        }
+        processor.onFinishedCrawling(Duration.ofSeconds(42));
+        return pages;
+    }
+
+    /**
+     * Every page links to the same navigation urls and to a few pages of its own.
+     */
+    private static Page page(int i) {
+        Set<URI> childUrls = new LinkedHashSet<>();
+        for (String navigation : NAVIGATION) {
+            childUrls.add(URI.create(SEED + "/" + navigation + "/"));
+        }
+        if (i % 5 != 4) {
+            for (int child = 2 * i + 1; child <= 2 * i + 2; child++) {
+                childUrls.add(URI.create(SEED + "/page/" + child));
+            }
+        }
+        return new Page(URI.create(SEED + "/page/" + i), i % 5 == 4 ? Set.of() : childUrls);
+    }
+}
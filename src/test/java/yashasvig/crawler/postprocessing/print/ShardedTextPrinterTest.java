@@ -0,0 +1,105 @@
+package yashasvig.crawler.postprocessing.print;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.postprocessing.PostProcessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedTextPrinterTest {
+
+    private static final URI SEED = URI.create("https://monzo.com");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void singleShard_writesExactlyWhatFilePrinterWrites() throws IOException {
+        StringWriter expected = new StringWriter();
+        crawl(new FilePrinter(expected), 300);
+
+        ShardedTextPrinter printer = new ShardedTextPrinter(directory, 1, false, 1024);
+        crawl(printer, 300);
+
+        assertEquals(1, printer.getFiles().size());
+        assertEquals(expected.toString(), Files.readString(printer.getFiles().get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void gzippedShards_concatenateToTheSamePages() throws IOException {
+        StringWriter expected = new StringWriter();
+        crawl(new FilePrinter(expected), 300);
+
+        ShardedTextPrinter printer = new ShardedTextPrinter(directory, 3, true, 1024);
+        crawl(printer, 300);
+
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        for (Path file : printer.getFiles()) {
+            assertTrue(file.getFileName().toString().endsWith(".txt.gz"));
+            concatenated.write(Files.readAllBytes(file));
+        }
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(concatenated.toByteArray()))) {
+            in.transferTo(decompressed);
+        }
+        String actual = decompressed.toString(StandardCharsets.UTF_8);
+
+        assertTrue(actual.startsWith("Crawling started, let's go!\n"));
+        assertEquals(blocks(expected.toString()), blocks(actual));
+        assertTrue(actual.endsWith(expected.toString().substring(expected.toString().indexOf("\n\n*******Stats"))));
+    }
+
+    /**
+     * Splits the text output into the blocks written for every page and error, sorted.
+     */
+    private static List<String> blocks(String output) {
+        String pages = output.substring(output.indexOf('\n') + 1, output.indexOf("\n\n*******Stats"));
+        List<String> blocks = new ArrayList<>(Arrays.asList(pages.split("(?m)^(?=  (Page|Error): )")));
+        Collections.sort(blocks);
+        return blocks;
+    }
+
+    private static void crawl(PostProcessor processor, int pageCount) {
+        processor.onCrawlingStarted(SEED);
+        for (int i = 0; i < pageCount; i++) {
+            processor.onFinishedPageSuccessfully(page(i));
+            if (i % 10 == 3) {
+                processor.onError(SEED + "/missing/" + i, "HTTP error fetching URL. Status=404,\nURL=[" + i + "]");
+            }
+        }
+        processor.onFinishedCrawling(Duration.ofSeconds(42));
+    }
+
+    private static Page page(int i) {
+        if (i % 7 == 6) {
+            return new Page(URI.create(SEED + "/empty/" + i), Set.of());
+        }
+        Set<URI> childUrls = new LinkedHashSet<>();
+        childUrls.add(URI.create(SEED + "/about/"));
+        childUrls.add(URI.create(SEED + "/caf\u00e9/" + i));
+        for (int child = 2 * i + 1; child <= 2 * i + 2; child++) {
+            childUrls.add(URI.create(SEED + "/page/" + child));
+        }
+        return new Page(URI.create(SEED + "/page/" + i), childUrls);
+    }
+}
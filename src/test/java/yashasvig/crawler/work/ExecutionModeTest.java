@@ -0,0 +1,142 @@
+package yashasvig.crawler.work;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.work.cache.NoOpValidatorCache;
+import yashasvig.crawler.work.di.ConfiguredSessionStateFactory;
+import yashasvig.crawler.work.limit.FixedConcurrencyLimiter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Crawls a local site with the workers running on virtual threads.
+ */
+class ExecutionModeTest {
+
+    private static final int WORKER_THREADS = 10;
+    private static final int MAX_CONCURRENT_FETCHES = 25;
+    // More than the worker threads, so that the crawl only gets through if the threads don't cap the fetches.
+    private static final int IN_FLIGHT = 20;
+    private static final int LEAVES = 40;
+
+    private final CountDownLatch heldRequests = new CountDownLatch(IN_FLIGHT);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private HttpServer server;
+    private URI baseUri;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::serve);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/page/0");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void virtualThreads_keepMoreFetchesInFlightThanWorkerThreads() throws InterruptedException {
+        CrawlConfig config = CrawlConfig.builder()
+                .setExecutionMode(CrawlConfig.ExecutionMode.VIRTUAL_THREADS)
+                .setWorkerThreads(WORKER_THREADS)
+                .setMaxConcurrentFetches(MAX_CONCURRENT_FETCHES)
+                .build();
+        BoundedVirtualThreadExecutor pool = new BoundedVirtualThreadExecutor(MAX_CONCURRENT_FETCHES);
+        List<Boolean> virtualWorkers = new CopyOnWriteArrayList<>();
+        List<String> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        WorkCoordinator coordinator = new WorkCoordinator(pool,
+                new JsoupFetcher(Jsoup.newSession().ignoreContentType(true).timeout(15_000)),
+                new NoOpValidatorCache(), new ConfiguredSessionStateFactory(config),
+                new FixedConcurrencyLimiter(config.getFetchConcurrency()), new CrawlMetrics(), config);
+
+        coordinator.newSession(baseUri).start(new WorkCallback() {
+            @Override
+            public void onFinishedPageSuccessfully(Page page) {
+                virtualWorkers.add(Thread.currentThread().isVirtual());
+            }
+
+            @Override
+            public void onError(String url, String errorMessage) {
+                errors.add(url + ": " + errorMessage);
+            }
+
+            @Override
+            public void onFinishedCrawling() {
+                finished.countDown();
+            }
+        });
+
+        assertTrue(finished.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(List.of(), errors);
+        assertEquals(LEAVES + 1, virtualWorkers.size());
+        assertTrue(virtualWorkers.stream().allMatch(Boolean::booleanValue));
+        assertTrue(peakInFlight.get() <= MAX_CONCURRENT_FETCHES, String.valueOf(peakInFlight.get()));
+    }
+
+    /**
+     * Serves a site where page 0 links to {@link #LEAVES} pages. The leaves are only answered once {@link #IN_FLIGHT}
+     * requests for them are waiting at the same time, or with a 503 if they never are.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            int id = Integer.parseInt(exchange.getRequestURI().getPath().substring("/page/".length()));
+            StringBuilder body = new StringBuilder("<html><body>");
+            int status = 200;
+            if (id == 0) {
+                for (int leaf = 1; leaf <= LEAVES; leaf++) {
+                    body.append("<a href=\"/page/").append(leaf).append("\">").append(leaf).append("</a>");
+                }
+            } else {
+                heldRequests.countDown();
+                try {
+                    status = heldRequests.await(10, TimeUnit.SECONDS) ? 200 : 503;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] bytes = body.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+            exchange.close();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package yashasvig.crawler.work;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import yashasvig.crawler.work.cache.Validators;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientFetcherTest {
+
+    private static final String PAGE = "<html><body><a href=\"/next\">next</a></body></html>";
+    private static final int BINARY_SIZE = 64 * 1024 * 1024;
+    private static final int IN_FLIGHT = 20;
+    private static final long BODY_DELAY_MILLIS = 500;
+
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicLong binaryBytesSent = new AtomicLong();
+    private final CountDownLatch binaryHandled = new CountDownLatch(1);
+    private final CountDownLatch heldRequests = new CountDownLatch(IN_FLIGHT);
+    private final CountDownLatch headRead = new CountDownLatch(1);
+    private final CountDownLatch slowHeadsRead = new CountDownLatch(IN_FLIGHT);
+    private final HttpClientFetcher fetcher = new HttpClientFetcher(HttpClientFetcher.newHttpClient());
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page.html", exchange -> respond(exchange, 200, "text/html; charset=ISO-8859-1", PAGE));
+        server.createContext("/moved", exchange -> {
+            record(exchange);
+            exchange.getResponseHeaders().set("Location", "/page.html");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.createContext("/validated.html", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                record(exchange);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            exchange.getResponseHeaders().set("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT");
+            respond(exchange, 200, "text/html", PAGE);
+        });
+        server.createContext("/missing", exchange -> respond(exchange, 404, "text/html", "not found"));
+        server.createContext("/doc.pdf", this::respondWithBinary);
+        // Sends the rest of the page only once the consumer has read its head.
+        server.createContext("/streamed.html", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("<html><head></head>".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (headRead.await(10, TimeUnit.SECONDS)) {
+                    out.write("<body></body></html>".getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        // Sends the headers right away and the body a while later.
+        server.createContext("/slow-body.html", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.flush();
+                Thread.sleep(BODY_DELAY_MILLIS);
+                out.write(PAGE.getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        // Sends the rest of the page only once the consumers of IN_FLIGHT such pages have read their heads.
+        server.createContext("/slow/", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("<html><head></head>".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (slowHeadsRead.await(10, TimeUnit.SECONDS)) {
+                    out.write("<body></body></html>".getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        // Answers only once IN_FLIGHT requests are waiting at the same time, or with a 503 if they never are.
+        server.createContext("/held/", exchange -> {
+            heldRequests.countDown();
+            boolean allInFlight;
+            try {
+                allInFlight = heldRequests.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                allInFlight = false;
+            }
+            respond(exchange, allInFlight ? 200 : 503, "text/html", PAGE);
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void fetch_htmlPage_passesBodyWithCharsetAndBaseUri() throws Exception {
+        Body body = fetch("/page.html", false);
+
+        assertEquals(PAGE, body.content);
+        assertEquals("ISO-8859-1", body.charset);
+        assertEquals(baseUrl + "/page.html", body.baseUri);
+        assertEquals(1, count("GET /page.html"));
+    }
+
+    @Test
+    void fetch_redirect_usesFinalUrlAsBaseUri() throws Exception {
+        Body body = fetch("/moved", false);
+
+        assertEquals(baseUrl + "/page.html", body.baseUri);
+    }
+
+    @Test
+    void fetch_returnsValidatorsOfResponse() throws Exception {
+        Fetcher.Result result = fetcher.fetch(URI.create(baseUrl + "/validated.html"), false, Validators.NONE,
+                (body, charset, baseUri) -> body.readAllBytes()).get(10, TimeUnit.SECONDS);
+
+        assertFalse(result.isNotModified());
+        assertEquals(new Validators("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT"), result.getValidators());
+    }
+
+    @Test
+    void fetch_withMatchingValidators_isNotModified() throws Exception {
+        Body body = new Body();
+        Fetcher.Result result = fetcher.fetch(URI.create(baseUrl + "/validated.html"), false,
+                new Validators("\"v1\"", null), (stream, charset, baseUri) -> body.content = "consumed")
+                .get(10, TimeUnit.SECONDS);
+
+        assertTrue(result.isNotModified());
+        assertNull(body.content);
+    }
+
+    @Test
+    void fetch_errorStatus_failsWithJsoupMessage() {
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> fetch("/missing", false));
+
+        assertInstanceOf(IOException.class, exception.getCause());
+        assertEquals("HTTP error fetching URL. Status=404, URL=[" + baseUrl + "/missing]",
+                exception.getCause().getMessage());
+    }
+
+    @Test
+    void fetch_binaryPage_dropsBodyAfterHeaders() throws Exception {
+        Body body = fetch("/doc.pdf", false);
+
+        assertNull(body.content);
+        assertTrue(binaryHandled.await(10, TimeUnit.SECONDS));
+        assertTrue(binaryBytesSent.get() < BINARY_SIZE, binaryBytesSent.get() + " bytes sent");
+    }
+
+    @Test
+    void fetch_withHeadRequest_binaryPage_sendsOnlyHead() throws Exception {
+        Body body = fetch("/doc.pdf", true);
+
+        assertNull(body.content);
+        assertEquals(1, count("HEAD /doc.pdf"));
+        assertEquals(0, count("GET /doc.pdf"));
+    }
+
+    @Test
+    void fetch_withHeadRequest_htmlPage_sendsHeadThenGet() throws Exception {
+        Body body = fetch("/page.html", true);
+
+        assertEquals(PAGE, body.content);
+        assertEquals(1, count("HEAD /page.html"));
+        assertEquals(1, count("GET /page.html"));
+    }
+
+    @Test
+    void fetch_htmlPage_streamsBodyToConsumerAsItArrives() throws Exception {
+        StringBuilder content = new StringBuilder();
+        fetcher.fetch(URI.create(baseUrl + "/streamed.html"), false, Validators.NONE, (body, charset, baseUri) -> {
+            content.append(new String(body.readNBytes("<html><head></head>".length()), StandardCharsets.UTF_8));
+            headRead.countDown();
+            content.append(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }).get(20, TimeUnit.SECONDS);
+
+        assertEquals("<html><head></head><body></body></html>", content.toString());
+    }
+
+    @Test
+    void fetch_slowBody_responseTimeLeavesOutBody() throws Exception {
+        long start = System.nanoTime();
+        Fetcher.Result result = fetcher.fetch(URI.create(baseUrl + "/slow-body.html"), false, Validators.NONE,
+                (body, charset, baseUri) -> body.readAllBytes()).get(10, TimeUnit.SECONDS);
+        long fetchNanos = System.nanoTime() - start;
+
+        assertTrue(fetchNanos >= TimeUnit.MILLISECONDS.toNanos(BODY_DELAY_MILLIS), fetchNanos + "ns");
+        assertTrue(result.getResponseNanos() > 0);
+        assertTrue(result.getResponseNanos() < fetchNanos - TimeUnit.MILLISECONDS.toNanos(BODY_DELAY_MILLIS) / 2,
+                result.getResponseNanos() + "ns of " + fetchNanos + "ns");
+    }
+
+    @Test
+    void fetch_manyPages_keepsThemAllInFlight() throws Exception {
+        List<CompletableFuture<Fetcher.Result>> results = new ArrayList<>();
+
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            results.add(fetcher.fetch(URI.create(baseUrl + "/held/" + i), false, Validators.NONE,
+                    (body, charset, baseUri) -> body.readAllBytes()));
+        }
+
+        for (CompletableFuture<Fetcher.Result> result : results) {
+            assertFalse(result.get(20, TimeUnit.SECONDS).isNotModified());
+        }
+    }
+
+    @Test
+    void fetch_moreSlowBodiesThanWorkerThreads_readsThemAllAtOnce() throws Exception {
+        // Two worker threads only start the fetches, while the bodies are read elsewhere.
+        ExecutorService workerPool = Executors.newFixedThreadPool(2);
+        List<CompletableFuture<Fetcher.Result>> results = new ArrayList<>();
+        ConcurrentHashMap<Integer, String> contents = new ConcurrentHashMap<>();
+
+        try {
+            for (int i = 0; i < IN_FLIGHT; i++) {
+                int page = i;
+                results.add(CompletableFuture.supplyAsync(() -> fetcher.fetch(URI.create(baseUrl + "/slow/" + page),
+                        false, Validators.NONE, (body, charset, baseUri) -> {
+                            String head = new String(body.readNBytes("<html><head></head>".length()),
+                                    StandardCharsets.UTF_8);
+                            slowHeadsRead.countDown();
+                            contents.put(page, head + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                        }), workerPool).thenCompose(result -> result));
+            }
+
+            for (CompletableFuture<Fetcher.Result> result : results) {
+                assertFalse(result.get(20, TimeUnit.SECONDS).isNotModified());
+            }
+        } finally {
+            workerPool.shutdown();
+        }
+        assertEquals(IN_FLIGHT, contents.size());
+        assertTrue(contents.values().stream().allMatch("<html><head></head><body></body></html>"::equals),
+                contents.toString());
+    }
+
+    private Body fetch(String path, boolean sendHeadRequest) throws Exception {
+        Body body = new Body();
+        fetcher.fetch(URI.create(baseUrl + path), sendHeadRequest, Validators.NONE, (stream, charset, baseUri) -> {
+            body.content = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            body.charset = charset;
+            body.baseUri = baseUri;
+        }).get(10, TimeUnit.SECONDS);
+        return body;
+    }
+
+    private int count(String request) {
+        AtomicInteger count = requests.get(request);
+        return count == null ? 0 : count.get();
+    }
+
+    private void record(HttpExchange exchange) {
+        requests.computeIfAbsent(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(),
+                r -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        record(exchange);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private void respondWithBinary(HttpExchange exchange) throws IOException {
+        record(exchange);
+        exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, BINARY_SIZE);
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int sent = 0; sent < BINARY_SIZE; sent += chunk.length) {
+                out.write(chunk);
+                binaryBytesSent.addAndGet(chunk.length);
+            }
+        } catch (IOException e) {
+            // The client went away, which is what we expect.
+        } finally {
+            binaryHandled.countDown();
+            exchange.close();
+        }
+    }
+
+    private static final class Body {
+        private String content;
+        private String charset;
+        private String baseUri;
+    }
+}
@@ -0,0 +1,188 @@
+package yashasvig.crawler.work;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingLinkExtractorTest {
+
+    private static final String BASE_URI = "https://monzo.com/blog/";
+
+    private final StreamingLinkExtractor streaming = new StreamingLinkExtractor();
+    private final DomLinkExtractor dom = new DomLinkExtractor();
+
+    @Test
+    void extract_resolvesRelativeLinksInOrder() throws IOException {
+        List<String> links = extract(streaming, """
+                <html><body>
+                <a href="/about">About</a>
+                <A HREF='careers/'>Careers</A>
+                <a class=nav href=https://community.monzo.com>Community</a>
+                <abbr href="/not-a-link">x</abbr>
+                </body></html>
+                """);
+
+        assertEquals(List.of("https://monzo.com/about", "https://monzo.com/blog/careers/",
+                "https://community.monzo.com"), links);
+    }
+
+    @Test
+    void extract_baseHref_appliesToFollowingLinks() throws IOException {
+        List<String> links = extract(streaming, """
+                <html><head><base href="https://monzo.com/i/"><base href="https://bonzo.com/"></head>
+                <body><a href="security">Security</a></body></html>
+                """);
+
+        assertEquals(List.of("https://monzo.com/i/security"), links);
+    }
+
+    @Test
+    void extract_skipsCommentsScriptsAndStyles() throws IOException {
+        List<String> links = extract(streaming, """
+                <html><head>
+                <style>a[href="/style"] { color: red; } </style>
+                <script>document.write('<a href="/script">x</a>'); if (a < b) {}</script >
+                </head><body>
+                <!-- <a href="/comment">x</a> -- still a comment -->
+                <a href="/real">Real</a>
+                </body></html>
+                """);
+
+        assertEquals(List.of("https://monzo.com/real"), links);
+    }
+
+    @Test
+    void extract_decodesCharacterReferences() throws IOException {
+        List<String> links = extract(streaming, "<a href=\"/search?q=a&amp;page=2&#38;x=&#x31;\">Search</a>");
+
+        assertEquals(List.of("https://monzo.com/search?q=a&page=2&x=1"), links);
+    }
+
+    @Test
+    void extract_sameLinksAsDom() throws IOException {
+        String page = linkHeavyPage(300);
+
+        assertEquals(extract(dom, page), extract(streaming, page));
+    }
+
+    @Test
+    void extract_unusualLinks_sameAsDom() throws IOException {
+        String page = """
+                <a href="?page=2">query only</a>
+                <a href="../../../../up">above the root</a>
+                <a href="/tab	bed/\nnew">control characters</a>
+                <a href="#top">fragment</a>
+                <a href="//cdn.monzo.com/a.css">scheme relative</a>
+                <a href="mailto:help@monzo.com">mail</a>
+                <a href="https://user@monzo.com:8443/x">user info</a>
+                <a href="http://[not a host/">broken</a>
+                """;
+
+        assertEquals(extract(dom, page), extract(streaming, page));
+    }
+
+    @Test
+    void extract_emptyLinkAndBaseWithoutPath_sameAsDom() throws IOException {
+        String page = """
+                <base href="https://monzo.com">
+                <a href="">empty</a>
+                <a href="careers">careers</a>
+                <a href="?page=2">query only</a>
+                """;
+
+        assertEquals(extract(dom, page), extract(streaming, page));
+    }
+
+    @Test
+    void extract_charactersUriRejects_sameAsDomOnceCanonicalized() throws IOException {
+        String page = """
+                <a href="/a b/c|d">spaces and pipes</a>
+                <a href="caf\u00e9?q={x}">non ascii and braces</a>
+                """;
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(false);
+
+        assertEquals(extract(dom, page).stream().map(canonicalizer::canonicalize).toList(),
+                extract(streaming, page).stream().map(canonicalizer::canonicalize).toList());
+    }
+
+    /**
+     * Only counts the bytes allocated, the JMH benchmarks measure the throughput of both.
+     */
+    @Test
+    void extract_streamingAllocatesLessPerPageThanDom() throws IOException {
+        byte[] page = linkHeavyPage(1_000).getBytes(StandardCharsets.UTF_8);
+        int pages = 200;
+        for (int i = 0; i < pages; i++) {
+            run(dom, page);
+            run(streaming, page);
+        }
+
+        long domBytesPerPage = bytesAllocatedPerPage(dom, page, pages);
+        long streamingBytesPerPage = bytesAllocatedPerPage(streaming, page, pages);
+
+        assertTrue(streamingBytesPerPage < domBytesPerPage, streamingBytesPerPage + " >= " + domBytesPerPage);
+    }
+
+    private static long bytesAllocatedPerPage(LinkExtractor extractor, byte[] page, int pages) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < pages; i++) {
+            run(extractor, page);
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / pages;
+    }
+
+    private static void run(LinkExtractor extractor, byte[] page) throws IOException {
+        int[] count = new int[1];
+        extractor.extract(new ByteArrayInputStream(page), "UTF-8", BASE_URI, link -> count[0]++);
+    }
+
+    private static List<String> extract(LinkExtractor extractor, String page) throws IOException {
+        List<String> links = new ArrayList<>();
+        extractor.extract(new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8)), "UTF-8", BASE_URI,
+                links::add);
+        return links;
+    }
+
+    /**
+     * Builds a page resembling a real one: navigation, scripts, styles, comments and a lot of text and links.
+     */
+    static String linkHeavyPage(int links) {
+        StringBuilder page = new StringBuilder("""
+                <!DOCTYPE html>
+                <html lang="en"><head><meta charset="utf-8"><title>Monzo</title>
+                <style>.nav a { color: #fff; } .footer > a:hover { text-decoration: underline; }</style>
+                <script>window.dataLayer = []; function track(a, b) { return a < b && b > a; }</script>
+                </head><body><nav class="nav">
+                """);
+        for (int i = 0; i < links; i++) {
+            if (i % 50 == 0) {
+                page.append("<!-- section ").append(i).append(" --><div class=\"section\">");
+            }
+            page.append("<p>Some text about our product number ").append(i)
+                    .append(" which is long enough to look like an actual paragraph on a page.</p>")
+                    .append("<a class=\"link\" data-id=\"").append(i).append("\" href=\"");
+            switch (i % 4) {
+                case 0 -> page.append("/products/").append(i);
+                case 1 -> page.append("https://monzo.com/legal/").append(i).append("?a=1&amp;b=2");
+                case 2 -> page.append("../help/").append(i);
+                default -> page.append("#section-").append(i);
+            }
+            page.append("\">Link ").append(i).append("</a>\n");
+            if (i % 50 == 49) {
+                page.append("</div>");
+            }
+        }
+        page.append("</nav></body></html>");
+        return page.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package yashasvig.crawler.work;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UrlCanonicalizerTest {
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(false);
+
+    @Test
+    void canonicalize_hostAndPort_lowerCasedAndDefaultPortDropped() {
+        assertEquals("https://monzo.com/", canonicalizer.canonicalize("  HTTPS://Monzo.COM:443 "));
+        assertEquals("http://monzo.com/About", canonicalizer.canonicalize("http://monzo.com:80/About"));
+        assertEquals("http://monzo.com:8080/", canonicalizer.canonicalize("http://monzo.com:8080"));
+        assertEquals("http://[::1]:8080/a", canonicalizer.canonicalize("http://[::1]:8080/a"));
+    }
+
+    @Test
+    void canonicalize_dotSegments_areResolved() {
+        assertEquals("https://monzo.com/b/d", canonicalizer.canonicalize("https://monzo.com/a/../b/./c/../d"));
+        assertEquals("https://monzo.com/a/", canonicalizer.canonicalize("https://monzo.com/a/b/.."));
+        assertEquals("https://monzo.com/x", canonicalizer.canonicalize("https://monzo.com/../../x"));
+    }
+
+    @Test
+    void canonicalize_percentEncoding_isNormalized() {
+        assertEquals("https://monzo.com/a-b%2Fc%3F", canonicalizer.canonicalize("https://monzo.com/%61%2db%2fc%3f"));
+        assertEquals("https://monzo.com/caf%C3%A9%20menu",
+                canonicalizer.canonicalize("https://monzo.com/caf\u00e9 menu"));
+        assertEquals("https://monzo.com/100%25?q=%22x%22",
+                canonicalizer.canonicalize("https://monzo.com/100%?q=\"x\""));
+        assertEquals("https://monzo.com/ab", canonicalizer.canonicalize("https://monzo.com/a\n\tb"));
+    }
+
+    @Test
+    void canonicalize_query_emptyDroppedAndSortedWhenAsked() {
+        assertEquals("https://monzo.com/", canonicalizer.canonicalize("https://monzo.com/?"));
+        assertEquals("https://monzo.com/?b=1&a=2", canonicalizer.canonicalize("https://monzo.com/?b=1&a=2"));
+        assertEquals("https://monzo.com/?a=2&b=1&b=0",
+                new UrlCanonicalizer(true).canonicalize("https://monzo.com/?b=1&a=2&&b=0"));
+    }
+
+    @Test
+    void canonicalize_unsupportedUrls_returnNull() {
+        assertNull(canonicalizer.canonicalize("mailto:someone@monzo.com"));
+        assertNull(canonicalizer.canonicalize("/relative/path"));
+        assertNull(canonicalizer.canonicalize("https://user@monzo.com/"));
+        assertNull(canonicalizer.canonicalize("https://monzo.com:99999/"));
+        assertNull(canonicalizer.canonicalize("https:///path"));
+    }
+
+    @Test
+    void canonicalize_output_isAValidUri() {
+        String url = canonicalizer.canonicalize("https://Monzo.com/a b/[c]/%zz?x=|y|#frag ment");
+
+        assertEquals(url, URI.create(url).toString());
+        assertEquals("monzo.com", URI.create(url).getHost());
+    }
+}
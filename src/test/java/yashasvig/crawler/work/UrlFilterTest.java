@@ -11,7 +11,7 @@ class UrlFilterTest {
     private static final String AUTHORITY = "monzo.com";
 
 
-    private final UrlFilter filter = new UrlFilter(AUTHORITY);
+    private final UrlFilter filter = new UrlFilter("http", AUTHORITY);
 
     @Test
     void isValid_validAuthority_returnsTrue() throws URISyntaxException {
@@ -27,4 +27,24 @@ class UrlFilterTest {
     void isValid_fragmentPresent_returnsFalse() throws URISyntaxException {
         assertFalse(filter.isValid(new URI("http://monzo.com/legal/page2#mainContent.pdf")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void isValid_upperCasedAuthority_returnsTrue() throws URISyntaxException {
+        assertTrue(filter.isValid(new URI("http://MONZO.com/legal")));
+    }
+
+    @Test
+    void isValid_defaultPortOfTheScheme_returnsTrue() throws URISyntaxException {
+        assertTrue(filter.isValid(new URI("http://monzo.com:80/legal")));
+        assertTrue(new UrlFilter("https", "monzo.com:443").isValid(new URI("https://monzo.com/legal")));
+    }
+
+    @Test
+    void isValid_defaultPortOfAnotherScheme_returnsFalse() throws URISyntaxException {
+        UrlFilter filter = new UrlFilter("http", "monzo.com:443");
+
+        assertFalse(filter.isValid(new URI("http://monzo.com/legal")));
+        assertTrue(filter.isValid(new URI("http://monzo.com:443/legal")));
+        assertTrue(filter.isValid("http://monzo.com:443/legal"));
+    }
+}
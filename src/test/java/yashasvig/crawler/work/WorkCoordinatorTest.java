@@ -1,16 +1,56 @@
 package yashasvig.crawler.work;
 
 import com.google.common.util.concurrent.MoreExecutors;
-import org.jsoup.Connection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import yashasvig.crawler.global.CrawlConfig;
+import yashasvig.crawler.metrics.CrawlMetrics;
 import yashasvig.crawler.models.Page;
+import yashasvig.crawler.work.cache.NoOpValidatorCache;
+import yashasvig.crawler.work.di.ConfiguredSessionStateFactory;
+import yashasvig.crawler.work.frontier.FifoFrontier;
+import yashasvig.crawler.work.frontier.Frontier;
+import yashasvig.crawler.work.journal.CrawlJournal;
+import yashasvig.crawler.work.journal.FileCrawlJournal;
+import yashasvig.crawler.work.journal.NoOpCrawlJournal;
+import yashasvig.crawler.work.limit.FixedConcurrencyLimiter;
+import yashasvig.crawler.work.seed.SeedSource;
+import yashasvig.crawler.work.visited.StringVisitedStore;
+import yashasvig.crawler.work.visited.VisitedStore;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 class WorkCoordinatorTest {
@@ -29,36 +69,60 @@ class WorkCoordinatorTest {
     }
 
     private final WorkTracker workTracker = mock(WorkTracker.class);
-    private final Connection connection = mock(Connection.class);
+    private final Fetcher fetcher = mock(Fetcher.class);
 
 
-    private final WorkCoordinator coordinator = new WorkCoordinator(workTracker,
-            MoreExecutors.newDirectExecutorService(),
-            connection);
+    private final WorkCoordinator coordinator = new WorkCoordinator(MoreExecutors.newDirectExecutorService(),
+            fetcher, new NoOpValidatorCache(), new FixedStateFactory(workTracker, new NoOpCrawlJournal()),
+            new FixedConcurrencyLimiter(10), new CrawlMetrics(), CrawlConfig.defaults());
 
     @Test
-    void setCallback() {
-        WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
+    void start_setsCallback() {
+        CrawlSession session = coordinator.newSession(VALID_SCHEME_URI);
+        session.start(mock(WorkCallback.class));
 
-        assertNotNull(coordinator.getWorkCallback());
+        assertNotNull(session.getWorkCallback());
     }
 
     @Test
-    void crawlDomain_invokesWorkTracker() {
-        WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
-        coordinator.crawlDomain(VALID_SCHEME_URI);
+    void start_invokesWorkTracker() {
+        coordinator.newSession(VALID_SCHEME_URI).start(mock(WorkCallback.class));
 
         verify(workTracker).trackNewPage();
     }
 
     @Test
-    void onFinishedPageSuccessfully_invokesWorkTracker() {
-        WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
+    void newSession_siteAlreadyBeingCrawled_throws() {
+        coordinator.newSession(VALID_SCHEME_URI);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.newSession(URI.create("https://MONZO.com/about")));
+        assertEquals(1, coordinator.getRunningSessions());
+    }
+
+    @Test
+    void start_unfinishedCrawlInJournal_tracksPendingPages(@TempDir Path directory) {
+        FileCrawlJournal crashed = new FileCrawlJournal(directory);
+        crashed.start(VALID_SCHEME_URI);
+        crashed.scheduled(VALID_SCHEME_URI.toString());
+        crashed.discovered("https://monzo.com/a");
+        crashed.scheduled("https://monzo.com/a");
+        crashed.discovered("https://monzo.com/b");
+        crashed.scheduled("https://monzo.com/b");
+        crashed.completed(VALID_SCHEME_URI.toString());
+        crashed.close();
+
+        WorkCoordinator resumed = new WorkCoordinator(MoreExecutors.newDirectExecutorService(), fetcher,
+                new NoOpValidatorCache(), new FixedStateFactory(workTracker, new FileCrawlJournal(directory)),
+                new FixedConcurrencyLimiter(10), new CrawlMetrics(), CrawlConfig.defaults());
+        resumed.newSession(VALID_SCHEME_URI).start(mock(WorkCallback.class));
+
+        verify(workTracker, times(2)).trackNewPage();
+    }
 
-        WorkCallback wrapper = coordinator.getWorkCallback();
+    @Test
+    void onFinishedPageSuccessfully_invokesWorkTracker() {
+        WorkCallback wrapper = startedSession(mock(WorkCallback.class)).getWorkCallback();
         wrapper.onFinishedPageSuccessfully(SAMPLE_PAGE);
 
         verify(workTracker).finishedPage();
@@ -66,10 +130,7 @@ class WorkCoordinatorTest {
 
     @Test
     void onError_invokesWorkTracker() {
-        WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
-
-        WorkCallback wrapper = coordinator.getWorkCallback();
+        WorkCallback wrapper = startedSession(mock(WorkCallback.class)).getWorkCallback();
         wrapper.onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
 
         verify(workTracker).finishedPage();
@@ -78,9 +139,8 @@ class WorkCoordinatorTest {
     @Test
     void forwardsCallback_onFinishedPageSuccessfully() {
         WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
 
-        WorkCallback wrapper = coordinator.getWorkCallback();
+        WorkCallback wrapper = startedSession(callback).getWorkCallback();
         wrapper.onFinishedPageSuccessfully(SAMPLE_PAGE);
 
         verify(callback).onFinishedPageSuccessfully(SAMPLE_PAGE);
@@ -89,22 +149,323 @@ class WorkCoordinatorTest {
     @Test
     void forwardsCallback_onError() {
         WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
 
-        WorkCallback wrapper = coordinator.getWorkCallback();
+        WorkCallback wrapper = startedSession(callback).getWorkCallback();
         wrapper.onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
 
         verify(callback).onError(VALID_SCHEME_URI.toString(), SAMPLE_ERROR);
     }
 
     @Test
-    void forwardsCallback_onFinishedCrawling() {
+    void forwardsCallback_onFinishedCrawling() throws InterruptedException {
         WorkCallback callback = mock(WorkCallback.class);
-        coordinator.setCallback(callback);
 
-        WorkCallback wrapper = coordinator.getWorkCallback();
-        wrapper.onFinishedCrawling();
+        CrawlSession session = startedSession(callback);
+        session.awaitFinished();
 
         verify(callback).onFinishedCrawling();
+        assertEquals(0, coordinator.getRunningSessions());
+    }
+
+    /**
+     * Crawls 50 small sites side by side on a single pool of 8 threads.
+     */
+    @Test
+    void sessions_manySitesOnOneSharedPool_crawlOnlyTheirOwnPages() throws Exception {
+        int sites = 50;
+        int pagesPerSite = 20;
+        ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        List<HttpServer> servers = new ArrayList<>();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(8, 8, 2L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        CrawlConfig config = CrawlConfig.builder().setWorkerThreads(8).build();
+        WorkCoordinator shared = new WorkCoordinator(pool,
+                new JsoupFetcher(Jsoup.newSession().ignoreContentType(true).timeout(5000)), new NoOpValidatorCache(),
+                new ConfiguredSessionStateFactory(config), new FixedConcurrencyLimiter(8), new CrawlMetrics(),
+                config);
+        try {
+            Map<URI, Set<String>> crawledPages = new ConcurrentHashMap<>();
+            List<CrawlSession> sessions = new ArrayList<>();
+            for (int site = 0; site < sites; site++) {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                server.createContext("/", exchange -> serve(exchange, pagesPerSite));
+                server.setExecutor(serverExecutor);
+                server.start();
+                servers.add(server);
+
+                URI seed = URI.create("http://localhost:" + server.getAddress().getPort() + "/page/0");
+                Set<String> pages = ConcurrentHashMap.newKeySet();
+                crawledPages.put(seed, pages);
+                CrawlSession session = shared.newSession(seed);
+                session.start(new WorkCallback() {
+                    @Override
+                    public void onFinishedPageSuccessfully(Page page) {
+                        pages.add(page.getUrl().toString());
+                    }
+
+                    @Override
+                    public void onError(String url, String errorMessage) {
+                    }
+
+                    @Override
+                    public void onFinishedCrawling() {
+                    }
+                });
+                sessions.add(session);
+            }
+            assertEquals(sites, shared.getRunningSessions());
+            for (CrawlSession session : sessions) {
+                session.awaitFinished();
+            }
+
+            assertEquals(0, shared.getRunningSessions());
+            for (Map.Entry<URI, Set<String>> site : crawledPages.entrySet()) {
+                String authority = site.getKey().getAuthority();
+                assertTrue(site.getValue().stream().allMatch(url -> URI.create(url).getAuthority().equals(authority)));
+                assertEquals(pagesPerSite, site.getValue().size());
+            }
+        } finally {
+            servers.forEach(server -> server.stop(0));
+            serverExecutor.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void session_maxDepth_crawlsOnlyPagesWithinDepth() throws Exception {
+        List<String> crawled = crawlTree(CrawlConfig.builder().setMaxDepth(2).build(), 20, "");
+
+        assertEquals(Set.of("0", "1", "2", "3", "4", "5", "6"), Set.copyOf(crawled));
+    }
+
+    @Test
+    void session_maxPagesWithPriorityFrontier_crawlsBudgetClosestToSeed() throws Exception {
+        List<String> crawled = crawlTree(CrawlConfig.builder()
+                .setFrontierMode(CrawlConfig.FrontierMode.PRIORITY)
+                .setMaxPages(6)
+                .build(), 100, "");
+
+        assertEquals(6, crawled.size());
+        // Depth 2 ends at page 6.
+        assertTrue(crawled.stream().allMatch(id -> Integer.parseInt(id) <= 6), crawled.toString());
+    }
+
+        @Test
+    void session_robotsTxt_skipsDisallowedPages() throws Exception {
+        List<String> crawled = crawlTree(CrawlConfig.builder().setRobotsTxt(true).build(), 15,
+                "User-agent: *\nDisallow: /page/1\nAllow: /page/1$\n");
+
+        // The prefix disallows pages 10 to 14, the anchored rule keeps page 1 itself allowed.
+        assertEquals(Set.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), Set.copyOf(crawled));
+    }
+
+    @Test
+    void session_robotsTxtDisallowsSeed_crawlsNothing() throws Exception {
+        List<String> crawled = crawlTree(CrawlConfig.builder().setRobotsTxt(true).build(), 15,
+                "User-agent: *\nDisallow: /\n");
+
+        assertTrue(crawled.isEmpty());
+    }
+
+    @Test
+    void session_robotsCrawlDelay_slowsDownHost() throws Exception {
+        long start = System.nanoTime();
+        List<String> crawled = crawlTree(CrawlConfig.builder().setRobotsTxt(true).build(), 4,
+                "User-agent: *\nCrawl-delay: 0.25\n");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 4 pages, at least 0.25 s apart even though the default frontier doesn't pace hosts.
+        assertEquals(4, crawled.size());
+        assertTrue(elapsedMillis >= 700, elapsedMillis + " ms");
+    }
+
+        @Test
+    void session_seedFile_crawlsListedPagesOfTheSite(@TempDir Path directory) throws Exception {
+        Path seedFile = directory.resolve("seeds.txt");
+        List<String> crawled = crawlTree(CrawlConfig.defaults(), 10, "", baseUrl -> {
+            try {
+                Files.write(seedFile, List.of("# Not linked from anywhere", baseUrl + "/page/20", baseUrl + "/page/21",
+                        baseUrl + "/page/20", "https://elsewhere.com/page/22", "not a url at all"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return List.of(SeedSource.file(seedFile));
+        });
+
+        assertEquals(Set.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "20", "21"), Set.copyOf(crawled));
+    }
+
+    @Test
+    void session_seedLinkedBackToInAnotherForm_fetchesItOnce() throws Exception {
+        AtomicInteger rootFetches = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/") && "GET".equals(exchange.getRequestMethod())) {
+                rootFetches.incrementAndGet();
+            }
+            byte[] bytes = "<html><body><a href=\"/\">home</a><a href=\"/a\">a</a></body></html>"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("HEAD".equals(exchange.getRequestMethod()) ? new byte[0] : bytes);
+            }
+            exchange.close();
+        });
+        server.start();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CrawlConfig config = CrawlConfig.defaults();
+            WorkCoordinator coordinator = new WorkCoordinator(pool,
+                    new JsoupFetcher(Jsoup.newSession().ignoreContentType(true).timeout(5000)),
+                    new NoOpValidatorCache(), new ConfiguredSessionStateFactory(config), new FixedConcurrencyLimiter(2),
+                    new CrawlMetrics(), config);
+            List<String> crawled = Collections.synchronizedList(new ArrayList<>());
+            // No trailing slash on the seed, while the pages link to "/".
+            CrawlSession session = coordinator.newSession(
+                    URI.create("http://LOCALHOST:" + server.getAddress().getPort()));
+            session.start(new WorkCallback() {
+                @Override
+                public void onFinishedPageSuccessfully(Page page) {
+                    crawled.add(page.getUrl().getPath());
+                }
+
+                @Override
+                public void onError(String url, String errorMessage) {
+                }
+
+                @Override
+                public void onFinishedCrawling() {
+                }
+            });
+            session.awaitFinished();
+
+            assertEquals(1, rootFetches.get());
+            assertEquals(2, crawled.size(), crawled.toString());
+        } finally {
+            server.stop(0);
+            pool.shutdown();
+        }
+    }
+
+    private CrawlSession startedSession(WorkCallback callback) {
+        CrawlSession session = coordinator.newSession(VALID_SCHEME_URI);
+        session.start(callback);
+        return session;
+    }
+
+    private List<String> crawlTree(CrawlConfig config, int pages, String robotsTxt) throws Exception {
+        return crawlTree(config, pages, robotsTxt, baseUrl -> List.of());
+    }
+
+    /**
+     * Crawls a local tree shaped site of {@code pages} pages with the given robots.txt and returns the ids of the
+     * crawled pages. {@code seedSources} gets the base url of the site.
+     */
+    private List<String> crawlTree(CrawlConfig config, int pages, String robotsTxt,
+                                   Function<String, List<SeedSource>> seedSources) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> serve(exchange, pages));
+        server.createContext("/robots.txt", exchange -> {
+            byte[] bytes = robotsTxt.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            exchange.close();
+        });
+        server.start();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            WorkCoordinator coordinator = new WorkCoordinator(pool,
+                    new JsoupFetcher(Jsoup.newSession().ignoreContentType(true).timeout(5000)),
+                    new NoOpValidatorCache(), new ConfiguredSessionStateFactory(config), new FixedConcurrencyLimiter(2),
+                    new CrawlMetrics(), config);
+            List<String> crawled = Collections.synchronizedList(new ArrayList<>());
+            String baseUrl = "http://localhost:" + server.getAddress().getPort();
+            CrawlSession session = coordinator.newSession(URI.create(baseUrl + "/page/0"));
+            seedSources.apply(baseUrl).forEach(session::seedFrom);
+            session.start(new WorkCallback() {
+                @Override
+                public void onFinishedPageSuccessfully(Page page) {
+                    crawled.add(page.getUrl().getPath().substring("/page/".length()));
+                }
+
+                @Override
+                public void onError(String url, String errorMessage) {
+                }
+
+                @Override
+                public void onFinishedCrawling() {
+                }
+            });
+            session.awaitFinished();
+            return crawled;
+        } finally {
+            server.stop(0);
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Serves a tree shaped site where page i links to pages 2i+1, 2i+2 and back to the root.
+     */
+    private static void serve(HttpExchange exchange, int pages) throws IOException {
+        int id = Integer.parseInt(exchange.getRequestURI().getPath().substring("/page/".length()));
+        StringBuilder body = new StringBuilder("<html><body><a href=\"/page/0\">home</a>");
+        for (int child = 2 * id + 1; child <= 2 * id + 2 && child < pages; child++) {
+            body.append("<a href=\"/page/").append(child).append("\">").append(child).append("</a>");
+        }
+        body.append("</body></html>");
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    /**
+     * Hands out the given tracker and journal and in-memory stores.
+     */
+    private static final class FixedStateFactory implements SessionStateFactory {
+        private final WorkTracker workTracker;
+        private final CrawlJournal journal;
+
+        private FixedStateFactory(WorkTracker workTracker, CrawlJournal journal) {
+            this.workTracker = workTracker;
+            this.journal = journal;
+        }
+
+        @Override
+        public Frontier newFrontier(String sessionName) {
+            return new FifoFrontier();
+        }
+
+        @Override
+        public VisitedStore newVisitedStore(String sessionName) {
+            return new StringVisitedStore();
+        }
+
+        @Override
+        public CrawlJournal newJournal(String sessionName) {
+            return journal;
+        }
+
+        @Override
+        public WorkTracker newWorkTracker() {
+            return workTracker;
+        }
+
+        @Override
+        public UrlRouter newRouter(CrawlSession session) {
+            return UrlRouter.LOCAL;
+        }
     }
-}
\ No newline at end of file
+}
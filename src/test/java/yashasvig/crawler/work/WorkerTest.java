@@ -0,0 +1,298 @@
+package yashasvig.crawler.work;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import yashasvig.crawler.metrics.CrawlMetrics;
+import yashasvig.crawler.models.Page;
+import yashasvig.crawler.models.UrlDictionary;
+import yashasvig.crawler.work.cache.CachedPage;
+import yashasvig.crawler.work.cache.FileValidatorCache;
+import yashasvig.crawler.work.cache.NoOpValidatorCache;
+import yashasvig.crawler.work.cache.ValidatorCache;
+import yashasvig.crawler.work.limit.FixedConcurrencyLimiter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class WorkerTest {
+
+    private static final int BINARY_SIZE = 64 * 1024 * 1024;
+
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicLong binaryBytesSent = new AtomicLong();
+    private final CountDownLatch binaryHandled = new CountDownLatch(1);
+    private final AtomicInteger parsedPages = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private final CrawlMetrics metrics = new CrawlMetrics();
+    private volatile String version = "v1";
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private String baseUrl;
+    private UrlFilter filter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page.html", exchange -> respond(exchange, "text/html; charset=utf-8",
+                "<html><body><a href=\"/doc.pdf\">doc</a><a href=\"/notes.txt\">notes</a></body></html>"));
+        server.createContext("/notes.txt", exchange -> respond(exchange, "text/plain", "<a href=\"/hidden\">x</a>"));
+        server.createContext("/doc.pdf", this::respondWithBinary);
+        server.createContext("/validated.html", this::respondWithValidators);
+        server.createContext("/unvalidated.html", exchange -> respond(exchange, "text/html",
+                "<a href=\"/" + version + "\">" + version + "</a>"));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        filter = new UrlFilter("http", "localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void singleGet_htmlPage_sendsOneRequest() {
+        Page page = crawl("/page.html", false);
+
+        assertEquals(List.of(URI.create(baseUrl + "/doc.pdf"), URI.create(baseUrl + "/notes.txt")),
+                page.getChildUrls().stream().sorted().toList());
+        assertEquals(1, count("GET /page.html"));
+        assertEquals(0, count("HEAD /page.html"));
+    }
+
+    @Test
+    void singleGet_binaryPage_dropsBodyAfterHeaders() throws InterruptedException {
+        Page page = crawl("/doc.pdf", false);
+
+        assertTrue(page.getChildUrls().isEmpty());
+        assertEquals(1, count("GET /doc.pdf"));
+        assertTrue(binaryHandled.await(10, TimeUnit.SECONDS));
+        assertTrue(binaryBytesSent.get() < BINARY_SIZE, binaryBytesSent.get() + " bytes sent");
+    }
+
+    @Test
+    void singleGet_textPage_isNotParsed() {
+        Page page = crawl("/notes.txt", false);
+
+        assertTrue(page.getChildUrls().isEmpty());
+        assertEquals(1, count("GET /notes.txt"));
+    }
+
+    @Test
+    void headThenGet_htmlPage_sendsTwoRequests() {
+        crawl("/page.html", true);
+
+        assertEquals(1, count("HEAD /page.html"));
+        assertEquals(1, count("GET /page.html"));
+    }
+
+    @Test
+    void headThenGet_binaryPage_sendsOnlyHead() {
+        Page page = crawl("/doc.pdf", true);
+
+        assertTrue(page.getChildUrls().isEmpty());
+        assertEquals(1, count("HEAD /doc.pdf"));
+        assertEquals(0, count("GET /doc.pdf"));
+    }
+
+    @Test
+    void recrawl_notModified_reusesCachedLinksWithoutBody() {
+        ValidatorCache cache = new FileValidatorCache(directory.resolve("validators"));
+        Page first = crawl("/validated.html", true, cache);
+        Page second = crawl("/validated.html", true, cache);
+
+        assertEquals(List.of(URI.create(baseUrl + "/v1")), second.getChildUrls());
+        assertEquals(first.getChildUrls(), second.getChildUrls());
+        assertEquals(1, notModifiedResponses.get());
+        assertEquals(1, parsedPages.get());
+        // No HEAD request the second time, the cache already knows it's an html page.
+        assertEquals(1, count("HEAD /validated.html"));
+    }
+
+    @Test
+    void recrawl_modified_extractsNewLinks() {
+        ValidatorCache cache = new FileValidatorCache(directory.resolve("validators"));
+        crawl("/validated.html", false, cache);
+        version = "v2";
+        Page second = crawl("/validated.html", false, cache);
+
+        assertEquals(List.of(URI.create(baseUrl + "/v2")), second.getChildUrls());
+        assertEquals(0, notModifiedResponses.get());
+        assertEquals(2, parsedPages.get());
+    }
+
+    @Test
+    void recrawl_sameBodyWithoutValidators_keepsCachedLinks() {
+        ValidatorCache cache = new FileValidatorCache(directory.resolve("validators"));
+        crawl("/unvalidated.html", false, cache);
+        String pageUrl = baseUrl + "/unvalidated.html";
+        CachedPage cached = cache.get(pageUrl);
+        cache.put(pageUrl, new CachedPage(cached.getValidators(), cached.getContentHash(),
+                List.of(baseUrl + "/cached")));
+
+        Page second = crawl("/unvalidated.html", false, cache);
+
+        assertEquals(List.of(URI.create(baseUrl + "/cached")), second.getChildUrls());
+        assertEquals(2, count("GET /unvalidated.html"));
+        // The body is streamed through the extractor while it's hashed, rather than buffered to be hashed first.
+        assertEquals(2, parsedPages.get());
+    }
+
+    @Test
+    void headThenGet_htmlPage_recordsEveryStage() {
+        crawl("/page.html", true);
+
+        assertEquals(1, metrics.getHistogram(CrawlMetrics.Stage.HEAD).getCount());
+        assertEquals(1, metrics.getHistogram(CrawlMetrics.Stage.GET).getCount());
+        assertEquals(1, metrics.getHistogram(CrawlMetrics.Stage.PARSE).getCount());
+        assertEquals(1, metrics.getHistogram(CrawlMetrics.Stage.FILTER).getCount());
+        assertEquals(Map.of("200", 2L), metrics.getStatusCodes());
+        assertEquals(Map.of("localhost", 1L), metrics.getPagesByHost());
+    }
+
+    @Test
+    void headThenGet_htmlPage_emitsFlightRecorderEvents() throws IOException {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String event : List.of("Fetch", "Parse", "Filter")) {
+                recording.enable("yashasvig.crawler." + event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            crawl("/page.html", true);
+            recording.stop();
+            Path file = directory.resolve("crawl.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        String url = baseUrl + "/page.html";
+        List<RecordedEvent> fetches = eventsNamed(events, "Fetch");
+        assertEquals(List.of("HEAD", "GET"), fetches.stream().map(event -> event.getString("method")).toList());
+        assertTrue(fetches.stream().allMatch(event -> event.getString("url").equals(url)
+                && event.getInt("status") == 200));
+        RecordedEvent parse = eventsNamed(events, "Parse").get(0);
+        assertEquals(url, parse.getString("url"));
+        assertTrue(parse.getLong("bytes") > 0);
+        assertEquals(2, parse.getInt("links"));
+        assertEquals(2, eventsNamed(events, "Filter").get(0).getInt("keptLinks"));
+    }
+
+    private Page crawl(String path, boolean sendHeadRequest) {
+        return crawl(path, sendHeadRequest, new NoOpValidatorCache());
+    }
+
+    private Page crawl(String path, boolean sendHeadRequest, ValidatorCache cache) {
+        Fetcher fetcher = new JsoupFetcher(Jsoup.newSession().ignoreContentType(true).timeout(5000), metrics);
+        LinkExtractor extractor = (body, charset, baseUri, links) -> {
+            parsedPages.incrementAndGet();
+            new StreamingLinkExtractor().extract(body, charset, baseUri, links);
+        };
+        WorkCallback callback = mock(WorkCallback.class);
+        new Worker(fetcher, extractor, cache, filter, new UrlCanonicalizer(false), new UrlDictionary(), callback,
+                new FixedConcurrencyLimiter(1), metrics, URI.create(baseUrl + path), sendHeadRequest).run();
+
+        ArgumentCaptor<Page> captor = ArgumentCaptor.forClass(Page.class);
+        verify(callback).onFinishedPageSuccessfully(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals("yashasvig.crawler." + name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .toList();
+    }
+
+    private int count(String request) {
+        AtomicInteger count = requests.get(request);
+        return count == null ? 0 : count.get();
+    }
+
+    private void record(HttpExchange exchange) {
+        requests.computeIfAbsent(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(),
+                r -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        record(exchange);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private void respondWithValidators(HttpExchange exchange) throws IOException {
+        String etag = "\"" + version + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            record(exchange);
+            notModifiedResponses.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        respond(exchange, "text/html", "<a href=\"/" + version + "\">" + version + "</a>");
+    }
+
+    private void respondWithBinary(HttpExchange exchange) throws IOException {
+        record(exchange);
+        exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, BINARY_SIZE);
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int sent = 0; sent < BINARY_SIZE; sent += chunk.length) {
+                out.write(chunk);
+                binaryBytesSent.addAndGet(chunk.length);
+            }
+        } catch (IOException e) {
+            // The client went away, which is what we expect.
+        } finally {
+            binaryHandled.countDown();
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package yashasvig.crawler.work.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileValidatorCacheTest {
+
+    private static final CachedPage PAGE = new CachedPage(new Validators("\"abc\"", null), 42,
+            List.of("https://monzo.com/a", "https://monzo.com/b"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void close_savesPagesForTheNextCrawl() {
+        Path file = directory.resolve("validators");
+        FileValidatorCache cache = new FileValidatorCache(file);
+        cache.put("https://monzo.com", PAGE);
+        cache.put("https://monzo.com/c", new CachedPage(Validators.NONE, CachedPage.UNKNOWN_HASH, List.of()));
+        cache.close();
+
+        FileValidatorCache reloaded = new FileValidatorCache(file);
+        assertEquals(PAGE, reloaded.get("https://monzo.com"));
+        assertEquals(new CachedPage(Validators.NONE, CachedPage.UNKNOWN_HASH, List.of()),
+                reloaded.get("https://monzo.com/c"));
+    }
+
+    @Test
+    void close_dropsPagesNotReachedByTheCrawl() {
+        Path file = directory.resolve("validators");
+        FileValidatorCache cache = new FileValidatorCache(file);
+        cache.put("https://monzo.com", PAGE);
+        cache.put("https://monzo.com/gone", PAGE);
+        cache.close();
+
+        FileValidatorCache secondCrawl = new FileValidatorCache(file);
+        secondCrawl.get("https://monzo.com");
+        assertEquals(1, secondCrawl.size());
+        secondCrawl.close();
+
+        FileValidatorCache thirdCrawl = new FileValidatorCache(file);
+        assertEquals(PAGE, thirdCrawl.get("https://monzo.com"));
+        assertNull(thirdCrawl.get("https://monzo.com/gone"));
+    }
+
+    @Test
+    void get_unreadableFile_startsEmpty() throws IOException {
+        Path file = directory.resolve("validators");
+        Files.writeString(file, "definitely not a cache");
+
+        assertNull(new FileValidatorCache(file).get("https://monzo.com"));
+    }
+}
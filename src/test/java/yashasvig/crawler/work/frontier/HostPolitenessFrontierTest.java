@@ -0,0 +1,84 @@
+package yashasvig.crawler.work.frontier;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HostPolitenessFrontierTest {
+
+    private static final URI SLOW_1 = URI.create("https://slow.com/1");
+    private static final URI SLOW_2 = URI.create("https://slow.com/2");
+    private static final URI SLOW_3 = URI.create("https://slow.com/3");
+    private static final URI FAST_1 = URI.create("https://fast.com/1");
+    private static final URI FAST_2 = URI.create("https://fast.com/2");
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final HostPolitenessFrontier frontier = new HostPolitenessFrontier(1, 1,
+            ImmutableMap.of("fast.com", 10.0), ticker);
+
+    @Test
+    void pollReady_sameHost_waitsForRateLimit() {
+        frontier.add(SLOW_1);
+        frontier.add(SLOW_2);
+
+        assertEquals(SLOW_1, frontier.pollReady());
+        assertNull(frontier.pollReady());
+
+        ticker.advance(999);
+        assertNull(frontier.pollReady());
+
+        ticker.advance(1);
+        assertEquals(SLOW_2, frontier.pollReady());
+    }
+
+    @Test
+    void pollReady_rateLimitedHost_doesNotBlockOtherHosts() {
+        frontier.add(SLOW_1);
+        frontier.add(SLOW_2);
+        frontier.add(SLOW_3);
+        frontier.add(FAST_1);
+        frontier.add(FAST_2);
+
+        assertEquals(SLOW_1, frontier.pollReady());
+        assertEquals(FAST_1, frontier.pollReady());
+        assertNull(frontier.pollReady());
+
+        ticker.advance(100);
+        assertEquals(FAST_2, frontier.pollReady());
+        assertEquals(2, frontier.size());
+    }
+
+    @Test
+    void take_returnsUrlOnceHostIsReady() throws InterruptedException {
+        HostPolitenessFrontier realTimeFrontier = new HostPolitenessFrontier(20, 1, ImmutableMap.of());
+        realTimeFrontier.add(SLOW_1);
+        realTimeFrontier.add(SLOW_2);
+
+        long start = System.nanoTime();
+        assertEquals(SLOW_1, realTimeFrontier.take());
+        assertEquals(SLOW_2, realTimeFrontier.take());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(0, realTimeFrontier.size());
+        assertEquals(true, elapsedMillis >= 45, "took " + elapsedMillis + "ms");
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private long nanos;
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
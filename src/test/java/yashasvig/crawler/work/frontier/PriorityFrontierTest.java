@@ -0,0 +1,83 @@
+package yashasvig.crawler.work.frontier;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PriorityFrontierTest {
+
+    private static final URI HOME = URI.create("https://monzo.com/");
+    private static final URI ABOUT = URI.create("https://monzo.com/about");
+    private static final URI BLOG = URI.create("https://monzo.com/blog");
+    private static final URI PAGE_2 = URI.create("https://monzo.com/blog?page=2");
+    private static final URI PAGE_3 = URI.create("https://monzo.com/blog?page=3");
+
+    @Test
+    void take_depthScorer_returnsShallowestFirst() throws InterruptedException {
+        PriorityFrontier frontier = new PriorityFrontier(UrlScorer.DEPTH);
+        frontier.add(PAGE_3, 3);
+        frontier.add(ABOUT, 1);
+        frontier.add(PAGE_2, 2);
+        frontier.add(BLOG, 1);
+
+        assertEquals(List.of(ABOUT, BLOG, PAGE_2, PAGE_3), takeAll(frontier));
+    }
+
+    @Test
+    void linked_inLinksScorer_movesUrlAhead() throws InterruptedException {
+        PriorityFrontier frontier = new PriorityFrontier(UrlScorer.IN_LINKS);
+        frontier.add(ABOUT, 1);
+        frontier.add(BLOG, 1);
+        frontier.add(PAGE_2, 2);
+        frontier.linked(PAGE_2);
+        frontier.linked(PAGE_2);
+        frontier.linked(BLOG);
+
+        assertEquals(List.of(PAGE_2, BLOG, ABOUT), takeAll(frontier));
+    }
+
+    @Test
+    void linked_takenUrl_isIgnored() throws InterruptedException {
+        PriorityFrontier frontier = new PriorityFrontier(UrlScorer.IN_LINKS);
+        frontier.add(ABOUT, 1);
+        frontier.take();
+        frontier.linked(ABOUT);
+
+        assertEquals(0, frontier.size());
+    }
+
+    @Test
+    void take_patternWeights_returnsHeaviestFirstThenShallowest() throws InterruptedException {
+        PriorityFrontier frontier = new PriorityFrontier(new PatternWeightScorer(
+                ImmutableMap.of("/blog$", 5.0, "[?&]page=", -1.0)));
+        frontier.add(PAGE_2, 2);
+        frontier.add(HOME, 0);
+        frontier.add(ABOUT, 1);
+        frontier.add(BLOG, 1);
+
+        assertEquals(List.of(BLOG, HOME, ABOUT, PAGE_2), takeAll(frontier));
+    }
+
+    @Test
+    void add_sameUrlTwice_returnsItTwice() throws InterruptedException {
+        PriorityFrontier frontier = new PriorityFrontier(UrlScorer.DEPTH);
+        frontier.add(ABOUT, 1);
+        frontier.add(BLOG, 2);
+        frontier.add(ABOUT, 1);
+
+        assertEquals(List.of(ABOUT, ABOUT, BLOG), takeAll(frontier));
+    }
+
+    private static List<URI> takeAll(Frontier frontier) throws InterruptedException {
+        List<URI> urls = new ArrayList<>();
+        while (frontier.size() > 0) {
+            urls.add(frontier.take());
+        }
+        return urls;
+    }
+}
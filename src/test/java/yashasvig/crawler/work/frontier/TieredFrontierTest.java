@@ -0,0 +1,77 @@
+package yashasvig.crawler.work.frontier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredFrontierTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void take_urlsSpilledToDisk_comeBackInOrder() throws Exception {
+        TieredFrontier frontier = new TieredFrontier(directory, 100);
+        for (int i = 0; i < 1_000; i++) {
+            frontier.add(url(i));
+        }
+        assertEquals(900, frontier.spilledUrls());
+        assertTrue(fileCount() > 0);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(url(i), frontier.take());
+        }
+        assertEquals(0, frontier.size());
+        assertEquals(0, fileCount());
+    }
+
+    @Test
+    void take_interleavedWithAdd_keepsFifoOrder() throws Exception {
+        TieredFrontier frontier = new TieredFrontier(directory, 10);
+        int added = 0;
+        int taken = 0;
+        while (added < 5_000) {
+            for (int i = 0; i < 7; i++) {
+                frontier.add(url(added++));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(url(taken++), frontier.take());
+            }
+        }
+        while (taken < added) {
+            assertEquals(url(taken++), frontier.take());
+        }
+        assertEquals(0, frontier.size());
+    }
+
+    @Test
+    void close_deletesTheSegments() throws IOException {
+        TieredFrontier frontier = new TieredFrontier(directory, 4);
+        for (int i = 0; i < 50; i++) {
+            frontier.add(url(i));
+        }
+
+        frontier.close();
+
+        assertEquals(0, fileCount());
+        assertEquals(0, frontier.size());
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static URI url(int i) {
+        return URI.create("https://monzo.com/caf%C3%A9/" + i + "?q=" + i);
+    }
+}
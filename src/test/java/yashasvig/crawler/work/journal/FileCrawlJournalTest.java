@@ -0,0 +1,146 @@
+package yashasvig.crawler.work.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileCrawlJournalTest {
+
+    private static final URI SEED = URI.create("https://monzo.com");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recover_unfinishedCrawl_returnsVisitedAndPendingUrls() {
+        FileCrawlJournal journal = new FileCrawlJournal(directory);
+        assertNull(journal.recover(SEED));
+        journal.start(SEED);
+        journal.scheduled("https://monzo.com");
+        journal.discovered("https://monzo.com/a");
+        journal.scheduled("https://monzo.com/a");
+        journal.discovered("https://monzo.com/b");
+        journal.scheduled("https://monzo.com/b");
+        journal.completed("https://monzo.com");
+        journal.completed("https://monzo.com/b");
+        journal.close();
+
+        CrawlState state = new FileCrawlJournal(directory).recover(SEED);
+
+        assertEquals("https://monzo.com", state.getSeed());
+        assertEquals(List.of("https://monzo.com/a", "https://monzo.com/b"), List.copyOf(state.getVisitedUrls()));
+        assertEquals(List.of("https://monzo.com/a"), List.copyOf(state.getPendingUrls()));
+    }
+
+    @Test
+    void recover_afterResume_includesEventsOfBothRuns() {
+        FileCrawlJournal first = new FileCrawlJournal(directory);
+        first.start(SEED);
+        first.scheduled("https://monzo.com");
+        first.close();
+
+        FileCrawlJournal second = new FileCrawlJournal(directory);
+        second.recover(SEED);
+        second.discovered("https://monzo.com/a");
+        second.scheduled("https://monzo.com/a");
+        second.completed("https://monzo.com");
+        second.close();
+
+        CrawlState state = new FileCrawlJournal(directory).recover(SEED);
+        assertEquals(List.of("https://monzo.com/a"), List.copyOf(state.getPendingUrls()));
+    }
+
+    @Test
+    void recover_finishedCrawl_returnsNull() {
+        FileCrawlJournal journal = new FileCrawlJournal(directory);
+        journal.start(SEED);
+        journal.scheduled("https://monzo.com");
+        journal.finish();
+
+        assertNull(new FileCrawlJournal(directory).recover(SEED));
+    }
+
+    @Test
+    void recover_otherSeed_returnsNull() {
+        FileCrawlJournal journal = new FileCrawlJournal(directory);
+        journal.start(SEED);
+        journal.scheduled("https://monzo.com");
+        journal.close();
+
+        assertNull(new FileCrawlJournal(directory).recover(URI.create("https://example.com")));
+    }
+
+    @Test
+    void recover_tornLastRecord_isIgnored() throws IOException {
+        FileCrawlJournal journal = new FileCrawlJournal(directory);
+        journal.start(SEED);
+        journal.scheduled("https://monzo.com");
+        journal.close();
+        Files.write(directory.resolve("journal-000001.log"), new byte[]{CrawlState.SCHEDULED, 0, 0, 1},
+                StandardOpenOption.APPEND);
+
+        CrawlState state = new FileCrawlJournal(directory).recover(SEED);
+
+        assertEquals(List.of("https://monzo.com"), List.copyOf(state.getPendingUrls()));
+        assertEquals(1 + Integer.BYTES + SEED.toString().length() + 1 + Integer.BYTES + "https://monzo.com".length(),
+                Files.size(directory.resolve("journal-000001.log")));
+    }
+
+    @Test
+    void recover_zeroFilledTail_isTruncated() throws IOException {
+        FileCrawlJournal journal = new FileCrawlJournal(directory);
+        journal.start(SEED);
+        journal.scheduled("https://monzo.com");
+        journal.close();
+        Path segment = directory.resolve("journal-000001.log");
+        long written = Files.size(segment);
+        Files.write(segment, new byte[4096], StandardOpenOption.APPEND);
+
+        FileCrawlJournal resumed = new FileCrawlJournal(directory);
+        CrawlState state = resumed.recover(SEED);
+        resumed.discovered("https://monzo.com/a");
+        resumed.scheduled("https://monzo.com/a");
+        resumed.close();
+
+        assertEquals(List.of("https://monzo.com"), List.copyOf(state.getPendingUrls()));
+        assertEquals(written, Files.size(segment));
+        assertEquals(List.of("https://monzo.com", "https://monzo.com/a"),
+                List.copyOf(new FileCrawlJournal(directory).recover(SEED).getPendingUrls()));
+    }
+
+    @Test
+    void compaction_foldsSegmentsIntoSnapshot() throws IOException {
+        FileCrawlJournal journal = new FileCrawlJournal(directory, 1024);
+        journal.start(SEED);
+        for (int i = 0; i < 5_000; i++) {
+            String url = "https://monzo.com/" + i;
+            journal.discovered(url);
+            journal.scheduled(url);
+            if (i % 2 == 0) {
+                journal.completed(url);
+            }
+        }
+        journal.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).toList();
+            assertEquals(1, names.stream().filter(name -> name.startsWith("snapshot-")).count(), names.toString());
+            assertTrue(names.stream().filter(name -> name.startsWith("journal-")).count() <= 2, names.toString());
+        }
+        CrawlState state = new FileCrawlJournal(directory).recover(SEED);
+        assertEquals(5_000, state.getVisitedUrls().size());
+        assertEquals(2_500, state.getPendingUrls().size());
+        assertTrue(state.getPendingUrls().contains("https://monzo.com/4999"));
+    }
+}
@@ -0,0 +1,192 @@
+package yashasvig.crawler.work.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AimdConcurrencyLimiterTest {
+
+    private static final String HOST = "example.com";
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final List<Integer> limitChanges = new ArrayList<>();
+
+    @Test
+    void release_windowOfSuccesses_growsLimitByOne() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(4, 1, 10);
+
+        // Every success adds 1 / limit, so it takes a little more than 4 of them to get to 5.
+        releaseAll(limiter, 5, FAST, FetchOutcome.OK);
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(List.of(5), limitChanges);
+    }
+
+    @Test
+    void release_timeouts_cutLimitOncePerWindow() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(10, 1, 20);
+
+        releaseAll(limiter, 3, FAST, FetchOutcome.TIMED_OUT);
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(List.of(10, 5), limiter.getHistory().stream().map(LimitChange::getLimit).toList());
+    }
+
+    @Test
+    void release_failedFetches_leaveLimitAlone() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(4, 1, 10);
+
+        releaseAll(limiter, 20, FAST, FetchOutcome.FAILED);
+
+        assertEquals(4, limiter.getLimit());
+        assertTrue(limitChanges.isEmpty());
+    }
+
+    @Test
+    void release_latencyRisingWellAboveBaseline_backsOff() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(10, 1, 100);
+        releaseAll(limiter, 50, FAST, FetchOutcome.OK);
+        int peak = limiter.getLimit();
+
+        releaseAll(limiter, 50, 10 * FAST, FetchOutcome.OK);
+
+        assertTrue(peak > 10);
+        assertTrue(limiter.getLimit() < peak, limiter.getLimit() + " is not below " + peak);
+    }
+
+    @Test
+    void release_slowHostNextToFastHost_keepsGrowing() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(10, 1, 100);
+
+        for (int i = 0; i < 50; i++) {
+            releaseAll(limiter, "fast.example.com", 1, FAST, FetchOutcome.OK);
+            releaseAll(limiter, "slow.example.com", 1, 100 * FAST, FetchOutcome.OK);
+        }
+
+        assertTrue(limiter.getLimit() > 10, String.valueOf(limiter.getLimit()));
+        assertTrue(limitChanges.stream().allMatch(limit -> limit > 10), limitChanges.toString());
+    }
+
+    @Test
+    void release_oneHostQueueingNextToSteadyHost_backsOff() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(10, 1, 100);
+        for (int i = 0; i < 25; i++) {
+            releaseAll(limiter, "steady.example.com", 1, 100 * FAST, FetchOutcome.OK);
+            releaseAll(limiter, HOST, 1, FAST, FetchOutcome.OK);
+        }
+        int peak = limiter.getLimit();
+
+        for (int i = 0; i < 25; i++) {
+            releaseAll(limiter, "steady.example.com", 1, 100 * FAST, FetchOutcome.OK);
+            releaseAll(limiter, HOST, 1, 10 * FAST, FetchOutcome.OK);
+        }
+
+        assertTrue(limiter.getLimit() < peak, limiter.getLimit() + " is not below " + peak);
+    }
+
+    @Test
+    void release_limitStaysWithinBounds() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(2, 1, 3);
+
+        releaseAll(limiter, 100, FAST, FetchOutcome.OVERLOADED);
+        assertEquals(1, limiter.getLimit());
+
+        releaseAll(limiter, 100, FAST, FetchOutcome.OK);
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void acquire_atLimit_waitsForRelease() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(1, 1, 1);
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.release(HOST, FAST, FetchOutcome.OK);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void constructor_initialOutsideBounds_throws() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(20, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> limiter(1, 0, 10));
+    }
+
+    @Test
+    void release_serverKeepingUp_growsLimitByOnePerWindow() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(10, 1, 200);
+
+        simulate(limiter, 20, Integer.MAX_VALUE);
+
+        List<Integer> limits = limiter.getHistory().stream().map(LimitChange::getLimit).toList();
+        assertTrue(limiter.getLimit() >= 28 && limiter.getLimit() <= 30, String.valueOf(limiter.getLimit()));
+        for (int i = 1; i < limits.size(); i++) {
+            assertEquals(limits.get(i - 1) + 1, limits.get(i), limits.toString());
+        }
+    }
+
+    @Test
+    void release_serverTurningAwayFetchesBeyondItsCapacity_keepsLimitAroundCapacity() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = limiter(10, 1, 64);
+
+        simulate(limiter, 100, 4);
+
+        List<Integer> limits = limiter.getHistory().stream().map(LimitChange::getLimit).toList();
+        // Cut in half on the first round, then a sawtooth just above the capacity: grow by one, get cut again.
+        assertEquals(List.of(10, 5), limits.subList(0, 2));
+        assertTrue(limits.subList(2, limits.size()).stream().allMatch(limit -> limit >= 2 && limit <= 5),
+                limits.toString());
+        assertTrue(limits.size() > 20, limits.toString());
+    }
+
+    private AimdConcurrencyLimiter limiter(int initial, int min, int max) {
+        return new AimdConcurrencyLimiter(initial, min, max, limitChanges::add);
+    }
+
+    private static void releaseAll(ConcurrencyLimiter limiter, int fetches, long latencyNanos, FetchOutcome outcome)
+            throws InterruptedException {
+        releaseAll(limiter, HOST, fetches, latencyNanos, outcome);
+    }
+
+    private static void releaseAll(ConcurrencyLimiter limiter, String host, int fetches, long latencyNanos,
+                                   FetchOutcome outcome) throws InterruptedException {
+        for (int i = 0; i < fetches; i++) {
+            limiter.acquire();
+            limiter.release(host, latencyNanos, outcome);
+        }
+    }
+
+    /**
+     * Runs {@code rounds} of fetches against a server which answers {@code capacity} fetches at a time and turns away
+     * the rest. Every round sends as many fetches at once as the limit lets through and waits for all of them.
+     */
+    private static void simulate(AimdConcurrencyLimiter limiter, int rounds, int capacity)
+            throws InterruptedException {
+        for (int round = 0; round < rounds; round++) {
+            int fetches = limiter.getLimit();
+            for (int i = 0; i < fetches; i++) {
+                limiter.acquire();
+            }
+            for (int i = 0; i < fetches; i++) {
+                limiter.release(HOST, FAST, i < capacity ? FetchOutcome.OK : FetchOutcome.OVERLOADED);
+            }
+        }
+    }
+}
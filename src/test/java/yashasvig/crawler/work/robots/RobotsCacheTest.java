@@ -0,0 +1,167 @@
+package yashasvig.crawler.work.robots;
+
+import com.google.common.base.Ticker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsCacheTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final FakeTicker ticker = new FakeTicker();
+    private volatile int status = 200;
+    private volatile String robotsTxt = "User-agent: *\nDisallow: /private\n";
+    // The server answers only once this is counted down.
+    private volatile CountDownLatch answer = new CountDownLatch(0);
+
+    private HttpServer server;
+    private RobotsCache cache;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/robots.txt", this::respond);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        cache = new RobotsCache(HttpClient.newHttpClient(), "WebCrawler", Duration.ofMinutes(1), ticker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void rulesFor_sameHost_fetchesOnce() {
+        RobotsRules first = cache.rulesFor(URI.create(baseUrl + "/a"));
+        RobotsRules second = cache.rulesFor(URI.create(baseUrl + "/private/b"));
+
+        assertSame(first, second);
+        assertFalse(first.isAllowed("/private/b"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void rulesFor_expired_servesStaleRulesWhileRefetching() throws InterruptedException {
+        RobotsRules first = cache.rulesFor(URI.create(baseUrl + "/"));
+        robotsTxt = "User-agent: *\nDisallow: /\n";
+        ticker.advance(TimeUnit.MINUTES.toNanos(1));
+
+        RobotsRules refreshed = cache.rulesFor(URI.create(baseUrl + "/"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (refreshed == first && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            refreshed = cache.rulesFor(URI.create(baseUrl + "/"));
+        }
+
+        assertEquals(2, requests.get());
+        assertFalse(refreshed.isAllowed("/about"));
+    }
+
+    @Test
+    void rulesFor_expiredWhileServerHangs_returnsStaleRulesRightAway() {
+        RobotsRules first = cache.rulesFor(URI.create(baseUrl + "/"));
+        answer = new CountDownLatch(1);
+        ticker.advance(TimeUnit.MINUTES.toNanos(1));
+
+        try {
+            long start = System.nanoTime();
+            RobotsRules stale = cache.rulesFor(URI.create(baseUrl + "/"));
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertSame(first, stale);
+            assertTrue(elapsedMillis < 1000, elapsedMillis + "ms");
+        } finally {
+            answer.countDown();
+        }
+    }
+
+    @Test
+    void rulesFor_expiredBeforeFirstFetchIsOver_fetchesOnce() throws Exception {
+        answer = new CountDownLatch(1);
+        CompletableFuture<RobotsRules> first = CompletableFuture.supplyAsync(
+                () -> cache.rulesFor(URI.create(baseUrl + "/")));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (requests.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        ticker.advance(TimeUnit.MINUTES.toNanos(1));
+        CompletableFuture<RobotsRules> second = CompletableFuture.supplyAsync(
+                () -> cache.rulesFor(URI.create(baseUrl + "/")));
+
+        answer.countDown();
+
+        assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void rulesFor_notFound_allowsEverything() {
+        status = 404;
+
+        assertSame(RobotsRules.ALLOW_ALL, cache.rulesFor(URI.create(baseUrl + "/")));
+    }
+
+    @Test
+    void rulesFor_serverError_disallowsEverything() {
+        status = 503;
+
+        assertSame(RobotsRules.DISALLOW_ALL, cache.rulesFor(URI.create(baseUrl + "/")));
+    }
+
+    @Test
+    void rulesFor_unreachableHost_disallowsEverything() {
+        server.stop(0);
+
+        assertFalse(cache.rulesFor(URI.create(baseUrl + "/")).isAllowed("/"));
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            answer.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = robotsTxt.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        exchange.close();
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public synchronized long read() {
+            return nanos;
+        }
+
+        private synchronized void advance(long delta) {
+            nanos += delta;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package yashasvig.crawler.work.robots;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsRulesTest {
+
+    private static final String AGENT = "WebCrawler";
+
+    @Test
+    void isAllowed_prefixRules_longestMatchWins() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /private
+                Allow: /private/press
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/"));
+        assertFalse(rules.isAllowed("/private"));
+        assertFalse(rules.isAllowed("/private-notes.html"));
+        assertTrue(rules.isAllowed("/private/press/2023.html"));
+    }
+
+    @Test
+    void isAllowed_sameLength_allowWins() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /page
+                Allow: /page
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/page/1"));
+    }
+
+    @Test
+    void isAllowed_wildcardsAndAnchor_matchWholePattern() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*?page=
+                Disallow: /*.pdf$
+                Allow: /docs/*.pdf$
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/blog?page=2"));
+        assertTrue(rules.isAllowed("/blog?tag=news"));
+        assertFalse(rules.isAllowed("/files/report.pdf"));
+        assertTrue(rules.isAllowed("/files/report.pdf.html"));
+        assertTrue(rules.isAllowed("/docs/guide.pdf"));
+    }
+
+    @Test
+    void isAllowed_uri_includesQuery() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /search?\n", AGENT);
+
+        assertFalse(rules.isAllowed(URI.create("https://monzo.com/search?q=cards")));
+        assertTrue(rules.isAllowed(URI.create("https://monzo.com/search")));
+        assertTrue(rules.isAllowed(URI.create("https://monzo.com")));
+    }
+
+    @Test
+    void parse_ownGroup_replacesWildcardGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                # Everyone else stays out.
+                User-agent: *
+                Disallow: /
+
+                User-agent: OtherBot
+                User-agent: webcrawler
+                Disallow: /admin
+                Crawl-delay: 2.5
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/about"));
+        assertFalse(rules.isAllowed("/admin/users"));
+        assertEquals(2.5, rules.getCrawlDelaySeconds());
+    }
+
+    @Test
+    void parse_emptyOwnGroup_allowsEverything() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /
+
+                User-agent: WebCrawler
+                Disallow:
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/about"));
+        assertEquals(0, rules.getCrawlDelaySeconds());
+    }
+
+    @Test
+    void parse_noGroupForAgent_usesWildcardGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: OtherBot
+                Disallow: /
+
+                User-agent: *
+                Disallow: /tmp/
+                Crawl-delay: 1
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/about"));
+        assertFalse(rules.isAllowed("/tmp/a"));
+        assertEquals(1, rules.getCrawlDelaySeconds());
+    }
+}
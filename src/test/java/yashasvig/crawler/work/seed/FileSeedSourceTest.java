@@ -0,0 +1,60 @@
+package yashasvig.crawler.work.seed;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileSeedSourceTest {
+
+    private static final String SEEDS = """
+            # Seeds of monzo.com
+            https://monzo.com/a
+
+              https://monzo.com/b
+            not a url at all
+            https://monzo.com/c
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_plainFile_skipsCommentsBlankAndInvalidLines() throws IOException {
+        Path file = directory.resolve("seeds.txt");
+        Files.writeString(file, SEEDS);
+
+        assertEquals(expected(), read(file));
+    }
+
+    @Test
+    void read_gzippedFile_readsSameUrls() throws IOException {
+        Path file = directory.resolve("seeds.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(SEEDS.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(expected(), read(file));
+    }
+
+    private static List<URI> expected() {
+        return List.of(URI.create("https://monzo.com/a"), URI.create("https://monzo.com/b"),
+                URI.create("https://monzo.com/c"));
+    }
+
+    private static List<URI> read(Path file) throws IOException {
+        List<URI> urls = new ArrayList<>();
+        SeedSource.file(file).read(urls::add);
+        return urls;
+    }
+}
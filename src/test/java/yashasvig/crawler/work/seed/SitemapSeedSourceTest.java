@@ -0,0 +1,176 @@
+package yashasvig.crawler.work.seed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SitemapSeedSourceTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void read_urlSet_passesEveryLoc() throws IOException {
+        serve("/sitemap.xml", urlSet("https://monzo.com/a", "https://monzo.com/b").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of(URI.create("https://monzo.com/a"), URI.create("https://monzo.com/b")),
+                read(URI.create(baseUrl + "/sitemap.xml")));
+    }
+
+    @Test
+    void read_index_readsListedSitemapsAndSkipsMissingOnes() throws IOException {
+        serve("/sitemap.xml", ("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>%1$s/pages.xml.gz</loc></sitemap>
+                  <sitemap><loc>%1$s/missing.xml</loc></sitemap>
+                  <sitemap><loc>%1$s/blog.xml</loc></sitemap>
+                </sitemapindex>
+                """.formatted(baseUrl)).getBytes(StandardCharsets.UTF_8));
+        serve("/pages.xml.gz", gzip(urlSet("https://monzo.com/a", "https://monzo.com/b")));
+        serve("/blog.xml", urlSet("https://monzo.com/blog").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of(URI.create("https://monzo.com/a"), URI.create("https://monzo.com/b"),
+                URI.create("https://monzo.com/blog")), read(URI.create(baseUrl + "/sitemap.xml")));
+    }
+
+    @Test
+    void read_file_passesEveryLoc(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("sitemap.xml");
+        Files.writeString(file, urlSet("https://monzo.com/a"));
+
+        assertEquals(List.of(URI.create("https://monzo.com/a")), read(file.toUri()));
+    }
+
+    @Test
+    void read_notFound_throws() {
+        assertThrows(IOException.class, () -> read(URI.create(baseUrl + "/sitemap.xml")));
+    }
+
+    @Test
+    void read_externalEntity_throws(@TempDir Path directory) throws IOException {
+        Path secret = directory.resolve("secret.txt");
+        Files.writeString(secret, "https://monzo.com/secret");
+        serve("/sitemap.xml", ("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!DOCTYPE urlset [<!ENTITY secret SYSTEM "%s">]>
+                <urlset><url><loc>&secret;</loc></url></urlset>
+                """.formatted(secret.toUri())).getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> read(URI.create(baseUrl + "/sitemap.xml")));
+    }
+
+    @Test
+    void read_indexListingOtherOriginsOrLocalFiles_skipsThem(@TempDir Path directory) throws IOException {
+        Path secret = directory.resolve("secret.xml");
+        Files.writeString(secret, urlSet("https://monzo.com/secret"));
+        serve("/sitemap.xml", ("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>%s</loc></sitemap>
+                  <sitemap><loc>http://127.0.0.1:%d/blog.xml</loc></sitemap>
+                  <sitemap><loc>%s/blog.xml</loc></sitemap>
+                </sitemapindex>
+                """.formatted(secret.toUri(), server.getAddress().getPort(), baseUrl))
+                .getBytes(StandardCharsets.UTF_8));
+        serve("/blog.xml", urlSet("https://monzo.com/blog").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of(URI.create("https://monzo.com/blog")), read(URI.create(baseUrl + "/sitemap.xml")));
+    }
+
+    @Test
+    void read_localIndex_readsListedSitemapsOverHttp(@TempDir Path directory) throws IOException {
+        Path index = directory.resolve("sitemap.xml");
+        Files.writeString(index, """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>%s/blog.xml</loc></sitemap>
+                </sitemapindex>
+                """.formatted(baseUrl));
+        serve("/blog.xml", urlSet("https://monzo.com/blog").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of(URI.create("https://monzo.com/blog")), read(index.toUri()));
+    }
+
+    @Test
+    void read_http_sendsUserAgent() throws IOException {
+        List<String> userAgents = new ArrayList<>();
+        byte[] body = urlSet("https://monzo.com/a").getBytes(StandardCharsets.UTF_8);
+        server.createContext("/sitemap.xml", exchange -> {
+            userAgents.add(exchange.getRequestHeaders().getFirst("User-Agent"));
+            respond(exchange, body);
+        });
+
+        read(URI.create(baseUrl + "/sitemap.xml"));
+
+        assertEquals(List.of("WebCrawler"), userAgents);
+    }
+
+    private static List<URI> read(URI sitemap) throws IOException {
+        List<URI> urls = new ArrayList<>();
+        SeedSource.sitemap(sitemap, "WebCrawler").read(urls::add);
+        return urls;
+    }
+
+    private static String urlSet(String... urls) {
+        StringBuilder xml = new StringBuilder("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                """);
+        for (String url : urls) {
+            xml.append("  <url><loc>").append(url).append("</loc></url>\n");
+        }
+        return xml.append("</urlset>\n").toString();
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void serve(String path, byte[] body) {
+        server.createContext(path, exchange -> respond(exchange, body));
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        exchange.close();
+    }
+}
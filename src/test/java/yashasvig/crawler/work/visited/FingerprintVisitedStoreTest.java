@@ -0,0 +1,86 @@
+package yashasvig.crawler.work.visited;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintVisitedStoreTest {
+
+    private final FingerprintVisitedStore store = new FingerprintVisitedStore();
+
+    @Test
+    void markVisited_sameUrlTwice_returnsFalseSecondTime() {
+        assertTrue(store.markVisited("https://monzo.com/about"));
+        assertFalse(store.markVisited("https://monzo.com/about"));
+        assertTrue(store.markVisited("https://monzo.com/about/"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void add_zeroFingerprint_isStored() {
+        assertFalse(store.contains(0L));
+        assertTrue(store.add(0L));
+        assertTrue(store.contains(0L));
+        assertFalse(store.add(0L));
+    }
+
+    @Test
+    void markVisited_manyDistinctUrls_noneReportedAsDuplicate() {
+        int urls = 1_000_000;
+        for (int i = 0; i < urls; i++) {
+            assertTrue(store.markVisited("https://monzo.com/page/" + i));
+        }
+        assertEquals(urls, store.size());
+    }
+
+    @Test
+    void markVisited_concurrentWriters_eachUrlAcceptedOnce() throws InterruptedException {
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    if (store.markVisited("https://monzo.com/page/" + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(50_000, accepted.get());
+        assertEquals(50_000, store.size());
+    }
+
+    @Test
+    void memoryBytes_isAnOrderOfMagnitudeBelowStringStore() {
+        StringVisitedStore stringStore = new StringVisitedStore();
+        for (int i = 0; i < 200_000; i++) {
+            String url = "https://monzo.com/legal/terms-and-conditions/" + i;
+            store.markVisited(url);
+            stringStore.markVisited(url);
+        }
+
+        double fingerprintBytesPerUrl = (double) store.memoryBytes() / store.size();
+        double stringBytesPerUrl = (double) stringStore.memoryBytes() / stringStore.size();
+        assertTrue(fingerprintBytesPerUrl * 5 < stringBytesPerUrl,
+                String.format("%.1f vs %.1f bytes per url", fingerprintBytesPerUrl, stringBytesPerUrl));
+    }
+
+    @Test
+    void collisionProbability_followsBirthdayBound() {
+        assertEquals(0, FingerprintVisitedStore.collisionProbability(1));
+        assertEquals(2.7e-8, FingerprintVisitedStore.collisionProbability(1_000_000), 1e-9);
+        assertEquals(0.39, FingerprintVisitedStore.collisionProbability(4_294_967_296L), 0.01);
+    }
+}
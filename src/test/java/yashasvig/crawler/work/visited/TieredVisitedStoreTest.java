@@ -0,0 +1,152 @@
+package yashasvig.crawler.work.visited;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredVisitedStoreTest {
+
+    private static final int BUFFER_LIMIT = 256;
+
+    @TempDir
+    Path directory;
+
+    private TieredVisitedStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TieredVisitedStore(directory, 100_000, BUFFER_LIMIT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void markVisited_urlsFlushedToDisk_areStillReportedAsVisited() throws IOException {
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(store.markVisited(url(i)));
+        }
+        assertTrue(store.diskBytes() > 0);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 0);
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            assertFalse(store.markVisited(url(i)), url(i));
+        }
+        assertEquals(50_000, store.size());
+    }
+
+    @Test
+    void markAllVisited_reportsNewUrlsOnlyOnce() {
+        store.markAllVisited(List.of(url(1), url(2)));
+
+        boolean[] result = store.markAllVisited(List.of(url(2), url(3), url(3), url(1), url(4)));
+
+        assertArrayEquals(new boolean[]{false, true, false, false, true}, result);
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    void markAllVisited_matchesExactSet() {
+        StringVisitedStore exact = new StringVisitedStore();
+        for (int page = 0; page < 2_000; page++) {
+            List<String> batch = new ArrayList<>();
+            for (int link = 0; link < 50; link++) {
+                batch.add(url((page * 31 + link * 17) % 30_000));
+            }
+            assertArrayEquals(exact.markAllVisited(batch), store.markAllVisited(batch));
+        }
+        assertEquals(exact.size(), store.size());
+    }
+
+    @Test
+    void memoryBytes_staysFlatWhileCrawlGrows() {
+        for (int i = 0; i < 20_000; i++) {
+            store.markVisited(url(i));
+        }
+        long memoryAfterFirstBatch = store.memoryBytes();
+        for (int i = 20_000; i < 100_000; i++) {
+            store.markVisited(url(i));
+        }
+
+        assertEquals(memoryAfterFirstBatch, store.memoryBytes());
+    }
+
+    @Test
+    void markAllVisited_costsWellUnderAMillisecondPerUrl() {
+        int pages = 2_000;
+        int linksPerPage = 50;
+        long start = System.nanoTime();
+        for (int page = 0; page < pages; page++) {
+            List<String> batch = new ArrayList<>();
+            for (int link = 0; link < linksPerPage; link++) {
+                // roughly half of the links point to pages seen before
+                batch.add(url(page * linksPerPage / 2 + link));
+            }
+            store.markAllVisited(batch);
+        }
+        double microsPerUrl = (System.nanoTime() - start) / 1000.0 / (pages * linksPerPage);
+
+        assertTrue(microsPerUrl < 1000, microsPerUrl + "us per url");
+    }
+
+    @Test
+    void markVisited_manyFlushes_mergesOnlyFilesOfSimilarSize() throws IOException {
+        for (int i = 0; i < 200_000; i++) {
+            store.markVisited(url(i));
+        }
+
+        Map<String, List<Long>> sizesPerStripe = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory).sorted()) {
+            for (Path file : files.toList()) {
+                String stripe = file.getFileName().toString().substring(0, "visited-00".length());
+                sizesPerStripe.computeIfAbsent(stripe, s -> new ArrayList<>()).add(Files.size(file));
+            }
+        }
+        for (List<Long> sizes : sizesPerStripe.values()) {
+            // Around 50 flushes per stripe, which end up as three files of 16 flushes each and the latest flushes.
+            assertTrue(sizes.size() < 10, sizes.toString());
+            for (int i = 1; i < sizes.size(); i++) {
+                assertTrue(sizes.get(i) <= 2 * sizes.get(i - 1), sizes.toString());
+            }
+            assertTrue(sizes.get(0) > 8 * BUFFER_LIMIT * Long.BYTES, sizes.toString());
+        }
+        for (int i = 0; i < 200_000; i += 7) {
+            assertFalse(store.markVisited(url(i)), url(i));
+        }
+    }
+
+    @Test
+    void close_deletesFiles() throws IOException {
+        for (int i = 0; i < 10_000; i++) {
+            store.markVisited(url(i));
+        }
+        store.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static String url(int i) {
+        return "https://monzo.com/page/" + i;
+    }
+}